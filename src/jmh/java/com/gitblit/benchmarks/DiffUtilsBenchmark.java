@@ -0,0 +1,108 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gitblit.utils.DiffUtils;
+import com.gitblit.utils.DiffUtils.DiffComparator;
+import com.gitblit.utils.DiffUtils.DiffOutput;
+import com.gitblit.utils.DiffUtils.DiffOutputType;
+import com.gitblit.utils.DiffUtils.DiffStat;
+import com.gitblit.utils.FileUtils;
+import com.gitblit.utils.JGitUtils;
+
+/**
+ * Measures the diffs and diffstats of the commit and compare pages.
+ *
+ * @since 1.10.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiffUtilsBenchmark {
+
+	@Param({ "200" })
+	public int files;
+
+	/**
+	 * The number of commits between the compared commits.
+	 */
+	@Param({ "1", "20" })
+	public int distance;
+
+	private File baseFolder;
+
+	private Repository db;
+
+	private RevCommit base;
+
+	private RevCommit tip;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		baseFolder = Files.createTempDirectory("gitblit-jmh").toFile();
+		String name = Fixtures.repositoryName(0);
+		List<ObjectId> history = Fixtures.createRepository(baseFolder, name, distance + 1, files);
+		db = JGitUtils.createRepository(baseFolder, name);
+		base = JGitUtils.getCommit(db, history.get(0).getName());
+		tip = JGitUtils.getCommit(db, history.get(distance).getName());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		db.close();
+		FileUtils.delete(baseFolder);
+	}
+
+	@Benchmark
+	public DiffOutput htmlDiff() {
+		return DiffUtils.getDiff(db, base, tip, DiffComparator.SHOW_WHITESPACE, DiffOutputType.HTML, null, 4);
+	}
+
+	@Benchmark
+	public DiffOutput plainDiff() {
+		return DiffUtils.getDiff(db, base, tip, DiffComparator.SHOW_WHITESPACE, DiffOutputType.PLAIN, null, 4);
+	}
+
+	@Benchmark
+	public DiffStat diffStat() {
+		return DiffUtils.getDiffStat(db, base, tip, null);
+	}
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+
+import com.gitblit.ConfigUserService;
+import com.gitblit.Constants.AccessPermission;
+import com.gitblit.IStoredSettings;
+import com.gitblit.models.TeamModel;
+import com.gitblit.models.UserModel;
+import com.gitblit.tests.mock.MockRuntimeManager;
+import com.gitblit.utils.JGitUtils;
+
+/**
+ * Generates the synthetic repositories, user stores and documents measured
+ * by the benchmarks.
+ *
+ * All content is derived from a fixed seed and a fixed clock so that two runs
+ * with the same parameters measure the same data.
+ *
+ * @since 1.10.0
+ */
+public class Fixtures {
+
+	public static final long SEED = 0x6769746c6c6974L;
+
+	private static final long EPOCH = 1767225600000L;
+
+	private static final String [] WORDS = {
+		"repository", "commit", "branch", "ticket", "review", "patchset", "merge",
+		"clone", "push", "fetch", "index", "object", "tree", "blob", "tag", "ref",
+		"user", "team", "permission", "federation", "mirror", "lucene", "search",
+		"the", "a", "of", "to", "and", "is", "in", "for", "with", "on", "it"
+	};
+
+	/**
+	 * Returns a random sentence.
+	 */
+	public static String sentence(Random random, int words) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < words; i++) {
+			if (i > 0) {
+				sb.append(' ');
+			}
+			sb.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a random source file of the given number of lines.
+	 */
+	public static String source(Random random, String name, int lines) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("package com.example;\n\n");
+		sb.append("public class ").append(name).append(" {\n\n");
+		for (int i = 0; i < lines; i++) {
+			if (i % 10 == 0) {
+				sb.append("\t// ").append(sentence(random, 8)).append('\n');
+			}
+			sb.append("\tString field").append(i).append(" = \"").append(sentence(random, 5)).append("\";\n");
+		}
+		sb.append("}\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a random markdown document with headings, lists, links, code
+	 * blocks and tables.
+	 */
+	public static String markdown(Random random, int sections) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < sections; i++) {
+			sb.append("## ").append(sentence(random, 4)).append("\n\n");
+			sb.append(sentence(random, 40)).append(" *").append(sentence(random, 3)).append("* ");
+			sb.append("[").append(sentence(random, 2)).append("](http://gitblit.com/").append(i).append(")\n\n");
+			for (int j = 0; j < 5; j++) {
+				sb.append("- ").append(sentence(random, 8)).append(" `code").append(j).append("`\n");
+			}
+			sb.append("\n    ").append(sentence(random, 6)).append("\n    ").append(sentence(random, 6)).append("\n\n");
+			sb.append("| name | value |\n|------|-------|\n");
+			for (int j = 0; j < 3; j++) {
+				sb.append("| ").append(WORDS[random.nextInt(WORDS.length)]).append(" | ").append(j).append(" |\n");
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Creates a repository with a linear history.  Every commit rewrites a
+	 * tenth of the files, the master branch points to the last commit and
+	 * there is a branch for every tenth commit.
+	 *
+	 * @param repositoriesFolder
+	 * @param name
+	 * @param commits
+	 * @param files
+	 * @return the head commits in the order of creation
+	 */
+	public static List<ObjectId> createRepository(File repositoriesFolder, String name,
+			int commits, int files) throws IOException {
+
+		Random random = new Random(SEED ^ name.hashCode());
+		List<ObjectId> history = new ArrayList<ObjectId>();
+		Repository db = JGitUtils.createRepository(repositoriesFolder, name);
+		ObjectInserter inserter = db.newObjectInserter();
+		try {
+			TreeMap<String, ObjectId> tree = new TreeMap<String, ObjectId>();
+			ObjectId parent = null;
+			for (int i = 0; i < commits; i++) {
+				int changes = i == 0 ? files : Math.max(1, files / 10);
+				for (int j = 0; j < changes; j++) {
+					int file = i == 0 ? j : random.nextInt(files);
+					String path = String.format("src/module%d/File%04d.java", file % 10, file);
+					String content = source(random, String.format("File%04d", file), 50 + random.nextInt(100));
+					tree.put(path, inserter.insert(Constants.OBJ_BLOB, Constants.encode(content)));
+				}
+				tree.put("README.md", inserter.insert(Constants.OBJ_BLOB,
+						Constants.encode(markdown(random, 3))));
+
+				DirCache index = DirCache.newInCore();
+				DirCacheBuilder builder = index.builder();
+				for (Map.Entry<String, ObjectId> entry : tree.entrySet()) {
+					DirCacheEntry dce = new DirCacheEntry(entry.getKey());
+					dce.setFileMode(FileMode.REGULAR_FILE);
+					dce.setObjectId(entry.getValue());
+					builder.add(dce);
+				}
+				builder.finish();
+
+				PersonIdent ident = new PersonIdent("author" + (i % 7), "author" + (i % 7) + "@gitblit.com",
+						new Date(EPOCH + i * 60000L), TimeZone.getTimeZone("UTC"));
+				CommitBuilder commit = new CommitBuilder();
+				commit.setTreeId(index.writeTree(inserter));
+				if (parent != null) {
+					commit.setParentId(parent);
+				}
+				commit.setAuthor(ident);
+				commit.setCommitter(ident);
+				commit.setMessage(sentence(random, 6) + "\n\n" + sentence(random, 30) + "\n");
+				parent = inserter.insert(commit);
+				history.add(parent);
+
+				if (i % 10 == 9) {
+					inserter.flush();
+					updateRef(db, "refs/heads/branch" + i, parent);
+				}
+			}
+			inserter.flush();
+			if (parent != null) {
+				updateRef(db, Constants.R_HEADS + Constants.MASTER, parent);
+			}
+		} finally {
+			inserter.close();
+			db.close();
+		}
+		return history;
+	}
+
+	private static void updateRef(Repository db, String ref, ObjectId id) throws IOException {
+		RefUpdate ru = db.updateRef(ref);
+		ru.setNewObjectId(id);
+		ru.forceUpdate();
+	}
+
+	/**
+	 * Creates a users.conf user store.  Every team has explicit and regex
+	 * permissions, every user is a member of two teams and has explicit
+	 * permissions of its own.
+	 *
+	 * @param settings
+	 * @param realmFile
+	 * @param users
+	 * @param teams
+	 * @param repositories
+	 *            the number of repositories named like
+	 *            {@link #repositoryName(int)}
+	 * @return the user service
+	 */
+	public static ConfigUserService createUserService(IStoredSettings settings, File realmFile,
+			int users, int teams, int repositories) {
+
+		Random random = new Random(SEED);
+		ConfigUserService service = new ConfigUserService(realmFile);
+		service.setup(new MockRuntimeManager(settings));
+
+		List<TeamModel> teamModels = new ArrayList<TeamModel>();
+		for (int i = 0; i < teams; i++) {
+			TeamModel team = new TeamModel("team" + i);
+			for (int j = 0; j < 10; j++) {
+				team.setRepositoryPermission(repositoryName(random.nextInt(repositories)), AccessPermission.PUSH);
+			}
+			team.setRepositoryPermission(String.format("project%02d/.*", i % 50), AccessPermission.CLONE);
+			teamModels.add(team);
+		}
+		service.updateTeamModels(teamModels);
+
+		List<UserModel> userModels = new ArrayList<UserModel>();
+		for (int i = 0; i < users; i++) {
+			UserModel user = new UserModel("user" + i);
+			user.password = "password" + i;
+			for (int j = 0; j < 5; j++) {
+				user.setRepositoryPermission(repositoryName(random.nextInt(repositories)), AccessPermission.REWIND);
+			}
+			if (teams > 0) {
+				user.teams.add(teamModels.get(i % teams));
+				user.teams.add(teamModels.get((i * 7 + 1) % teams));
+			}
+			userModels.add(user);
+		}
+		service.updateUserModels(userModels);
+		return service;
+	}
+
+	/**
+	 * Returns the name of the nth synthetic repository.
+	 */
+	public static String repositoryName(int i) {
+		return String.format("project%02d/repository%05d.git", i % 50, i);
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gitblit.models.PathModel;
+import com.gitblit.models.PathModel.PathChangeModel;
+import com.gitblit.models.RefModel;
+import com.gitblit.utils.FileUtils;
+import com.gitblit.utils.JGitUtils;
+
+/**
+ * Measures the repository queries behind the summary, log and tree pages.
+ *
+ * @since 1.10.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JGitUtilsBenchmark {
+
+	@Param({ "1000" })
+	public int commits;
+
+	@Param({ "200" })
+	public int files;
+
+	private File baseFolder;
+
+	private Repository db;
+
+	private RevCommit head;
+
+	private RevCommit middle;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		baseFolder = Files.createTempDirectory("gitblit-jmh").toFile();
+		String name = Fixtures.repositoryName(0);
+		List<ObjectId> history = Fixtures.createRepository(baseFolder, name, commits, files);
+		db = JGitUtils.createRepository(baseFolder, name);
+		head = JGitUtils.getCommit(db, history.get(history.size() - 1).getName());
+		middle = JGitUtils.getCommit(db, history.get(history.size() / 2).getName());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		db.close();
+		FileUtils.delete(baseFolder);
+	}
+
+	@Benchmark
+	public List<RevCommit> revLog() {
+		return JGitUtils.getRevLog(db, null, 0, 50);
+	}
+
+	@Benchmark
+	public List<RevCommit> revLogOffset() {
+		return JGitUtils.getRevLog(db, null, commits / 2, 50);
+	}
+
+	@Benchmark
+	public List<RevCommit> revLogPath() {
+		return JGitUtils.getRevLog(db, null, "src/module3", 0, 50);
+	}
+
+	@Benchmark
+	public List<PathModel> filesInPath() {
+		return JGitUtils.getFilesInPath(db, "src/module3", head);
+	}
+
+	@Benchmark
+	public List<PathChangeModel> filesInCommit() {
+		return JGitUtils.getFilesInCommit(db, middle);
+	}
+
+	@Benchmark
+	public List<RefModel> localBranches() {
+		return JGitUtils.getLocalBranches(db, true, -1);
+	}
+
+	@Benchmark
+	public String stringContent() {
+		return JGitUtils.getStringContent(db, head.getTree(), "README.md");
+	}
+}
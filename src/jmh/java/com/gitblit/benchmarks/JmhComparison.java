@@ -0,0 +1,177 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.gitblit.utils.FileUtils;
+import com.gitblit.utils.StringUtils;
+import com.google.gson.Gson;
+
+/**
+ * Compares the JSON results of a JMH run with the results of a baseline run
+ * and reports the change of every benchmark.
+ *
+ * A change is reported as a regression or an improvement if it exceeds the
+ * threshold and the error intervals of both runs do not overlap.
+ *
+ * <pre>
+ * java com.gitblit.benchmarks.JmhComparison baseline.json results.json [threshold%] [report]
+ * </pre>
+ *
+ * The exit code is 1 if a benchmark regressed.
+ *
+ * @since 1.10.0
+ */
+public class JmhComparison {
+
+	static class Result {
+		String benchmark;
+		String mode;
+		Map<String, String> params;
+		Metric primaryMetric;
+
+		String getKey() {
+			// class and method name
+			int dot = benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1);
+			StringBuilder sb = new StringBuilder(benchmark.substring(dot + 1));
+			if (params != null && !params.isEmpty()) {
+				sb.append(new TreeMap<String, String>(params));
+			}
+			return sb.toString();
+		}
+	}
+
+	static class Metric {
+		double score;
+		double scoreError;
+		String scoreUnit;
+	}
+
+	public static void main(String... args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("usage: JmhComparison <baseline.json> <results.json> [threshold%] [report]");
+			System.exit(2);
+		}
+		double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 5;
+		Map<String, Result> baseline = read(new File(args[0]));
+		Map<String, Result> results = read(new File(args[1]));
+
+		StringBuilder sb = new StringBuilder();
+		int regressions = compare(baseline, results, threshold, sb);
+		System.out.print(sb);
+		if (args.length > 3) {
+			File report = new File(args[3]);
+			FileUtils.writeContent(report, sb.toString());
+			System.out.println("report written to " + report.getAbsolutePath());
+		}
+		System.exit(regressions > 0 ? 1 : 0);
+	}
+
+	static Map<String, Result> read(File file) throws IOException {
+		Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+		try {
+			Result [] list = new Gson().fromJson(reader, Result[].class);
+			Map<String, Result> map = new LinkedHashMap<String, Result>();
+			for (Result result : list) {
+				map.put(result.getKey(), result);
+			}
+			return map;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Writes the comparison table.
+	 *
+	 * @return the number of regressions
+	 */
+	static int compare(Map<String, Result> baseline, Map<String, Result> results, double threshold, StringBuilder sb) {
+		int width = "benchmark".length();
+		for (String key : results.keySet()) {
+			width = Math.max(width, key.length());
+		}
+		for (String key : baseline.keySet()) {
+			width = Math.max(width, key.length());
+		}
+		String format = "%-" + width + "s  %20s  %20s  %8s  %-6s  %s%n";
+		sb.append(String.format(format, "benchmark", "baseline", "current", "change", "unit", ""));
+		sb.append(StringUtils.leftPad("", width + 72, '-')).append('\n');
+
+		int regressions = 0;
+		int improvements = 0;
+		for (Map.Entry<String, Result> entry : results.entrySet()) {
+			Result current = entry.getValue();
+			Result base = baseline.get(entry.getKey());
+			String unit = current.primaryMetric.scoreUnit;
+			if (base == null) {
+				sb.append(String.format(format, entry.getKey(), "-", score(current), "", unit, "new"));
+				continue;
+			}
+			if (!base.primaryMetric.scoreUnit.equals(unit) || !base.mode.equals(current.mode)) {
+				sb.append(String.format(format, entry.getKey(), score(base), score(current), "", unit,
+						"not comparable, " + base.primaryMetric.scoreUnit + " " + base.mode));
+				continue;
+			}
+			double b = base.primaryMetric.score;
+			double c = current.primaryMetric.score;
+			double change = b == 0 ? 0 : (c - b) * 100 / b;
+			// throughput is better if higher, all other modes measure time
+			boolean worse = "thrpt".equals(current.mode) ? c < b : c > b;
+			boolean significant = Math.abs(change) > threshold
+					&& Math.abs(c - b) > error(base) + error(current);
+			String verdict = "";
+			if (significant && worse) {
+				verdict = "REGRESSION";
+				regressions++;
+			} else if (significant) {
+				verdict = "improvement";
+				improvements++;
+			}
+			sb.append(String.format(format, entry.getKey(), score(base), score(current),
+					String.format("%+.1f%%", change), unit, verdict));
+		}
+		for (String key : baseline.keySet()) {
+			if (!results.containsKey(key)) {
+				Result base = baseline.get(key);
+				sb.append(String.format(format, key, score(base), "-", "", base.primaryMetric.scoreUnit, "removed"));
+			}
+		}
+		sb.append(String.format("%n%d regressions, %d improvements, threshold %.1f%%%n", regressions, improvements, threshold));
+		return regressions;
+	}
+
+	private static double error(Result result) {
+		double error = result.primaryMetric.scoreError;
+		return Double.isNaN(error) ? 0 : error;
+	}
+
+	private static String score(Result result) {
+		if (Double.isNaN(result.primaryMetric.scoreError)) {
+			return String.format("%.3f", result.primaryMetric.score);
+		}
+		return String.format("%.3f \u00b1 %.3f", result.primaryMetric.score, result.primaryMetric.scoreError);
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.lib.Repository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gitblit.Keys;
+import com.gitblit.manager.RepositoryManager;
+import com.gitblit.manager.RuntimeManager;
+import com.gitblit.manager.UserManager;
+import com.gitblit.models.RefModel;
+import com.gitblit.models.RepositoryModel;
+import com.gitblit.models.SearchResult;
+import com.gitblit.service.LuceneService;
+import com.gitblit.tests.mock.MemorySettings;
+import com.gitblit.utils.FileUtils;
+import com.gitblit.utils.JGitUtils;
+import com.gitblit.utils.XssFilter.AllowXssFilter;
+
+/**
+ * Measures searching the Lucene indexes of synthetic repositories for
+ * commits and blobs.
+ *
+ * @since 1.10.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LuceneSearchBenchmark {
+
+	@Param({ "4" })
+	public int repositories;
+
+	@Param({ "200" })
+	public int commits;
+
+	@Param({ "100" })
+	public int files;
+
+	private File baseFolder;
+
+	private RuntimeManager runtimeManager;
+
+	private UserManager userManager;
+
+	private LuceneService lucene;
+
+	private String [] names;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		baseFolder = Files.createTempDirectory("gitblit-jmh").toFile();
+		File repositoriesFolder = new File(baseFolder, "git");
+		MemorySettings settings = new MemorySettings();
+		settings.put(Keys.git.repositoriesFolder, repositoriesFolder.getAbsolutePath());
+		runtimeManager = new RuntimeManager(settings, new AllowXssFilter(), baseFolder).start();
+		userManager = new UserManager(runtimeManager, null).start();
+		RepositoryManager repositoryManager = new RepositoryManager(runtimeManager, null, userManager);
+		lucene = new LuceneService(settings, repositoryManager);
+
+		names = new String[repositories];
+		for (int i = 0; i < repositories; i++) {
+			names[i] = Fixtures.repositoryName(i);
+			Fixtures.createRepository(repositoriesFolder, names[i], commits, files);
+			Repository db = JGitUtils.createRepository(repositoriesFolder, names[i]);
+			try {
+				RepositoryModel model = new RepositoryModel();
+				model.name = names[i];
+				model.hasCommits = true;
+				model.indexedBranches = new ArrayList<String>();
+				for (RefModel ref : JGitUtils.getLocalBranches(db, true, -1)) {
+					model.indexedBranches.add(ref.getName());
+				}
+				lucene.reindex(model, db);
+			} finally {
+				db.close();
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		lucene.close();
+		userManager.stop();
+		runtimeManager.stop();
+		FileUtils.delete(baseFolder);
+	}
+
+	@Benchmark
+	public List<SearchResult> searchOne() {
+		return lucene.search("permission", 1, 50, names[0]);
+	}
+
+	@Benchmark
+	public List<SearchResult> searchAll() {
+		return lucene.search("permission", 1, 50, names);
+	}
+
+	@Benchmark
+	public List<SearchResult> searchQuery() {
+		return lucene.search("type:blob AND mirror", 1, 50, names);
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gitblit.tests.mock.MemorySettings;
+import com.gitblit.utils.MarkdownUtils;
+
+/**
+ * Measures rendering markdown documents like README files, ticket
+ * descriptions and comments.
+ *
+ * @since 1.10.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarkdownUtilsBenchmark {
+
+	@Param({ "1", "20" })
+	public int sections;
+
+	private MemorySettings settings;
+
+	private String markdown;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		settings = new MemorySettings();
+		markdown = Fixtures.markdown(new Random(Fixtures.SEED), sections);
+	}
+
+	@Benchmark
+	public String transformMarkdown() {
+		return MarkdownUtils.transformMarkdown(markdown);
+	}
+
+	@Benchmark
+	public String transformGFM() {
+		return MarkdownUtils.transformGFM(settings, markdown, Fixtures.repositoryName(0));
+	}
+}
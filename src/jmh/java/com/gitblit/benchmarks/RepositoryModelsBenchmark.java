@@ -0,0 +1,145 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.lib.Repository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gitblit.Keys;
+import com.gitblit.manager.IPluginManager;
+import com.gitblit.manager.IRuntimeManager;
+import com.gitblit.manager.IUserManager;
+import com.gitblit.manager.PluginManager;
+import com.gitblit.manager.RepositoryManager;
+import com.gitblit.manager.RuntimeManager;
+import com.gitblit.manager.UserManager;
+import com.gitblit.models.RepositoryModel;
+import com.gitblit.models.UserModel;
+import com.gitblit.tests.mock.MemorySettings;
+import com.gitblit.utils.DeepCopier;
+import com.gitblit.utils.FileUtils;
+import com.gitblit.utils.JGitUtils;
+import com.gitblit.utils.XssFilter.AllowXssFilter;
+
+/**
+ * Measures listing the repositories visible to a user, which copies every
+ * cached repository model, and compares the serialization copy with the
+ * hand-written {@link RepositoryModel#copy()}.
+ *
+ * @since 1.10.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryModelsBenchmark {
+
+	@Param({ "10000" })
+	public int repositories;
+
+	private File baseFolder;
+
+	private IRuntimeManager runtimeManager;
+
+	private IPluginManager pluginManager;
+
+	private IUserManager userManager;
+
+	private RepositoryManager repositoryManager;
+
+	private UserModel admin;
+
+	private UserModel user;
+
+	private RepositoryModel model;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		baseFolder = Files.createTempDirectory("gitblit-jmh").toFile();
+		File repositoriesFolder = new File(baseFolder, "git");
+		for (int i = 0; i < repositories; i++) {
+			Repository db = JGitUtils.createRepository(repositoriesFolder, Fixtures.repositoryName(i));
+			db.close();
+		}
+
+		MemorySettings settings = new MemorySettings();
+		settings.put(Keys.git.repositoriesFolder, repositoriesFolder.getAbsolutePath());
+		settings.put(Keys.git.searchRepositoriesSubfolders, "true");
+		settings.put(Keys.git.cacheRepositoryList, "true");
+		settings.put(Keys.realm.userService, new File(baseFolder, "users.conf").getAbsolutePath());
+
+		runtimeManager = new RuntimeManager(settings, new AllowXssFilter(), baseFolder).start();
+		pluginManager = new PluginManager(runtimeManager).start();
+		userManager = new UserManager(runtimeManager, pluginManager).start();
+		repositoryManager = new RepositoryManager(runtimeManager, pluginManager, userManager).start();
+
+		// populate the model cache
+		repositoryManager.getRepositoryModels();
+
+		admin = new UserModel("admin");
+		admin.canAdmin = true;
+		user = new UserModel("user");
+		model = repositoryManager.getRepositoryModel(repositoryManager.getRepositoryList().get(0));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		repositoryManager.stop();
+		userManager.stop();
+		pluginManager.stop();
+		runtimeManager.stop();
+		FileUtils.delete(baseFolder);
+	}
+
+	@Benchmark
+	public List<RepositoryModel> repositoryModelsAdmin() {
+		return repositoryManager.getRepositoryModels(admin);
+	}
+
+	@Benchmark
+	public List<RepositoryModel> repositoryModelsUser() {
+		return repositoryManager.getRepositoryModels(user);
+	}
+
+	@Benchmark
+	public RepositoryModel serializationCopy() {
+		return DeepCopier.copy(model);
+	}
+
+	@Benchmark
+	public RepositoryModel handWrittenCopy() {
+		return model.copy();
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gitblit.utils.StringUtils;
+
+/**
+ * Measures the string helpers which are called for every line of a rendered
+ * blob, diff or repository list.
+ *
+ * @since 1.10.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StringUtilsBenchmark {
+
+	@Param({ "100" })
+	public int length;
+
+	private String text;
+
+	private String html;
+
+	private List<String> names;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(Fixtures.SEED);
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < length) {
+			sb.append("\t<").append(Fixtures.sentence(random, 2)).append("> & \"quoted\" ");
+		}
+		text = sb.substring(0, length);
+		html = StringUtils.escapeForHtml(text, true);
+		names = new ArrayList<String>();
+		for (int i = 0; i < 1000; i++) {
+			names.add(Fixtures.repositoryName(random.nextInt(10000)));
+		}
+	}
+
+	@Benchmark
+	public String escapeForHtml() {
+		return StringUtils.escapeForHtml(text, true, 4);
+	}
+
+	@Benchmark
+	public String decodeFromHtml() {
+		return StringUtils.decodeFromHtml(html);
+	}
+
+	@Benchmark
+	public String encodeURL() {
+		return StringUtils.encodeURL(text);
+	}
+
+	@Benchmark
+	public String sha1() {
+		return StringUtils.getSHA1(text);
+	}
+
+	@Benchmark
+	public boolean fuzzyMatch() {
+		return StringUtils.fuzzyMatch(names.get(500), "project*/repository*");
+	}
+
+	@Benchmark
+	public List<String> sortRepositoryNames() {
+		List<String> list = new ArrayList<String>(names);
+		StringUtils.sortRepositorynames(list);
+		return list;
+	}
+}
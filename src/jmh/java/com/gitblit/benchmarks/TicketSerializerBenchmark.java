@@ -0,0 +1,100 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gitblit.models.TicketModel;
+import com.gitblit.models.TicketModel.Change;
+import com.gitblit.models.TicketModel.Field;
+import com.gitblit.models.TicketModel.Status;
+import com.gitblit.tickets.TicketSerializer;
+
+/**
+ * Measures serializing and deserializing the journal of a ticket and
+ * building the effective ticket from it, as done for every ticket which is
+ * read from or written to the ticket service.
+ *
+ * @since 1.10.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TicketSerializerBenchmark {
+
+	@Param({ "10", "100" })
+	public int changes;
+
+	private List<Change> journal;
+
+	private String json;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(Fixtures.SEED);
+		journal = new ArrayList<Change>();
+		Change create = new Change("author0", new Date(0));
+		create.setField(Field.title, Fixtures.sentence(random, 6));
+		create.setField(Field.body, Fixtures.markdown(random, 2));
+		create.setField(Field.status, Status.New);
+		create.setField(Field.labels, "bug,performance");
+		journal.add(create);
+		for (int i = 1; i < changes; i++) {
+			Change change = new Change("author" + (i % 5), new Date(i * 60000L));
+			change.comment(Fixtures.sentence(random, 30));
+			if (i % 10 == 0) {
+				change.setField(Field.watchers, "+author" + (i % 5));
+			}
+			journal.add(change);
+		}
+		json = TicketSerializer.serializeJournal(journal);
+	}
+
+	@Benchmark
+	public String serializeJournal() {
+		return TicketSerializer.serializeJournal(journal);
+	}
+
+	@Benchmark
+	public List<Change> deserializeJournal() {
+		return TicketSerializer.deserializeJournal(json);
+	}
+
+	@Benchmark
+	public TicketModel buildTicket() {
+		return TicketModel.buildTicket(TicketSerializer.deserializeJournal(json));
+	}
+}
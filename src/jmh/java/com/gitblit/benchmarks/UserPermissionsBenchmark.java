@@ -0,0 +1,131 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.gitblit.ConfigUserService;
+import com.gitblit.Constants.AccessRestrictionType;
+import com.gitblit.Constants.AuthorizationControl;
+import com.gitblit.models.RepositoryModel;
+import com.gitblit.models.UserModel;
+import com.gitblit.tests.mock.MemorySettings;
+import com.gitblit.utils.FileUtils;
+
+/**
+ * Measures the permission checks of a user loaded from a synthetic users.conf
+ * against every repository, as done when listing repositories, and the user
+ * lookups of the user store.
+ *
+ * @since 1.10.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserPermissionsBenchmark {
+
+	@Param({ "1000" })
+	public int repositories;
+
+	@Param({ "1000" })
+	public int users;
+
+	@Param({ "50" })
+	public int teams;
+
+	private File baseFolder;
+
+	private ConfigUserService userService;
+
+	private List<RepositoryModel> models;
+
+	private UserModel user;
+
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		baseFolder = Files.createTempDirectory("gitblit-jmh").toFile();
+		userService = Fixtures.createUserService(new MemorySettings(),
+				new File(baseFolder, "users.conf"), users, teams, repositories);
+
+		AccessRestrictionType [] restrictions = AccessRestrictionType.values();
+		models = new ArrayList<RepositoryModel>();
+		for (int i = 0; i < repositories; i++) {
+			RepositoryModel model = new RepositoryModel();
+			model.name = Fixtures.repositoryName(i);
+			model.accessRestriction = restrictions[i % restrictions.length];
+			model.authorizationControl = AuthorizationControl.NAMED;
+			model.addOwner("user" + (i % users));
+			models.add(model);
+		}
+		user = userService.getUserModel("user1");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		FileUtils.delete(baseFolder);
+	}
+
+	@Benchmark
+	public void canView(Blackhole bh) {
+		for (RepositoryModel model : models) {
+			bh.consume(user.canView(model));
+		}
+	}
+
+	@Benchmark
+	public void canPush(Blackhole bh) {
+		for (RepositoryModel model : models) {
+			bh.consume(user.canPush(model));
+		}
+	}
+
+	@Benchmark
+	public void repositoryPermission(Blackhole bh) {
+		for (RepositoryModel model : models) {
+			bh.consume(user.getRepositoryPermission(model));
+		}
+	}
+
+	@Benchmark
+	public UserModel getUserModel() {
+		next = (next + 1) % users;
+		return userService.getUserModel("user" + next);
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.load;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The endpoints which are driven by the load test.
+ *
+ * @since 1.10.0
+ */
+public enum Endpoint {
+
+	/** full bare clone over the HTTP git servlet */
+	HTTP_CLONE("http-clone", 2),
+
+	/** ref advertisement over the HTTP git servlet, like a polling client */
+	HTTP_LS_REMOTE("http-ls-remote", 15),
+
+	/** push of a new commit over the HTTP git servlet */
+	HTTP_PUSH("http-push", 2),
+
+	/** full bare clone over SSH */
+	SSH_CLONE("ssh-clone", 2),
+
+	/** ref advertisement over SSH */
+	SSH_LS_REMOTE("ssh-ls-remote", 10),
+
+	/** the repositories page */
+	WEB_REPOSITORIES("web-repositories", 5),
+
+	/** the summary page of a repository */
+	WEB_SUMMARY("web-summary", 20),
+
+	/** the log page of a repository */
+	WEB_LOG("web-log", 15),
+
+	/** the tree page of a repository */
+	WEB_TREE("web-tree", 15),
+
+	/** a page of the repository list over RPC */
+	RPC_REPOSITORIES("rpc-repositories", 10);
+
+	public final String name;
+
+	public final int defaultWeight;
+
+	Endpoint(String name, int defaultWeight) {
+		this.name = name;
+		this.defaultWeight = defaultWeight;
+	}
+
+	public static Endpoint forName(String name) {
+		for (Endpoint endpoint : values()) {
+			if (endpoint.name.equalsIgnoreCase(name) || endpoint.name().equalsIgnoreCase(name)) {
+				return endpoint;
+			}
+		}
+		throw new IllegalArgumentException("unknown endpoint " + name);
+	}
+
+	/**
+	 * Parses a workload mix like "web-summary=10,http-clone=1".
+	 *
+	 * @param mix
+	 *            the mix or null for the default mix
+	 * @return the weights of the endpoints with a positive weight
+	 */
+	public static Map<Endpoint, Integer> parseMix(String mix) {
+		Map<Endpoint, Integer> weights = new LinkedHashMap<Endpoint, Integer>();
+		if (mix == null || mix.trim().isEmpty()) {
+			for (Endpoint endpoint : values()) {
+				weights.put(endpoint, endpoint.defaultWeight);
+			}
+			return weights;
+		}
+		for (String entry : mix.split(",")) {
+			String [] kv = entry.trim().split("=");
+			if (kv.length != 2) {
+				throw new IllegalArgumentException("bad workload mix entry " + entry);
+			}
+			int weight = Integer.parseInt(kv[1].trim());
+			if (weight > 0) {
+				weights.put(forName(kv[0].trim()), weight);
+			}
+		}
+		if (weights.isEmpty()) {
+			throw new IllegalArgumentException("empty workload mix " + mix);
+		}
+		return weights;
+	}
+}
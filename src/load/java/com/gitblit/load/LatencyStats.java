@@ -0,0 +1,98 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.load;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the latencies and errors of one endpoint of the load test.
+ *
+ * @since 1.10.0
+ */
+public class LatencyStats {
+
+	private final String endpoint;
+
+	private final AtomicLong errors;
+
+	private long [] latencies;
+
+	private int count;
+
+	public LatencyStats(String endpoint) {
+		this.endpoint = endpoint;
+		this.errors = new AtomicLong();
+		this.latencies = new long[1024];
+	}
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	/**
+	 * Records a successful request.
+	 *
+	 * @param nanos
+	 *            the latency of the request
+	 */
+	public synchronized void record(long nanos) {
+		if (count == latencies.length) {
+			latencies = Arrays.copyOf(latencies, count * 2);
+		}
+		latencies[count++] = nanos;
+	}
+
+	/**
+	 * Records a failed request.
+	 */
+	public void error() {
+		errors.incrementAndGet();
+	}
+
+	public synchronized int getCount() {
+		return count;
+	}
+
+	public long getErrors() {
+		return errors.get();
+	}
+
+	/**
+	 * Returns the latency percentiles in milliseconds.
+	 *
+	 * @param percentiles
+	 *            the percentiles, e.g. 50, 99 or 99.9
+	 * @return the latencies, 0 if nothing has been recorded
+	 */
+	public double [] getPercentiles(double... percentiles) {
+		long [] sorted;
+		synchronized (this) {
+			sorted = Arrays.copyOf(latencies, count);
+		}
+		Arrays.sort(sorted);
+		double [] values = new double[percentiles.length];
+		if (sorted.length == 0) {
+			return values;
+		}
+		for (int i = 0; i < percentiles.length; i++) {
+			// nearest rank
+			int rank = (int) Math.ceil(percentiles[i] / 100 * sorted.length);
+			values[i] = sorted[Math.min(sorted.length, Math.max(1, rank)) - 1] / 1000000d;
+		}
+		return values;
+	}
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.load;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Date;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
+import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gitblit.utils.FileUtils;
+import com.gitblit.utils.RpcUtils;
+import com.gitblit.utils.StringUtils;
+
+/**
+ * A load client which sends requests of a weighted random mix of endpoints
+ * until the load test ends.
+ *
+ * Git requests only address repositories which can be cloned anonymously,
+ * page and RPC requests address all repositories.
+ *
+ * @since 1.10.0
+ */
+public class LoadClient implements Runnable {
+
+	private final Logger logger = LoggerFactory.getLogger(LoadClient.class);
+
+	private final int id;
+
+	private final LoadTest test;
+
+	private final SyntheticInstallation installation;
+
+	private final Map<Endpoint, LatencyStats> stats;
+
+	private final Endpoint [] mix;
+
+	private final Random random;
+
+	private final File workFolder;
+
+	private Repository pushRepository;
+
+	public LoadClient(int id, LoadTest test, Map<Endpoint, Integer> weights, Map<Endpoint, LatencyStats> stats) {
+		this.id = id;
+		this.test = test;
+		this.installation = test.getInstallation();
+		this.stats = stats;
+		this.random = new Random(test.getSeed() + id);
+		this.workFolder = new File(installation.getFolder(), "clients/" + id);
+
+		// expand the weights so that picking an endpoint is a single lookup
+		int total = 0;
+		for (int weight : weights.values()) {
+			total += weight;
+		}
+		this.mix = new Endpoint[total];
+		int i = 0;
+		for (Map.Entry<Endpoint, Integer> entry : weights.entrySet()) {
+			for (int j = 0; j < entry.getValue(); j++) {
+				mix[i++] = entry.getKey();
+			}
+		}
+	}
+
+	@Override
+	public void run() {
+		try {
+			FileUtils.delete(workFolder);
+			workFolder.mkdirs();
+			while (!test.isFinished()) {
+				Endpoint endpoint = mix[random.nextInt(mix.length)];
+				boolean measured = test.isMeasuring();
+				long start = System.nanoTime();
+				try {
+					execute(endpoint);
+					if (measured) {
+						stats.get(endpoint).record(System.nanoTime() - start);
+					}
+				} catch (Exception e) {
+					if (measured) {
+						stats.get(endpoint).error();
+					}
+					logger.debug("client {}: {} failed", id, endpoint.name, e);
+				}
+			}
+		} finally {
+			if (pushRepository != null) {
+				pushRepository.close();
+			}
+			FileUtils.delete(workFolder);
+		}
+	}
+
+	private void execute(Endpoint endpoint) throws Exception {
+		switch (endpoint) {
+		case HTTP_CLONE:
+			clone(test.getHttpUrl() + Constants.R_PATH + publicRepository(), randomUser());
+			break;
+		case HTTP_LS_REMOTE:
+			lsRemote(test.getHttpUrl() + Constants.R_PATH + publicRepository(), randomUser());
+			break;
+		case HTTP_PUSH:
+			push();
+			break;
+		case SSH_CLONE:
+			clone(sshUrl(), randomUser());
+			break;
+		case SSH_LS_REMOTE:
+			lsRemote(sshUrl(), randomUser());
+			break;
+		case WEB_REPOSITORIES:
+			get("/repositories/");
+			break;
+		case WEB_SUMMARY:
+			get("/summary/?r=" + StringUtils.encodeURL(anyRepository()));
+			break;
+		case WEB_LOG:
+			get("/log/?r=" + StringUtils.encodeURL(anyRepository()));
+			break;
+		case WEB_TREE:
+			get("/tree/?r=" + StringUtils.encodeURL(anyRepository()));
+			break;
+		case RPC_REPOSITORIES:
+			int user = randomUser();
+			int offset = random.nextInt(Math.max(1, installation.getRepositories()));
+			RpcUtils.getRepositories(test.getHttpUrl(), SyntheticInstallation.getUsername(user),
+					SyntheticInstallation.getPassword(user).toCharArray(), null, offset, 50);
+			break;
+		default:
+			throw new IllegalArgumentException(endpoint.name);
+		}
+	}
+
+	private String sshUrl() {
+		int user = randomUser();
+		return String.format("ssh://%s@localhost:%d/%s", SyntheticInstallation.getUsername(user),
+				test.getSshPort(), publicRepository());
+	}
+
+	private int randomUser() {
+		return random.nextInt(Math.max(1, installation.getUsers()));
+	}
+
+	private String anyRepository() {
+		return SyntheticInstallation.getRepositoryName(random.nextInt(installation.getRepositories()));
+	}
+
+	/**
+	 * Returns a repository which is not restricted to authenticated viewers.
+	 */
+	private String publicRepository() {
+		int i = random.nextInt(installation.getRepositories());
+		if (i % 10 == 0) {
+			i = (i + 1) % installation.getRepositories();
+		}
+		return SyntheticInstallation.getRepositoryName(i);
+	}
+
+	private UsernamePasswordCredentialsProvider credentials(int user) {
+		return new UsernamePasswordCredentialsProvider(SyntheticInstallation.getUsername(user),
+				SyntheticInstallation.getPassword(user));
+	}
+
+	private void clone(String url, int user) throws Exception {
+		File folder = new File(workFolder, "clone");
+		try {
+			Git git = Git.cloneRepository()
+					.setURI(url)
+					.setBare(true)
+					.setDirectory(folder)
+					.setCredentialsProvider(credentials(user))
+					.call();
+			git.close();
+		} finally {
+			FileUtils.delete(folder);
+		}
+	}
+
+	private void lsRemote(String url, int user) throws Exception {
+		if (Git.lsRemoteRepository().setRemote(url).setCredentialsProvider(credentials(user)).call().isEmpty()) {
+			throw new IOException("no refs advertised by " + url);
+		}
+	}
+
+	/**
+	 * Commits to the clone of the push repository of the client and pushes
+	 * the commit.
+	 */
+	private void push() throws Exception {
+		UsernamePasswordCredentialsProvider admin = new UsernamePasswordCredentialsProvider(
+				SyntheticInstallation.ADMIN, SyntheticInstallation.ADMIN_PASSWORD);
+		String url = test.getHttpUrl() + Constants.R_PATH + SyntheticInstallation.getPushRepositoryName(id);
+		if (pushRepository == null) {
+			Git git = Git.cloneRepository()
+					.setURI(url)
+					.setBare(true)
+					.setDirectory(new File(workFolder, "push.git"))
+					.setCredentialsProvider(admin)
+					.call();
+			pushRepository = git.getRepository();
+		}
+
+		String branch = Constants.R_HEADS + Constants.MASTER;
+		ObjectId parent = pushRepository.resolve(branch);
+		ObjectInserter inserter = pushRepository.newObjectInserter();
+		ObjectId commitId;
+		try {
+			String content = "push " + System.nanoTime() + "\n";
+			TreeFormatter tree = new TreeFormatter();
+			tree.append("push.txt", FileMode.REGULAR_FILE, inserter.insert(Constants.OBJ_BLOB, Constants.encode(content)));
+			PersonIdent ident = new PersonIdent(SyntheticInstallation.ADMIN, "admin@gitblit.com", new Date(), TimeZone.getDefault());
+			CommitBuilder commit = new CommitBuilder();
+			commit.setTreeId(inserter.insert(tree));
+			if (parent != null) {
+				commit.setParentId(parent);
+			}
+			commit.setAuthor(ident);
+			commit.setCommitter(ident);
+			commit.setMessage(content);
+			commitId = inserter.insert(commit);
+			inserter.flush();
+		} finally {
+			inserter.close();
+		}
+		RefUpdate ru = pushRepository.updateRef(branch);
+		ru.setNewObjectId(commitId);
+		ru.forceUpdate();
+
+		Git git = Git.wrap(pushRepository);
+		for (PushResult result : git.push().setRemote(url).setRefSpecs(new RefSpec(branch + ":" + branch))
+				.setCredentialsProvider(admin).call()) {
+			for (RemoteRefUpdate update : result.getRemoteUpdates()) {
+				if (update.getStatus() != RemoteRefUpdate.Status.OK) {
+					// start over from the server state
+					pushRepository.close();
+					pushRepository = null;
+					FileUtils.delete(new File(workFolder, "push.git"));
+					throw new IOException("push failed: " + update.getStatus() + " " + update.getMessage());
+				}
+			}
+		}
+	}
+
+	private void get(String path) throws IOException {
+		HttpURLConnection conn = (HttpURLConnection) new URL(test.getHttpUrl() + path).openConnection();
+		int status = conn.getResponseCode();
+		// read the whole page so that the connection can be kept alive
+		InputStream is = status < 400 ? conn.getInputStream() : conn.getErrorStream();
+		if (is != null) {
+			try {
+				byte [] buffer = new byte[8192];
+				while (is.read(buffer) != -1) {
+				}
+			} finally {
+				is.close();
+			}
+		}
+		if (status != HttpURLConnection.HTTP_OK) {
+			throw new IOException("HTTP " + status + " for " + path);
+		}
+	}
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.load;
+
+import java.io.File;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.transport.SshSessionFactory;
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gitblit.GitBlitServer;
+import com.gitblit.tests.JschConfigTestSessionFactory;
+import com.gitblit.utils.FileUtils;
+import com.gitblit.utils.StringUtils;
+
+/**
+ * Generates a synthetic installation, boots a local Gitblit server on it and
+ * drives a mix of HTTP git, SSH git, web page and RPC requests from local
+ * clients.  The throughput and the latency percentiles of every endpoint are
+ * reported at the end.
+ *
+ * <pre>
+ * gradlew loadTest -Pload.args="--repositories 10000 --users 50000 --clients 32 --duration 120"
+ * </pre>
+ *
+ * @since 1.10.0
+ */
+public class LoadTest {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LoadTest.class);
+
+	private static final double [] PERCENTILES = { 50, 90, 99, 99.9, 100 };
+
+	private final Params params;
+
+	private final SyntheticInstallation installation;
+
+	private volatile long measureStart;
+
+	private volatile long end;
+
+	public static void main(String... args) throws Exception {
+		Params params = new Params();
+		CmdLineParser parser = new CmdLineParser(params);
+		try {
+			parser.parseArgument(args);
+		} catch (CmdLineException e) {
+			System.err.println(e.getMessage());
+			parser.printUsage(System.err);
+			System.exit(1);
+		}
+		if (params.help) {
+			parser.printUsage(System.out);
+			return;
+		}
+		String report = new LoadTest(params).run();
+		System.out.println(report);
+		if (!StringUtils.isEmpty(params.report)) {
+			File file = new File(params.report);
+			file.getAbsoluteFile().getParentFile().mkdirs();
+			FileUtils.writeContent(file, report);
+		}
+		System.exit(0);
+	}
+
+	public LoadTest(Params params) {
+		this.params = params;
+		this.installation = new SyntheticInstallation(new File(params.folder), params.repositories,
+				params.users, params.teams, params.commits, params.files, params.seed);
+	}
+
+	public SyntheticInstallation getInstallation() {
+		return installation;
+	}
+
+	public long getSeed() {
+		return params.seed;
+	}
+
+	public String getHttpUrl() {
+		return "http://localhost:" + params.httpPort;
+	}
+
+	public int getSshPort() {
+		return params.sshPort;
+	}
+
+	/**
+	 * Returns true once the warmup is over.
+	 */
+	public boolean isMeasuring() {
+		return System.nanoTime() >= measureStart;
+	}
+
+	public boolean isFinished() {
+		return System.nanoTime() >= end;
+	}
+
+	/**
+	 * Runs the load test.
+	 *
+	 * @return the report
+	 */
+	public String run() throws Exception {
+		Map<Endpoint, Integer> weights = Endpoint.parseMix(params.mix);
+		installation.generate(params.clients, params.regenerate);
+		startServer();
+		try {
+			SshSessionFactory.setInstance(new JschConfigTestSessionFactory(null));
+
+			Map<Endpoint, LatencyStats> stats = new LinkedHashMap<Endpoint, LatencyStats>();
+			for (Endpoint endpoint : weights.keySet()) {
+				stats.put(endpoint, new LatencyStats(endpoint.name));
+			}
+
+			LOGGER.info("Running {} clients for {} s after a warmup of {} s, mix {}",
+					params.clients, params.duration, params.warmup, weights);
+			long start = System.nanoTime();
+			measureStart = start + TimeUnit.SECONDS.toNanos(params.warmup);
+			end = measureStart + TimeUnit.SECONDS.toNanos(params.duration);
+			ExecutorService executor = Executors.newFixedThreadPool(params.clients);
+			for (int i = 0; i < params.clients; i++) {
+				executor.execute(new LoadClient(i, this, weights, stats));
+			}
+			executor.shutdown();
+			if (!executor.awaitTermination(params.warmup + params.duration + 600, TimeUnit.SECONDS)) {
+				LOGGER.warn("Load clients did not finish in time");
+				executor.shutdownNow();
+			}
+			// requests which were started before the end are still measured
+			double seconds = (System.nanoTime() - measureStart) / 1000000000d;
+			return report(stats.values(), seconds);
+		} finally {
+			stopServer();
+		}
+	}
+
+	private String report(Iterable<LatencyStats> stats, double seconds) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("Gitblit load test: %d repositories, %d users, %d clients, %.1f s%n%n",
+				installation.getRepositories(), installation.getUsers(), params.clients, seconds));
+		String format = "%-18s %9s %7s %9s %9s %9s %9s %9s %9s%n";
+		sb.append(String.format(format, "endpoint", "requests", "errors", "req/s",
+				"p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+		long requests = 0;
+		long errors = 0;
+		for (LatencyStats stat : stats) {
+			requests += stat.getCount();
+			errors += stat.getErrors();
+			double [] p = stat.getPercentiles(PERCENTILES);
+			sb.append(String.format(format, stat.getEndpoint(), stat.getCount(), stat.getErrors(),
+					String.format("%.1f", stat.getCount() / seconds),
+					ms(p[0]), ms(p[1]), ms(p[2]), ms(p[3]), ms(p[4])));
+		}
+		sb.append(String.format("%ntotal: %d requests, %d errors, %.1f req/s%n", requests, errors, requests / seconds));
+		return sb.toString();
+	}
+
+	private static String ms(double value) {
+		return String.format("%.2f", value);
+	}
+
+	private void startServer() throws Exception {
+		final String [] args = {
+				"--httpPort", "" + params.httpPort,
+				"--httpsPort", "0",
+				"--gitPort", "0",
+				"--sshPort", "" + params.sshPort,
+				"--shutdownPort", "" + params.shutdownPort,
+				"--repositoriesFolder", installation.getRepositoriesFolder().getAbsolutePath(),
+				"--userService", installation.getUsersFile().getAbsolutePath(),
+				"--settings", installation.getSettingsFile().getAbsolutePath(),
+				"--baseFolder", installation.getFolder().getAbsolutePath() };
+		Executors.newSingleThreadExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				GitBlitServer.main(args);
+			}
+		});
+
+		// wait until the server answers, loading a large installation takes a while
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(params.startTimeout);
+		while (System.currentTimeMillis() < deadline) {
+			try {
+				HttpURLConnection conn = (HttpURLConnection) new URL(getHttpUrl() + "/").openConnection();
+				if (conn.getResponseCode() == HttpURLConnection.HTTP_OK) {
+					conn.getInputStream().close();
+					LOGGER.info("Gitblit is serving {}", getHttpUrl());
+					return;
+				}
+			} catch (Exception e) {
+				// not yet listening
+			}
+			Thread.sleep(500);
+		}
+		throw new IllegalStateException("Gitblit did not start within " + params.startTimeout + " s");
+	}
+
+	private void stopServer() {
+		GitBlitServer.main("--stop", "--shutdownPort", "" + params.shutdownPort);
+	}
+
+	/**
+	 * The load test parameters.
+	 */
+	public static class Params {
+
+		@Option(name = "--help", aliases = { "-h" }, usage = "Show this help")
+		public Boolean help = false;
+
+		@Option(name = "--folder", usage = "Folder of the synthetic installation", metaVar = "PATH")
+		public String folder = "build/load";
+
+		@Option(name = "--regenerate", usage = "Regenerate an existing installation")
+		public Boolean regenerate = false;
+
+		@Option(name = "--repositories", usage = "Number of repositories")
+		public Integer repositories = 10000;
+
+		@Option(name = "--users", usage = "Number of users")
+		public Integer users = 50000;
+
+		@Option(name = "--teams", usage = "Number of teams")
+		public Integer teams = 500;
+
+		@Option(name = "--commits", usage = "Number of commits per repository")
+		public Integer commits = 10;
+
+		@Option(name = "--files", usage = "Number of files per repository")
+		public Integer files = 20;
+
+		@Option(name = "--seed", usage = "Seed of the installation and the request mix")
+		public Long seed = 42L;
+
+		@Option(name = "--clients", usage = "Number of concurrent clients")
+		public Integer clients = 16;
+
+		@Option(name = "--warmup", usage = "Warmup in seconds, requests are not measured")
+		public Integer warmup = 30;
+
+		@Option(name = "--duration", usage = "Measurement in seconds")
+		public Integer duration = 60;
+
+		@Option(name = "--mix", usage = "Workload mix, e.g. web-summary=10,http-clone=1", metaVar = "MIX")
+		public String mix;
+
+		@Option(name = "--httpPort", usage = "HTTP port of the server", metaVar = "PORT")
+		public Integer httpPort = 8480;
+
+		@Option(name = "--sshPort", usage = "SSH port of the server", metaVar = "PORT")
+		public Integer sshPort = 39518;
+
+		@Option(name = "--shutdownPort", usage = "Shutdown port of the server", metaVar = "PORT")
+		public Integer shutdownPort = 8481;
+
+		@Option(name = "--startTimeout", usage = "Seconds to wait for the server to start")
+		public Integer startTimeout = 600;
+
+		@Option(name = "--report", usage = "File to write the report to", metaVar = "FILE")
+		public String report;
+	}
+}
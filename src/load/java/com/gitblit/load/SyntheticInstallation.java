@@ -0,0 +1,311 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.load;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gitblit.ConfigUserService;
+import com.gitblit.Constants.AccessPermission;
+import com.gitblit.Constants.AccessRestrictionType;
+import com.gitblit.models.TeamModel;
+import com.gitblit.models.UserModel;
+import com.gitblit.tests.mock.MemorySettings;
+import com.gitblit.tests.mock.MockRuntimeManager;
+import com.gitblit.utils.FileUtils;
+import com.gitblit.utils.JGitUtils;
+
+/**
+ * Generates a synthetic Gitblit installation: a repositories folder, a
+ * users.conf with users and teams and a gitblit.properties file.
+ *
+ * The installation is derived from a seed so that two generations with the
+ * same parameters are identical.  An existing installation with the same
+ * parameters is reused because generating tens of thousands of repositories
+ * takes a while.
+ *
+ * @since 1.10.0
+ */
+public class SyntheticInstallation {
+
+	public static final String ADMIN = "admin";
+
+	public static final String ADMIN_PASSWORD = "admin";
+
+	private static final long EPOCH = 1767225600000L;
+
+	private final Logger logger = LoggerFactory.getLogger(SyntheticInstallation.class);
+
+	private final File folder;
+
+	private final int repositories;
+
+	private final int users;
+
+	private final int teams;
+
+	private final int commits;
+
+	private final int files;
+
+	private final long seed;
+
+	public SyntheticInstallation(File folder, int repositories, int users, int teams,
+			int commits, int files, long seed) {
+		this.folder = folder;
+		this.repositories = repositories;
+		this.users = users;
+		this.teams = teams;
+		this.commits = commits;
+		this.files = files;
+		this.seed = seed;
+	}
+
+	public File getFolder() {
+		return folder;
+	}
+
+	public File getRepositoriesFolder() {
+		return new File(folder, "git");
+	}
+
+	public File getUsersFile() {
+		return new File(folder, "users.conf");
+	}
+
+	public File getSettingsFile() {
+		return new File(folder, "gitblit.properties");
+	}
+
+	public int getRepositories() {
+		return repositories;
+	}
+
+	public int getUsers() {
+		return users;
+	}
+
+	/**
+	 * Returns the name of the nth repository.
+	 */
+	public static String getRepositoryName(int i) {
+		return String.format("project%03d/repository%05d.git", i % 100, i);
+	}
+
+	/**
+	 * Returns the name of the repository which a load client pushes to.
+	 */
+	public static String getPushRepositoryName(int client) {
+		return String.format("load/push%03d.git", client);
+	}
+
+	public static String getUsername(int i) {
+		return "user" + i;
+	}
+
+	public static String getPassword(int i) {
+		return "password" + i;
+	}
+
+	/**
+	 * Generates the installation unless an installation with the same
+	 * parameters exists.
+	 *
+	 * @param clients
+	 *            the number of load clients, each gets its own push repository
+	 * @param regenerate
+	 *            true to delete an existing installation
+	 */
+	public void generate(int clients, boolean regenerate) throws IOException {
+		File marker = new File(folder, "installation.txt");
+		String description = String.format("repositories=%d users=%d teams=%d commits=%d files=%d seed=%d",
+				repositories, users, teams, commits, files, seed);
+		if (!regenerate && marker.exists() && description.equals(FileUtils.readContent(marker, null))) {
+			logger.info("Reusing synthetic installation {} ({})", folder, description);
+			createPushRepositories(clients);
+			return;
+		}
+		if (folder.exists()) {
+			FileUtils.delete(folder);
+		}
+		folder.mkdirs();
+		logger.info("Generating synthetic installation {} ({})", folder, description);
+
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < repositories; i++) {
+			createRepository(getRepositoryName(i), i);
+			if ((i + 1) % 1000 == 0) {
+				logger.info("generated {} of {} repositories", i + 1, repositories);
+			}
+		}
+		createPushRepositories(clients);
+		createUsers();
+		FileUtils.writeContent(getSettingsFile(), getSettings());
+		FileUtils.writeContent(marker, description);
+		logger.info("Generated synthetic installation in {} ms", System.currentTimeMillis() - start);
+	}
+
+	private void createPushRepositories(int clients) throws IOException {
+		for (int i = 0; i < clients; i++) {
+			String name = getPushRepositoryName(i);
+			if (!new File(getRepositoriesFolder(), name).exists()) {
+				createRepository(name, -1);
+			}
+		}
+	}
+
+	/**
+	 * Creates a repository with a linear history.  Every commit rewrites a
+	 * few files.  Every tenth repository is restricted to authenticated
+	 * viewers, the others can be cloned anonymously.
+	 */
+	private void createRepository(String name, int index) throws IOException {
+		Random random = new Random(seed ^ name.hashCode());
+		Repository db = JGitUtils.createRepository(getRepositoriesFolder(), name);
+		ObjectInserter inserter = db.newObjectInserter();
+		try {
+			Map<String, ObjectId> tree = new TreeMap<String, ObjectId>();
+			ObjectId parent = null;
+			for (int i = 0; i < commits; i++) {
+				int changes = i == 0 ? files : Math.max(1, files / 5);
+				for (int j = 0; j < changes; j++) {
+					int file = i == 0 ? j : random.nextInt(files);
+					String path = String.format("src/File%04d.txt", file);
+					tree.put(path, inserter.insert(Constants.OBJ_BLOB, Constants.encode(content(random))));
+				}
+				DirCache index = DirCache.newInCore();
+				DirCacheBuilder builder = index.builder();
+				for (Map.Entry<String, ObjectId> entry : tree.entrySet()) {
+					DirCacheEntry dce = new DirCacheEntry(entry.getKey());
+					dce.setFileMode(FileMode.REGULAR_FILE);
+					dce.setObjectId(entry.getValue());
+					builder.add(dce);
+				}
+				builder.finish();
+
+				PersonIdent ident = new PersonIdent(getUsername(i % Math.max(1, users)), "load@gitblit.com",
+						new Date(EPOCH + i * 60000L), TimeZone.getTimeZone("UTC"));
+				CommitBuilder commit = new CommitBuilder();
+				commit.setTreeId(index.writeTree(inserter));
+				if (parent != null) {
+					commit.setParentId(parent);
+				}
+				commit.setAuthor(ident);
+				commit.setCommitter(ident);
+				commit.setMessage("commit " + i + " of " + name);
+				parent = inserter.insert(commit);
+			}
+			inserter.flush();
+			if (parent != null) {
+				RefUpdate ru = db.updateRef(Constants.R_HEADS + Constants.MASTER);
+				ru.setNewObjectId(parent);
+				ru.forceUpdate();
+			}
+			if (index >= 0 && index % 10 == 0) {
+				StoredConfig config = db.getConfig();
+				config.setString(com.gitblit.Constants.CONFIG_GITBLIT, null, "accessRestriction",
+						AccessRestrictionType.VIEW.name());
+				config.save();
+			}
+		} finally {
+			inserter.close();
+			db.close();
+		}
+	}
+
+	private String content(Random random) {
+		StringBuilder sb = new StringBuilder();
+		int lines = 20 + random.nextInt(80);
+		for (int i = 0; i < lines; i++) {
+			sb.append("line ").append(i).append(' ').append(Long.toHexString(random.nextLong())).append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Creates the admin account and the synthetic users and teams.  Every
+	 * user is a member of a team and can push to a few repositories, every
+	 * team can clone the repositories of a project.
+	 */
+	private void createUsers() {
+		Random random = new Random(seed);
+		ConfigUserService service = new ConfigUserService(getUsersFile());
+		service.setup(new MockRuntimeManager(new MemorySettings()));
+
+		List<TeamModel> teamModels = new ArrayList<TeamModel>();
+		for (int i = 0; i < teams; i++) {
+			TeamModel team = new TeamModel("team" + i);
+			team.setRepositoryPermission(String.format("project%03d/.*", i % 100), AccessPermission.CLONE);
+			teamModels.add(team);
+		}
+		service.updateTeamModels(teamModels);
+
+		List<UserModel> userModels = new ArrayList<UserModel>();
+		UserModel admin = new UserModel(ADMIN);
+		admin.password = ADMIN_PASSWORD;
+		admin.canAdmin = true;
+		userModels.add(admin);
+		for (int i = 0; i < users; i++) {
+			UserModel user = new UserModel(getUsername(i));
+			user.password = getPassword(i);
+			for (int j = 0; j < 3 && repositories > 0; j++) {
+				user.setRepositoryPermission(getRepositoryName(random.nextInt(repositories)), AccessPermission.PUSH);
+			}
+			if (teams > 0) {
+				user.teams.add(teamModels.get(i % teams));
+			}
+			userModels.add(user);
+		}
+		service.updateUserModels(userModels);
+	}
+
+	private String getSettings() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("#\n# Synthetic load test installation\n#\n");
+		sb.append("git.repositoriesFolder = ").append(getRepositoriesFolder().getAbsolutePath()).append('\n');
+		sb.append("git.searchRepositoriesSubfolders = true\n");
+		sb.append("git.enableGitServlet = true\n");
+		sb.append("git.defaultAccessRestriction = PUSH\n");
+		sb.append("realm.userService = ").append(getUsersFile().getAbsolutePath()).append('\n');
+		sb.append("web.enableRpcServlet = true\n");
+		sb.append("web.enableRpcManagement = true\n");
+		sb.append("web.enableRpcAdministration = true\n");
+		sb.append("web.authenticateViewPages = false\n");
+		return sb.toString();
+	}
+}
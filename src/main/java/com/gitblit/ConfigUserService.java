@@ -16,19 +16,31 @@
 package com.gitblit;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.StoredConfig;
 import org.eclipse.jgit.storage.file.FileBasedConfig;
 import org.eclipse.jgit.util.FS;
@@ -58,6 +70,19 @@ import com.gitblit.utils.StringUtils;
  * Additionally, this format allows for expansion of the user model without
  * bringing in the complexity of a database.
  *
+ * If realm.journalSize is set, changes to single users and teams are appended
+ * to a journal next to the config file instead of rewriting the whole file.
+ * The journal is replayed when the config file is read and is compacted into
+ * the config file after realm.journalSize changes.  The journal records the
+ * state of the config file it applies to and is discarded if the config file
+ * has been edited by hand, an incomplete change at its end is truncated before
+ * the next change is appended.
+ *
+ * Lookups do not lock the service.  Every change and reload publishes an
+ * immutable snapshot of the users and teams together with indexes of the
+ * team memberships and repository permissions.  Changes never modify a
+ * model which has been published, they replace it with a copy.
+ *
  * @author James Moger
  *
  */
@@ -107,8 +132,32 @@ public class ConfigUserService implements IUserService {
 
 	private static final String DISABLED = "disabled";
 
+	private static final String JOURNAL_BEGIN = "#@ begin";
+
+	private static final String JOURNAL_RECORD = "#@ ";
+
+	private static final String JOURNAL_COMMIT = "#@ commit";
+
+	private static final String JOURNAL_BASE = "#@ base ";
+
 	private final File realmFile;
 
+	private final File journalFile;
+
+	private volatile int journalSize;
+
+	private volatile int journalChanges;
+
+	private volatile long journalEnd;
+
+	private volatile long journalLength;
+
+	private volatile long journalModified;
+
+	private volatile long reloadCheckMillis;
+
+	private volatile long nextReloadCheck;
+
 	private final Logger logger = LoggerFactory.getLogger(ConfigUserService.class);
 
 	private final Map<String, UserModel> users = new ConcurrentHashMap<String, UserModel>();
@@ -117,12 +166,19 @@ public class ConfigUserService implements IUserService {
 
 	private final Map<String, TeamModel> teams = new ConcurrentHashMap<String, TeamModel>();
 
+	private final Set<Object> unpublished = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+	private volatile Snapshot snapshot = new Snapshot();
+
 	private volatile long lastModified;
 
 	private volatile boolean forceReload;
 
+	private volatile long reloads;
+
 	public ConfigUserService(File realmFile) {
 		this.realmFile = realmFile;
+		this.journalFile = new File(realmFile.getAbsolutePath() + ".journal");
 	}
 
 	/**
@@ -133,6 +189,8 @@ public class ConfigUserService implements IUserService {
 	 */
 	@Override
 	public void setup(IRuntimeManager runtimeManager) {
+		journalSize = runtimeManager.getSettings().getInteger(Keys.realm.journalSize, 1000);
+		reloadCheckMillis = runtimeManager.getSettings().getInteger(Keys.realm.reloadCheckMillis, 1000);
 	}
 
 	/**
@@ -142,11 +200,11 @@ public class ConfigUserService implements IUserService {
 	 * @return cookie value
 	 */
 	@Override
-	public synchronized String getCookie(UserModel model) {
+	public String getCookie(UserModel model) {
 		if (!StringUtils.isEmpty(model.cookie)) {
 			return model.cookie;
 		}
-		UserModel storedModel = getUserModel(model.username);
+		UserModel storedModel = current().users.get(model.username.toLowerCase());
 		if (storedModel == null) {
 			return null;
 		}
@@ -160,21 +218,17 @@ public class ConfigUserService implements IUserService {
 	 * @return a user object or null
 	 */
 	@Override
-	public synchronized UserModel getUserModel(char[] cookie) {
+	public UserModel getUserModel(char[] cookie) {
 		String hash = new String(cookie);
 		if (StringUtils.isEmpty(hash)) {
 			return null;
 		}
-		read();
-		UserModel model = null;
-		if (cookies.containsKey(hash)) {
-			model = cookies.get(hash);
-		}
-
+		Snapshot current = current();
+		UserModel model = current.cookies.get(hash);
 		if (model != null) {
 			// clone the model, otherwise all changes to this object are
 			// live and unpersisted
-			model = DeepCopier.copy(model);
+			model = current.copy(Arrays.asList(model)).get(0);
 		}
 		return model;
 	}
@@ -186,13 +240,13 @@ public class ConfigUserService implements IUserService {
 	 * @return a user object or null
 	 */
 	@Override
-	public synchronized UserModel getUserModel(String username) {
-		read();
-		UserModel model = users.get(username.toLowerCase());
+	public UserModel getUserModel(String username) {
+		Snapshot current = current();
+		UserModel model = current.users.get(username.toLowerCase());
 		if (model != null) {
 			// clone the model, otherwise all changes to this object are
 			// live and unpersisted
-			model = DeepCopier.copy(model);
+			model = current.copy(Arrays.asList(model)).get(0);
 		}
 		return model;
 	}
@@ -219,9 +273,15 @@ public class ConfigUserService implements IUserService {
 	public synchronized boolean updateUserModels(Collection<UserModel> models) {
 		try {
 			read();
+			Set<String> usernames = new HashSet<String>();
+			Set<String> teamnames = new HashSet<String>();
 			for (UserModel model : models) {
 				UserModel originalUser = users.remove(model.username.toLowerCase());
-				users.put(model.username.toLowerCase(), model);
+				if (originalUser != null && !StringUtils.isEmpty(originalUser.cookie)) {
+					cookies.remove(originalUser.cookie);
+				}
+				putUser(model);
+				usernames.add(model.username);
 				// null check on "final" teams because JSON-sourced UserModel
 				// can have a null teams object
 				if (model.teams != null) {
@@ -235,8 +295,10 @@ public class ConfigUserService implements IUserService {
 						}
 						// do not clobber existing team definition
 						// maybe because this is a federated user
+						t = editTeam(t);
 						t.addUser(model.username);
 						userTeams.add(t);
+						teamnames.add(t.name);
 					}
 					// replace Team-Models in users by new ones.
 					model.teams.clear();
@@ -246,13 +308,14 @@ public class ConfigUserService implements IUserService {
 					if (originalUser != null) {
 						for (TeamModel team : originalUser.teams) {
 							if (!model.isTeamMember(team.name)) {
-								team.removeUser(model.username);
+								removeTeamMember(team.name, model.username);
+								teamnames.add(team.name);
 							}
 						}
 					}
 				}
 			}
-			write();
+			write(usernames, teamnames);
 			return true;
 		} catch (Throwable t) {
 			logger.error(MessageFormat.format("Failed to update user {0} models!", models.size()),
@@ -281,14 +344,16 @@ public class ConfigUserService implements IUserService {
 			}
 			read();
 			originalUser = users.remove(username.toLowerCase());
-			if (originalUser != null) {
+			if (originalUser != null && !StringUtils.isEmpty(originalUser.cookie)) {
 				cookies.remove(originalUser.cookie);
 			}
-			users.put(model.username.toLowerCase(), model);
+			putUser(model);
+			Set<String> teamnames = new HashSet<String>();
 			// null check on "final" teams because JSON-sourced UserModel
 			// can have a null teams object
 			if (model.teams != null) {
 				for (TeamModel team : model.teams) {
+					teamnames.add(team.name);
 					TeamModel t = teams.get(team.name.toLowerCase());
 					if (t == null) {
 						// new team
@@ -297,6 +362,7 @@ public class ConfigUserService implements IUserService {
 					} else {
 						// do not clobber existing team definition
 						// maybe because this is a federated user
+						t = editTeam(t);
 						t.removeUser(username);
 						t.addUser(model.username);
 					}
@@ -306,12 +372,13 @@ public class ConfigUserService implements IUserService {
 				if (originalUser != null) {
 					for (TeamModel team : originalUser.teams) {
 						if (!model.isTeamMember(team.name)) {
-							team.removeUser(username);
+							removeTeamMember(team.name, username);
+							teamnames.add(team.name);
 						}
 					}
 				}
 			}
-			write();
+			write(Arrays.asList(username, model.username), teamnames);
 			return true;
 		} catch (Throwable t) {
 			if (originalUser != null) {
@@ -321,6 +388,7 @@ public class ConfigUserService implements IUserService {
 				// drop attempted add
 				users.remove(model.username.toLowerCase());
 			}
+			publish();
 			logger.error(MessageFormat.format("Failed to update user model {0}!", model.username),
 					t);
 		}
@@ -354,19 +422,25 @@ public class ConfigUserService implements IUserService {
 				// user does not exist
 				return false;
 			}
+			if (!StringUtils.isEmpty(model.cookie)) {
+				cookies.remove(model.cookie);
+			}
 			// remove user from team
+			Set<String> teamnames = new HashSet<String>();
 			for (TeamModel team : model.teams) {
-				TeamModel t = teams.get(team.name);
+				teamnames.add(team.name);
+				TeamModel t = teams.get(team.name.toLowerCase());
 				if (t == null) {
 					// new team
-					team.removeUser(username);
-					teams.put(team.name.toLowerCase(), team);
+					t = editTeam(team);
+					t.removeUser(username);
+					teams.put(team.name.toLowerCase(), t);
 				} else {
 					// existing team
-					t.removeUser(username);
+					removeTeamMember(team.name, username);
 				}
 			}
-			write();
+			write(Arrays.asList(username), teamnames);
 			return true;
 		} catch (Throwable t) {
 			logger.error(MessageFormat.format("Failed to delete user {0}!", username), t);
@@ -381,9 +455,8 @@ public class ConfigUserService implements IUserService {
 	 * @since 0.8.0
 	 */
 	@Override
-	public synchronized List<String> getAllTeamNames() {
-		read();
-		List<String> list = new ArrayList<String>(teams.keySet());
+	public List<String> getAllTeamNames() {
+		List<String> list = new ArrayList<String>(current().teams.keySet());
 		Collections.sort(list);
 		return list;
 	}
@@ -395,9 +468,8 @@ public class ConfigUserService implements IUserService {
 	 * @since 0.8.0
 	 */
 	@Override
-	public synchronized List<TeamModel> getAllTeams() {
-		read();
-		List<TeamModel> list = new ArrayList<TeamModel>(teams.values());
+	public List<TeamModel> getAllTeams() {
+		List<TeamModel> list = new ArrayList<TeamModel>(current().teams.values());
 		list = DeepCopier.copy(list);
 		Collections.sort(list);
 		return list;
@@ -412,16 +484,11 @@ public class ConfigUserService implements IUserService {
 	 * @return list of all usernames that can bypass the access restriction
 	 */
 	@Override
-	public synchronized List<String> getTeamNamesForRepositoryRole(String role) {
+	public List<String> getTeamNamesForRepositoryRole(String role) {
 		List<String> list = new ArrayList<String>();
 		try {
-			read();
-			for (Map.Entry<String, TeamModel> entry : teams.entrySet()) {
-				TeamModel model = entry.getValue();
-				if (model.hasRepositoryPermission(role)) {
-					list.add(model.name);
-				}
-			}
+			Snapshot current = current();
+			list.addAll(current.getNamesForRole(current.teamRoles, role));
 		} catch (Throwable t) {
 			logger.error(MessageFormat.format("Failed to get teamnames for role {0}!", role), t);
 		}
@@ -437,9 +504,8 @@ public class ConfigUserService implements IUserService {
 	 * @since 0.8.0
 	 */
 	@Override
-	public synchronized TeamModel getTeamModel(String teamname) {
-		read();
-		TeamModel model = teams.get(teamname.toLowerCase());
+	public TeamModel getTeamModel(String teamname) {
+		TeamModel model = current().teams.get(teamname.toLowerCase());
 		if (model != null) {
 			// clone the model, otherwise all changes to this object are
 			// live and unpersisted
@@ -471,10 +537,12 @@ public class ConfigUserService implements IUserService {
 	public synchronized boolean updateTeamModels(Collection<TeamModel> models) {
 		try {
 			read();
+			Set<String> teamnames = new HashSet<String>();
 			for (TeamModel team : models) {
 				teams.put(team.name.toLowerCase(), team);
+				teamnames.add(team.name);
 			}
-			write();
+			write(Collections.<String> emptySet(), teamnames);
 			return true;
 		} catch (Throwable t) {
 			logger.error(MessageFormat.format("Failed to update team {0} models!", models.size()), t);
@@ -500,7 +568,7 @@ public class ConfigUserService implements IUserService {
 			read();
 			original = teams.remove(teamname.toLowerCase());
 			teams.put(model.name.toLowerCase(), model);
-			write();
+			write(Collections.<String> emptySet(), Arrays.asList(teamname, model.name));
 			return true;
 		} catch (Throwable t) {
 			if (original != null) {
@@ -510,6 +578,7 @@ public class ConfigUserService implements IUserService {
 				// drop attempted add
 				teams.remove(model.name.toLowerCase());
 			}
+			publish();
 			logger.error(MessageFormat.format("Failed to update team model {0}!", model.name), t);
 		}
 		return false;
@@ -540,7 +609,7 @@ public class ConfigUserService implements IUserService {
 			// Read realm file
 			read();
 			teams.remove(teamname.toLowerCase());
-			write();
+			write(Collections.<String> emptySet(), Arrays.asList(teamname));
 			return true;
 		} catch (Throwable t) {
 			logger.error(MessageFormat.format("Failed to delete team {0}!", teamname), t);
@@ -554,9 +623,8 @@ public class ConfigUserService implements IUserService {
 	 * @return list of all usernames
 	 */
 	@Override
-	public synchronized List<String> getAllUsernames() {
-		read();
-		List<String> list = new ArrayList<String>(users.keySet());
+	public List<String> getAllUsernames() {
+		List<String> list = new ArrayList<String>(current().users.keySet());
 		Collections.sort(list);
 		return list;
 	}
@@ -567,10 +635,9 @@ public class ConfigUserService implements IUserService {
 	 * @return list of all usernames
 	 */
 	@Override
-	public synchronized List<UserModel> getAllUsers() {
-		read();
-		List<UserModel> list = new ArrayList<UserModel>(users.values());
-		list = DeepCopier.copy(list);
+	public List<UserModel> getAllUsers() {
+		Snapshot current = current();
+		List<UserModel> list = current.copy(current.users.values());
 		Collections.sort(list);
 		return list;
 	}
@@ -584,16 +651,11 @@ public class ConfigUserService implements IUserService {
 	 * @return list of all usernames that can bypass the access restriction
 	 */
 	@Override
-	public synchronized List<String> getUsernamesForRepositoryRole(String role) {
+	public List<String> getUsernamesForRepositoryRole(String role) {
 		List<String> list = new ArrayList<String>();
 		try {
-			read();
-			for (Map.Entry<String, UserModel> entry : users.entrySet()) {
-				UserModel model = entry.getValue();
-				if (model.hasRepositoryPermission(role)) {
-					list.add(model.username);
-				}
-			}
+			Snapshot current = current();
+			list.addAll(current.getNamesForRole(current.userRoles, role));
 		} catch (Throwable t) {
 			logger.error(MessageFormat.format("Failed to get usernames for role {0}!", role), t);
 		}
@@ -613,16 +675,18 @@ public class ConfigUserService implements IUserService {
 		try {
 			read();
 			// identify users which require role rename
-			for (UserModel model : users.values()) {
+			for (UserModel model : new ArrayList<UserModel>(users.values())) {
 				if (model.hasRepositoryPermission(oldRole)) {
+					model = editUser(model);
 					AccessPermission permission = model.removeRepositoryPermission(oldRole);
 					model.setRepositoryPermission(newRole, permission);
 				}
 			}
 
 			// identify teams which require role rename
-			for (TeamModel model : teams.values()) {
+			for (TeamModel model : new ArrayList<TeamModel>(teams.values())) {
 				if (model.hasRepositoryPermission(oldRole)) {
+					model = editTeam(model);
 					AccessPermission permission = model.removeRepositoryPermission(oldRole);
 					model.setRepositoryPermission(newRole, permission);
 				}
@@ -648,14 +712,20 @@ public class ConfigUserService implements IUserService {
 		try {
 			read();
 
+			String repository = AccessPermission.repositoryFromRole(role).toLowerCase();
+
 			// identify users which require role rename
-			for (UserModel user : users.values()) {
-				user.removeRepositoryPermission(role);
+			for (UserModel user : new ArrayList<UserModel>(users.values())) {
+				if (user.permissions.containsKey(repository) || user.repositories.contains(repository)) {
+					editUser(user).removeRepositoryPermission(role);
+				}
 			}
 
 			// identify teams which require role rename
-			for (TeamModel team : teams.values()) {
-				team.removeRepositoryPermission(role);
+			for (TeamModel team : new ArrayList<TeamModel>(teams.values())) {
+				if (team.permissions.containsKey(repository) || team.repositories.contains(repository)) {
+					editTeam(team).removeRepositoryPermission(role);
+				}
 			}
 
 			// persist changes
@@ -668,181 +738,91 @@ public class ConfigUserService implements IUserService {
 	}
 
 	/**
-	 * Writes the properties file.
+	 * Persists the changed users and teams.  If journaling is enabled, the
+	 * current sections of the users and teams are appended to the journal as
+	 * one change, otherwise or when the journal is full the realm file is
+	 * rewritten.  Users and teams which no longer exist are recorded as
+	 * removed.
 	 *
+	 * @param usernames
+	 *            the changed users
+	 * @param teamnames
+	 *            the changed teams
 	 * @throws IOException
 	 */
-	private synchronized void write() throws IOException {
-		// Write a temporary copy of the users file
-		File realmFileCopy = new File(realmFile.getAbsolutePath() + ".tmp");
-
-		StoredUserConfig config = new StoredUserConfig(realmFileCopy);
+	private synchronized void write(Collection<String> usernames, Collection<String> teamnames) throws IOException {
+		if (journalSize <= 0 || journalChanges >= journalSize || !realmFile.exists()) {
+			write();
+			return;
+		}
+		publish();
 
-		// write users
-		for (UserModel model : users.values()) {
-			if (!StringUtils.isEmpty(model.password)) {
-				config.setString(USER, model.username, PASSWORD, model.password);
-			}
-			if (!StringUtils.isEmpty(model.cookie)) {
-				config.setString(USER, model.username, COOKIE, model.cookie);
-			}
-			if (!StringUtils.isEmpty(model.displayName)) {
-				config.setString(USER, model.username, DISPLAYNAME, model.displayName);
-			}
-			if (!StringUtils.isEmpty(model.emailAddress)) {
-				config.setString(USER, model.username, EMAILADDRESS, model.emailAddress);
-			}
-			if (model.accountType != null) {
-				config.setString(USER, model.username, ACCOUNTTYPE, model.accountType.name());
-			}
-			if (!StringUtils.isEmpty(model.organizationalUnit)) {
-				config.setString(USER, model.username, ORGANIZATIONALUNIT, model.organizationalUnit);
-			}
-			if (!StringUtils.isEmpty(model.organization)) {
-				config.setString(USER, model.username, ORGANIZATION, model.organization);
-			}
-			if (!StringUtils.isEmpty(model.locality)) {
-				config.setString(USER, model.username, LOCALITY, model.locality);
-			}
-			if (!StringUtils.isEmpty(model.stateProvince)) {
-				config.setString(USER, model.username, STATEPROVINCE, model.stateProvince);
-			}
-			if (!StringUtils.isEmpty(model.countryCode)) {
-				config.setString(USER, model.username, COUNTRYCODE, model.countryCode);
+		StringBuilder sb = new StringBuilder();
+		sb.append(JOURNAL_BEGIN).append('\n');
+		for (String username : new TreeSet<String>(usernames)) {
+			UserModel model = users.get(username.toLowerCase());
+			if (model == null) {
+				sb.append(JOURNAL_RECORD).append('-').append(USER).append(' ').append(username.toLowerCase()).append('\n');
+			} else {
+				StoredUserConfig config = new StoredUserConfig(null);
+				writeUser(config, model);
+				sb.append(JOURNAL_RECORD).append(USER).append(' ').append(model.username).append('\n');
+				sb.append(config.toText());
 			}
-			if (model.disabled) {
-				config.setBoolean(USER, model.username, DISABLED, true);
+		}
+		for (String teamname : new TreeSet<String>(teamnames)) {
+			TeamModel model = teams.get(teamname.toLowerCase());
+			if (model == null) {
+				sb.append(JOURNAL_RECORD).append('-').append(TEAM).append(' ').append(teamname.toLowerCase()).append('\n');
+			} else {
+				StoredUserConfig config = new StoredUserConfig(null);
+				writeTeam(config, model);
+				sb.append(JOURNAL_RECORD).append(TEAM).append(' ').append(model.name).append('\n');
+				sb.append(config.toText());
 			}
-			if (model.getPreferences() != null) {
-				Locale locale = model.getPreferences().getLocale();
-				if (locale != null) {
-					String val;
-					if (StringUtils.isEmpty(locale.getCountry())) {
-						val = locale.getLanguage();
-					} else {
-						val = locale.getLanguage() + "_" + locale.getCountry();
-					}
-					config.setString(USER, model.username, LOCALE, val);
-				}
-
-				config.setBoolean(USER, model.username, EMAILONMYTICKETCHANGES, model.getPreferences().isEmailMeOnMyTicketChanges());
+		}
+		sb.append(JOURNAL_COMMIT).append('\n');
 
-				if (model.getPreferences().getTransport() != null) {
-					config.setString(USER, model.username, TRANSPORT, model.getPreferences().getTransport().name());
-				}
+		if (journalEnd == 0) {
+			// a new journal records the realm file it applies to
+			sb.insert(0, JOURNAL_BASE + realmFile.lastModified() + " " + realmFile.length() + "\n");
+		}
+		if (journalFile.length() != journalEnd) {
+			// drop an incomplete change so that it is not merged into this one
+			try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+				file.setLength(journalEnd);
 			}
+		}
+		try (OutputStream os = new FileOutputStream(journalFile, true)) {
+			os.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+		}
+		journalChanges++;
+		journalEnd = journalFile.length();
+		journalLength = journalEnd;
+		journalModified = journalFile.lastModified();
+	}
 
-			// user roles
-			List<String> roles = new ArrayList<String>();
-			if (model.canAdmin) {
-				roles.add(Role.ADMIN.getRole());
-			}
-			if (model.canFork) {
-				roles.add(Role.FORK.getRole());
-			}
-			if (model.canCreate) {
-				roles.add(Role.CREATE.getRole());
-			}
-			if (model.excludeFromFederation) {
-				roles.add(Role.NOT_FEDERATED.getRole());
-			}
-			if (roles.size() == 0) {
-				// we do this to ensure that user record with no password
-				// is written.  otherwise, StoredConfig optimizes that account
-				// away. :(
-				roles.add(Role.NONE.getRole());
-			}
-			config.setStringList(USER, model.username, ROLE, roles);
+	/**
+	 * Writes the properties file and discards the journal.
+	 *
+	 * @throws IOException
+	 */
+	private synchronized void write() throws IOException {
+		publish();
 
-			// discrete repository permissions
-			if (model.permissions != null && !model.canAdmin) {
-				List<String> permissions = new ArrayList<String>();
-				for (Map.Entry<String, AccessPermission> entry : model.permissions.entrySet()) {
-					if (entry.getValue().exceeds(AccessPermission.NONE)) {
-						permissions.add(entry.getValue().asRole(entry.getKey()));
-					}
-				}
-				config.setStringList(USER, model.username, REPOSITORY, permissions);
-			}
+		// Write a temporary copy of the users file
+		File realmFileCopy = new File(realmFile.getAbsolutePath() + ".tmp");
 
-			// user preferences
-			if (model.getPreferences() != null) {
-				List<String> starred =  model.getPreferences().getStarredRepositories();
-				if (starred.size() > 0) {
-					config.setStringList(USER, model.username, STARRED, starred);
-				}
-			}
+		StoredUserConfig config = new StoredUserConfig(realmFileCopy);
+
+		// write users
+		for (UserModel model : users.values()) {
+			writeUser(config, model);
 		}
 
 		// write teams
 		for (TeamModel model : teams.values()) {
-			// team roles
-			List<String> roles = new ArrayList<String>();
-			if (model.canAdmin) {
-				roles.add(Role.ADMIN.getRole());
-			}
-			if (model.canFork) {
-				roles.add(Role.FORK.getRole());
-			}
-			if (model.canCreate) {
-				roles.add(Role.CREATE.getRole());
-			}
-			if (roles.size() == 0) {
-				// we do this to ensure that team record is written.
-				// Otherwise, StoredConfig might optimizes that record away.
-				roles.add(Role.NONE.getRole());
-			}
-			config.setStringList(TEAM, model.name, ROLE, roles);
-			if (model.accountType != null) {
-				config.setString(TEAM, model.name, ACCOUNTTYPE, model.accountType.name());
-			}
-
-			if (!model.canAdmin) {
-				// write team permission for non-admin teams
-				if (model.permissions == null) {
-					// null check on "final" repositories because JSON-sourced TeamModel
-					// can have a null repositories object
-					if (!ArrayUtils.isEmpty(model.repositories)) {
-						config.setStringList(TEAM, model.name, REPOSITORY, new ArrayList<String>(
-								model.repositories));
-					}
-				} else {
-					// discrete repository permissions
-					List<String> permissions = new ArrayList<String>();
-					for (Map.Entry<String, AccessPermission> entry : model.permissions.entrySet()) {
-						if (entry.getValue().exceeds(AccessPermission.NONE)) {
-							// code:repository (e.g. RW+:~james/myrepo.git
-							permissions.add(entry.getValue().asRole(entry.getKey()));
-						}
-					}
-					config.setStringList(TEAM, model.name, REPOSITORY, permissions);
-				}
-			}
-
-			// null check on "final" users because JSON-sourced TeamModel
-			// can have a null users object
-			if (!ArrayUtils.isEmpty(model.users)) {
-				config.setStringList(TEAM, model.name, USER, new ArrayList<String>(model.users));
-			}
-
-			// null check on "final" mailing lists because JSON-sourced
-			// TeamModel can have a null users object
-			if (!ArrayUtils.isEmpty(model.mailingLists)) {
-				config.setStringList(TEAM, model.name, MAILINGLIST, new ArrayList<String>(
-						model.mailingLists));
-			}
-
-			// null check on "final" preReceiveScripts because JSON-sourced
-			// TeamModel can have a null preReceiveScripts object
-			if (!ArrayUtils.isEmpty(model.preReceiveScripts)) {
-				config.setStringList(TEAM, model.name, PRERECEIVE, model.preReceiveScripts);
-			}
-
-			// null check on "final" postReceiveScripts because JSON-sourced
-			// TeamModel can have a null postReceiveScripts object
-			if (!ArrayUtils.isEmpty(model.postReceiveScripts)) {
-				config.setStringList(TEAM, model.name, POSTRECEIVE, model.postReceiveScripts);
-			}
+			writeTeam(config, model);
 		}
 
 		config.save();
@@ -867,15 +847,202 @@ public class ConfigUserService implements IUserService {
 			throw new IOException(MessageFormat.format("Failed to save {0}!",
 					realmFileCopy.getAbsolutePath()));
 		}
+
+		// the realm file now contains all journaled changes
+		if (journalFile.exists() && !journalFile.delete()) {
+			throw new IOException(MessageFormat.format("Failed to delete {0}!",
+					journalFile.getAbsolutePath()));
+		}
+		journalChanges = 0;
+		journalEnd = 0;
+	}
+
+	/**
+	 * Adds the section of a user to the config.
+	 */
+	private void writeUser(StoredUserConfig config, UserModel model) {
+		if (!StringUtils.isEmpty(model.password)) {
+			config.setString(USER, model.username, PASSWORD, model.password);
+		}
+		if (!StringUtils.isEmpty(model.cookie)) {
+			config.setString(USER, model.username, COOKIE, model.cookie);
+		}
+		if (!StringUtils.isEmpty(model.displayName)) {
+			config.setString(USER, model.username, DISPLAYNAME, model.displayName);
+		}
+		if (!StringUtils.isEmpty(model.emailAddress)) {
+			config.setString(USER, model.username, EMAILADDRESS, model.emailAddress);
+		}
+		if (model.accountType != null) {
+			config.setString(USER, model.username, ACCOUNTTYPE, model.accountType.name());
+		}
+		if (!StringUtils.isEmpty(model.organizationalUnit)) {
+			config.setString(USER, model.username, ORGANIZATIONALUNIT, model.organizationalUnit);
+		}
+		if (!StringUtils.isEmpty(model.organization)) {
+			config.setString(USER, model.username, ORGANIZATION, model.organization);
+		}
+		if (!StringUtils.isEmpty(model.locality)) {
+			config.setString(USER, model.username, LOCALITY, model.locality);
+		}
+		if (!StringUtils.isEmpty(model.stateProvince)) {
+			config.setString(USER, model.username, STATEPROVINCE, model.stateProvince);
+		}
+		if (!StringUtils.isEmpty(model.countryCode)) {
+			config.setString(USER, model.username, COUNTRYCODE, model.countryCode);
+		}
+		if (model.disabled) {
+			config.setBoolean(USER, model.username, DISABLED, true);
+		}
+		if (model.getPreferences() != null) {
+			Locale locale = model.getPreferences().getLocale();
+			if (locale != null) {
+				String val;
+				if (StringUtils.isEmpty(locale.getCountry())) {
+					val = locale.getLanguage();
+				} else {
+					val = locale.getLanguage() + "_" + locale.getCountry();
+				}
+				config.setString(USER, model.username, LOCALE, val);
+			}
+
+			config.setBoolean(USER, model.username, EMAILONMYTICKETCHANGES, model.getPreferences().isEmailMeOnMyTicketChanges());
+
+			if (model.getPreferences().getTransport() != null) {
+				config.setString(USER, model.username, TRANSPORT, model.getPreferences().getTransport().name());
+			}
+		}
+
+		// user roles
+		List<String> roles = new ArrayList<String>();
+		if (model.canAdmin) {
+			roles.add(Role.ADMIN.getRole());
+		}
+		if (model.canFork) {
+			roles.add(Role.FORK.getRole());
+		}
+		if (model.canCreate) {
+			roles.add(Role.CREATE.getRole());
+		}
+		if (model.excludeFromFederation) {
+			roles.add(Role.NOT_FEDERATED.getRole());
+		}
+		if (roles.size() == 0) {
+			// we do this to ensure that user record with no password
+			// is written.  otherwise, StoredConfig optimizes that account
+			// away. :(
+			roles.add(Role.NONE.getRole());
+		}
+		config.setStringList(USER, model.username, ROLE, roles);
+
+		// discrete repository permissions
+		if (model.permissions != null && !model.canAdmin) {
+			List<String> permissions = new ArrayList<String>();
+			for (Map.Entry<String, AccessPermission> entry : model.permissions.entrySet()) {
+				if (entry.getValue().exceeds(AccessPermission.NONE)) {
+					permissions.add(entry.getValue().asRole(entry.getKey()));
+				}
+			}
+			config.setStringList(USER, model.username, REPOSITORY, permissions);
+		}
+
+		// user preferences
+		if (model.getPreferences() != null) {
+			List<String> starred =  model.getPreferences().getStarredRepositories();
+			if (starred.size() > 0) {
+				config.setStringList(USER, model.username, STARRED, starred);
+			}
+		}
+	}
+
+	/**
+	 * Adds the section of a team to the config.
+	 */
+	private void writeTeam(StoredUserConfig config, TeamModel model) {
+		// team roles
+		List<String> roles = new ArrayList<String>();
+		if (model.canAdmin) {
+			roles.add(Role.ADMIN.getRole());
+		}
+		if (model.canFork) {
+			roles.add(Role.FORK.getRole());
+		}
+		if (model.canCreate) {
+			roles.add(Role.CREATE.getRole());
+		}
+		if (roles.size() == 0) {
+			// we do this to ensure that team record is written.
+			// Otherwise, StoredConfig might optimizes that record away.
+			roles.add(Role.NONE.getRole());
+		}
+		config.setStringList(TEAM, model.name, ROLE, roles);
+		if (model.accountType != null) {
+			config.setString(TEAM, model.name, ACCOUNTTYPE, model.accountType.name());
+		}
+
+		if (!model.canAdmin) {
+			// write team permission for non-admin teams
+			if (model.permissions == null) {
+				// null check on "final" repositories because JSON-sourced TeamModel
+				// can have a null repositories object
+				if (!ArrayUtils.isEmpty(model.repositories)) {
+					config.setStringList(TEAM, model.name, REPOSITORY, new ArrayList<String>(
+							model.repositories));
+				}
+			} else {
+				// discrete repository permissions
+				List<String> permissions = new ArrayList<String>();
+				for (Map.Entry<String, AccessPermission> entry : model.permissions.entrySet()) {
+					if (entry.getValue().exceeds(AccessPermission.NONE)) {
+						// code:repository (e.g. RW+:~james/myrepo.git
+						permissions.add(entry.getValue().asRole(entry.getKey()));
+					}
+				}
+				config.setStringList(TEAM, model.name, REPOSITORY, permissions);
+			}
+		}
+
+		// null check on "final" users because JSON-sourced TeamModel
+		// can have a null users object
+		if (!ArrayUtils.isEmpty(model.users)) {
+			config.setStringList(TEAM, model.name, USER, new ArrayList<String>(model.users));
+		}
+
+		// null check on "final" mailing lists because JSON-sourced
+		// TeamModel can have a null users object
+		if (!ArrayUtils.isEmpty(model.mailingLists)) {
+			config.setStringList(TEAM, model.name, MAILINGLIST, new ArrayList<String>(
+					model.mailingLists));
+		}
+
+		// null check on "final" preReceiveScripts because JSON-sourced
+		// TeamModel can have a null preReceiveScripts object
+		if (!ArrayUtils.isEmpty(model.preReceiveScripts)) {
+			config.setStringList(TEAM, model.name, PRERECEIVE, model.preReceiveScripts);
+		}
+
+		// null check on "final" postReceiveScripts because JSON-sourced
+		// TeamModel can have a null postReceiveScripts object
+		if (!ArrayUtils.isEmpty(model.postReceiveScripts)) {
+			config.setStringList(TEAM, model.name, POSTRECEIVE, model.postReceiveScripts);
+		}
 	}
 
 	/**
 	 * Reads the realm file and rebuilds the in-memory lookup tables.
 	 */
 	protected synchronized void read() {
-		if (realmFile.exists() && (forceReload || (realmFile.lastModified() != lastModified))) {
+		nextReloadCheck = System.currentTimeMillis() + reloadCheckMillis;
+		if (realmFile.exists() && isStale()) {
+			if (!forceReload) {
+				// the realm file or the journal have been changed outside of
+				// this service
+				reloads++;
+			}
 			forceReload = false;
 			lastModified = realmFile.lastModified();
+			journalLength = journalFile.length();
+			journalModified = journalFile.lastModified();
 			users.clear();
 			cookies.clear();
 			teams.clear();
@@ -885,96 +1052,321 @@ public class ConfigUserService implements IUserService {
 				config.load();
 				Set<String> usernames = config.getSubsections(USER);
 				for (String username : usernames) {
-					UserModel user = new UserModel(username.toLowerCase());
-					user.password = config.getString(USER, username, PASSWORD);
-					user.displayName = config.getString(USER, username, DISPLAYNAME);
-					user.emailAddress = config.getString(USER, username, EMAILADDRESS);
-					user.accountType = AccountType.fromString(config.getString(USER, username, ACCOUNTTYPE));
-					user.disabled = config.getBoolean(USER, username, DISABLED, false);
-					user.organizationalUnit = config.getString(USER, username, ORGANIZATIONALUNIT);
-					user.organization = config.getString(USER, username, ORGANIZATION);
-					user.locality = config.getString(USER, username, LOCALITY);
-					user.stateProvince = config.getString(USER, username, STATEPROVINCE);
-					user.countryCode = config.getString(USER, username, COUNTRYCODE);
-					user.cookie = config.getString(USER, username, COOKIE);
-					if (StringUtils.isEmpty(user.cookie) && !StringUtils.isEmpty(user.password)) {
-						user.cookie = user.createCookie();
-					}
+					putUser(readUser(config, username));
+				}
+
+				// load the teams
+				Set<String> teamnames = config.getSubsections(TEAM);
+				for (String teamname : teamnames) {
+					putTeam(readTeam(config, teamname));
+				}
+			} catch (Exception e) {
+				logger.error(MessageFormat.format("Failed to read {0}", realmFile), e);
+			}
+
+			readJournal();
+			publish();
+		}
+	}
+
+	/**
+	 * Returns the current snapshot after reloading the realm file if it has
+	 * been modified.  The files are checked at most once per
+	 * realm.reloadCheckMillis.
+	 */
+	private Snapshot current() {
+		if (forceReload) {
+			read();
+		} else if (System.currentTimeMillis() >= nextReloadCheck) {
+			nextReloadCheck = System.currentTimeMillis() + reloadCheckMillis;
+			if (isStale()) {
+				read();
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Returns true if the realm file or the journal have been changed since
+	 * they were last read.
+	 */
+	private boolean isStale() {
+		return forceReload || realmFile.lastModified() != lastModified
+				|| journalFile.length() != journalLength
+				|| journalFile.lastModified() != journalModified;
+	}
+
+	/**
+	 * Publishes the current users and teams to the lookups.
+	 */
+	private void publish() {
+		snapshot = new Snapshot(users, cookies, teams);
+		unpublished.clear();
+	}
 
-					// preferences
-					user.getPreferences().setLocale(config.getString(USER, username, LOCALE));
-					user.getPreferences().setEmailMeOnMyTicketChanges(config.getBoolean(USER, username, EMAILONMYTICKETCHANGES, true));
-					user.getPreferences().setTransport(Transport.fromString(config.getString(USER, username, TRANSPORT)));
-
-					// user roles
-					Set<String> roles = new HashSet<String>(Arrays.asList(config.getStringList(
-							USER, username, ROLE)));
-					user.canAdmin = roles.contains(Role.ADMIN.getRole());
-					user.canFork = roles.contains(Role.FORK.getRole());
-					user.canCreate = roles.contains(Role.CREATE.getRole());
-					user.excludeFromFederation = roles.contains(Role.NOT_FEDERATED.getRole());
-
-					// repository memberships
-					if (!user.canAdmin) {
-						// non-admin, read permissions
-						Set<String> repositories = new HashSet<String>(Arrays.asList(config
-								.getStringList(USER, username, REPOSITORY)));
-						for (String repository : repositories) {
-							user.addRepositoryPermission(repository);
+	/**
+	 * Returns a modifiable copy of a published user which replaces the user
+	 * in the lookup tables.
+	 */
+	private UserModel editUser(UserModel model) {
+		if (unpublished.contains(model)) {
+			return model;
+		}
+		UserModel copy = DeepCopier.copy(model);
+		users.put(copy.username.toLowerCase(), copy);
+		if (!StringUtils.isEmpty(copy.cookie)) {
+			cookies.put(copy.cookie, copy);
+		}
+		unpublished.add(copy);
+		return copy;
+	}
+
+	/**
+	 * Returns a modifiable copy of a published team which replaces the team
+	 * in the lookup tables.
+	 */
+	private TeamModel editTeam(TeamModel model) {
+		if (unpublished.contains(model)) {
+			return model;
+		}
+		TeamModel copy = DeepCopier.copy(model);
+		teams.put(copy.name.toLowerCase(), copy);
+		unpublished.add(copy);
+		return copy;
+	}
+
+	/**
+	 * Removes a user from the current definition of a team.
+	 */
+	private void removeTeamMember(String teamname, String username) {
+		TeamModel team = teams.get(teamname.toLowerCase());
+		if (team != null && team.hasUser(username)) {
+			editTeam(team).removeUser(username);
+		}
+	}
+
+	/**
+	 * Replays the committed changes of the journal.  The journal is discarded
+	 * if the realm file has been changed since the journal was started.
+	 */
+	private void readJournal() {
+		journalChanges = 0;
+		journalEnd = 0;
+		if (!journalFile.exists()) {
+			return;
+		}
+		try {
+			byte[] bytes = Files.readAllBytes(journalFile.toPath());
+			List<String[]> records = new ArrayList<String[]>();
+			String record = null;
+			StringBuilder text = new StringBuilder();
+			int start = 0;
+			int end;
+			while (start < bytes.length && (end = indexOf(bytes, (byte) '\n', start)) >= 0) {
+				String line = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+				start = end + 1;
+				if (line.startsWith(JOURNAL_BASE)) {
+					String base = realmFile.lastModified() + " " + realmFile.length();
+					if (!line.substring(JOURNAL_BASE.length()).equals(base)) {
+						logger.warn(MessageFormat.format("{0} has been modified, discarding {1}",
+								realmFile, journalFile));
+						if (!journalFile.delete()) {
+							logger.error(MessageFormat.format("Failed to delete {0}!", journalFile));
 						}
+						return;
 					}
-
-					// starred repositories
-					Set<String> starred = new HashSet<String>(Arrays.asList(config
-							.getStringList(USER, username, STARRED)));
-					for (String repository : starred) {
-						UserRepositoryPreferences prefs = user.getPreferences().getRepositoryPreferences(repository);
-						prefs.starred = true;
+				} else if (line.equals(JOURNAL_BEGIN)) {
+					records.clear();
+					record = null;
+				} else if (line.startsWith(JOURNAL_RECORD) || line.equals(JOURNAL_COMMIT)) {
+					if (record != null) {
+						records.add(new String[] { record, text.toString() });
 					}
-
-					// update cache
-					users.put(user.username, user);
-					if (!StringUtils.isEmpty(user.cookie)) {
-						cookies.put(user.cookie, user);
+					record = null;
+					text.setLength(0);
+					if (line.equals(JOURNAL_COMMIT)) {
+						for (String[] change : records) {
+							replay(change[0], change[1]);
+						}
+						records.clear();
+						journalChanges++;
+						journalEnd = start;
+					} else {
+						record = line.substring(JOURNAL_RECORD.length());
 					}
+				} else if (record != null) {
+					text.append(line).append('\n');
 				}
+			}
+			// an incomplete change at the end of the journal is discarded
+		} catch (Exception e) {
+			logger.error(MessageFormat.format("Failed to read {0}", journalFile), e);
+		}
+	}
 
-				// load the teams
-				Set<String> teamnames = config.getSubsections(TEAM);
-				for (String teamname : teamnames) {
-					TeamModel team = new TeamModel(teamname);
-					Set<String> roles = new HashSet<String>(Arrays.asList(config.getStringList(
-							TEAM, teamname, ROLE)));
-					team.canAdmin = roles.contains(Role.ADMIN.getRole());
-					team.canFork = roles.contains(Role.FORK.getRole());
-					team.canCreate = roles.contains(Role.CREATE.getRole());
-					team.accountType = AccountType.fromString(config.getString(TEAM, teamname, ACCOUNTTYPE));
-
-					if (!team.canAdmin) {
-						// non-admin team, read permissions
-						team.addRepositoryPermissions(Arrays.asList(config.getStringList(TEAM, teamname,
-								REPOSITORY)));
+	private static int indexOf(byte[] bytes, byte b, int start) {
+		for (int i = start; i < bytes.length; i++) {
+			if (bytes[i] == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Applies a journaled user or team change.
+	 */
+	private void replay(String record, String text) throws ConfigInvalidException {
+		int space = record.indexOf(' ');
+		String type = record.substring(0, space);
+		String name = record.substring(space + 1);
+		if (type.equals("-" + USER)) {
+			UserModel model = users.remove(name);
+			if (model != null && !StringUtils.isEmpty(model.cookie)) {
+				cookies.remove(model.cookie);
+			}
+		} else if (type.equals("-" + TEAM)) {
+			TeamModel model = teams.remove(name);
+			if (model != null) {
+				for (String username : model.users) {
+					UserModel user = users.get(username);
+					if (user != null) {
+						user.teams.remove(model);
+					}
+				}
+			}
+		} else {
+			Config config = new Config();
+			config.fromText(text);
+			if (type.equals(USER)) {
+				UserModel model = readUser(config, name);
+				UserModel original = users.get(model.username);
+				if (original != null && !StringUtils.isEmpty(original.cookie)) {
+					cookies.remove(original.cookie);
+				}
+				putUser(model);
+				// restore the team memberships
+				for (TeamModel team : teams.values()) {
+					if (team.hasUser(model.username)) {
+						model.teams.add(team);
 					}
-					team.addUsers(Arrays.asList(config.getStringList(TEAM, teamname, USER)));
-					team.addMailingLists(Arrays.asList(config.getStringList(TEAM, teamname,
-							MAILINGLIST)));
-					team.preReceiveScripts.addAll(Arrays.asList(config.getStringList(TEAM,
-							teamname, PRERECEIVE)));
-					team.postReceiveScripts.addAll(Arrays.asList(config.getStringList(TEAM,
-							teamname, POSTRECEIVE)));
-
-					teams.put(team.name.toLowerCase(), team);
-
-					// set the teams on the users
-					for (String user : team.users) {
-						UserModel model = users.get(user);
-						if (model != null) {
-							model.teams.add(team);
+				}
+			} else if (type.equals(TEAM)) {
+				TeamModel original = teams.get(name.toLowerCase());
+				if (original != null) {
+					for (String username : original.users) {
+						UserModel user = users.get(username);
+						if (user != null) {
+							user.teams.remove(original);
 						}
 					}
 				}
-			} catch (Exception e) {
-				logger.error(MessageFormat.format("Failed to read {0}", realmFile), e);
+				putTeam(readTeam(config, name));
+			}
+		}
+	}
+
+	/**
+	 * Reads a user from its config section.
+	 */
+	private UserModel readUser(Config config, String username) {
+		UserModel user = new UserModel(username.toLowerCase());
+		user.password = config.getString(USER, username, PASSWORD);
+		user.displayName = config.getString(USER, username, DISPLAYNAME);
+		user.emailAddress = config.getString(USER, username, EMAILADDRESS);
+		user.accountType = AccountType.fromString(config.getString(USER, username, ACCOUNTTYPE));
+		user.disabled = config.getBoolean(USER, username, DISABLED, false);
+		user.organizationalUnit = config.getString(USER, username, ORGANIZATIONALUNIT);
+		user.organization = config.getString(USER, username, ORGANIZATION);
+		user.locality = config.getString(USER, username, LOCALITY);
+		user.stateProvince = config.getString(USER, username, STATEPROVINCE);
+		user.countryCode = config.getString(USER, username, COUNTRYCODE);
+		user.cookie = config.getString(USER, username, COOKIE);
+
+		// preferences
+		user.getPreferences().setLocale(config.getString(USER, username, LOCALE));
+		user.getPreferences().setEmailMeOnMyTicketChanges(config.getBoolean(USER, username, EMAILONMYTICKETCHANGES, true));
+		user.getPreferences().setTransport(Transport.fromString(config.getString(USER, username, TRANSPORT)));
+
+		// user roles
+		Set<String> roles = new HashSet<String>(Arrays.asList(config.getStringList(
+				USER, username, ROLE)));
+		user.canAdmin = roles.contains(Role.ADMIN.getRole());
+		user.canFork = roles.contains(Role.FORK.getRole());
+		user.canCreate = roles.contains(Role.CREATE.getRole());
+		user.excludeFromFederation = roles.contains(Role.NOT_FEDERATED.getRole());
+
+		// repository memberships
+		if (!user.canAdmin) {
+			// non-admin, read permissions
+			Set<String> repositories = new HashSet<String>(Arrays.asList(config
+					.getStringList(USER, username, REPOSITORY)));
+			for (String repository : repositories) {
+				user.addRepositoryPermission(repository);
+			}
+		}
+
+		// starred repositories
+		Set<String> starred = new HashSet<String>(Arrays.asList(config
+				.getStringList(USER, username, STARRED)));
+		for (String repository : starred) {
+			UserRepositoryPreferences prefs = user.getPreferences().getRepositoryPreferences(repository);
+			prefs.starred = true;
+		}
+		return user;
+	}
+
+	/**
+	 * Reads a team from its config section.
+	 */
+	private TeamModel readTeam(Config config, String teamname) {
+		TeamModel team = new TeamModel(teamname);
+		Set<String> roles = new HashSet<String>(Arrays.asList(config.getStringList(
+				TEAM, teamname, ROLE)));
+		team.canAdmin = roles.contains(Role.ADMIN.getRole());
+		team.canFork = roles.contains(Role.FORK.getRole());
+		team.canCreate = roles.contains(Role.CREATE.getRole());
+		team.accountType = AccountType.fromString(config.getString(TEAM, teamname, ACCOUNTTYPE));
+
+		if (!team.canAdmin) {
+			// non-admin team, read permissions
+			team.addRepositoryPermissions(Arrays.asList(config.getStringList(TEAM, teamname,
+					REPOSITORY)));
+		}
+		team.addUsers(Arrays.asList(config.getStringList(TEAM, teamname, USER)));
+		team.addMailingLists(Arrays.asList(config.getStringList(TEAM, teamname,
+				MAILINGLIST)));
+		team.preReceiveScripts.addAll(Arrays.asList(config.getStringList(TEAM,
+				teamname, PRERECEIVE)));
+		team.postReceiveScripts.addAll(Arrays.asList(config.getStringList(TEAM,
+				teamname, POSTRECEIVE)));
+		return team;
+	}
+
+	/**
+	 * Adds a user to the lookup tables.
+	 */
+	private void putUser(UserModel user) {
+		if (StringUtils.isEmpty(user.cookie) && !StringUtils.isEmpty(user.password)) {
+			user.cookie = user.createCookie();
+		}
+		users.put(user.username.toLowerCase(), user);
+		if (!StringUtils.isEmpty(user.cookie)) {
+			cookies.put(user.cookie, user);
+		}
+	}
+
+	/**
+	 * Adds a team to the lookup tables and sets the team on its users.
+	 */
+	private void putTeam(TeamModel team) {
+		teams.put(team.name.toLowerCase(), team);
+
+		// set the teams on the users
+		for (String user : team.users) {
+			UserModel model = users.get(user);
+			if (model != null) {
+				model.teams.add(team);
 			}
 		}
 	}
@@ -983,8 +1375,158 @@ public class ConfigUserService implements IUserService {
 		return lastModified;
 	}
 
+	/**
+	 * Returns the number of times the users and teams have been reloaded
+	 * because the realm file or the journal have been changed outside of
+	 * this service.  Indexes of the users and teams which are maintained by
+	 * the caller must be rebuilt when the count changes.
+	 *
+	 * @return the number of reloads
+	 * @since 1.10.0
+	 */
+	public long getReloadCount() {
+		current();
+		return reloads;
+	}
+
 	@Override
 	public String toString() {
 		return getClass().getSimpleName() + "(" + realmFile.getAbsolutePath() + ")";
 	}
+
+	/**
+	 * An immutable view of the users and teams with indexes of the team
+	 * memberships and of the repository permissions.
+	 *
+	 * Permission keys which contain regular expression operators (the dot
+	 * excepted) are matched against the role like the models do, all other
+	 * keys are looked up directly.
+	 */
+	private static class Snapshot {
+
+		final Map<String, UserModel> users;
+
+		final Map<String, UserModel> cookies;
+
+		final Map<String, TeamModel> teams;
+
+		final Map<String, List<String>> userTeams;
+
+		final Map<String, Set<String>> userRoles;
+
+		final Map<String, Set<String>> teamRoles;
+
+		final Map<String, Pattern> patterns;
+
+		Snapshot() {
+			this(Collections.<String, UserModel> emptyMap(), Collections.<String, UserModel> emptyMap(),
+					Collections.<String, TeamModel> emptyMap());
+		}
+
+		Snapshot(Map<String, UserModel> users, Map<String, UserModel> cookies, Map<String, TeamModel> teams) {
+			this.users = Collections.unmodifiableMap(new HashMap<String, UserModel>(users));
+			this.cookies = Collections.unmodifiableMap(new HashMap<String, UserModel>(cookies));
+			this.teams = Collections.unmodifiableMap(new HashMap<String, TeamModel>(teams));
+			this.userTeams = new HashMap<String, List<String>>();
+			this.userRoles = new HashMap<String, Set<String>>();
+			this.teamRoles = new HashMap<String, Set<String>>();
+			this.patterns = new HashMap<String, Pattern>();
+
+			for (UserModel user : this.users.values()) {
+				for (String key : user.permissions.keySet()) {
+					index(userRoles, key, user.username);
+				}
+			}
+			for (Map.Entry<String, TeamModel> entry : this.teams.entrySet()) {
+				TeamModel team = entry.getValue();
+				for (String username : team.users) {
+					List<String> list = userTeams.get(username);
+					if (list == null) {
+						list = new ArrayList<String>();
+						userTeams.put(username, list);
+					}
+					list.add(entry.getKey());
+				}
+				for (String key : team.permissions.keySet()) {
+					index(teamRoles, key, team.name);
+				}
+			}
+		}
+
+		private void index(Map<String, Set<String>> index, String key, String name) {
+			Set<String> names = index.get(key);
+			if (names == null) {
+				names = new HashSet<String>();
+				index.put(key, names);
+				if (!patterns.containsKey(key) && isPattern(key)) {
+					try {
+						patterns.put(key, Pattern.compile(key));
+					} catch (PatternSyntaxException e) {
+						// not a valid regular expression, only matches exactly
+					}
+				}
+			}
+			names.add(name);
+		}
+
+		private static boolean isPattern(String key) {
+			for (char c : key.toCharArray()) {
+				if ("\\^$*+?()[]{}|".indexOf(c) > -1) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Returns the names of the users or teams which have a permission for
+		 * the role.
+		 */
+		Set<String> getNamesForRole(Map<String, Set<String>> index, String role) {
+			Set<String> names = new HashSet<String>();
+			Set<String> exact = index.get(AccessPermission.repositoryFromRole(role).toLowerCase());
+			if (exact != null) {
+				names.addAll(exact);
+			}
+			for (Map.Entry<String, Pattern> entry : patterns.entrySet()) {
+				Set<String> matches = index.get(entry.getKey());
+				if (matches != null && entry.getValue().matcher(role).matches()) {
+					names.addAll(matches);
+				}
+			}
+			return names;
+		}
+
+		/**
+		 * Copies the users and sets their current teams, otherwise all
+		 * changes to the users are live and unpersisted.
+		 */
+		List<UserModel> copy(Collection<UserModel> models) {
+			List<UserModel> list = DeepCopier.copy(new ArrayList<UserModel>(models));
+			Map<String, TeamModel> memberships = new HashMap<String, TeamModel>();
+			for (UserModel model : list) {
+				List<String> teamnames = userTeams.get(model.username.toLowerCase());
+				if (teamnames != null) {
+					for (String teamname : teamnames) {
+						memberships.put(teamname, teams.get(teamname));
+					}
+				}
+			}
+			if (!memberships.isEmpty()) {
+				for (TeamModel team : DeepCopier.copy(new ArrayList<TeamModel>(memberships.values()))) {
+					memberships.put(team.name.toLowerCase(), team);
+				}
+			}
+			for (UserModel model : list) {
+				model.teams.clear();
+				List<String> teamnames = userTeams.get(model.username.toLowerCase());
+				if (teamnames != null) {
+					for (String teamname : teamnames) {
+						model.teams.add(memberships.get(teamname));
+					}
+				}
+			}
+			return list;
+		}
+	}
 }
@@ -20,6 +20,7 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -66,9 +67,27 @@ public class StoredUserConfig {
 	public void save() throws IOException {
 		try (FileWriter fileWriter = new FileWriter(realmFileCopy);
 				PrintWriter printWriter = new PrintWriter(fileWriter);) {
-			for (Map.Entry<String,Section> entry : sections.entrySet()) {
-				writeSection(printWriter, entry.getKey(), entry.getValue());
-			}
+			writeSections(printWriter);
+		}
+	}
+
+	/**
+	 * Returns the sections in the format of the realm file.
+	 *
+	 * @return the config text
+	 * @since 1.10.0
+	 */
+	public String toText() {
+		StringWriter stringWriter = new StringWriter();
+		try (PrintWriter printWriter = new PrintWriter(stringWriter)) {
+			writeSections(printWriter);
+		}
+		return stringWriter.toString();
+	}
+
+	private void writeSections(PrintWriter printWriter) {
+		for (Map.Entry<String,Section> entry : sections.entrySet()) {
+			writeSection(printWriter, entry.getKey(), entry.getValue());
 		}
 	}
 
@@ -17,10 +17,14 @@
 package com.gitblit.auth;
 
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -31,19 +35,25 @@ import com.gitblit.Constants.Role;
 import com.gitblit.Keys;
 import com.gitblit.auth.AuthenticationProvider.UsernamePasswordAuthenticationProvider;
 import com.gitblit.ldap.LdapConnection;
+import com.gitblit.ldap.LdapConnectionPool;
 import com.gitblit.models.TeamModel;
 import com.gitblit.models.UserModel;
 import com.gitblit.service.LdapSyncService;
 import com.gitblit.utils.ArrayUtils;
 import com.gitblit.utils.StringUtils;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.unboundid.asn1.ASN1OctetString;
 import com.unboundid.ldap.sdk.Attribute;
 import com.unboundid.ldap.sdk.BindResult;
+import com.unboundid.ldap.sdk.Entry;
 import com.unboundid.ldap.sdk.LDAPException;
 import com.unboundid.ldap.sdk.ResultCode;
 import com.unboundid.ldap.sdk.SearchRequest;
 import com.unboundid.ldap.sdk.SearchResult;
 import com.unboundid.ldap.sdk.SearchResultEntry;
 import com.unboundid.ldap.sdk.SearchScope;
+import com.unboundid.ldap.sdk.controls.SimplePagedResultsControl;
 
 /**
  * Implementation of an LDAP user service.
@@ -54,6 +64,30 @@ public class LdapAuthProvider extends UsernamePasswordAuthenticationProvider {
 
 	private final ScheduledExecutorService scheduledExecutorService;
 
+	/**
+	 * Names of the LDAP groups of a user DN, cached for logins.
+	 */
+	private Cache<String, List<String>> groupCache;
+
+	/**
+	 * The highest value of realm.ldap.syncChangeAttribute seen by the
+	 * previous synchronization.
+	 */
+	private String syncWatermark;
+
+	/**
+	 * The highest value of realm.ldap.syncChangeAttribute of the groups seen
+	 * by the previous synchronization.
+	 */
+	private String groupWatermark;
+
+	/**
+	 * The groups whose change attribute equals the group watermark, by DN.
+	 * The change attribute may not distinguish changes within the same
+	 * second, these groups are compared by content.
+	 */
+	private Map<String, Entry> groupWatermarkEntries;
+
 	public LdapAuthProvider() {
 		super("ldap");
 
@@ -85,20 +119,38 @@ public class LdapAuthProvider extends UsernamePasswordAuthenticationProvider {
 
 	@Override
 	public void setup() {
+		int groupCacheSeconds = settings.getInteger(Keys.realm.ldap.groupCacheSeconds, 60);
+		if (groupCacheSeconds > 0) {
+			groupCache = CacheBuilder.newBuilder()
+					.maximumSize(10000)
+					.expireAfterWrite(groupCacheSeconds, TimeUnit.SECONDS)
+					.build();
+		}
 		configureSyncService();
 	}
 
 	@Override
 	public void stop() {
 		scheduledExecutorService.shutdownNow();
+		LdapConnectionPool.closeAll();
 	}
 
+	/**
+	 * Synchronizes the LDAP users and teams with the user service.
+	 *
+	 * If realm.ldap.syncChangeAttribute is set, only the users whose entries
+	 * changed since the previous synchronization are read from the directory.
+	 * A changed group entry causes a complete synchronization because group
+	 * memberships are not recorded on the user entries.  In both modes only
+	 * the users and teams which differ from the user service are written, in
+	 * one batched update each.
+	 */
 	public synchronized void sync() {
 		final boolean enabled = settings.getBoolean(Keys.realm.ldap.synchronize, false);
 		if (enabled) {
 			logger.info("Synchronizing with LDAP @ " + settings.getRequiredString(Keys.realm.ldap.server));
 			final boolean deleteRemovedLdapUsers = settings.getBoolean(Keys.realm.ldap.removeDeletedUsers, true);
-			LdapConnection ldapConnection = new LdapConnection(settings);
+			LdapConnection ldapConnection = new LdapConnection(settings, LdapConnectionPool.get(settings));
 			if (ldapConnection.connect()) {
 				if (ldapConnection.bind() == null) {
 					ldapConnection.close();
@@ -108,69 +160,137 @@ public class LdapAuthProvider extends UsernamePasswordAuthenticationProvider {
 
 				try {
 					String uidAttribute = settings.getString(Keys.realm.ldap.uid, "uid");
+					String changeAttribute = settings.getString(Keys.realm.ldap.syncChangeAttribute, "");
 					String accountBase = ldapConnection.getAccountBase();
 					String accountPattern = ldapConnection.getAccountPattern();
 					accountPattern = StringUtils.replace(accountPattern, "${username}", "*");
 
-					SearchResult result = doSearch(ldapConnection, accountBase, accountPattern);
-					if (result != null && result.getEntryCount() > 0) {
-						final Map<String, UserModel> ldapUsers = new HashMap<String, UserModel>();
-
-						for (SearchResultEntry loggingInUser : result.getSearchEntries()) {
-							Attribute uid = loggingInUser.getAttribute(uidAttribute);
-							if (uid == null) {
-								logger.error("Can not synchronize with LDAP, missing \"{}\" attribute", uidAttribute);
-								continue;
-							}
-							final String username = uid.getValue();
-							logger.debug("LDAP synchronizing: " + username);
+					String watermark = syncWatermark;
+					boolean incremental = !StringUtils.isEmpty(changeAttribute) && watermark != null;
+					List<SearchResultEntry> groups = null;
+					if (!StringUtils.isEmpty(changeAttribute) && !supportsTeamMembershipChanges()) {
+						// group memberships are only recorded on the group entries
+						String groupBase = settings.getString(Keys.realm.ldap.groupBase, "");
+						String groupFilter = groupWatermark == null ? "(objectClass=*)"
+								: getChangedFilter("(objectClass=*)", changeAttribute, groupWatermark);
+						groups = doPagedSearch(ldapConnection, groupBase, groupFilter, "*", changeAttribute);
+						if (incremental && (groups == null || groupWatermark == null || hasChangedGroups(groups))) {
+							logger.debug("LDAP groups changed, synchronizing all users");
+							incremental = false;
+						}
+					}
 
-							UserModel user = userManager.getUserModel(username);
-							if (user == null) {
-								user = new UserModel(username);
-							}
+					String filter = incremental ? getChangedFilter(accountPattern, changeAttribute, watermark) : accountPattern;
+					List<SearchResultEntry> entries = StringUtils.isEmpty(changeAttribute)
+							? doPagedSearch(ldapConnection, accountBase, filter, "*")
+							: doPagedSearch(ldapConnection, accountBase, filter, "*", changeAttribute);
+					if (entries == null) {
+						logger.error("Cannot synchronize with LDAP, the search for users failed.");
+						return;
+					}
+					String newWatermark = getWatermark(entries, changeAttribute, watermark);
+
+					final Map<String, UserModel> ldapUsers = new HashMap<String, UserModel>();
+					final Map<String, UserModel> changedUsers = new HashMap<String, UserModel>();
+					for (SearchResultEntry loggingInUser : entries) {
+						Attribute uid = loggingInUser.getAttribute(uidAttribute);
+						if (uid == null) {
+							logger.error("Can not synchronize with LDAP, missing \"{}\" attribute", uidAttribute);
+							continue;
+						}
+						final String username = uid.getValue();
+						logger.debug("LDAP synchronizing: " + username);
+
+						UserModel user = userManager.getUserModel(username);
+						String state = null;
+						if (user == null) {
+							user = new UserModel(username);
+						} else {
+							state = getSyncState(user);
+						}
 
-							if (!supportsTeamMembershipChanges()) {
-								getTeamsFromLdap(ldapConnection, username, loggingInUser, user);
+						if (!supportsTeamMembershipChanges()) {
+							getTeamsFromLdap(ldapConnection, username, loggingInUser, user, false);
+							for (TeamModel userTeam : user.teams) {
+								// Is this an administrative team?
+								setAdminAttribute(userTeam);
 							}
+						}
 
-							// Get User Attributes
-							setUserAttributes(user, loggingInUser);
+						// Get User Attributes
+						setUserAttributes(user, loggingInUser);
 
-							// store in map
-							ldapUsers.put(username.toLowerCase(), user);
+						// store in map
+						ldapUsers.put(username.toLowerCase(), user);
+						if (!getSyncState(user).equals(state)) {
+							changedUsers.put(username.toLowerCase(), user);
 						}
+					}
 
-						if (deleteRemovedLdapUsers) {
-							logger.debug("detecting removed LDAP users...");
+					if (deleteRemovedLdapUsers) {
+						logger.debug("detecting removed LDAP users...");
+
+						Set<String> ldapUsernames = ldapUsers.keySet();
+						if (incremental) {
+							// read the usernames of all entries
+							List<SearchResultEntry> accounts = doPagedSearch(ldapConnection, accountBase, accountPattern, uidAttribute);
+							ldapUsernames = null;
+							if (accounts != null) {
+								ldapUsernames = new HashSet<String>();
+								for (SearchResultEntry account : accounts) {
+									Attribute uid = account.getAttribute(uidAttribute);
+									if (uid != null) {
+										ldapUsernames.add(uid.getValue().toLowerCase());
+									}
+								}
+							}
+						}
 
+						if (ldapUsernames != null && !ldapUsernames.isEmpty()) {
 							for (UserModel userModel : userManager.getAllUsers()) {
 								if (AccountType.LDAP == userModel.accountType) {
-									if (!ldapUsers.containsKey(userModel.username)) {
+									if (!ldapUsernames.contains(userModel.username)) {
 										logger.info("deleting removed LDAP user " + userModel.username + " from user service");
 										userManager.deleteUser(userModel.username);
 									}
 								}
 							}
 						}
+					}
 
-						userManager.updateUserModels(ldapUsers.values());
+					if (!changedUsers.isEmpty()) {
+						logger.info("LDAP synchronization updates {} of {} users", changedUsers.size(), ldapUsers.size());
+						userManager.updateUserModels(changedUsers.values());
+					}
 
-						if (!supportsTeamMembershipChanges()) {
-							final Map<String, TeamModel> userTeams = new HashMap<String, TeamModel>();
-							for (UserModel user : ldapUsers.values()) {
-								for (TeamModel userTeam : user.teams) {
-									// Is this an administrative team?
-									setAdminAttribute(userTeam);
-									userTeams.put(userTeam.name, userTeam);
+					if (!supportsTeamMembershipChanges()) {
+						// the memberships were stored with the users, update the teams
+						// whose administrative flag changed
+						final Set<String> teamNames = new HashSet<String>();
+						final Map<String, TeamModel> changedTeams = new HashMap<String, TeamModel>();
+						for (UserModel user : ldapUsers.values()) {
+							for (TeamModel userTeam : user.teams) {
+								if (!teamNames.add(userTeam.name.toLowerCase())) {
+									continue;
+								}
+								TeamModel team = userManager.getTeamModel(userTeam.name);
+								if (team == null) {
+									team = userTeam;
+								}
+								boolean canAdmin = team.canAdmin;
+								setAdminAttribute(team);
+								if (team == userTeam || canAdmin != team.canAdmin) {
+									changedTeams.put(team.name.toLowerCase(), team);
 								}
 							}
-							userManager.updateTeamModels(userTeams.values());
 						}
-					}
-					if (!supportsTeamMembershipChanges()) {
+						if (!changedTeams.isEmpty()) {
+							userManager.updateTeamModels(changedTeams.values());
+						}
 						getEmptyTeamsFromLdap(ldapConnection);
 					}
+					syncWatermark = newWatermark;
+					setGroupWatermark(groups, changeAttribute);
 				} finally {
 					ldapConnection.close();
 				}
@@ -178,6 +298,104 @@ public class LdapAuthProvider extends UsernamePasswordAuthenticationProvider {
 		}
 	}
 
+	/**
+	 * Determines if the groups read with the group watermark contain a group
+	 * which changed since the previous synchronization.  Every returned group
+	 * changed, except the groups already seen with the watermark value.
+	 */
+	private boolean hasChangedGroups(List<SearchResultEntry> groups) {
+		for (SearchResultEntry group : groups) {
+			Entry seen = groupWatermarkEntries.get(group.getDN());
+			if (seen == null || !seen.equals(group.duplicate())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Records the group watermark and the groups seen with its value.
+	 *
+	 * @param groups
+	 *            the groups read by the synchronization, null if they could
+	 *            not be read
+	 */
+	private void setGroupWatermark(List<SearchResultEntry> groups, String changeAttribute) {
+		if (groups == null) {
+			groupWatermark = null;
+			groupWatermarkEntries = null;
+			return;
+		}
+		String watermark = getWatermark(groups, changeAttribute, groupWatermark);
+		Map<String, Entry> entries = new HashMap<String, Entry>();
+		if (watermark != null && watermark.equals(groupWatermark)) {
+			entries.putAll(groupWatermarkEntries);
+		}
+		for (SearchResultEntry group : groups) {
+			if (watermark != null && watermark.equals(group.getAttributeValue(changeAttribute))) {
+				entries.put(group.getDN(), group.duplicate());
+			}
+		}
+		groupWatermark = watermark;
+		groupWatermarkEntries = entries;
+	}
+
+	/**
+	 * Returns the state of a user which is maintained by the synchronization.
+	 */
+	private String getSyncState(UserModel user) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(user.displayName).append('\n');
+		sb.append(user.emailAddress).append('\n');
+		sb.append(user.canAdmin).append('\n');
+		sb.append(user.accountType).append('\n');
+		sb.append(user.password).append('\n');
+		if (!supportsTeamMembershipChanges()) {
+			Set<String> teams = new TreeSet<String>();
+			for (TeamModel team : user.teams) {
+				teams.add(team.name.toLowerCase());
+			}
+			sb.append(teams);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a filter which restricts a filter to entries changed since the
+	 * previous synchronization.
+	 */
+	private String getChangedFilter(String filter, String changeAttribute, String watermark) {
+		return "(&" + filter + "(" + changeAttribute + ">=" + LdapConnection.escapeLDAPSearchFilter(watermark) + "))";
+	}
+
+	/**
+	 * Returns the highest value of the change attribute of the entries.
+	 * Numeric values like uSNChanged are compared as numbers, timestamps
+	 * like modifyTimestamp in generalized time are compared as strings.
+	 */
+	private String getWatermark(List<SearchResultEntry> entries, String changeAttribute, String watermark) {
+		if (StringUtils.isEmpty(changeAttribute)) {
+			return null;
+		}
+		String max = watermark;
+		for (SearchResultEntry entry : entries) {
+			String value = entry.getAttributeValue(changeAttribute);
+			if (value == null) {
+				continue;
+			}
+			if (max == null) {
+				max = value;
+			} else if (value.matches("\\d+") && max.matches("\\d+")) {
+				if (Long.parseLong(value) > Long.parseLong(max)) {
+					max = value;
+				}
+			} else if (value.compareTo(max) > 0) {
+				max = value;
+			}
+		}
+		return max;
+	}
+
 	/**
 	 * Credentials are defined in the LDAP server and can not be manipulated
 	 * from Gitblit.
@@ -254,7 +472,7 @@ public class LdapAuthProvider extends UsernamePasswordAuthenticationProvider {
 	public UserModel authenticate(String username, char[] password) {
 		String simpleUsername = getSimpleUsername(username);
 
-		LdapConnection ldapConnection = new LdapConnection(settings);
+		LdapConnection ldapConnection = new LdapConnection(settings, LdapConnectionPool.get(settings));
 		if (ldapConnection.connect()) {
 
 			// Try to bind either to the "manager" account,
@@ -295,7 +513,7 @@ public class LdapAuthProvider extends UsernamePasswordAuthenticationProvider {
 							setCookie(user);
 
 							if (!supportsTeamMembershipChanges()) {
-								getTeamsFromLdap(ldapConnection, simpleUsername, loggingInUser, user);
+								getTeamsFromLdap(ldapConnection, simpleUsername, loggingInUser, user, true);
 							}
 
 							// Get User Attributes
@@ -417,12 +635,57 @@ public class LdapAuthProvider extends UsernamePasswordAuthenticationProvider {
 		}
 	}
 
-	private void getTeamsFromLdap(LdapConnection ldapConnection, String simpleUsername, SearchResultEntry loggingInUser, UserModel user) {
+	/**
+	 * Sets the teams of the user from the LDAP groups of which the user is a
+	 * member.
+	 *
+	 * @param ldapConnection
+	 * @param simpleUsername
+	 * @param loggingInUser
+	 * @param user
+	 * @param useCache
+	 *            true to use recently searched group memberships of the user,
+	 *            false to search the directory and refresh the cache
+	 */
+	private void getTeamsFromLdap(LdapConnection ldapConnection, String simpleUsername, SearchResultEntry loggingInUser, UserModel user, boolean useCache) {
 		String loggingInUserDN = loggingInUser.getDN();
 
+		List<String> teamNames = null;
+		if (useCache && groupCache != null) {
+			teamNames = groupCache.getIfPresent(loggingInUserDN);
+		}
+		if (teamNames == null) {
+			teamNames = searchTeamNames(ldapConnection, simpleUsername, loggingInUser);
+			if (teamNames == null) {
+				// the search failed, do not cache the missing memberships
+				teamNames = new ArrayList<String>();
+			} else if (groupCache != null) {
+				groupCache.put(loggingInUserDN, teamNames);
+			}
+		}
+
 		// Clear the users team memberships - we're going to get them from LDAP
 		user.teams.clear();
 
+		for (String teamName : teamNames) {
+			TeamModel teamModel = userManager.getTeamModel(teamName);
+			if (teamModel == null) {
+				teamModel = createTeamFromLdap(teamName);
+			}
+
+			user.teams.add(teamModel);
+			teamModel.addUser(user.getName());
+		}
+	}
+
+	/**
+	 * Searches the names of the LDAP groups of which the user is a member.
+	 *
+	 * @return the group names or null if the search failed
+	 */
+	private List<String> searchTeamNames(LdapConnection ldapConnection, String simpleUsername, SearchResultEntry loggingInUser) {
+		String loggingInUserDN = loggingInUser.getDN();
+
 		String groupBase = settings.getString(Keys.realm.ldap.groupBase, "");
 		String groupMemberPattern = settings.getString(Keys.realm.ldap.groupMemberPattern, "(&(objectClass=group)(member=${dn}))");
 
@@ -435,20 +698,14 @@ public class LdapAuthProvider extends UsernamePasswordAuthenticationProvider {
 		}
 
 		SearchResult teamMembershipResult = searchTeamsInLdap(ldapConnection, groupBase, true, groupMemberPattern, Arrays.asList("cn"));
-		if (teamMembershipResult != null && teamMembershipResult.getEntryCount() > 0) {
-			for (int i = 0; i < teamMembershipResult.getEntryCount(); i++) {
-				SearchResultEntry teamEntry = teamMembershipResult.getSearchEntries().get(i);
-				String teamName = teamEntry.getAttribute("cn").getValue();
-
-				TeamModel teamModel = userManager.getTeamModel(teamName);
-				if (teamModel == null) {
-					teamModel = createTeamFromLdap(teamEntry);
-				}
-
-				user.teams.add(teamModel);
-				teamModel.addUser(user.getName());
-			}
+		if (teamMembershipResult == null) {
+			return null;
+		}
+		List<String> teamNames = new ArrayList<String>();
+		for (SearchResultEntry teamEntry : teamMembershipResult.getSearchEntries()) {
+			teamNames.add(teamEntry.getAttribute("cn").getValue());
 		}
+		return teamNames;
 	}
 
 	private void getEmptyTeamsFromLdap(LdapConnection ldapConnection) {
@@ -500,21 +757,44 @@ public class LdapAuthProvider extends UsernamePasswordAuthenticationProvider {
 
 
 	private TeamModel createTeamFromLdap(SearchResultEntry teamEntry) {
-		TeamModel answer = new TeamModel(teamEntry.getAttributeValue("cn"));
+		return createTeamFromLdap(teamEntry.getAttributeValue("cn"));
+	}
+
+	private TeamModel createTeamFromLdap(String teamName) {
+		TeamModel answer = new TeamModel(teamName);
 		answer.accountType = getAccountType();
 		// potentially retrieve other attributes here in the future
 
 		return answer;
 	}
 
-	private SearchResult doSearch(LdapConnection ldapConnection, String base, String filter) {
+	/**
+	 * Searches the directory in pages of realm.ldap.syncPageSize entries.
+	 *
+	 * @return the entries or null if the search failed
+	 */
+	private List<SearchResultEntry> doPagedSearch(LdapConnection ldapConnection, String base, String filter, String... attributes) {
+		int pageSize = settings.getInteger(Keys.realm.ldap.syncPageSize, 500);
+		List<SearchResultEntry> entries = new ArrayList<SearchResultEntry>();
 		try {
-			SearchRequest searchRequest = new SearchRequest(base, SearchScope.SUB, filter);
-			SearchResult result = ldapConnection.search(searchRequest);
-			if (result.getResultCode() != ResultCode.SUCCESS) {
-				return null;
-			}
-			return result;
+			ASN1OctetString cookie = null;
+			do {
+				SearchRequest searchRequest = new SearchRequest(base, SearchScope.SUB, filter, attributes);
+				if (pageSize > 0) {
+					searchRequest.addControl(new SimplePagedResultsControl(pageSize, cookie, false));
+				}
+				SearchResult result = ldapConnection.search(searchRequest);
+				if (result == null || result.getResultCode() != ResultCode.SUCCESS) {
+					return null;
+				}
+				entries.addAll(result.getSearchEntries());
+				cookie = null;
+				SimplePagedResultsControl control = SimplePagedResultsControl.get(result);
+				if (control != null && control.moreResultsToReturn()) {
+					cookie = control.getCookie();
+				}
+			} while (cookie != null);
+			return entries;
 		} catch (LDAPException e) {
 			logger.error("Problem creating LDAP search", e);
 			return null;
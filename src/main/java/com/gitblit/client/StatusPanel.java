@@ -24,15 +24,19 @@ import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
 
 import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JTabbedPane;
 import javax.swing.JTable;
 
 import com.gitblit.Constants;
 import com.gitblit.Constants.RpcRequest;
+import com.gitblit.models.ScriptStatistics;
 import com.gitblit.models.ServerStatus;
 import com.gitblit.utils.ByteFormat;
 
@@ -51,7 +55,11 @@ public class StatusPanel extends JPanel {
 	private JLabel heapMaximum;
 	private JLabel heapAllocated;
 	private JLabel heapUsed;
+	private JLabel postReceiveBacklog;
+	private JLabel postReceiveLag;
 	private PropertiesTableModel tableModel;
+	private PropertiesTableModel hooksTableModel;
+	private PropertiesTableModel metricsTableModel;
 	private HeaderPanel header;
 	private JLabel version;
 	private JLabel releaseDate;
@@ -80,6 +88,8 @@ public class StatusPanel extends JPanel {
 		heapMaximum = new JLabel();
 		heapAllocated = new JLabel();
 		heapUsed = new JLabel();
+		postReceiveBacklog = new JLabel();
+		postReceiveLag = new JLabel();
 
 		JPanel fieldsPanel = new JPanel(new GridLayout(0, 1, 0, Utils.MARGIN)) {
 
@@ -98,6 +108,8 @@ public class StatusPanel extends JPanel {
 		fieldsPanel.add(createFieldPanel("gb.heapUsed", heapUsed));
 		fieldsPanel.add(createFieldPanel("gb.heapAllocated", heapAllocated));
 		fieldsPanel.add(createFieldPanel("gb.heapMaximum", heapMaximum));
+		fieldsPanel.add(createFieldPanel("gb.postReceiveBacklog", postReceiveBacklog));
+		fieldsPanel.add(createFieldPanel("gb.postReceiveLag", postReceiveLag));
 
 		tableModel = new PropertiesTableModel();
 		JTable propertiesTable = Utils.newTable(tableModel, Utils.DATE_FORMAT);
@@ -105,9 +117,22 @@ public class StatusPanel extends JPanel {
 		NameRenderer nameRenderer = new NameRenderer();
 		propertiesTable.getColumn(name).setCellRenderer(nameRenderer);
 
+		hooksTableModel = new PropertiesTableModel();
+		JTable hooksTable = Utils.newTable(hooksTableModel, Utils.DATE_FORMAT);
+		hooksTable.getColumn(name).setCellRenderer(new NameRenderer());
+
+		metricsTableModel = new PropertiesTableModel();
+		JTable metricsTable = Utils.newTable(metricsTableModel, Utils.DATE_FORMAT);
+		metricsTable.getColumn(name).setCellRenderer(new NameRenderer());
+
+		JTabbedPane tabs = new JTabbedPane(JTabbedPane.TOP);
+		tabs.addTab(Translation.get("gb.properties"), new JScrollPane(propertiesTable));
+		tabs.addTab(Translation.get("gb.hookScripts"), new JScrollPane(hooksTable));
+		tabs.addTab(Translation.get("gb.metrics"), new JScrollPane(metricsTable));
+
 		JPanel centerPanel = new JPanel(new BorderLayout(Utils.MARGIN, Utils.MARGIN));
 		centerPanel.add(fieldsPanel, BorderLayout.NORTH);
-		centerPanel.add(new JScrollPane(propertiesTable), BorderLayout.CENTER);
+		centerPanel.add(tabs, BorderLayout.CENTER);
 
 		JPanel controls = new JPanel(new FlowLayout(FlowLayout.CENTER, Utils.MARGIN, 0));
 		controls.add(refreshStatus);
@@ -164,7 +189,25 @@ public class StatusPanel extends JPanel {
 		heapAllocated.setText(byteFormat.format(status.heapAllocated));
 		heapUsed.setText(byteFormat.format(status.heapAllocated - status.heapFree) + " ("
 				+ byteFormat.format(status.heapFree) + " " + Translation.get("gb.free") + ")");
+		postReceiveBacklog.setText(String.valueOf(status.postReceiveBacklog));
+		postReceiveLag.setText(status.postReceiveLag + " ms");
 		tableModel.setProperties(status.systemProperties);
 		tableModel.fireTableDataChanged();
+
+		Map<String, String> hooks = new TreeMap<String, String>();
+		if (status.hookScripts != null) {
+			for (ScriptStatistics stats : status.hookScripts.values()) {
+				hooks.put(stats.script, stats.toString());
+			}
+		}
+		hooksTableModel.setProperties(hooks);
+		hooksTableModel.fireTableDataChanged();
+
+		Map<String, String> metrics = new TreeMap<String, String>();
+		if (status.metrics != null) {
+			metrics.putAll(status.metrics);
+		}
+		metricsTableModel.setProperties(metrics);
+		metricsTableModel.fireTableDataChanged();
 	}
 }
@@ -16,16 +16,13 @@
 package com.gitblit.fanout;
 
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
-import java.nio.charset.CharacterCodingException;
-import java.nio.charset.Charset;
-import java.nio.charset.CharsetDecoder;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -34,7 +31,10 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,6 +45,12 @@ import org.slf4j.LoggerFactory;
  * This implementation uses channels and selectors, which are the Java analog of
  * the Linux epoll mechanism used in the original fanout C code.
  *
+ * Replies and announcements are queued per connection and sent with gathering
+ * writes when the channel is writable, so a slow client never blocks the
+ * selector thread.  An announcement is encoded once and the same buffer is
+ * queued for all subscribers.  A subscriber which lets more than
+ * {@link #getMaxPendingMessages()} messages queue up is disconnected.
+ *
  * @author James Moger
  *
  */
@@ -55,6 +61,15 @@ public class FanoutNioService extends FanoutService {
 	private volatile ServerSocketChannel serviceCh;
 	private volatile Selector selector;
 
+	/**
+	 * Connections with queued messages which are not yet registered for
+	 * writing.  Messages may be queued by any thread, the registration is
+	 * done by the selector thread.
+	 */
+	private final Queue<FanoutNioConnection> pendingWrites = new ConcurrentLinkedQueue<FanoutNioConnection>();
+
+	private volatile int maxPendingMessages = 1000;
+
 	public static void main(String[] args) throws Exception {
 		FanoutNioService pubsub = new FanoutNioService(null, DEFAULT_PORT);
 		pubsub.setStrictRequestTermination(false);
@@ -87,6 +102,27 @@ public class FanoutNioService extends FanoutService {
 		super(bindInterface, port, "Fanout nio service");
 	}
 
+	/**
+	 * Returns the number of messages which may be queued for a connection
+	 * before it is disconnected as a slow subscriber.
+	 *
+	 * @return the limit, <= 0 if unlimited
+	 */
+	public int getMaxPendingMessages() {
+		return maxPendingMessages;
+	}
+
+	/**
+	 * Sets the number of messages which may be queued for a connection
+	 * before it is disconnected as a slow subscriber.
+	 *
+	 * @param value
+	 *            the limit, <= 0 for unlimited
+	 */
+	public void setMaxPendingMessages(int value) {
+		maxPendingMessages = value;
+	}
+
 	@Override
 	protected boolean isConnected() {
 		return serviceCh != null;
@@ -130,6 +166,7 @@ public class FanoutNioService extends FanoutService {
 				serviceCh = null;
 				selector.close();
 				selector = null;
+				pendingWrites.clear();
 			}
 		} catch (IOException e) {
 			logger.error(MessageFormat.format("failed to disconnect {0}", name), e);
@@ -138,82 +175,104 @@ public class FanoutNioService extends FanoutService {
 
 	@Override
 	protected void listen() throws IOException {
-		while (selector.select(serviceTimeout) > 0) {
+		while (true) {
+			int selected = selector.select(serviceTimeout);
+			boolean registered = registerPendingWrites();
+			if (selected == 0 && !registered) {
+				// timeout
+				return;
+			}
 			Set<SelectionKey> keys = selector.selectedKeys();
 			Iterator<SelectionKey> keyItr = keys.iterator();
 			while (keyItr.hasNext()) {
 				SelectionKey key = keyItr.next();
+				keyItr.remove();
+				if (!key.isValid()) {
+					continue;
+				}
 				if (key.isAcceptable()) {
 					// new fanout client connection
 					ServerSocketChannel sch = (ServerSocketChannel) key.channel();
 					try {
 						SocketChannel ch = sch.accept();
+						if (ch == null) {
+							continue;
+						}
 						ch.configureBlocking(false);
 						configureClientSocket(ch.socket());
 
 						FanoutNioConnection connection = new FanoutNioConnection(ch);
-						addConnection(connection);
+						connection.key = ch.register(selector, 0, connection);
+						connection.accepted = addConnection(connection);
 
-						// register to send the queued message
-						ch.register(selector, SelectionKey.OP_WRITE, connection);
+						// send the queued connected or busy message
+						connection.key.interestOps(SelectionKey.OP_WRITE);
 					} catch (IOException e) {
 						logger.error("error accepting fanout connection", e);
 					}
-				} else if (key.isReadable()) {
-					// read fanout client request
-					SocketChannel ch = (SocketChannel) key.channel();
-					FanoutNioConnection connection = (FanoutNioConnection) key.attachment();
-					try {
-						connection.read(ch, isStrictRequestTermination());
-						int replies = 0;
+					continue;
+				}
+
+				SocketChannel ch = (SocketChannel) key.channel();
+				FanoutNioConnection connection = (FanoutNioConnection) key.attachment();
+				try {
+					if (key.isReadable()) {
+						// read fanout client requests
+						int bytes = connection.read(ch, isStrictRequestTermination());
+						countRead(bytes);
 						Iterator<String> reqItr = connection.requestQueue.iterator();
 						while (reqItr.hasNext()) {
 							String req = reqItr.next();
-							String reply = processRequest(connection, req);
+							processRequest(connection, req);
 							reqItr.remove();
-							if (reply != null) {
-								replies++;
-							}
 						}
-
-						if (replies > 0) {
-							// register to send the replies to requests
-							ch.register(selector, SelectionKey.OP_WRITE, connection);
-						} else {
-							// re-register for next read
-							ch.register(selector, SelectionKey.OP_READ, connection);
-						}
-					} catch (IOException e) {
-						logger.error(MessageFormat.format("fanout connection {0} error: {1}", connection.id, e.getMessage()));
-						removeConnection(connection);
-						closeClientSocket(connection.id, ch);
 					}
-				} else if (key.isWritable()) {
-					// asynchronous reply to fanout client request
-					SocketChannel ch = (SocketChannel) key.channel();
-					FanoutNioConnection connection = (FanoutNioConnection) key.attachment();
-					try {
-						connection.write(ch);
-
-						if (hasConnection(connection)) {
-							// register for next read
-							ch.register(selector, SelectionKey.OP_READ, connection);
-						} else {
+					if (key.isValid() && key.isWritable()) {
+						// asynchronous replies and announcements
+						if (connection.write(ch) && !connection.accepted) {
 							// Connection was rejected due to load or
 							// some other reason. Close it.
 							closeClientSocket(connection.id, ch);
+							continue;
 						}
-					} catch (IOException e) {
-						logger.error(MessageFormat.format("fanout connection {0}: {1}", connection.id, e.getMessage()));
-						removeConnection(connection);
-						closeClientSocket(connection.id, ch);
 					}
+					connection.updateInterest();
+				} catch (IOException e) {
+					logger.error(MessageFormat.format("fanout connection {0}: {1}", connection.id, e.getMessage()));
+					removeConnection(connection);
+					closeClientSocket(connection.id, ch);
 				}
-				keyItr.remove();
 			}
 		}
 	}
 
+	/**
+	 * Registers the connections with newly queued messages for writing.
+	 *
+	 * @return true if a connection was registered
+	 */
+	protected boolean registerPendingWrites() {
+		boolean registered = false;
+		FanoutNioConnection connection;
+		while ((connection = pendingWrites.poll()) != null) {
+			connection.pending = false;
+			if (!connection.key.isValid()) {
+				continue;
+			}
+			if (connection.slow) {
+				logger.warn(MessageFormat.format("fanout connection {0} has more than {1,number,0} pending messages, disconnecting",
+						connection.id, maxPendingMessages));
+				countSlowConnection();
+				removeConnection(connection);
+				closeClientSocket(connection.id, (SocketChannel) connection.key.channel());
+				continue;
+			}
+			connection.updateInterest();
+			registered = true;
+		}
+		return registered;
+	}
+
 	protected void closeClientSocket(String id, SocketChannel ch) {
 		try {
 			ch.close();
@@ -222,25 +281,68 @@ public class FanoutNioService extends FanoutService {
 		}
 	}
 
+	/**
+	 * Queues the encoded message for all connections.  The connections share
+	 * the same buffer content.
+	 */
 	@Override
 	protected void broadcast(Collection<FanoutServiceConnection> connections, String channel, String message) {
-		super.broadcast(connections, channel, message);
-
-		// register queued write
-		Map<String, SocketChannel> sockets = getCurrentClientSockets();
+		ByteBuffer encoded;
+		try {
+			encoded = encode(channel + "!" + message);
+		} catch (UnsupportedEncodingException e) {
+			logger.error(MessageFormat.format("failed to encode fanout message for channel {0}", channel), e);
+			return;
+		}
+		int limit = maxPendingMessages;
+		int messages = 0;
 		for (FanoutServiceConnection connection : connections) {
-			SocketChannel ch = sockets.get(connection.id);
-			if (ch == null) {
+			FanoutNioConnection nioConnection = (FanoutNioConnection) connection;
+			if (nioConnection.key == null || !nioConnection.key.isValid()) {
 				logger.warn(MessageFormat.format("fanout connection {0} has been disconnected", connection.id));
 				removeConnection(connection);
 				continue;
 			}
-			try {
-				ch.register(selector, SelectionKey.OP_WRITE, connection);
-			} catch (IOException e) {
-				logger.error(MessageFormat.format("failed to register write op for fanout connection {0}", connection.id));
+			if (nioConnection.slow) {
+				continue;
+			}
+			if (limit > 0 && nioConnection.queued.get() >= limit) {
+				// the subscriber does not keep up, let the selector disconnect it
+				nioConnection.slow = true;
+			} else {
+				nioConnection.queue(encoded.duplicate());
+				messages++;
+			}
+			if (!nioConnection.pending) {
+				nioConnection.pending = true;
+				pendingWrites.add(nioConnection);
 			}
 		}
+		countMessages(messages);
+
+		// register queued writes
+		Selector selector = this.selector;
+		if (selector != null) {
+			selector.wakeup();
+		}
+	}
+
+	/**
+	 * Encodes a message as a read-only buffer terminated by a newline.
+	 *
+	 * @param content
+	 * @return the encoded message
+	 * @throws UnsupportedEncodingException
+	 */
+	static ByteBuffer encode(String content) throws UnsupportedEncodingException {
+		byte [] bytes = content.getBytes(FanoutConstants.CHARSET);
+		if (bytes.length == 0 || bytes[bytes.length - 1] != 0xa) {
+			byte [] terminated = new byte[bytes.length + 1];
+			System.arraycopy(bytes, 0, terminated, 0, bytes.length);
+			terminated[bytes.length] = 0xa;
+			bytes = terminated;
+		}
+		return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
 	}
 
 	protected Map<String, SocketChannel> getCurrentClientSockets() {
@@ -262,72 +364,126 @@ public class FanoutNioService extends FanoutService {
 	 * @author James Moger
 	 *
 	 */
-	static class FanoutNioConnection extends FanoutServiceConnection {
+	class FanoutNioConnection extends FanoutServiceConnection {
 		final ByteBuffer readBuffer;
-		final ByteBuffer writeBuffer;
+		final StringBuilder request;
 		final List<String> requestQueue;
-		final List<String> replyQueue;
-		final CharsetDecoder decoder;
+		final Queue<ByteBuffer> writeQueue;
+		final ByteBuffer [] gather;
+		final AtomicInteger queued;
+		SelectionKey key;
+		boolean accepted;
+		volatile boolean pending;
+		volatile boolean slow;
 
 		FanoutNioConnection(SocketChannel ch) {
 			super(ch.socket());
 			readBuffer = ByteBuffer.allocate(FanoutConstants.BUFFER_LENGTH);
-			writeBuffer = ByteBuffer.allocate(FanoutConstants.BUFFER_LENGTH);
+			request = new StringBuilder();
 			requestQueue = new ArrayList<String>();
-			replyQueue = new ArrayList<String>();
-			decoder = Charset.forName(FanoutConstants.CHARSET).newDecoder();
+			writeQueue = new ConcurrentLinkedQueue<ByteBuffer>();
+			gather = new ByteBuffer[64];
+			queued = new AtomicInteger();
 		}
 
-		protected void read(SocketChannel ch, boolean strictRequestTermination) throws CharacterCodingException, IOException {
-			long bytesRead = 0;
+		/**
+		 * Reads the available bytes and queues the complete requests.  A
+		 * request which is split across reads is completed by the next read.
+		 *
+		 * @return the number of bytes read
+		 * @throws IOException
+		 *             if the connection is lost or a request exceeds
+		 *             {@link FanoutConstants#BUFFER_LENGTH} bytes
+		 */
+		protected int read(SocketChannel ch, boolean strictRequestTermination) throws IOException {
 			readBuffer.clear();
-			bytesRead = ch.read(readBuffer);
-			readBuffer.flip();
+			int bytesRead = ch.read(readBuffer);
 			if (bytesRead == -1) {
 				throw new IOException("lost client connection, end of stream");
 			}
-			if (readBuffer.limit() == 0) {
-				return;
+			readBuffer.flip();
+			while (readBuffer.hasRemaining()) {
+				byte b = readBuffer.get();
+				if (b == 0xa || (!strictRequestTermination && b == 0xd)) {
+					if (request.length() > 0) {
+						// ignore empty request strings
+						requestQueue.add(request.toString());
+						request.setLength(0);
+					}
+				} else if (request.length() == FanoutConstants.BUFFER_LENGTH) {
+					throw new IOException(MessageFormat.format("request exceeds {0,number,0} bytes",
+							FanoutConstants.BUFFER_LENGTH));
+				} else {
+					// ISO-8859-1 maps each byte to the same char
+					request.append((char) (b & 0xff));
+				}
 			}
-			CharBuffer cbuf = decoder.decode(readBuffer);
-			String req = cbuf.toString();
-			String [] lines = req.split(strictRequestTermination ? "\n" : "\n|\r");
-			requestQueue.addAll(Arrays.asList(lines));
+			return bytesRead;
 		}
 
-		protected void write(SocketChannel ch) throws IOException {
-			Iterator<String> itr = replyQueue.iterator();
-			while (itr.hasNext()) {
-				String reply = itr.next();
-				writeBuffer.clear();
-				logger.debug(MessageFormat.format("fanout reply to {0}: {1}", id, reply));
-				byte [] bytes = reply.getBytes(FanoutConstants.CHARSET);
-				writeBuffer.put(bytes);
-				if (bytes[bytes.length - 1] != 0xa) {
-					writeBuffer.put((byte) 0xa);
+		/**
+		 * Sends as many queued messages as the channel accepts.
+		 *
+		 * @return true if all queued messages have been sent
+		 */
+		protected boolean write(SocketChannel ch) throws IOException {
+			while (true) {
+				int count = 0;
+				for (ByteBuffer buffer : writeQueue) {
+					if (count == gather.length) {
+						break;
+					}
+					gather[count++] = buffer;
 				}
-				writeBuffer.flip();
+				if (count == 0) {
+					return true;
+				}
+				long written = ch.write(gather, 0, count);
+				boolean stalled = gather[count - 1].hasRemaining();
+				countWrite(written, stalled);
+				Arrays.fill(gather, 0, count, null);
 
-				// loop until write buffer has been completely sent
-				int written = 0;
-				int toWrite = writeBuffer.remaining();
-				while (written != toWrite) {
-					written += ch.write(writeBuffer);
-					try {
-						Thread.sleep(10);
-					} catch (Exception x) {
-					}
+				// drop the sent messages
+				ByteBuffer head;
+				while ((head = writeQueue.peek()) != null && !head.hasRemaining()) {
+					writeQueue.poll();
+					queued.decrementAndGet();
 				}
-				itr.remove();
+				if (stalled) {
+					// the socket buffer is full, wait for the next OP_WRITE
+					return false;
+				}
+			}
+		}
+
+		/**
+		 * Queues an encoded message.
+		 *
+		 * @param message
+		 */
+		protected void queue(ByteBuffer message) {
+			writeQueue.add(message);
+			queued.incrementAndGet();
+		}
+
+		/**
+		 * Selects writes while messages are queued.  Must be called by the
+		 * selector thread.
+		 */
+		protected void updateInterest() {
+			int ops = accepted ? SelectionKey.OP_READ : 0;
+			if (!writeQueue.isEmpty()) {
+				ops |= SelectionKey.OP_WRITE;
 			}
-			writeBuffer.clear();
+			key.interestOps(ops);
 		}
 
 		@Override
 		protected void reply(String content) throws IOException {
 			// queue the reply
 			// replies are transmitted asynchronously from the requests
-			replyQueue.add(content);
+			logger.debug(MessageFormat.format("fanout reply to {0}: {1}", id, content));
+			queue(encode(content));
 		}
 	}
-}
\ No newline at end of file
+}
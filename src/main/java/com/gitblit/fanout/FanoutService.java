@@ -77,6 +77,11 @@ public abstract class FanoutService implements Runnable {
 	private final AtomicLong totalSubscribes;
 	private final AtomicLong totalUnsubscribes;
 	private final AtomicLong totalPings;
+	private final AtomicLong totalBytesRead;
+	private final AtomicLong totalBytesWritten;
+	private final AtomicLong totalWrites;
+	private final AtomicLong totalWriteStalls;
+	private final AtomicLong slowConnectionCount;
 
 	protected FanoutService(String host, int port, String name) {
 		this.host = host;
@@ -101,6 +106,11 @@ public abstract class FanoutService implements Runnable {
 		totalSubscribes = new AtomicLong(0);
 		totalUnsubscribes = new AtomicLong(0);
 		totalPings = new AtomicLong(0);
+		totalBytesRead = new AtomicLong(0);
+		totalBytesWritten = new AtomicLong(0);
+		totalWrites = new AtomicLong(0);
+		totalWriteStalls = new AtomicLong(0);
+		slowConnectionCount = new AtomicLong(0);
 	}
 
 	/*
@@ -223,6 +233,11 @@ public abstract class FanoutService implements Runnable {
 		stats.totalSubscribes = totalSubscribes.get();
 		stats.totalUnsubscribes = totalUnsubscribes.get();
 		stats.totalPings = totalPings.get();
+		stats.totalBytesRead = totalBytesRead.get();
+		stats.totalBytesWritten = totalBytesWritten.get();
+		stats.totalWrites = totalWrites.get();
+		stats.totalWriteStalls = totalWriteStalls.get();
+		stats.slowConnectionCount = slowConnectionCount.get();
 		stats.currentConnections = connections.size();
 		stats.currentChannels = subscriptions.size();
 		stats.currentSubscriptions = subscriptions.size() * connections.size();
@@ -330,6 +345,11 @@ public abstract class FanoutService implements Runnable {
 		totalSubscribes.set(0);
 		totalUnsubscribes.set(0);
 		totalPings.set(0);
+		totalBytesRead.set(0);
+		totalBytesWritten.set(0);
+		totalWrites.set(0);
+		totalWriteStalls.set(0);
+		slowConnectionCount.set(0);
 	}
 
 	/**
@@ -436,7 +456,12 @@ public abstract class FanoutService implements Runnable {
 	 * @param message
 	 */
 	public void broadcast(String channel, String message) {
-		List<FanoutServiceConnection> connections = new ArrayList<FanoutServiceConnection>(subscriptions.get(channel));
+		Set<FanoutServiceConnection> subscribers = subscriptions.get(channel);
+		if (subscribers == null) {
+			// no subscribers
+			return;
+		}
+		List<FanoutServiceConnection> connections = new ArrayList<FanoutServiceConnection>(subscribers);
 		broadcast(connections, channel, message);
 		increment(totalAnnouncements);
 	}
@@ -504,7 +529,7 @@ public abstract class FanoutService implements Runnable {
 			} else if ("debug".equals(channel)) {
 				// prohibiting connection-sourced debug announcements
 				logger.warn(MessageFormat.format("fanout connection {0} attempted to announce {1} on DEBUG channel", connection.id, message));
-			} else {
+			} else if (subscriptions.containsKey(channel)) {
 				// acceptable announcement
 				List<FanoutServiceConnection> connections = new ArrayList<FanoutServiceConnection>(subscriptions.get(channel));
 				connections.remove(connection); // remove announcer
@@ -536,6 +561,49 @@ public abstract class FanoutService implements Runnable {
 		return null;
 	}
 
+	/**
+	 * Counts messages which were sent to connections without
+	 * {@link #reply(FanoutServiceConnection, String, String)}.
+	 *
+	 * @param count
+	 */
+	protected void countMessages(long count) {
+		add(totalMessages, count);
+	}
+
+	/**
+	 * Counts bytes which were read from connections.
+	 *
+	 * @param bytes
+	 */
+	protected void countRead(long bytes) {
+		add(totalBytesRead, bytes);
+	}
+
+	/**
+	 * Counts a write to a connection.
+	 *
+	 * @param bytes
+	 *            the number of bytes written
+	 * @param stalled
+	 *            true if the connection could not accept all pending bytes
+	 */
+	protected void countWrite(long bytes, boolean stalled) {
+		add(totalBytesWritten, bytes);
+		increment(totalWrites);
+		if (stalled) {
+			increment(totalWriteStalls);
+		}
+	}
+
+	/**
+	 * Counts a connection which was closed because it did not keep up with
+	 * its messages.
+	 */
+	protected void countSlowConnection() {
+		increment(slowConnectionCount);
+	}
+
 	private String asHexArray(String req) {
 		StringBuilder sb = new StringBuilder();
 		for (char c : req.toCharArray()) {
@@ -556,6 +624,19 @@ public abstract class FanoutService implements Runnable {
 		}
 	}
 
+	/**
+	 * Add to a long and prevent negative rollover.
+	 *
+	 * @param counter
+	 * @param delta
+	 */
+	private void add(AtomicLong counter, long delta) {
+		long v = counter.addAndGet(delta);
+		if (v < 0) {
+			counter.set(0);
+		}
+	}
+
 	@Override
 	public String toString() {
 		return name;
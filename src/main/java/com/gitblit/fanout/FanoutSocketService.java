@@ -169,6 +169,7 @@ public class FanoutSocketService extends FanoutService {
 				while (true) {
 					while (is.available() > 0) {
 						len = is.read(buffer);
+						countRead(len);
 						for (int i = 0; i < len; i++) {
 							byte b = buffer[i];
 							if (b == 0xa || (!isStrictRequestTermination() && b == 0xd)) {
@@ -213,10 +214,13 @@ public class FanoutSocketService extends FanoutService {
 			OutputStream os = socket.getOutputStream();
 			byte [] bytes = content.getBytes(FanoutConstants.CHARSET);
 			os.write(bytes);
+			int length = bytes.length;
 			if (bytes[bytes.length - 1] != 0xa) {
 				os.write(0xa);
+				length++;
 			}
 			os.flush();
+			countWrite(length, false);
 		}
 
 		protected void closeConnection() {
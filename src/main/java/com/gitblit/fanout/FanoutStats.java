@@ -35,6 +35,7 @@ public class FanoutStats implements Serializable {
 
 	public Date bootDate;
 	public long rejectedConnectionCount;
+	public long slowConnectionCount;
 	public int peakConnectionCount;
 	public long currentChannels;
 	public long currentSubscriptions;
@@ -45,6 +46,10 @@ public class FanoutStats implements Serializable {
 	public long totalSubscribes;
 	public long totalUnsubscribes;
 	public long totalPings;
+	public long totalBytesRead;
+	public long totalBytesWritten;
+	public long totalWrites;
+	public long totalWriteStalls;
 
 	public String info() {
 		int i = 0;
@@ -65,6 +70,11 @@ public class FanoutStats implements Serializable {
 		sb.append(infoInt(i++, "total subscribes"));
 		sb.append(infoInt(i++, "total unsubscribes"));
 		sb.append(infoInt(i++, "total pings"));
+		sb.append(infoInt(i++, "total bytes read"));
+		sb.append(infoInt(i++, "total bytes written"));
+		sb.append(infoInt(i++, "total writes"));
+		sb.append(infoInt(i++, "total write stalls"));
+		sb.append(infoInt(i++, "slow connections closed"));
 		String template = sb.toString();
 
 		String info = MessageFormat.format(template,
@@ -83,7 +93,12 @@ public class FanoutStats implements Serializable {
 						totalMessages,
 						totalSubscribes,
 						totalUnsubscribes,
-						totalPings);
+						totalPings,
+						totalBytesRead,
+						totalBytesWritten,
+						totalWrites,
+						totalWriteStalls,
+						slowConnectionCount);
 		return info;
 	}
 
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.fanout;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gitblit.models.RepositoryModel;
+import com.gitblit.models.UserModel;
+import com.gitblit.utils.StringUtils;
+
+/**
+ * Announces repository changes on the fanout service so that clients like
+ * SparkleShare can subscribe to a repository instead of polling it.
+ *
+ * A SparkleShare repository is announced on its folder identifier, which
+ * SparkleShare clients subscribe to, every other repository on a channel
+ * named like the repository.  The message of an announcement is the new
+ * object id of the last updated ref.  Changes of a repository within the
+ * coalescing window are announced once, with the object id of the last
+ * change.
+ *
+ * Fanout connections are not authenticated, so only the changes of
+ * repositories which anonymous users may view are announced.
+ *
+ * @since 1.10.0
+ */
+public class RepositoryAnnouncer {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryAnnouncer.class);
+
+	private static final RepositoryAnnouncer instance = new RepositoryAnnouncer();
+
+	private final Map<String, String> pending;
+
+	private final AtomicLong changes;
+
+	private final AtomicLong announcements;
+
+	private volatile FanoutService service;
+
+	private volatile long windowMillis;
+
+	private volatile ScheduledExecutorService executor;
+
+	public static RepositoryAnnouncer instance() {
+		return instance;
+	}
+
+	RepositoryAnnouncer() {
+		this.pending = new ConcurrentHashMap<String, String>();
+		this.changes = new AtomicLong();
+		this.announcements = new AtomicLong();
+	}
+
+	/**
+	 * Starts announcing repository changes on the fanout service.
+	 *
+	 * @param service
+	 * @param windowMillis
+	 *            the coalescing window, changes are announced immediately if
+	 *            the window is <= 0
+	 */
+	public synchronized void start(FanoutService service, long windowMillis) {
+		stop();
+		this.windowMillis = windowMillis;
+		if (windowMillis > 0) {
+			this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "Fanout repository announcer");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		this.service = service;
+		LOGGER.info("Announcing repository changes on {}, coalescing window is {} ms", service, windowMillis);
+	}
+
+	/**
+	 * Stops announcing repository changes.  Pending announcements are
+	 * discarded.
+	 */
+	public synchronized void stop() {
+		service = null;
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+		pending.clear();
+	}
+
+	/**
+	 * Returns true if repository changes are announced.
+	 */
+	public boolean isRunning() {
+		return service != null;
+	}
+
+	/**
+	 * Records a change of a repository.  Changes of repositories which
+	 * anonymous users may not view are ignored.
+	 *
+	 * @param repository
+	 *            the repository
+	 * @param objectId
+	 *            the new object id of the changed ref
+	 */
+	public void announce(RepositoryModel repository, String objectId) {
+		FanoutService service = this.service;
+		if (service == null || repository == null || !UserModel.ANONYMOUS.canView(repository)) {
+			return;
+		}
+		changes.incrementAndGet();
+		final String channel = getChannel(repository);
+		ScheduledExecutorService executor = this.executor;
+		if (executor == null) {
+			broadcast(service, channel, objectId);
+			return;
+		}
+		if (pending.put(channel, objectId) == null) {
+			// first change within the window
+			executor.schedule(new Runnable() {
+				@Override
+				public void run() {
+					flush(channel);
+				}
+			}, windowMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Returns the fanout channel of a repository.
+	 *
+	 * @param repository
+	 * @return the SparkleShare identifier or the channel named like the
+	 *         repository
+	 */
+	public static String getChannel(RepositoryModel repository) {
+		String channel = repository.isSparkleshared() ? repository.sparkleshareId.trim() : repository.name;
+		if (StringUtils.isEmpty(channel)) {
+			channel = repository.name;
+		}
+		// fanout requests are space-delimited
+		return channel.replace(' ', '_');
+	}
+
+	/**
+	 * Returns the number of recorded repository changes.
+	 */
+	public long getChanges() {
+		return changes.get();
+	}
+
+	/**
+	 * Returns the number of announcements.
+	 */
+	public long getAnnouncements() {
+		return announcements.get();
+	}
+
+	void flush(String channel) {
+		String objectId = pending.remove(channel);
+		FanoutService service = this.service;
+		if (objectId != null && service != null) {
+			broadcast(service, channel, objectId);
+		}
+	}
+
+	private void broadcast(FanoutService service, String channel, String objectId) {
+		try {
+			service.broadcast(channel, objectId);
+			announcements.incrementAndGet();
+		} catch (Exception e) {
+			LOGGER.error("Failed to announce {} on fanout channel {}", objectId, channel, e);
+		}
+	}
+}
@@ -24,31 +24,25 @@ import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.BatchRefUpdate;
 import org.eclipse.jgit.lib.NullProgressMonitor;
-import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.ProgressMonitor;
-import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.RefUpdate;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.transport.PostReceiveHook;
 import org.eclipse.jgit.transport.PreReceiveHook;
 import org.eclipse.jgit.transport.ReceiveCommand;
 import org.eclipse.jgit.transport.ReceiveCommand.Result;
 import org.eclipse.jgit.transport.ReceivePack;
+import org.eclipse.jgit.transport.ReceivedPackStatistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,24 +52,18 @@ import com.gitblit.IStoredSettings;
 import com.gitblit.Keys;
 import com.gitblit.client.Translation;
 import com.gitblit.extensions.ReceiveHook;
+import com.gitblit.fanout.RepositoryAnnouncer;
 import com.gitblit.manager.IGitblit;
 import com.gitblit.models.RepositoryModel;
-import com.gitblit.models.TicketModel;
 import com.gitblit.models.UserModel;
-import com.gitblit.models.TicketModel.Change;
-import com.gitblit.models.TicketModel.Field;
 import com.gitblit.models.TicketModel.Patchset;
-import com.gitblit.models.TicketModel.Status;
 import com.gitblit.models.TicketModel.TicketAction;
-import com.gitblit.models.TicketModel.TicketLink;
 import com.gitblit.tickets.BranchTicketService;
 import com.gitblit.tickets.ITicketService;
-import com.gitblit.tickets.TicketNotifier;
 import com.gitblit.utils.ArrayUtils;
 import com.gitblit.utils.ClientLogger;
 import com.gitblit.utils.CommitCache;
 import com.gitblit.utils.JGitUtils;
-import com.gitblit.utils.RefLogUtils;
 import com.gitblit.utils.StringUtils;
 import com.google.common.collect.Lists;
 
@@ -114,8 +102,6 @@ public class GitblitReceivePack extends ReceivePack implements PreReceiveHook, P
 	protected final IGitblit gitblit;
 	
 	protected final ITicketService ticketService;
-
-	protected final TicketNotifier ticketNotifier;
 	
 
 	public GitblitReceivePack(
@@ -130,21 +116,13 @@ public class GitblitReceivePack extends ReceivePack implements PreReceiveHook, P
 		this.repository = repository;
 		this.user = user;
 		this.groovyDir = gitblit.getHooksFolder();
-		try {
-			// set Grape root
-			File grapeRoot = gitblit.getGrapesFolder();
-			grapeRoot.mkdirs();
-			System.setProperty("grape.root", grapeRoot.getAbsolutePath());
-			this.gse = new GroovyScriptEngine(groovyDir.getAbsolutePath());
-		} catch (IOException e) {
-		}
+		// the script engine is shared by all receive packs
+		this.gse = GroovyHookEngine.instance().getEngine(groovyDir);
 
 		if (gitblit.getTicketService().isAcceptingTicketUpdates(repository)) {
 			this.ticketService = gitblit.getTicketService();
-			this.ticketNotifier = this.ticketService.createNotifier();
 		} else {
 			this.ticketService = null;
-			this.ticketNotifier = null;
 		}
 		
 		// set advanced ref permissions
@@ -343,7 +321,7 @@ public class GitblitReceivePack extends ReceivePack implements PreReceiveHook, P
 		if (!ArrayUtils.isEmpty(repository.preReceiveScripts)) {
 			scripts.addAll(repository.preReceiveScripts);
 		}
-		runGroovy(commands, scripts);
+		runGroovy(commands, scripts, false);
 		for (ReceiveCommand cmd : commands) {
 			if (!Result.NOT_ATTEMPTED.equals(cmd.getResult())) {
 				LOGGER.warn(MessageFormat.format("{0} {1} because \"{2}\"", cmd.getNewId()
@@ -364,9 +342,19 @@ public class GitblitReceivePack extends ReceivePack implements PreReceiveHook, P
 			return;
 		}
 
+		ReceivedPackStatistics stats = getReceivedPackStatistics();
+		RepositoryTraffic.instance().recordPush(repository.name, stats == null ? 0 : stats.getNumBytesRead());
+
 		logRefChange(commands);
 		updateIncrementalPushTags(commands);
-		updateGitblitRefLog(commands);
+		queuePostReceive(commands, isProcessingTicketReferences());
+
+		// announce the new tips to the fanout subscribers of the repository
+		for (ReceiveCommand cmd : commands) {
+			if (Result.OK.equals(cmd.getResult()) && !ReceiveCommand.Type.DELETE.equals(cmd.getType())) {
+				RepositoryAnnouncer.instance().announce(repository, cmd.getNewId().getName());
+			}
+		}
 
 		// check for updates pushed to the BranchTicketService branch
 		// if the BranchTicketService is active it will reindex, as appropriate
@@ -392,7 +380,7 @@ public class GitblitReceivePack extends ReceivePack implements PreReceiveHook, P
 		if (!ArrayUtils.isEmpty(repository.postReceiveScripts)) {
 			scripts.addAll(repository.postReceiveScripts);
 		}
-		runGroovy(commands, scripts);
+		runGroovy(commands, scripts, true);
 	}
 
 	/**
@@ -480,17 +468,28 @@ public class GitblitReceivePack extends ReceivePack implements PreReceiveHook, P
 	}
 
 	/**
-	 * Update Gitblit's internal reflog.
+	 * Queues the update of Gitblit's internal reflog and, optionally, the
+	 * processing of the tickets referenced by the pushed commits.  These are
+	 * executed in push order after the push has completed.
 	 *
 	 * @param commands
+	 * @param processTickets
 	 */
-	protected void updateGitblitRefLog(Collection<ReceiveCommand> commands) {
-		try {
-			RefLogUtils.updateRefLog(user, getRepository(), commands);
-			LOGGER.debug(MessageFormat.format("{0} reflog updated", repository.name));
-		} catch (Exception e) {
-			LOGGER.error(MessageFormat.format("Failed to update {0} reflog", repository.name), e);
-		}
+	protected void queuePostReceive(Collection<ReceiveCommand> commands, boolean processTickets) {
+		PostReceiveJob job = new PostReceiveJob(repository.name, user, commands);
+		job.updateRefLog = true;
+		job.processTickets = processTickets;
+		PostReceiveQueue.instance().submit(job);
+	}
+
+	/**
+	 * Returns true if the tickets referenced by pushed commits are processed by
+	 * the post-receive queue.
+	 *
+	 * @return true if referenced tickets should be processed
+	 */
+	protected boolean isProcessingTicketReferences() {
+		return ticketService != null;
 	}
 
 	/** Execute commands to update references. */
@@ -533,104 +532,6 @@ public class GitblitReceivePack extends ReceivePack implements PreReceiveHook, P
 				}
 			}
 		}
-		
-		//
-		// if there are ref update receive commands that were
-		// successfully processed and there is an active ticket service for the repository
-		// then process any referenced tickets
-		//
-		if (ticketService != null) {
-			List<ReceiveCommand> allUpdates = ReceiveCommand.filter(batch.getCommands(), Result.OK);
-			if (!allUpdates.isEmpty()) {
-				int ticketsProcessed = 0;
-				for (ReceiveCommand cmd : allUpdates) {
-					switch (cmd.getType()) {
-					case CREATE:
-					case UPDATE:
-						if (cmd.getRefName().startsWith(Constants.R_HEADS)) {
-							Collection<TicketModel> tickets = processReferencedTickets(cmd);
-							ticketsProcessed += tickets.size();
-							for (TicketModel ticket : tickets) {
-								ticketNotifier.queueMailing(ticket);
-							}
-						}
-						break;
-						
-					case UPDATE_NONFASTFORWARD:
-						if (cmd.getRefName().startsWith(Constants.R_HEADS)) {
-							String base = JGitUtils.getMergeBase(getRepository(), cmd.getOldId(), cmd.getNewId());
-							List<TicketLink> deletedRefs = JGitUtils.identifyTicketsBetweenCommits(getRepository(), settings, base, cmd.getOldId().name());
-							for (TicketLink link : deletedRefs) {
-								link.isDelete = true;
-							}
-							Change deletion = new Change(user.username);
-							deletion.pendingLinks = deletedRefs;
-							ticketService.updateTicket(repository, 0, deletion);
-							
-							Collection<TicketModel> tickets = processReferencedTickets(cmd);
-							ticketsProcessed += tickets.size();
-							for (TicketModel ticket : tickets) {
-								ticketNotifier.queueMailing(ticket);
-							}
-						}
-						break;
-					case DELETE:
-						//Identify if the branch has been merged 
-						SortedMap<Integer, String> bases =  new TreeMap<Integer, String>();
-						try {
-							ObjectId dObj = cmd.getOldId();
-							Collection<Ref> tips = getRepository().getRefDatabase().getRefs(Constants.R_HEADS).values();
-							for (Ref ref : tips) {
-								ObjectId iObj = ref.getObjectId();
-								String mergeBase = JGitUtils.getMergeBase(getRepository(), dObj, iObj);
-								if (mergeBase != null) {
-									int d = JGitUtils.countCommits(getRepository(), getRevWalk(), mergeBase, dObj.name());
-									bases.put(d, mergeBase);
-									//All commits have been merged into some other branch
-									if (d == 0) {
-										break;
-									}
-								}
-							}
-							
-							if (bases.isEmpty()) {
-								//TODO: Handle orphan branch case
-							} else {
-								if (bases.firstKey() > 0) {
-									//Delete references from the remaining commits that haven't been merged
-									String mergeBase = bases.get(bases.firstKey());
-									List<TicketLink> deletedRefs = JGitUtils.identifyTicketsBetweenCommits(getRepository(),
-											settings, mergeBase, dObj.name());
-									
-									for (TicketLink link : deletedRefs) {
-										link.isDelete = true;
-									}
-									Change deletion = new Change(user.username);
-									deletion.pendingLinks = deletedRefs;
-									ticketService.updateTicket(repository, 0, deletion);
-								}
-							}
-							
-						} catch (IOException e) {
-							LOGGER.error(null, e);
-						}
-						break;
-						
-					default:
-						break;
-					}
-				}
-	
-				if (ticketsProcessed == 1) {
-					sendInfo("1 ticket updated");
-				} else if (ticketsProcessed > 1) {
-					sendInfo("{0} tickets updated", ticketsProcessed);
-				}
-			}
-	
-			// reset the ticket caches for the repository
-			ticketService.resetCaches(repository);
-		}
 	}
 
 	protected void setGitblitUrl(String url) {
@@ -685,14 +586,15 @@ public class GitblitReceivePack extends ReceivePack implements PreReceiveHook, P
 	}
 
 	/**
-	 * Runs the specified Groovy hook scripts.
+	 * Runs the specified Groovy hook scripts.  Post-receive scripts may be
+	 * executed asynchronously, in which case messages sent to the client
+	 * logger are discarded once the push has completed.
 	 *
-	 * @param repository
-	 * @param user
 	 * @param commands
 	 * @param scripts
+	 * @param postReceive
 	 */
-	private void runGroovy(Collection<ReceiveCommand> commands, Set<String> scripts) {
+	private void runGroovy(Collection<ReceiveCommand> commands, Set<String> scripts, boolean postReceive) {
 		if (scripts == null || scripts.size() == 0) {
 			// no Groovy scripts to execute
 			return;
@@ -707,32 +609,10 @@ public class GitblitReceivePack extends ReceivePack implements PreReceiveHook, P
 		binding.setVariable("url", gitblitUrl);
 		binding.setVariable("logger", LOGGER);
 		binding.setVariable("clientLogger", new ClientLogger(this));
-		for (String script : scripts) {
-			if (StringUtils.isEmpty(script)) {
-				continue;
-			}
-			// allow script to be specified without .groovy extension
-			// this is easier to read in the settings
-			File file = new File(groovyDir, script);
-			if (!file.exists() && !script.toLowerCase().endsWith(".groovy")) {
-				file = new File(groovyDir, script + ".groovy");
-				if (file.exists()) {
-					script = file.getName();
-				}
-			}
-			try {
-				Object result = gse.run(script, binding);
-				if (result instanceof Boolean) {
-					if (!((Boolean) result)) {
-						LOGGER.error(MessageFormat.format(
-								"Groovy script {0} has failed!  Hook scripts aborted.", script));
-						break;
-					}
-				}
-			} catch (Exception e) {
-				LOGGER.error(
-						MessageFormat.format("Failed to execute Groovy script {0}", script), e);
-			}
+		if (postReceive) {
+			GroovyHookEngine.instance().submit(groovyDir, scripts, binding, getRepository());
+		} else {
+			GroovyHookEngine.instance().run(groovyDir, scripts, binding);
 		}
 	}
 
@@ -747,116 +627,4 @@ public class GitblitReceivePack extends ReceivePack implements PreReceiveHook, P
 	public UserModel getUserModel() {
 		return user;
 	}
-	
-	/**
-	 * Automatically closes open tickets and adds references to tickets if made in the commit message.
-	 *
-	 * @param cmd
-	 */
-	private Collection<TicketModel> processReferencedTickets(ReceiveCommand cmd) {
-		Map<Long, TicketModel> changedTickets = new LinkedHashMap<Long, TicketModel>();
-
-		final RevWalk rw = getRevWalk();
-		try {
-			rw.reset();
-			rw.markStart(rw.parseCommit(cmd.getNewId()));
-			if (!ObjectId.zeroId().equals(cmd.getOldId())) {
-				rw.markUninteresting(rw.parseCommit(cmd.getOldId()));
-			}
-
-			RevCommit c;
-			while ((c = rw.next()) != null) {
-				rw.parseBody(c);
-				List<TicketLink> ticketLinks = JGitUtils.identifyTicketsFromCommitMessage(getRepository(), settings, c);
-				if (ticketLinks == null) {
-					continue;
-				}
-
-				for (TicketLink link : ticketLinks) {
-					
-					TicketModel ticket = ticketService.getTicket(repository, link.targetTicketId);
-					if (ticket == null) {
-						continue;
-					}
-					
-					Change change = null;
-					String commitSha = c.getName();
-					String branchName = Repository.shortenRefName(cmd.getRefName());
-					
-					switch (link.action) {
-						case Commit: {
-							//A commit can reference a ticket in any branch even if the ticket is closed.
-							//This allows developers to identify and communicate related issues
-							change = new Change(user.username);
-							change.referenceCommit(commitSha);
-						} break;
-						
-						case Close: {
-							// As this isn't a patchset theres no merging taking place when closing a ticket
-							if (ticket.isClosed()) {
-								continue;
-							}
-							
-							change = new Change(user.username);
-							change.setField(Field.status, Status.Fixed);
-							
-							if (StringUtils.isEmpty(ticket.responsible)) {
-								// unassigned tickets are assigned to the closer
-								change.setField(Field.responsible, user.username);
-							}
-						}
-						
-						default: {
-							//No action
-						} break;
-					}
-					
-					if (change != null) {
-						ticket = ticketService.updateTicket(repository, ticket.number, change);
-					}
-	
-					if (ticket != null) {
-						sendInfo("");
-						sendHeader("#{0,number,0}: {1}", ticket.number, StringUtils.trimString(ticket.title, Constants.LEN_SHORTLOG));
-
-						switch (link.action) {
-							case Commit: {
-								sendInfo("referenced by push of {0} to {1}", commitSha, branchName);
-								changedTickets.put(ticket.number, ticket);
-							} break;
-
-							case Close: {
-								sendInfo("closed by push of {0} to {1}", commitSha, branchName);
-								changedTickets.put(ticket.number, ticket);
-							} break;
-
-							default: { }
-						}
-
-						sendInfo(ticketService.getTicketUrl(ticket));
-						sendInfo("");
-					} else {
-						switch (link.action) {
-							case Commit: {
-								sendError("FAILED to reference ticket {0} by push of {1}", link.targetTicketId, commitSha);
-							} break;
-							
-							case Close: {
-								sendError("FAILED to close ticket {0} by push of {1}", link.targetTicketId, commitSha);	
-							} break;
-							
-							default: { }
-						}
-					}
-				}
-			}
-				
-		} catch (IOException e) {
-			LOGGER.error("Can't scan for changes to reference or close", e);
-		} finally {
-			rw.reset();
-		}
-
-		return changedTickets.values();
-	}
 }
@@ -15,29 +15,41 @@
  */
 package com.gitblit.git;
 
+import javax.servlet.http.HttpServletRequest;
+
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.pack.PackConfig;
+import org.eclipse.jgit.storage.pack.PackStatistics;
+import org.eclipse.jgit.transport.PostUploadHook;
 import org.eclipse.jgit.transport.UploadPack;
 import org.eclipse.jgit.transport.resolver.ServiceNotAuthorizedException;
 import org.eclipse.jgit.transport.resolver.ServiceNotEnabledException;
 import org.eclipse.jgit.transport.resolver.UploadPackFactory;
 
-import com.gitblit.manager.IAuthenticationManager;
+import com.gitblit.IStoredSettings;
+import com.gitblit.Keys;
+import com.gitblit.manager.IGitblit;
 import com.gitblit.transport.git.GitDaemonClient;
+import com.gitblit.transport.ssh.SshDaemonClient;
 
 /**
  * The upload pack factory creates an upload pack which controls what refs are
  * advertised to cloning/pulling clients.
  *
+ * The pack settings of the repository may be overridden server-wide and the
+ * statistics of every upload pack are recorded in {@link UploadPackStatistics}
+ * and accounted per repository in {@link RepositoryTraffic}.
+ *
  * @author James Moger
  *
  * @param <X> the connection type
  */
 public class GitblitUploadPackFactory<X> implements UploadPackFactory<X> {
 
-	private final IAuthenticationManager authenticationManager;
+	private final IStoredSettings settings;
 
-	public GitblitUploadPackFactory(IAuthenticationManager authenticationManager) {
-		this.authenticationManager = authenticationManager;
+	public GitblitUploadPackFactory(IGitblit gitblit) {
+		this.settings = gitblit.getSettings();
 	}
 
 	@Override
@@ -45,17 +57,62 @@ public class GitblitUploadPackFactory<X> implements UploadPackFactory<X> {
 			throws ServiceNotEnabledException, ServiceNotAuthorizedException {
 
 		int timeout = 0;
+		String repositoryName = db.getDirectory().getName();
 
-		if (req instanceof GitDaemonClient) {
+		if (req instanceof HttpServletRequest) {
+			Object name = ((HttpServletRequest) req).getAttribute("gitblitRepositoryName");
+			if (name != null) {
+				repositoryName = name.toString();
+			}
+		} else if (req instanceof GitDaemonClient) {
 			// git daemon request is always anonymous
 			GitDaemonClient client = (GitDaemonClient) req;
+			repositoryName = client.getRepositoryName();
 			// set timeout from Git daemon
 			timeout = client.getDaemon().getTimeout();
+		} else if (req instanceof SshDaemonClient) {
+			repositoryName = ((SshDaemonClient) req).getRepositoryName();
+		}
+		if (repositoryName == null) {
+			repositoryName = db.getDirectory().getName();
 		}
 
 		UploadPack up = new UploadPack(db);
 		up.setTimeout(timeout);
+		up.setPackConfig(getPackConfig(db));
+
+		final String name = repositoryName;
+		up.setPostUploadHook(new PostUploadHook() {
+			@Override
+			public void onPostUpload(PackStatistics stats) {
+				UploadPackStatistics.instance().record(name, stats);
+				RepositoryTraffic.instance().recordUpload(name, stats);
+			}
+		});
 
 		return up;
 	}
+
+	/**
+	 * Returns the pack configuration of the repository with the server-wide
+	 * overrides applied.  Cached packs are always reused so that full clones
+	 * of repositories packed with a bitmap index are streamed verbatim.
+	 *
+	 * @param db
+	 * @return the pack configuration
+	 */
+	protected PackConfig getPackConfig(Repository db) {
+		PackConfig pc = new PackConfig(db);
+		pc.setReuseDeltas(settings.getBoolean(Keys.git.uploadPackReuseDeltas, true));
+		pc.setReuseObjects(settings.getBoolean(Keys.git.uploadPackReuseObjects, true));
+		int threads = settings.getInteger(Keys.git.uploadPackThreads, 0);
+		if (threads > 0) {
+			pc.setThreads(threads);
+		}
+		int window = settings.getInteger(Keys.git.uploadPackDeltaSearchWindow, 0);
+		if (window > 0) {
+			pc.setDeltaSearchWindowSize(window);
+		}
+		return pc;
+	}
 }
\ No newline at end of file
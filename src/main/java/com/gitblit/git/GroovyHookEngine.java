@@ -0,0 +1,467 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.git;
+
+import groovy.lang.Binding;
+import groovy.util.GroovyScriptEngine;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.lib.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gitblit.models.ScriptStatistics;
+import com.gitblit.utils.StringUtils;
+
+/**
+ * Process-wide runtime for the Groovy push hook scripts.
+ *
+ * All receive packs share one script engine so each hook script is compiled
+ * once and only recompiled when the script file changes on disk.
+ * Post-receive scripts are executed synchronously unless they have been
+ * configured to execute asynchronously on a bounded pool of hook threads, so
+ * that slow scripts do not delay the response to the pushing client.
+ * Execution statistics are recorded for every script.
+ *
+ * @since 1.10.0
+ */
+public class GroovyHookEngine {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(GroovyHookEngine.class);
+
+	private static final GroovyHookEngine instance;
+
+	private final ConcurrentHashMap<String, ScriptStatistics> statistics;
+
+	private volatile File scriptsFolder;
+
+	private volatile GroovyScriptEngine engine;
+
+	private volatile ThreadPoolExecutor executor;
+
+	private volatile ScheduledThreadPoolExecutor watchdog;
+
+	private volatile long timeoutMillis;
+
+	private volatile Set<String> asynchronousScripts = Collections.emptySet();
+
+	public static GroovyHookEngine instance() {
+		return instance;
+	}
+
+	static {
+		instance = new GroovyHookEngine();
+	}
+
+	protected GroovyHookEngine() {
+		this.statistics = new ConcurrentHashMap<String, ScriptStatistics>();
+	}
+
+	/**
+	 * Configures the hook runtime.  Any previously configured hook threads are
+	 * shutdown after they complete their queued scripts.
+	 *
+	 * @param scriptsFolder
+	 *            the Groovy hook scripts folder
+	 * @param grapesFolder
+	 *            the Grape library folder
+	 * @param threads
+	 *            the number of post-receive hook threads, 0 executes the
+	 *            post-receive scripts synchronously
+	 * @param queueSize
+	 *            the maximum number of pushes waiting for a hook thread
+	 * @param timeoutSeconds
+	 *            the time after which an asynchronous hook script is
+	 *            interrupted, 0 disables the timeout
+	 * @param asynchronousScripts
+	 *            the post-receive scripts which are executed on the hook
+	 *            threads, with or without the .groovy extension
+	 */
+	public synchronized void configure(File scriptsFolder, File grapesFolder, int threads, int queueSize,
+			int timeoutSeconds, Collection<String> asynchronousScripts) {
+		stop();
+
+		Set<String> names = new HashSet<String>();
+		for (String script : asynchronousScripts) {
+			if (!StringUtils.isEmpty(script)) {
+				names.add(getScriptName(script));
+			}
+		}
+		this.asynchronousScripts = names;
+
+		if (grapesFolder != null) {
+			grapesFolder.mkdirs();
+			System.setProperty("grape.root", grapesFolder.getAbsolutePath());
+		}
+		getEngine(scriptsFolder);
+
+		this.timeoutMillis = TimeUnit.SECONDS.toMillis(Math.max(0, timeoutSeconds));
+		if (threads > 0) {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)), new HookThreadFactory("hook"));
+			pool.allowCoreThreadTimeOut(true);
+			this.executor = pool;
+			ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new HookThreadFactory("hook-watchdog"));
+			timer.setRemoveOnCancelPolicy(true);
+			this.watchdog = timer;
+		}
+	}
+
+	/**
+	 * Stops the hook threads after they have completed their queued scripts.
+	 */
+	public synchronized void stop() {
+		ThreadPoolExecutor pool = executor;
+		executor = null;
+		if (pool != null) {
+			pool.shutdown();
+			try {
+				if (!pool.awaitTermination(Math.max(10000, timeoutMillis), TimeUnit.MILLISECONDS)) {
+					LOGGER.warn(MessageFormat.format("Abandoned {0} queued post-receive hook executions",
+							pool.shutdownNow().size()));
+				}
+			} catch (InterruptedException e) {
+				pool.shutdownNow();
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (watchdog != null) {
+			watchdog.shutdownNow();
+			watchdog = null;
+		}
+	}
+
+	/**
+	 * Returns true if the post-receive script is executed asynchronously.
+	 *
+	 * @param script
+	 *            the script name, with or without the .groovy extension
+	 * @return true if the post-receive script is executed asynchronously
+	 */
+	public boolean isAsynchronous(String script) {
+		return executor != null && asynchronousScripts.contains(getScriptName(script));
+	}
+
+	/**
+	 * Returns the number of pushes waiting for a hook thread.
+	 *
+	 * @return the number of queued hook executions
+	 */
+	public int getQueueSize() {
+		ThreadPoolExecutor pool = executor;
+		return pool == null ? 0 : pool.getQueue().size();
+	}
+
+	/**
+	 * Returns the shared script engine for the scripts folder.
+	 *
+	 * @param folder
+	 * @return the script engine or null if the engine could not be created
+	 */
+	public GroovyScriptEngine getEngine(File folder) {
+		GroovyScriptEngine gse = engine;
+		if (gse != null && folder.equals(scriptsFolder)) {
+			return gse;
+		}
+		synchronized (this) {
+			if (engine == null || !folder.equals(scriptsFolder)) {
+				try {
+					engine = new GroovyScriptEngine(folder.getAbsolutePath());
+					scriptsFolder = folder;
+				} catch (IOException e) {
+					LOGGER.error(MessageFormat.format("Failed to create Groovy script engine for {0}", folder), e);
+					return null;
+				}
+			}
+			return engine;
+		}
+	}
+
+	/**
+	 * Executes the scripts, in order, on the calling thread.  Execution stops
+	 * if a script returns false.
+	 *
+	 * @param folder
+	 *            the scripts folder
+	 * @param scripts
+	 *            the script names, with or without the .groovy extension
+	 * @param binding
+	 *            the script variables
+	 * @return false if a script aborted the hook chain
+	 */
+	public boolean run(File folder, Collection<String> scripts, Binding binding) {
+		return run(folder, scripts, binding, 0);
+	}
+
+	/**
+	 * Executes the post-receive scripts.  The synchronous scripts are executed
+	 * in order on the calling thread, so their messages reach the client.  If
+	 * none of them aborts the hook chain, the asynchronous scripts are queued
+	 * for execution on a hook thread.  If the hook queue is full they are
+	 * executed on the calling thread, too.
+	 *
+	 * The repository is held open until the queued scripts have completed.
+	 *
+	 * @param folder
+	 *            the scripts folder
+	 * @param scripts
+	 *            the script names, with or without the .groovy extension
+	 * @param binding
+	 *            the script variables
+	 * @param repository
+	 *            the repository the scripts operate on
+	 * @return true if scripts were queued for asynchronous execution
+	 */
+	public boolean submit(final File folder, Collection<String> scripts, final Binding binding,
+			final Repository repository) {
+		List<String> synchronous = new ArrayList<String>();
+		final List<String> list = new ArrayList<String>();
+		for (String script : scripts) {
+			if (isAsynchronous(script)) {
+				list.add(script);
+			} else {
+				synchronous.add(script);
+			}
+		}
+		if (!run(folder, synchronous, binding, 0) || list.isEmpty()) {
+			return false;
+		}
+		ThreadPoolExecutor pool = executor;
+		if (pool != null) {
+			repository.incrementOpen();
+			try {
+				pool.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							GroovyHookEngine.this.run(folder, list, binding, timeoutMillis);
+						} finally {
+							repository.close();
+						}
+					}
+				});
+				return true;
+			} catch (RejectedExecutionException e) {
+				repository.close();
+				LOGGER.warn(MessageFormat.format(
+						"Post-receive hook queue is full, executing hook scripts for {0} synchronously",
+						repository.getDirectory()));
+			}
+		}
+		run(folder, list, binding, 0);
+		return false;
+	}
+
+	/**
+	 * Returns a snapshot of the script execution statistics.
+	 *
+	 * @return the statistics, keyed by script name
+	 */
+	public Map<String, ScriptStatistics> getStatistics() {
+		Map<String, ScriptStatistics> map = new TreeMap<String, ScriptStatistics>();
+		for (ScriptStatistics stats : statistics.values()) {
+			synchronized (stats) {
+				ScriptStatistics copy = new ScriptStatistics(stats.script);
+				copy.executions = stats.executions;
+				copy.failures = stats.failures;
+				copy.timeouts = stats.timeouts;
+				copy.totalMillis = stats.totalMillis;
+				copy.maxMillis = stats.maxMillis;
+				copy.lastMillis = stats.lastMillis;
+				copy.lastExecution = stats.lastExecution;
+				map.put(copy.script, copy);
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Clears the script execution statistics.
+	 */
+	public void clearStatistics() {
+		statistics.clear();
+	}
+
+	/**
+	 * Returns the name of a script without the .groovy extension.
+	 */
+	private String getScriptName(String script) {
+		String name = script.trim();
+		if (name.toLowerCase().endsWith(".groovy")) {
+			name = name.substring(0, name.length() - ".groovy".length());
+		}
+		return name;
+	}
+
+	private boolean run(File folder, Collection<String> scripts, Binding binding, long timeout) {
+		GroovyScriptEngine gse = getEngine(folder);
+		if (gse == null) {
+			return true;
+		}
+		for (String script : scripts) {
+			if (StringUtils.isEmpty(script)) {
+				continue;
+			}
+			// allow script to be specified without .groovy extension
+			// this is easier to read in the settings
+			File file = new File(folder, script);
+			if (!file.exists() && !script.toLowerCase().endsWith(".groovy")) {
+				file = new File(folder, script + ".groovy");
+				if (file.exists()) {
+					script = file.getName();
+				}
+			}
+
+			Deadline deadline = null;
+			ScheduledFuture<?> future = null;
+			ScheduledThreadPoolExecutor timer = watchdog;
+			if (timeout > 0 && timer != null) {
+				deadline = new Deadline(Thread.currentThread());
+				try {
+					future = timer.schedule(deadline, timeout, TimeUnit.MILLISECONDS);
+				} catch (RejectedExecutionException e) {
+					deadline = null;
+				}
+			}
+			long start = System.nanoTime();
+			boolean failed = false;
+			Object result = null;
+			try {
+				result = gse.run(script, binding);
+			} catch (Exception e) {
+				failed = true;
+				LOGGER.error(MessageFormat.format("Failed to execute Groovy script {0}", script), e);
+			}
+			boolean expired = deadline != null && deadline.finish();
+			if (future != null) {
+				future.cancel(false);
+			}
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			record(script, elapsed, failed, expired);
+			if (expired) {
+				LOGGER.warn(MessageFormat.format("Groovy script {0} exceeded the {1} ms timeout and was interrupted",
+						script, timeout));
+			}
+
+			if (result instanceof Boolean) {
+				if (!((Boolean) result)) {
+					LOGGER.error(MessageFormat.format(
+							"Groovy script {0} has failed!  Hook scripts aborted.", script));
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private void record(String script, long elapsed, boolean failed, boolean expired) {
+		ScriptStatistics stats = statistics.get(script);
+		if (stats == null) {
+			stats = new ScriptStatistics(script);
+			ScriptStatistics existing = statistics.putIfAbsent(script, stats);
+			if (existing != null) {
+				stats = existing;
+			}
+		}
+		synchronized (stats) {
+			stats.executions++;
+			stats.totalMillis += elapsed;
+			stats.lastMillis = elapsed;
+			stats.maxMillis = Math.max(stats.maxMillis, elapsed);
+			stats.lastExecution = new Date();
+			if (failed) {
+				stats.failures++;
+			}
+			if (expired) {
+				stats.timeouts++;
+			}
+		}
+	}
+
+	/**
+	 * Interrupts a hook thread whose script has exceeded the timeout.
+	 */
+	private static class Deadline implements Runnable {
+
+		private final Thread thread;
+
+		private boolean finished;
+
+		private boolean expired;
+
+		Deadline(Thread thread) {
+			this.thread = thread;
+		}
+
+		@Override
+		public synchronized void run() {
+			if (!finished) {
+				expired = true;
+				thread.interrupt();
+			}
+		}
+
+		/**
+		 * Marks the script as finished and clears any pending interrupt.
+		 *
+		 * @return true if the script exceeded the timeout
+		 */
+		synchronized boolean finish() {
+			finished = true;
+			Thread.interrupted();
+			return expired;
+		}
+	}
+
+	private static class HookThreadFactory implements ThreadFactory {
+
+		private final String prefix;
+
+		private final AtomicInteger counter = new AtomicInteger();
+
+		HookThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -72,7 +72,6 @@ import com.gitblit.utils.DiffUtils.DiffStat;
 import com.gitblit.utils.JGitUtils;
 import com.gitblit.utils.JGitUtils.MergeResult;
 import com.gitblit.utils.JGitUtils.MergeStatus;
-import com.gitblit.utils.RefLogUtils;
 import com.gitblit.utils.StringUtils;
 import com.google.common.collect.Lists;
 
@@ -237,6 +236,15 @@ public class PatchsetReceivePack extends GitblitReceivePack {
 		super.onPreReceive(rp, filtered);
 	}
 
+	/**
+	 * Referenced tickets are processed while executing the commands because
+	 * pushes may merge patchsets.
+	 */
+	@Override
+	protected boolean isProcessingTicketReferences() {
+		return false;
+	}
+
 	/**	Process receive commands EXCEPT for Patchset commands. */
 	@Override
 	public void onPostReceive(ReceivePack rp, Collection<ReceiveCommand> commands) {
@@ -855,8 +863,7 @@ public class PatchsetReceivePack extends GitblitReceivePack {
 				sendInfo("");
 
 				// log the new patch ref
-				RefLogUtils.updateRefLog(user, getRepository(),
-						Arrays.asList(new ReceiveCommand(cmd.getOldId(), cmd.getNewId(), cmd.getRefName())));
+				queuePostReceive(Arrays.asList(new ReceiveCommand(cmd.getOldId(), cmd.getNewId(), cmd.getRefName())), false);
 
 				// call any patchset hooks
 				for (PatchsetHook hook : gitblit.getExtensions(PatchsetHook.class)) {
@@ -891,8 +898,7 @@ public class PatchsetReceivePack extends GitblitReceivePack {
 				sendInfo("");
 
 				// log the new patchset ref
-				RefLogUtils.updateRefLog(user, getRepository(),
-					Arrays.asList(new ReceiveCommand(cmd.getOldId(), cmd.getNewId(), cmd.getRefName())));
+				queuePostReceive(Arrays.asList(new ReceiveCommand(cmd.getOldId(), cmd.getNewId(), cmd.getRefName())), false);
 
 				// call any patchset hooks
 				final boolean isNewPatchset = change.patchset.rev == 1;
@@ -1260,7 +1266,7 @@ public class PatchsetReceivePack extends GitblitReceivePack {
 		}
 		ObjectId oldId = (ru.getOldObjectId() == null) ? ObjectId.zeroId() : ru.getOldObjectId();
 		ReceiveCommand cmd = new ReceiveCommand(oldId, ru.getNewObjectId(), ru.getName(), type);
-		RefLogUtils.updateRefLog(user, getRepository(), Arrays.asList(cmd));
+		queuePostReceive(Arrays.asList(cmd), false);
 	}
 
 	/**
@@ -1315,7 +1321,7 @@ public class PatchsetReceivePack extends GitblitReceivePack {
 
 				logRefChange(commands);
 				updateIncrementalPushTags(commands);
-				updateGitblitRefLog(commands);
+				queuePostReceive(commands, false);
 			}
 
 			// call patchset hooks
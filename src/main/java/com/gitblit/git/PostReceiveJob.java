@@ -0,0 +1,398 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.git;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.ReceiveCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gitblit.Constants;
+import com.gitblit.IStoredSettings;
+import com.gitblit.manager.IGitblit;
+import com.gitblit.models.RepositoryModel;
+import com.gitblit.models.TicketModel;
+import com.gitblit.models.TicketModel.Change;
+import com.gitblit.models.TicketModel.Field;
+import com.gitblit.models.TicketModel.Status;
+import com.gitblit.models.TicketModel.TicketLink;
+import com.gitblit.models.UserModel;
+import com.gitblit.tickets.ITicketService;
+import com.gitblit.tickets.TicketNotifier;
+import com.gitblit.utils.JGitUtils;
+import com.gitblit.utils.RefLogUtils;
+import com.gitblit.utils.StringUtils;
+
+/**
+ * PostReceiveJob records the side effects of a push which do not need to
+ * complete before the push is reported to the client: the Gitblit reflog
+ * entry, ticket references and the resulting ticket notifications.
+ *
+ * Jobs are serialized to json by the {@link PostReceiveQueue} so that they
+ * survive a restart.
+ *
+ * @since 1.10.0
+ */
+public class PostReceiveJob implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PostReceiveJob.class);
+
+	public long id;
+
+	public String repository;
+
+	public String username;
+
+	public String displayName;
+
+	public String emailAddress;
+
+	public Date date;
+
+	public boolean updateRefLog;
+
+	public boolean processTickets;
+
+	public List<Command> commands;
+
+	public PostReceiveJob() {
+		this.commands = new ArrayList<Command>();
+	}
+
+	public PostReceiveJob(String repository, UserModel user, Collection<ReceiveCommand> commands) {
+		this();
+		this.repository = repository;
+		this.username = user.username;
+		this.displayName = user.displayName;
+		this.emailAddress = user.emailAddress;
+		this.date = new Date();
+		for (ReceiveCommand cmd : commands) {
+			this.commands.add(new Command(cmd));
+		}
+	}
+
+	/**
+	 * Returns the pushing user.
+	 *
+	 * @return the user
+	 */
+	public UserModel getUser() {
+		if (UserModel.ANONYMOUS.username.equals(username)) {
+			return UserModel.ANONYMOUS;
+		}
+		UserModel user = new UserModel(username);
+		user.displayName = displayName;
+		user.emailAddress = emailAddress;
+		return user;
+	}
+
+	/**
+	 * Returns the receive commands of the push.
+	 *
+	 * @return the receive commands
+	 */
+	public List<ReceiveCommand> getCommands() {
+		List<ReceiveCommand> list = new ArrayList<ReceiveCommand>();
+		for (Command cmd : commands) {
+			list.add(cmd.toReceiveCommand());
+		}
+		return list;
+	}
+
+	/**
+	 * Executes the job.
+	 *
+	 * @param gitblit
+	 */
+	public void execute(IGitblit gitblit) {
+		Repository db = gitblit.getRepository(repository);
+		if (db == null) {
+			LOGGER.warn(MessageFormat.format("Skipping post-receive job for missing repository {0}", repository));
+			return;
+		}
+		try {
+			UserModel user = getUser();
+			List<ReceiveCommand> receiveCommands = getCommands();
+			if (updateRefLog) {
+				try {
+					RefLogUtils.updateRefLog(user, db, receiveCommands, date);
+					LOGGER.debug(MessageFormat.format("{0} reflog updated", repository));
+				} catch (Exception e) {
+					LOGGER.error(MessageFormat.format("Failed to update {0} reflog", repository), e);
+				}
+			}
+
+			if (processTickets) {
+				ITicketService ticketService = gitblit.getTicketService();
+				RepositoryModel model = gitblit.getRepositoryModel(repository);
+				if (ticketService != null && model != null && ticketService.isAcceptingTicketUpdates(model)) {
+					processTickets(gitblit.getSettings(), ticketService, db, model, user, receiveCommands);
+				}
+			}
+		} finally {
+			db.close();
+		}
+	}
+
+	/**
+	 * Updates the tickets referenced by the pushed commits and sends the
+	 * ticket notifications.
+	 */
+	private void processTickets(IStoredSettings settings, ITicketService ticketService, Repository db,
+			RepositoryModel model, UserModel user, List<ReceiveCommand> receiveCommands) {
+		TicketNotifier ticketNotifier = ticketService.createNotifier();
+		RevWalk rw = new RevWalk(db);
+		try {
+			int ticketsProcessed = 0;
+			for (ReceiveCommand cmd : receiveCommands) {
+				switch (cmd.getType()) {
+				case CREATE:
+				case UPDATE:
+					if (cmd.getRefName().startsWith(Constants.R_HEADS)) {
+						Collection<TicketModel> tickets = processReferencedTickets(settings, ticketService, db, rw, model, user, cmd);
+						ticketsProcessed += tickets.size();
+						for (TicketModel ticket : tickets) {
+							ticketNotifier.queueMailing(ticket);
+						}
+					}
+					break;
+
+				case UPDATE_NONFASTFORWARD:
+					if (cmd.getRefName().startsWith(Constants.R_HEADS)) {
+						String base = JGitUtils.getMergeBase(db, cmd.getOldId(), cmd.getNewId());
+						List<TicketLink> deletedRefs = JGitUtils.identifyTicketsBetweenCommits(db, settings, base, cmd.getOldId().name());
+						for (TicketLink link : deletedRefs) {
+							link.isDelete = true;
+						}
+						Change deletion = new Change(user.username);
+						deletion.pendingLinks = deletedRefs;
+						ticketService.updateTicket(model, 0, deletion);
+
+						Collection<TicketModel> tickets = processReferencedTickets(settings, ticketService, db, rw, model, user, cmd);
+						ticketsProcessed += tickets.size();
+						for (TicketModel ticket : tickets) {
+							ticketNotifier.queueMailing(ticket);
+						}
+					}
+					break;
+
+				case DELETE:
+					//Identify if the branch has been merged
+					SortedMap<Integer, String> bases =  new TreeMap<Integer, String>();
+					try {
+						ObjectId dObj = cmd.getOldId();
+						Collection<Ref> tips = db.getRefDatabase().getRefs(Constants.R_HEADS).values();
+						for (Ref ref : tips) {
+							ObjectId iObj = ref.getObjectId();
+							String mergeBase = JGitUtils.getMergeBase(db, dObj, iObj);
+							if (mergeBase != null) {
+								int d = JGitUtils.countCommits(db, rw, mergeBase, dObj.name());
+								bases.put(d, mergeBase);
+								//All commits have been merged into some other branch
+								if (d == 0) {
+									break;
+								}
+							}
+						}
+
+						if (!bases.isEmpty() && bases.firstKey() > 0) {
+							//Delete references from the remaining commits that haven't been merged
+							String mergeBase = bases.get(bases.firstKey());
+							List<TicketLink> deletedRefs = JGitUtils.identifyTicketsBetweenCommits(db,
+									settings, mergeBase, dObj.name());
+
+							for (TicketLink link : deletedRefs) {
+								link.isDelete = true;
+							}
+							Change deletion = new Change(user.username);
+							deletion.pendingLinks = deletedRefs;
+							ticketService.updateTicket(model, 0, deletion);
+						}
+					} catch (IOException e) {
+						LOGGER.error(null, e);
+					}
+					break;
+
+				default:
+					break;
+				}
+			}
+
+			if (ticketsProcessed > 0) {
+				LOGGER.info(MessageFormat.format("{0} tickets updated by push of {1} to {2}",
+						ticketsProcessed, user.username, repository));
+			}
+		} finally {
+			rw.close();
+		}
+
+		// reset the ticket caches for the repository
+		ticketService.resetCaches(model);
+
+		// send all queued ticket notifications
+		ticketNotifier.sendAll();
+	}
+
+	/**
+	 * Automatically closes open tickets and adds references to tickets if made in the commit message.
+	 */
+	private Collection<TicketModel> processReferencedTickets(IStoredSettings settings, ITicketService ticketService,
+			Repository db, RevWalk rw, RepositoryModel model, UserModel user, ReceiveCommand cmd) {
+		Map<Long, TicketModel> changedTickets = new LinkedHashMap<Long, TicketModel>();
+
+		try {
+			rw.reset();
+			rw.markStart(rw.parseCommit(cmd.getNewId()));
+			if (!ObjectId.zeroId().equals(cmd.getOldId())) {
+				rw.markUninteresting(rw.parseCommit(cmd.getOldId()));
+			}
+
+			RevCommit c;
+			while ((c = rw.next()) != null) {
+				rw.parseBody(c);
+				List<TicketLink> ticketLinks = JGitUtils.identifyTicketsFromCommitMessage(db, settings, c);
+				if (ticketLinks == null) {
+					continue;
+				}
+
+				for (TicketLink link : ticketLinks) {
+
+					TicketModel ticket = ticketService.getTicket(model, link.targetTicketId);
+					if (ticket == null) {
+						continue;
+					}
+
+					Change change = null;
+					String commitSha = c.getName();
+					String branchName = Repository.shortenRefName(cmd.getRefName());
+
+					switch (link.action) {
+						case Commit: {
+							//A commit can reference a ticket in any branch even if the ticket is closed.
+							//This allows developers to identify and communicate related issues
+							change = new Change(user.username);
+							change.referenceCommit(commitSha);
+						} break;
+
+						case Close: {
+							// As this isn't a patchset theres no merging taking place when closing a ticket
+							if (ticket.isClosed()) {
+								continue;
+							}
+
+							change = new Change(user.username);
+							change.setField(Field.status, Status.Fixed);
+
+							if (StringUtils.isEmpty(ticket.responsible)) {
+								// unassigned tickets are assigned to the closer
+								change.setField(Field.responsible, user.username);
+							}
+						}
+
+						default: {
+							//No action
+						} break;
+					}
+
+					if (change != null) {
+						ticket = ticketService.updateTicket(model, ticket.number, change);
+					}
+
+					if (ticket != null) {
+						switch (link.action) {
+							case Commit: {
+								LOGGER.debug(MessageFormat.format("#{0,number,0} referenced by push of {1} to {2}",
+										ticket.number, commitSha, branchName));
+								changedTickets.put(ticket.number, ticket);
+							} break;
+
+							case Close: {
+								LOGGER.debug(MessageFormat.format("#{0,number,0} closed by push of {1} to {2}",
+										ticket.number, commitSha, branchName));
+								changedTickets.put(ticket.number, ticket);
+							} break;
+
+							default: { }
+						}
+					} else {
+						LOGGER.error(MessageFormat.format("FAILED to update ticket {0} by push of {1}",
+								link.targetTicketId, commitSha));
+					}
+				}
+			}
+
+		} catch (IOException e) {
+			LOGGER.error("Can't scan for changes to reference or close", e);
+		} finally {
+			rw.reset();
+		}
+
+		return changedTickets.values();
+	}
+
+	@Override
+	public String toString() {
+		return MessageFormat.format("{0} {1} ({2} commands)", repository, String.valueOf(id), commands.size());
+	}
+
+	/**
+	 * A serializable receive command.
+	 */
+	public static class Command implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		public String refName;
+
+		public String oldId;
+
+		public String newId;
+
+		public ReceiveCommand.Type type;
+
+		public Command() {
+		}
+
+		public Command(ReceiveCommand cmd) {
+			this.refName = cmd.getRefName();
+			this.oldId = cmd.getOldId().getName();
+			this.newId = cmd.getNewId().getName();
+			this.type = cmd.getType();
+		}
+
+		public ReceiveCommand toReceiveCommand() {
+			return new ReceiveCommand(ObjectId.fromString(oldId), ObjectId.fromString(newId), refName, type);
+		}
+	}
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.git;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gitblit.manager.IGitblit;
+import com.gitblit.utils.FileUtils;
+import com.gitblit.utils.JsonUtils;
+
+/**
+ * Durable, ordered queue of post-receive jobs.
+ *
+ * Each job is written to the queue folder before the push completes and is
+ * removed once it has been executed, so pending jobs are resumed after a
+ * restart.  Jobs of the same repository are executed in push order; jobs of
+ * different repositories are executed concurrently.  Jobs may be executed
+ * more than once if Gitblit is stopped while a job is executing.
+ *
+ * If the queue is not configured, jobs are executed synchronously.
+ *
+ * @since 1.10.0
+ */
+public class PostReceiveQueue {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PostReceiveQueue.class);
+
+	private static final String SUFFIX = ".json";
+
+	private static final PostReceiveQueue instance;
+
+	private final Map<String, Lane> lanes;
+
+	private final AtomicLong sequence;
+
+	private final AtomicLong processed;
+
+	private final AtomicLong lastLag;
+
+	private volatile IGitblit gitblit;
+
+	private volatile File folder;
+
+	private volatile ExecutorService executor;
+
+	public static PostReceiveQueue instance() {
+		return instance;
+	}
+
+	static {
+		instance = new PostReceiveQueue();
+	}
+
+	protected PostReceiveQueue() {
+		this.lanes = new HashMap<String, Lane>();
+		this.sequence = new AtomicLong(System.currentTimeMillis() * 1000);
+		this.processed = new AtomicLong();
+		this.lastLag = new AtomicLong();
+	}
+
+	/**
+	 * Configures the queue and resumes any jobs which were pending when Gitblit
+	 * was stopped.
+	 *
+	 * @param gitblit
+	 * @param folder
+	 *            the folder where pending jobs are stored
+	 * @param threads
+	 *            the number of threads executing jobs, 0 executes jobs
+	 *            synchronously
+	 */
+	public synchronized void configure(IGitblit gitblit, File folder, int threads) {
+		stop();
+		this.gitblit = gitblit;
+		this.folder = folder;
+		if (threads <= 0) {
+			return;
+		}
+		folder.mkdirs();
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger counter = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "post-receive-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		// resume pending jobs in push order
+		File [] files = folder.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(SUFFIX);
+			}
+		});
+		if (files == null || files.length == 0) {
+			return;
+		}
+		Arrays.sort(files);
+		int resumed = 0;
+		for (File file : files) {
+			try {
+				PostReceiveJob job = JsonUtils.fromJsonString(FileUtils.readContent(file, "\n"), PostReceiveJob.class);
+				if (job == null || job.repository == null) {
+					throw new IOException("empty job");
+				}
+				sequence.set(Math.max(sequence.get(), job.id));
+				schedule(job);
+				resumed++;
+			} catch (Exception e) {
+				LOGGER.error(MessageFormat.format("Discarding unreadable post-receive job {0}", file), e);
+				file.delete();
+			}
+		}
+		LOGGER.info(MessageFormat.format("Resumed {0} pending post-receive jobs", resumed));
+	}
+
+	/**
+	 * Stops executing jobs.  Jobs which have not been executed remain in the
+	 * queue folder and are resumed when the queue is configured again.
+	 */
+	public synchronized void stop() {
+		ExecutorService pool = executor;
+		executor = null;
+		synchronized (lanes) {
+			lanes.clear();
+		}
+		if (pool != null) {
+			// running lanes stop after their current job
+			pool.shutdown();
+			try {
+				pool.awaitTermination(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Queues a job for execution after all previously queued jobs of the same
+	 * repository.
+	 *
+	 * @param job
+	 */
+	public void submit(PostReceiveJob job) {
+		job.id = sequence.incrementAndGet();
+		if (executor == null || !persist(job)) {
+			// execute synchronously
+			execute(job);
+			return;
+		}
+		schedule(job);
+	}
+
+	/**
+	 * Returns the number of jobs waiting to be executed.
+	 *
+	 * @return the backlog
+	 */
+	public int getBacklog() {
+		int backlog = 0;
+		synchronized (lanes) {
+			for (Lane lane : lanes.values()) {
+				backlog += lane.jobs.size();
+			}
+		}
+		return backlog;
+	}
+
+	/**
+	 * Returns the age of the oldest waiting job.
+	 *
+	 * @return the lag in milliseconds
+	 */
+	public long getLag() {
+		long oldest = Long.MAX_VALUE;
+		synchronized (lanes) {
+			for (Lane lane : lanes.values()) {
+				PostReceiveJob job = lane.jobs.peek();
+				if (job != null && job.date != null) {
+					oldest = Math.min(oldest, job.date.getTime());
+				}
+			}
+		}
+		return oldest == Long.MAX_VALUE ? 0 : System.currentTimeMillis() - oldest;
+	}
+
+	/**
+	 * Returns the time between the push and the completion of the most
+	 * recently executed job.
+	 *
+	 * @return the lag in milliseconds
+	 */
+	public long getLastLag() {
+		return lastLag.get();
+	}
+
+	/**
+	 * Returns the number of jobs executed since Gitblit was started.
+	 *
+	 * @return the number of executed jobs
+	 */
+	public long getProcessed() {
+		return processed.get();
+	}
+
+	/**
+	 * Waits until all queued jobs of the repository have been executed.
+	 *
+	 * @param repository
+	 * @param timeout
+	 *            the maximum time to wait in milliseconds
+	 * @return true if the repository has no pending jobs
+	 * @throws InterruptedException
+	 */
+	public boolean await(String repository, long timeout) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeout;
+		synchronized (lanes) {
+			while (true) {
+				Lane lane = lanes.get(repository);
+				if (lane == null) {
+					return true;
+				}
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					return false;
+				}
+				lanes.wait(remaining);
+			}
+		}
+	}
+
+	private void schedule(PostReceiveJob job) {
+		ExecutorService pool = executor;
+		synchronized (lanes) {
+			Lane lane = lanes.get(job.repository);
+			if (lane == null) {
+				lane = new Lane(job.repository);
+				lanes.put(job.repository, lane);
+			}
+			lane.jobs.add(job);
+			if (!lane.running && pool != null) {
+				lane.running = true;
+				pool.execute(lane);
+			}
+		}
+	}
+
+	private boolean persist(PostReceiveJob job) {
+		File file = getFile(job);
+		File temp = new File(folder, file.getName() + ".tmp");
+		FileOutputStream os = null;
+		try {
+			os = new FileOutputStream(temp);
+			os.write(JsonUtils.toJsonString(job).getBytes("UTF-8"));
+			os.getFD().sync();
+			os.close();
+			os = null;
+			if (temp.renameTo(file)) {
+				return true;
+			}
+			LOGGER.error(MessageFormat.format("Failed to rename {0} to {1}", temp, file));
+		} catch (IOException e) {
+			LOGGER.error(MessageFormat.format("Failed to write post-receive job {0}", file), e);
+		} finally {
+			if (os != null) {
+				try {
+					os.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+		temp.delete();
+		return false;
+	}
+
+	private File getFile(PostReceiveJob job) {
+		return new File(folder, String.format("%020d", job.id) + SUFFIX);
+	}
+
+	private void execute(PostReceiveJob job) {
+		try {
+			job.execute(gitblit);
+		} catch (Throwable t) {
+			LOGGER.error(MessageFormat.format("Failed to execute post-receive job {0}", job), t);
+		}
+		processed.incrementAndGet();
+		if (job.date != null) {
+			lastLag.set(System.currentTimeMillis() - job.date.getTime());
+		}
+	}
+
+	/**
+	 * Executes the queued jobs of one repository in order.
+	 */
+	private class Lane implements Runnable {
+
+		final String repository;
+
+		final ArrayDeque<PostReceiveJob> jobs = new ArrayDeque<PostReceiveJob>();
+
+		boolean running;
+
+		Lane(String repository) {
+			this.repository = repository;
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				PostReceiveJob job;
+				synchronized (lanes) {
+					job = jobs.peek();
+					if (job == null || lanes.get(repository) != this) {
+						running = false;
+						if (lanes.get(repository) == this) {
+							lanes.remove(repository);
+						}
+						lanes.notifyAll();
+						return;
+					}
+				}
+				execute(job);
+				getFile(job).delete();
+				synchronized (lanes) {
+					jobs.poll();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jgit.storage.pack.PackStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gitblit.models.TrafficModel;
+import com.gitblit.utils.FileUtils;
+import com.gitblit.utils.JsonUtils;
+import com.gitblit.utils.StringUtils;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Accounts the git traffic of every repository: clones, fetches, bytes sent
+ * and pack generation time of upload packs and pushes and bytes received of
+ * receive packs.  All transports are accounted because the upload and
+ * receive pack factories are shared by the git servlet, the git daemon and
+ * the SSH daemon.
+ *
+ * The traffic is rolled up in daily buckets (UTC) which are kept for a
+ * configurable number of days.  Recording an upload or a push does not take
+ * a lock, a day's bucket is installed with a compare-and-set by the first
+ * transfer of the day.  The buckets are periodically persisted so that the
+ * traffic survives restarts.
+ *
+ * @since 1.10.0
+ */
+public class RepositoryTraffic {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryTraffic.class);
+
+	private static final RepositoryTraffic instance = new RepositoryTraffic();
+
+	private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+	private static final Type TRAFFIC_TYPE = new TypeToken<Map<String, List<TrafficModel>>>() {
+	}.getType();
+
+	private final Map<String, Counters> repositories;
+
+	private final AtomicBoolean dirty;
+
+	private volatile int days;
+
+	private volatile File file;
+
+	public static RepositoryTraffic instance() {
+		return instance;
+	}
+
+	RepositoryTraffic() {
+		this.repositories = new ConcurrentHashMap<String, Counters>();
+		this.dirty = new AtomicBoolean();
+		this.days = 30;
+	}
+
+	/**
+	 * Configures the retention and the persistence of the traffic and loads
+	 * the persisted traffic.  Any traffic held in memory is discarded.
+	 *
+	 * @param file
+	 *            the file of the persisted traffic, may be null
+	 * @param days
+	 *            the number of days for which the traffic is kept, 0
+	 *            disables the accounting
+	 */
+	public synchronized void configure(File file, int days) {
+		this.days = Math.max(0, days);
+		this.file = file;
+		repositories.clear();
+		dirty.set(false);
+		load();
+	}
+
+	/**
+	 * Returns true if the traffic is accounted.
+	 */
+	public boolean isEnabled() {
+		return days > 0;
+	}
+
+	/**
+	 * Records a clone or fetch.  An upload pack which does not have any
+	 * objects in common with the client is counted as a clone.
+	 *
+	 * @param repository
+	 *            the repository name
+	 * @param stats
+	 *            the pack statistics of the upload pack
+	 */
+	public void recordUpload(String repository, PackStatistics stats) {
+		Bucket bucket = getBucket(repository);
+		if (bucket == null) {
+			return;
+		}
+		if (stats.getHaves() == 0) {
+			bucket.clones.increment();
+		} else {
+			bucket.fetches.increment();
+		}
+		bucket.bytesSent.add(stats.getTotalBytes());
+		bucket.packMillis.add(Math.max(0, stats.getTimeTotal() - stats.getTimeWriting()));
+	}
+
+	/**
+	 * Records a push.
+	 *
+	 * @param repository
+	 *            the repository name
+	 * @param bytes
+	 *            the size of the received pack
+	 */
+	public void recordPush(String repository, long bytes) {
+		Bucket bucket = getBucket(repository);
+		if (bucket == null) {
+			return;
+		}
+		bucket.pushes.increment();
+		bucket.bytesReceived.add(Math.max(0, bytes));
+	}
+
+	/**
+	 * Returns the traffic of a repository within the retention period.
+	 *
+	 * @param repository
+	 * @return the traffic, the date is the start of the retention period
+	 */
+	public TrafficModel getTraffic(String repository) {
+		TrafficModel total = new TrafficModel(new Date((today() - days + 1) * DAY));
+		for (TrafficModel day : getDailyTraffic(repository)) {
+			total.add(day);
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the daily traffic of a repository within the retention period.
+	 * Days without traffic are omitted.
+	 *
+	 * @param repository
+	 * @return the daily traffic, oldest first
+	 */
+	public List<TrafficModel> getDailyTraffic(String repository) {
+		List<TrafficModel> list = new ArrayList<TrafficModel>();
+		Counters counters = repositories.get(getKey(repository));
+		if (counters == null) {
+			return list;
+		}
+		long today = today();
+		for (Bucket bucket : counters.getBuckets()) {
+			if (bucket.day > today - days && bucket.day <= today) {
+				TrafficModel model = bucket.toModel();
+				if (!model.isEmpty()) {
+					list.add(model);
+				}
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Moves the traffic of a renamed repository.
+	 *
+	 * @param oldName
+	 * @param newName
+	 */
+	public void rename(String oldName, String newName) {
+		Counters counters = repositories.remove(getKey(oldName));
+		if (counters != null) {
+			repositories.put(getKey(newName), counters);
+			dirty.set(true);
+		}
+	}
+
+	/**
+	 * Forgets the traffic of a deleted repository.
+	 *
+	 * @param repository
+	 */
+	public void remove(String repository) {
+		if (repositories.remove(getKey(repository)) != null) {
+			dirty.set(true);
+		}
+	}
+
+	/**
+	 * Persists the traffic if it changed since it has been loaded or saved.
+	 */
+	public synchronized void save() {
+		File file = this.file;
+		if (file == null || !dirty.getAndSet(false)) {
+			return;
+		}
+		Map<String, List<TrafficModel>> map = new TreeMap<String, List<TrafficModel>>();
+		for (String repository : repositories.keySet()) {
+			List<TrafficModel> list = getDailyTraffic(repository);
+			if (!list.isEmpty()) {
+				map.put(repository, list);
+			}
+		}
+		File temp = new File(file.getAbsolutePath() + ".tmp");
+		try {
+			file.getAbsoluteFile().getParentFile().mkdirs();
+			FileUtils.writeContent(temp, JsonUtils.toJsonString(map));
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			dirty.set(true);
+			LOGGER.error("Failed to save the repository traffic to {}", file, e);
+		}
+	}
+
+	private void load() {
+		if (file == null || !file.exists() || days == 0) {
+			return;
+		}
+		try {
+			Map<String, List<TrafficModel>> map = JsonUtils.fromJsonString(
+					FileUtils.readContent(file, "\n"), TRAFFIC_TYPE);
+			if (map == null) {
+				return;
+			}
+			long today = today();
+			for (Map.Entry<String, List<TrafficModel>> entry : map.entrySet()) {
+				for (TrafficModel model : entry.getValue()) {
+					long day = model.date.getTime() / DAY;
+					if (day > today - days && day <= today) {
+						getCounters(entry.getKey()).getBucket(day).add(model);
+					}
+				}
+			}
+			LOGGER.info("Loaded the traffic of {} repositories from {}", map.size(), file);
+		} catch (Exception e) {
+			LOGGER.error("Failed to load the repository traffic from {}", file, e);
+		}
+	}
+
+	private Bucket getBucket(String repository) {
+		if (days == 0) {
+			return null;
+		}
+		if (!dirty.get()) {
+			dirty.set(true);
+		}
+		return getCounters(repository).getBucket(today());
+	}
+
+	private Counters getCounters(String repository) {
+		String key = getKey(repository);
+		Counters counters = repositories.get(key);
+		if (counters == null) {
+			Counters newCounters = new Counters(days);
+			counters = repositories.putIfAbsent(key, newCounters);
+			if (counters == null) {
+				counters = newCounters;
+			}
+		}
+		return counters;
+	}
+
+	private static String getKey(String repository) {
+		return StringUtils.stripDotGit(repository).toLowerCase();
+	}
+
+	private static long today() {
+		return System.currentTimeMillis() / DAY;
+	}
+
+	/**
+	 * The daily buckets of a repository in a ring indexed by day.
+	 */
+	private static class Counters {
+
+		final AtomicReferenceArray<Bucket> ring;
+
+		Counters(int days) {
+			this.ring = new AtomicReferenceArray<Bucket>(Math.max(1, days));
+		}
+
+		Bucket getBucket(long day) {
+			int index = (int) (day % ring.length());
+			for (;;) {
+				Bucket bucket = ring.get(index);
+				if (bucket != null && bucket.day >= day) {
+					// the bucket of the day or, if the clock went back, of a later day
+					return bucket;
+				}
+				// first transfer of the day replaces the expired bucket
+				Bucket newBucket = new Bucket(day);
+				if (ring.compareAndSet(index, bucket, newBucket)) {
+					return newBucket;
+				}
+			}
+		}
+
+		List<Bucket> getBuckets() {
+			List<Bucket> list = new ArrayList<Bucket>();
+			for (int i = 0; i < ring.length(); i++) {
+				Bucket bucket = ring.get(i);
+				if (bucket != null) {
+					list.add(bucket);
+				}
+			}
+			// oldest first
+			list.sort(null);
+			return list;
+		}
+	}
+
+	/**
+	 * The traffic of a repository on one day.
+	 */
+	private static class Bucket implements Comparable<Bucket> {
+
+		final long day;
+
+		final LongAdder clones = new LongAdder();
+
+		final LongAdder fetches = new LongAdder();
+
+		final LongAdder bytesSent = new LongAdder();
+
+		final LongAdder packMillis = new LongAdder();
+
+		final LongAdder pushes = new LongAdder();
+
+		final LongAdder bytesReceived = new LongAdder();
+
+		Bucket(long day) {
+			this.day = day;
+		}
+
+		void add(TrafficModel model) {
+			clones.add(model.clones);
+			fetches.add(model.fetches);
+			bytesSent.add(model.bytesSent);
+			packMillis.add(model.packMillis);
+			pushes.add(model.pushes);
+			bytesReceived.add(model.bytesReceived);
+		}
+
+		TrafficModel toModel() {
+			TrafficModel model = new TrafficModel(new Date(day * DAY));
+			model.clones = clones.sum();
+			model.fetches = fetches.sum();
+			model.bytesSent = bytesSent.sum();
+			model.packMillis = packMillis.sum();
+			model.pushes = pushes.sum();
+			model.bytesReceived = bytesReceived.sum();
+			return model;
+		}
+
+		@Override
+		public int compareTo(Bucket o) {
+			return Long.compare(day, o.day);
+		}
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.git;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jgit.storage.pack.PackStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Accumulates the pack statistics of all upload packs served by Gitblit.
+ *
+ * A full clone of a repository which has been packed with a bitmap index is
+ * served by streaming the existing pack verbatim (a cached pack) instead of
+ * enumerating and compressing the objects again.  Full clones which could
+ * not be served from a cached pack are counted and the repository is
+ * remembered so that it can be repacked.
+ *
+ * @since 1.10.0
+ */
+public class UploadPackStatistics {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(UploadPackStatistics.class);
+
+	private static final UploadPackStatistics instance = new UploadPackStatistics();
+
+	private final AtomicLong uploads;
+
+	private final AtomicLong fullClones;
+
+	private final AtomicLong cachedPackClones;
+
+	private final AtomicLong bytes;
+
+	private final AtomicLong cachedPackBytes;
+
+	private final AtomicLong bitmapIndexMisses;
+
+	private final Set<String> withoutCachedPack;
+
+	public static UploadPackStatistics instance() {
+		return instance;
+	}
+
+	UploadPackStatistics() {
+		this.uploads = new AtomicLong();
+		this.fullClones = new AtomicLong();
+		this.cachedPackClones = new AtomicLong();
+		this.bytes = new AtomicLong();
+		this.cachedPackBytes = new AtomicLong();
+		this.bitmapIndexMisses = new AtomicLong();
+		this.withoutCachedPack = ConcurrentHashMap.newKeySet();
+	}
+
+	/**
+	 * Records the statistics of an upload pack.
+	 *
+	 * @param repository
+	 *            the repository name
+	 * @param stats
+	 *            the pack statistics
+	 */
+	public void record(String repository, PackStatistics stats) {
+		uploads.incrementAndGet();
+		bytes.addAndGet(stats.getTotalBytes());
+		bitmapIndexMisses.addAndGet(Math.max(0, stats.getBitmapIndexMisses()));
+
+		if (stats.getHaves() > 0 || stats.isShallow() || stats.getTotalObjects() == 0) {
+			// incremental fetch, shallow clone or empty repository
+			return;
+		}
+
+		fullClones.incrementAndGet();
+		if (!stats.getReusedPacks().isEmpty()) {
+			cachedPackClones.incrementAndGet();
+			cachedPackBytes.addAndGet(stats.getTotalBytes());
+			withoutCachedPack.remove(repository);
+		} else if (withoutCachedPack.add(repository)) {
+			LOGGER.info("full clone of {} could not be served from a cached pack, {} objects packed in {} ms; "
+					+ "repack the repository with a bitmap index to speed up clones",
+					repository, stats.getTotalObjects(), stats.getTimeTotal());
+		}
+	}
+
+	/**
+	 * Returns the number of upload packs served.
+	 */
+	public long getUploads() {
+		return uploads.get();
+	}
+
+	/**
+	 * Returns the number of full clones served.
+	 */
+	public long getFullClones() {
+		return fullClones.get();
+	}
+
+	/**
+	 * Returns the number of full clones served from a cached pack.
+	 */
+	public long getCachedPackClones() {
+		return cachedPackClones.get();
+	}
+
+	/**
+	 * Returns the number of bytes served by all upload packs.
+	 */
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	/**
+	 * Returns the number of bytes served by full clones from cached packs.
+	 */
+	public long getCachedPackBytes() {
+		return cachedPackBytes.get();
+	}
+
+	/**
+	 * Returns the number of objects which had to be walked because they were
+	 * not covered by a bitmap index.
+	 */
+	public long getBitmapIndexMisses() {
+		return bitmapIndexMisses.get();
+	}
+
+	/**
+	 * Returns the repositories whose last full clone could not be served
+	 * from a cached pack.
+	 *
+	 * @return the sorted repository names
+	 */
+	public List<String> getRepositoriesWithoutCachedPack() {
+		List<String> list = new ArrayList<String>(withoutCachedPack);
+		Collections.sort(list);
+		return list;
+	}
+
+	/**
+	 * Forgets the repository, e.g. after it has been repacked.
+	 *
+	 * @param repository
+	 */
+	public void reset(String repository) {
+		withoutCachedPack.remove(repository);
+	}
+}
@@ -48,6 +48,10 @@ public class LdapConnection implements AutoCloseable {
 
 	private IStoredSettings settings;
 
+	private LdapConnectionPool pool;
+	private boolean rebound;
+	private boolean defunct;
+
 	private LDAPConnection conn;
 	private SimpleBindRequest currentBindRequest;
 	private SimpleBindRequest managerBindRequest;
@@ -105,6 +109,22 @@ public class LdapConnection implements AutoCloseable {
 		this.managerBindRequest = new SimpleBindRequest(bindUserName, bindPassword);
 	}
 
+	/**
+	 * Creates a connection which is checked out of the pool and returned to
+	 * it on close.  If the pool is null, a new connection is opened.
+	 *
+	 * @param settings
+	 * @param pool
+	 * @since 1.10.0
+	 */
+	public LdapConnection(IStoredSettings settings, LdapConnectionPool pool) {
+		this(settings);
+		if (pool != null) {
+			this.pool = pool;
+			this.managerBindRequest = pool.getBindRequest();
+		}
+	}
+
 
 
 	public String getAccountBase() {
@@ -118,6 +138,21 @@ public class LdapConnection implements AutoCloseable {
 
 
 	public boolean connect() {
+		if (pool != null) {
+			try {
+				// pooled connections are already bound as the manager
+				conn = pool.getConnection();
+				if (conn.getLastBindRequest() instanceof SimpleBindRequest) {
+					currentBindRequest = (SimpleBindRequest) conn.getLastBindRequest();
+				} else {
+					currentBindRequest = managerBindRequest;
+				}
+				return true;
+			} catch (LDAPException e) {
+				logger.error("Error Connecting to LDAP", e);
+				return false;
+			}
+		}
 		try {
 			URI ldapUrl = new URI(settings.getRequiredString(Keys.realm.ldap.server));
 			String ldapHost = ldapUrl.getHost();
@@ -168,7 +203,13 @@ public class LdapConnection implements AutoCloseable {
 
 	public void close() {
 		if (conn != null) {
-			conn.close();
+			if (pool != null) {
+				// re-authenticate the connection as the manager if it has been re-bound
+				pool.release(conn, rebound, defunct);
+				conn = null;
+			} else {
+				conn.close();
+			}
 		}
 	}
 
@@ -180,7 +221,12 @@ public class LdapConnection implements AutoCloseable {
 	 */
 	public BindResult bind() {
 		BindResult result = null;
+		if (pool != null && !rebound) {
+			// pooled connection is still bound as the manager
+			return new BindResult(-1, ResultCode.SUCCESS, null, null, null, null);
+		}
 		try {
+			rebound = true;
 			result = conn.bind(managerBindRequest);
 			currentBindRequest = managerBindRequest;
 		} catch (LDAPException e) {
@@ -203,6 +249,7 @@ public class LdapConnection implements AutoCloseable {
 		try {
 			String bindUser = StringUtils.replace(bindPattern, "${username}", escapeLDAPSearchFilter(simpleUsername));
 			SimpleBindRequest request = new SimpleBindRequest(bindUser, password);
+			rebound = true;
 			result = conn.bind(request);
 			userBindRequest = request;
 			currentBindRequest = userBindRequest;
@@ -221,9 +268,11 @@ public class LdapConnection implements AutoCloseable {
 			return false;
 		}
 		try {
+			rebound = true;
 			conn.bind(userBindRequest);
 			currentBindRequest = userBindRequest;
 		} catch (LDAPException e) {
+			defunct = true;
 			conn.close();
 			logger.error("Error rebinding to LDAP with user account.", e);
 			return false;
@@ -254,6 +303,7 @@ public class LdapConnection implements AutoCloseable {
 		try {
 			// Binding will stop any LDAP-Injection Attacks since the searched-for user needs to bind to that DN
 			SimpleBindRequest ubr = new SimpleBindRequest(userDn, password);
+			rebound = true;
 			conn.bind(ubr);
 			isAuthenticated = true;
 			userBindRequest = ubr;
@@ -277,6 +327,9 @@ public class LdapConnection implements AutoCloseable {
 		try {
 			return conn.search(request);
 		} catch (LDAPSearchException e) {
+			if (!e.getResultCode().isConnectionUsable()) {
+				defunct = true;
+			}
 			logger.error("Problem Searching LDAP [{}]",  e.getResultCode());
 			return e.getSearchResult();
 		}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.gitblit.ldap;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.SocketFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gitblit.IStoredSettings;
+import com.gitblit.Keys;
+import com.gitblit.metrics.Gauge;
+import com.gitblit.metrics.Metrics;
+import com.unboundid.ldap.sdk.GetEntryLDAPConnectionPoolHealthCheck;
+import com.unboundid.ldap.sdk.LDAPConnection;
+import com.unboundid.ldap.sdk.LDAPConnectionPool;
+import com.unboundid.ldap.sdk.LDAPConnectionPoolStatistics;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.PostConnectProcessor;
+import com.unboundid.ldap.sdk.SimpleBindRequest;
+import com.unboundid.ldap.sdk.SingleServerSet;
+import com.unboundid.ldap.sdk.StartTLSPostConnectProcessor;
+import com.unboundid.util.ssl.SSLUtil;
+import com.unboundid.util.ssl.TrustAllTrustManager;
+
+/**
+ * A pool of LDAP connections which are bound with the manager credentials of
+ * realm.ldap.username and realm.ldap.password.
+ *
+ * Authentication, SSH key lookup and synchronization share one pool so that a
+ * login does not pay for a new TCP connection, TLS handshake and manager bind.
+ * The pool is replaced and closed when the server or the manager account
+ * changes.  If the pool can not be created, callers open their own
+ * connections until the next attempt, which is delayed by an increasing
+ * backoff.  Connections which have been
+ * re-bound as a user are re-authenticated as the manager when they are
+ * released and connections which failed are replaced.  Idle connections are
+ * checked in the background by reading the root DSE.
+ *
+ * @since 1.10.0
+ */
+public class LdapConnectionPool {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LdapConnectionPool.class);
+
+	private static final long MIN_RETRY_DELAY = TimeUnit.SECONDS.toMillis(5);
+
+	private static final long MAX_RETRY_DELAY = TimeUnit.MINUTES.toMillis(5);
+
+	private static final Object lock = new Object();
+
+	// the shared pool, guarded by lock
+	private static LdapConnectionPool current;
+
+	// the key of the pool which is being created, guarded by lock
+	private static String creating;
+
+	// the key of the pool which could not be created, guarded by lock
+	private static String failedKey;
+
+	private static long retryDelay;
+
+	private static long retryTime;
+
+	private final String key;
+
+	private final LDAPConnectionPool pool;
+
+	private final SimpleBindRequest bindRequest;
+
+	/**
+	 * Returns the shared connection pool for the configured LDAP server and
+	 * manager account.
+	 *
+	 * @param settings
+	 * @return the pool or null if pooling is disabled, the pool is being
+	 *         created by another thread or the pool could not be created
+	 */
+	public static LdapConnectionPool get(IStoredSettings settings) {
+		int size = settings.getInteger(Keys.realm.ldap.poolSize, 10);
+		if (size <= 0) {
+			return null;
+		}
+		String server = settings.getString(Keys.realm.ldap.server, "");
+		String username = settings.getString(Keys.realm.ldap.username, "");
+		String password = settings.getString(Keys.realm.ldap.password, "");
+		String key = server + "\n" + username + "\n" + password;
+		synchronized (lock) {
+			if (current != null && current.key.equals(key) && !current.pool.isClosed()) {
+				return current;
+			}
+			if (creating != null) {
+				// do not wait for the connect timeout of another thread
+				return null;
+			}
+			if (key.equals(failedKey) && System.currentTimeMillis() < retryTime) {
+				return null;
+			}
+			creating = key;
+		}
+
+		// connect outside of the lock
+		LdapConnectionPool pool = null;
+		LdapConnectionPool replaced = null;
+		try {
+			pool = new LdapConnectionPool(key, server, new SimpleBindRequest(username, password), size);
+		} catch (URISyntaxException e) {
+			LOGGER.error("Bad LDAP URL, should be in the form: ldap(s|+tls)://<server>:<port>", e);
+		} catch (GeneralSecurityException e) {
+			LOGGER.error("Unable to create SSL Connection", e);
+		} catch (LDAPException e) {
+			LOGGER.error("Error Connecting to LDAP", e);
+		} finally {
+			// the previous pool belongs to other settings
+			synchronized (lock) {
+				creating = null;
+				replaced = current;
+				current = pool;
+				if (pool == null) {
+					retryDelay = key.equals(failedKey) ? Math.min(MAX_RETRY_DELAY, retryDelay * 2) : MIN_RETRY_DELAY;
+					retryTime = System.currentTimeMillis() + retryDelay;
+					failedKey = key;
+				} else {
+					failedKey = null;
+				}
+			}
+			if (replaced != null) {
+				replaced.pool.close();
+			}
+		}
+		if (pool == null) {
+			LOGGER.warn("Can not create the LDAP connection pool for {}, retrying after a backoff", server);
+			return null;
+		}
+		pool.registerMetrics(server);
+		LOGGER.info("Created LDAP connection pool for {} with up to {} connections", server, size);
+		return pool;
+	}
+
+	/**
+	 * Closes the pool.
+	 */
+	public static void closeAll() {
+		LdapConnectionPool closed;
+		synchronized (lock) {
+			closed = current;
+			current = null;
+			failedKey = null;
+		}
+		if (closed != null) {
+			closed.pool.close();
+		}
+	}
+
+	LdapConnectionPool(String key, String server, SimpleBindRequest bindRequest, int size)
+			throws URISyntaxException, GeneralSecurityException, LDAPException {
+
+		URI ldapUrl = new URI(server);
+		String ldapHost = ldapUrl.getHost();
+		int ldapPort = ldapUrl.getPort();
+		SocketFactory socketFactory = null;
+		PostConnectProcessor postConnect = null;
+		if (ldapUrl.getScheme().equalsIgnoreCase("ldaps")) {
+			// SSL
+			socketFactory = new SSLUtil(new TrustAllTrustManager()).createSSLSocketFactory();
+			if (ldapPort == -1) {
+				ldapPort = 636;
+			}
+		} else if (ldapUrl.getScheme().equalsIgnoreCase("ldap") || ldapUrl.getScheme().equalsIgnoreCase("ldap+tls")) {
+			// no encryption or StartTLS
+			if (ldapUrl.getScheme().equalsIgnoreCase("ldap+tls")) {
+				postConnect = new StartTLSPostConnectProcessor(
+						new SSLUtil(new TrustAllTrustManager()).createSSLContext());
+			}
+			if (ldapPort == -1) {
+				ldapPort = 389;
+			}
+		} else {
+			throw new URISyntaxException(server, "Unsupported LDAP URL scheme: " + ldapUrl.getScheme());
+		}
+
+		SingleServerSet serverSet = socketFactory == null
+				? new SingleServerSet(ldapHost, ldapPort)
+				: new SingleServerSet(ldapHost, ldapPort, socketFactory);
+
+		this.key = key;
+		this.bindRequest = bindRequest;
+		this.pool = new LDAPConnectionPool(serverSet, bindRequest, 1, size, postConnect);
+		this.pool.setConnectionPoolName("gitblit");
+		this.pool.setMaxWaitTimeMillis(TimeUnit.SECONDS.toMillis(10));
+		this.pool.setCreateIfNecessary(true);
+		// read the root DSE of idle connections and after failed operations
+		this.pool.setHealthCheck(new GetEntryLDAPConnectionPoolHealthCheck(
+				"", 5000, false, false, false, false, true, true));
+		this.pool.setHealthCheckIntervalMillis(TimeUnit.MINUTES.toMillis(1));
+	}
+
+	private void registerMetrics(String server) {
+		Metrics metrics = Metrics.instance();
+		// drop the gauges of a replaced pool
+		metrics.remove("gitblit_ldap_pool_available_connections");
+		metrics.remove("gitblit_ldap_pool_checkouts_total");
+		metrics.register(new Gauge("gitblit_ldap_pool_available_connections", "Number of idle pooled LDAP connections", "server", server) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return pool.getCurrentAvailableConnections();
+			}
+		});
+		metrics.register(new Gauge(true, "gitblit_ldap_pool_checkouts_total", "Number of LDAP connection checkouts", "server", server, "result", "success") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return pool.getConnectionPoolStatistics().getNumSuccessfulCheckouts();
+			}
+		});
+		metrics.register(new Gauge(true, "gitblit_ldap_pool_checkouts_total", "Number of LDAP connection checkouts", "server", server, "result", "failure") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return pool.getConnectionPoolStatistics().getNumFailedCheckouts();
+			}
+		});
+	}
+
+	/**
+	 * Returns the bind request of the manager account which authenticates all
+	 * pooled connections.
+	 */
+	SimpleBindRequest getBindRequest() {
+		return bindRequest;
+	}
+
+	/**
+	 * Checks out a connection bound as the manager account.
+	 */
+	LDAPConnection getConnection() throws LDAPException {
+		return pool.getConnection();
+	}
+
+	/**
+	 * Returns a connection to the pool.
+	 *
+	 * @param conn
+	 * @param reauthenticate
+	 *            true if the connection has been bound as another account
+	 * @param defunct
+	 *            true if the connection failed and must be replaced
+	 */
+	void release(LDAPConnection conn, boolean reauthenticate, boolean defunct) {
+		if (defunct) {
+			pool.releaseDefunctConnection(conn);
+		} else if (reauthenticate) {
+			pool.releaseAndReAuthenticateConnection(conn);
+		} else {
+			pool.releaseConnection(conn);
+		}
+	}
+
+	/**
+	 * Returns the number of idle connections.
+	 */
+	public int getAvailableConnections() {
+		return pool.getCurrentAvailableConnections();
+	}
+
+	/**
+	 * Returns the statistics of the pool.
+	 */
+	public LDAPConnectionPoolStatistics getStatistics() {
+		return pool.getConnectionPoolStatistics();
+	}
+}
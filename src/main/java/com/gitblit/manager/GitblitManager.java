@@ -55,7 +55,9 @@ import com.gitblit.Constants.FederationToken;
 import com.gitblit.Constants.Role;
 import com.gitblit.GitBlitException;
 import com.gitblit.IStoredSettings;
+import com.gitblit.Keys;
 import com.gitblit.extensions.RepositoryLifeCycleListener;
+import com.gitblit.git.PostReceiveQueue;
 import com.gitblit.models.FederationModel;
 import com.gitblit.models.FederationProposal;
 import com.gitblit.models.FederationSet;
@@ -75,6 +77,7 @@ import com.gitblit.models.ServerSettings;
 import com.gitblit.models.ServerStatus;
 import com.gitblit.models.SettingModel;
 import com.gitblit.models.TeamModel;
+import com.gitblit.models.TrafficModel;
 import com.gitblit.models.UserModel;
 import com.gitblit.tickets.ITicketService;
 import com.gitblit.transport.ssh.IPublicKeyManager;
@@ -168,14 +171,27 @@ public class GitblitManager implements IGitblit {
 	@Override
 	public GitblitManager start() {
 		loadSettingModels(runtimeManager.getSettingsModel());
+		configurePostReceiveQueue();
 		return this;
 	}
 
 	@Override
 	public GitblitManager stop() {
+		PostReceiveQueue.instance().stop();
 		return this;
 	}
 
+	protected void configurePostReceiveQueue() {
+		int threads = settings.getInteger(Keys.git.postReceiveThreads, 2);
+		File folder = runtimeManager.getFileOrFolder(Keys.git.postReceiveFolder, "${baseFolder}/postreceive");
+		PostReceiveQueue.instance().configure(this, folder, threads);
+		if (threads > 0) {
+			logger.info(MessageFormat.format("Post-receive queue: {0} threads, {1}", threads, folder));
+		} else {
+			logger.info("Post-receive work is processed synchronously");
+		}
+	}
+
 	/*
 	 * IGITBLIT
 	 */
@@ -875,6 +891,11 @@ public class GitblitManager implements IGitblit {
 		return userManager.deleteTeam(teamname);
 	}
 
+	@Override
+	public long getStarCount(String repository) {
+		return userManager.getStarCount(repository);
+	}
+
 	/*
 	 * REPOSITORY MANAGER
 	 */
@@ -988,6 +1009,11 @@ public class GitblitManager implements IGitblit {
 		return repositoryManager.getStarCount(repository);
 	}
 
+	@Override
+	public List<TrafficModel> getTraffic(RepositoryModel repository) {
+		return repositoryManager.getTraffic(repository);
+	}
+
 	@Override
 	public boolean hasRepository(String repositoryName) {
 		return repositoryManager.hasRepository(repositoryName);
@@ -28,6 +28,7 @@ import com.gitblit.models.Metric;
 import com.gitblit.models.RegistrantAccessPermission;
 import com.gitblit.models.RepositoryModel;
 import com.gitblit.models.SearchResult;
+import com.gitblit.models.TrafficModel;
 import com.gitblit.models.UserModel;
 
 public interface IRepositoryManager extends IManager {
@@ -241,6 +242,15 @@ public interface IRepositoryManager extends IManager {
 	 */
 	long getStarCount(RepositoryModel repository);
 
+	/**
+	 * Returns the daily clone, fetch and push traffic of the repository.
+	 *
+	 * @param repository
+	 * @return the daily traffic within the retention period, oldest first
+ 	 * @since 1.10.0
+	 */
+	List<TrafficModel> getTraffic(RepositoryModel repository);
+
 	/**
 	 * Determines if this server has the requested repository.
 	 *
@@ -28,4 +28,13 @@ public interface IUserManager extends IManager, IUserService {
 	 */
 	boolean isInternalAccount(String username);
 
+	/**
+	 * Returns the number of users who have starred the repository.
+	 *
+	 * @param repository
+	 * @return the star count
+	 * @since 1.10.0
+	 */
+	long getStarCount(String repository);
+
 }
\ No newline at end of file
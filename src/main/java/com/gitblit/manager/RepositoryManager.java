@@ -44,6 +44,9 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.eclipse.jgit.events.ListenerHandle;
+import org.eclipse.jgit.events.RefsChangedEvent;
+import org.eclipse.jgit.events.RefsChangedListener;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.RepositoryCache;
 import org.eclipse.jgit.lib.RepositoryCache.FileKey;
@@ -68,6 +71,10 @@ import com.gitblit.GitBlitException;
 import com.gitblit.IStoredSettings;
 import com.gitblit.Keys;
 import com.gitblit.extensions.RepositoryLifeCycleListener;
+import com.gitblit.git.GroovyHookEngine;
+import com.gitblit.git.RepositoryTraffic;
+import com.gitblit.metrics.Metrics;
+import com.gitblit.metrics.Timer;
 import com.gitblit.models.ForkModel;
 import com.gitblit.models.Metric;
 import com.gitblit.models.RefModel;
@@ -75,14 +82,16 @@ import com.gitblit.models.RegistrantAccessPermission;
 import com.gitblit.models.RepositoryModel;
 import com.gitblit.models.SearchResult;
 import com.gitblit.models.TeamModel;
+import com.gitblit.models.TrafficModel;
 import com.gitblit.models.UserModel;
 import com.gitblit.service.GarbageCollectorService;
 import com.gitblit.service.LuceneService;
 import com.gitblit.service.MirrorService;
 import com.gitblit.utils.ArrayUtils;
+import com.gitblit.utils.BlameCache;
 import com.gitblit.utils.ByteFormat;
 import com.gitblit.utils.CommitCache;
-import com.gitblit.utils.DeepCopier;
+import com.gitblit.utils.DiffCache;
 import com.gitblit.utils.JGitUtils;
 import com.gitblit.utils.JGitUtils.LastChange;
 import com.gitblit.utils.MetricUtils;
@@ -113,8 +122,16 @@ public class RepositoryManager implements IRepositoryManager {
 
 	private final Map<String, RepositoryModel> repositoryListCache = new ConcurrentHashMap<String, RepositoryModel>();
 
+	private final Map<String, RefsLastChange> lastChangeCache = new ConcurrentHashMap<String, RefsLastChange>();
+
 	private final AtomicReference<String> repositoryListSettingsChecksum = new AtomicReference<String>("");
 
+	private final Timer repositoryScanTimer = Metrics.instance().timer("gitblit_repository_scan_seconds",
+			"Duration of scanning the repositories folder");
+
+	private final Timer repositoryModelsTimer = Metrics.instance().timer("gitblit_repository_models_seconds",
+			"Duration of loading the repository models of a repository list");
+
 	private final IStoredSettings settings;
 
 	private final IRuntimeManager runtimeManager;
@@ -131,6 +148,8 @@ public class RepositoryManager implements IRepositoryManager {
 
 	private MirrorService mirrorExecutor;
 
+	private ListenerHandle refsChangedHandle;
+
 	@Inject
 	public RepositoryManager(
 			IRuntimeManager runtimeManager,
@@ -155,6 +174,14 @@ public class RepositoryManager implements IRepositoryManager {
 		// calculate repository list settings checksum for future config changes
 		repositoryListSettingsChecksum.set(getRepositoryListSettingsChecksum());
 
+		// invalidate the cached last change of repositories updated by Gitblit
+		refsChangedHandle = Repository.getGlobalListenerList().addRefsChangedListener(new RefsChangedListener() {
+			@Override
+			public void onRefsChanged(RefsChangedEvent event) {
+				invalidateLastChange(event.getRepository());
+			}
+		});
+
 		// build initial repository list
 		if (settings.getBoolean(Keys.git.cacheRepositoryList,  true)) {
 			logger.info("Identifying repositories...");
@@ -166,6 +193,10 @@ public class RepositoryManager implements IRepositoryManager {
 		configureMirrorExecutor();
 		configureJGit();
 		configureCommitCache();
+		configureBlameCache();
+		configureDiffCache();
+		configureHookEngine();
+		configureTraffic();
 
 		confirmWriteAccess();
 
@@ -174,10 +205,16 @@ public class RepositoryManager implements IRepositoryManager {
 
 	@Override
 	public RepositoryManager stop() {
+		if (refsChangedHandle != null) {
+			refsChangedHandle.remove();
+			refsChangedHandle = null;
+		}
 		scheduledExecutor.shutdownNow();
+		RepositoryTraffic.instance().save();
 		luceneExecutor.close();
 		gcExecutor.close();
 		mirrorExecutor.close();
+		GroovyHookEngine.instance().stop();
 
 		closeAll();
 		return this;
@@ -193,7 +230,10 @@ public class RepositoryManager implements IRepositoryManager {
 		Date date = null;
 		for (String name : getRepositoryList()) {
 			Repository r = getRepository(name);
-			Date lastChange = JGitUtils.getLastChange(r).when;
+			if (r == null) {
+				continue;
+			}
+			Date lastChange = getLastChange(r, name).when;
 			r.close();
 			if (lastChange != null && (date == null || lastChange.after(date))) {
 				date = lastChange;
@@ -452,6 +492,7 @@ public class RepositoryManager implements IRepositoryManager {
 			return null;
 		}
 		String key = getRepositoryKey(name);
+		lastChangeCache.remove(key);
 		return repositoryListCache.remove(key);
 	}
 
@@ -488,9 +529,11 @@ public class RepositoryManager implements IRepositoryManager {
 	public void resetRepositoryListCache() {
 		logger.info("Repository cache manually reset");
 		repositoryListCache.clear();
+		lastChangeCache.clear();
 		repositorySizeCache.clear();
 		repositoryMetricsCache.clear();
 		CommitCache.instance().clear();
+		DiffCache.instance().clear();
 	}
 
 	/**
@@ -570,6 +613,7 @@ public class RepositoryManager implements IRepositoryManager {
 				}
 
 				long duration = System.currentTimeMillis() - startTime;
+				repositoryScanTimer.record(TimeUnit.MILLISECONDS.toNanos(duration));
 				logger.info(MessageFormat.format(msg, repositoryListCache.size(), duration));
 			}
 		}
@@ -634,7 +678,7 @@ public class RepositoryManager implements IRepositoryManager {
 	 */
 	@Override
 	public List<RepositoryModel> getRepositoryModels() {
-		long methodStart = System.currentTimeMillis();
+		long methodStart = System.nanoTime();
 		List<String> list = getRepositoryList();
 		List<RepositoryModel> repositories = new ArrayList<RepositoryModel>();
 		for (String repo : list) {
@@ -643,8 +687,9 @@ public class RepositoryManager implements IRepositoryManager {
 				repositories.add(model);
 			}
 		}
-		long duration = System.currentTimeMillis() - methodStart;
-		logger.info(MessageFormat.format("{0} repository models loaded in {1} msecs", duration));
+		repositoryModelsTimer.since(methodStart);
+		logger.debug("{} repository models loaded in {} msecs", repositories.size(),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - methodStart));
 		return repositories;
 	}
 
@@ -656,7 +701,7 @@ public class RepositoryManager implements IRepositoryManager {
 	 */
 	@Override
 	public List<RepositoryModel> getRepositoryModels(UserModel user) {
-		long methodStart = System.currentTimeMillis();
+		long methodStart = System.nanoTime();
 		List<String> list = getRepositoryList();
 		List<RepositoryModel> repositories = new ArrayList<RepositoryModel>();
 		for (String repo : list) {
@@ -673,9 +718,9 @@ public class RepositoryManager implements IRepositoryManager {
 				}
 			}
 		}
-		long duration = System.currentTimeMillis() - methodStart;
-		logger.info(MessageFormat.format("{0} repository models loaded for {1} in {2} msecs",
-				repositories.size(), user == null ? "anonymous" : user.username, duration));
+		repositoryModelsTimer.since(methodStart);
+		logger.debug("{} repository models loaded for {} in {} msecs", repositories.size(),
+				user == null ? "anonymous" : user.username, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - methodStart));
 		return repositories;
 	}
 
@@ -720,7 +765,7 @@ public class RepositoryManager implements IRepositoryManager {
 				return null;
 			}
 			addToCachedRepositoryList(model);
-			return DeepCopier.copy(model);
+			return model.copy();
 		}
 
 		// cached model
@@ -728,7 +773,7 @@ public class RepositoryManager implements IRepositoryManager {
 
 		if (isCollectingGarbage(model.name)) {
 			// Gitblit is busy collecting garbage, use our cached model
-			RepositoryModel rm = DeepCopier.copy(model);
+			RepositoryModel rm = model.copy();
 			rm.isCollectingGarbage = true;
 			return rm;
 		}
@@ -761,7 +806,7 @@ public class RepositoryManager implements IRepositoryManager {
 		r.close();
 
 		// return a copy of the cached model
-		return DeepCopier.copy(model);
+		return model.copy();
 	}
 
 	/**
@@ -772,13 +817,18 @@ public class RepositoryManager implements IRepositoryManager {
 	 */
 	@Override
 	public long getStarCount(RepositoryModel repository) {
-		long count = 0;
-		for (UserModel user : userManager.getAllUsers()) {
-			if (user.getPreferences().isStarredRepository(repository.name)) {
-				count++;
-			}
-		}
-		return count;
+		return userManager.getStarCount(repository.name);
+	}
+
+	/**
+	 * Returns the daily clone, fetch and push traffic of the repository.
+	 *
+	 * @param repository
+	 * @return the daily traffic within the retention period, oldest first
+	 */
+	@Override
+	public List<TrafficModel> getTraffic(RepositoryModel repository) {
+		return RepositoryTraffic.instance().getDailyTraffic(repository.name);
 	}
 
 	/**
@@ -1183,7 +1233,7 @@ public class RepositoryManager implements IRepositoryManager {
 	 */
 	@Override
 	public long updateLastChangeFields(Repository r, RepositoryModel model) {
-		LastChange lc = JGitUtils.getLastChange(r);
+		LastChange lc = getLastChange(r, model.name);
 		model.lastChange = lc.when;
 		model.lastChangeAuthor = lc.who;
 
@@ -1202,6 +1252,92 @@ public class RepositoryManager implements IRepositoryManager {
 		return size;
 	}
 
+	/**
+	 * Returns the date and author of the most recent branch update.  The
+	 * result is cached until Gitblit updates a ref of the repository or the
+	 * branch refs are modified on disk by another process.
+	 *
+	 * @param r
+	 * @param repositoryName
+	 * @return the last change
+	 */
+	private LastChange getLastChange(Repository r, String repositoryName) {
+		String key = getRepositoryKey(repositoryName);
+		long stamp = getRefsStamp(r.getDirectory());
+		RefsLastChange cached = lastChangeCache.get(key);
+		if (cached != null && cached.stamp == stamp) {
+			return cached.lastChange;
+		}
+		LastChange lc = JGitUtils.getLastChange(r);
+		lastChangeCache.put(key, new RefsLastChange(stamp, lc));
+		return lc;
+	}
+
+	/**
+	 * Discards the cached last change of a repository whose refs have been
+	 * updated through JGit, e.g. by a push, a mirror fetch, a federation pull
+	 * or a ticket update.
+	 *
+	 * @param r
+	 */
+	private void invalidateLastChange(Repository r) {
+		if (r == null || r.getDirectory() == null || repositoriesFolder == null) {
+			return;
+		}
+		File folder = r.isBare() ? r.getDirectory() : r.getDirectory().getParentFile();
+		String name = com.gitblit.utils.FileUtils.getRelativePath(repositoriesFolder, folder);
+		if (!StringUtils.isEmpty(name)) {
+			lastChangeCache.remove(getRepositoryKey(name));
+		}
+	}
+
+	/**
+	 * Returns a stamp of the branch refs of a repository which changes when a
+	 * branch is created, updated or deleted.  Only file modification times
+	 * are read, neither the refs nor the object database are parsed.
+	 *
+	 * @param gitDir
+	 * @return the stamp
+	 */
+	private static long getRefsStamp(File gitDir) {
+		File packedRefs = new File(gitDir, "packed-refs");
+		long stamp = 31 * packedRefs.lastModified() + packedRefs.length();
+		return getFolderStamp(new File(gitDir, Constants.R_HEADS), stamp);
+	}
+
+	private static long getFolderStamp(File folder, long stamp) {
+		// loose refs are replaced by renaming a lock file, which touches the folder
+		stamp = 31 * stamp + folder.lastModified();
+		File [] subfolders = folder.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				return file.isDirectory();
+			}
+		});
+		if (subfolders != null) {
+			Arrays.sort(subfolders);
+			for (File subfolder : subfolders) {
+				stamp = getFolderStamp(subfolder, stamp);
+			}
+		}
+		return stamp;
+	}
+
+	/**
+	 * The last change of a repository and the refs stamp it was read at.
+	 */
+	private static class RefsLastChange {
+
+		final long stamp;
+
+		final LastChange lastChange;
+
+		RefsLastChange(long stamp, LastChange lastChange) {
+			this.stamp = stamp;
+			this.lastChange = lastChange;
+		}
+	}
+
 	/**
 	 * Returns true if the repository is idle (not being accessed).
 	 *
@@ -1466,7 +1602,11 @@ public class RepositoryManager implements IRepositoryManager {
 
 				// clear the cache
 				clearRepositoryMetadataCache(repositoryName);
+				BlameCache.instance().clear(repositoryName);
 				repository.resetDisplayName();
+
+				// move the traffic
+				RepositoryTraffic.instance().rename(repositoryName, repository.name);
 			}
 
 			// load repository
@@ -1693,6 +1833,8 @@ public class RepositoryManager implements IRepositoryManager {
 			close(repositoryName);
 			// clear the repository cache
 			clearRepositoryMetadataCache(repositoryName);
+			BlameCache.instance().clear(repositoryName);
+			RepositoryTraffic.instance().remove(repositoryName);
 
 			RepositoryModel model = removeFromCachedRepositoryList(repositoryName);
 			if (model != null && !ArrayUtils.isEmpty(model.forks)) {
@@ -1907,6 +2049,16 @@ public class RepositoryManager implements IRepositoryManager {
 		} else {
 			logger.info("Garbage Collector (GC) is disabled.");
 		}
+		if (gcExecutor.isMaintenanceEnabled()) {
+			int mins = TimeUtils.convertFrequencyToMinutes(settings.getString(Keys.git.maintenancePeriod, "60 mins"), 10);
+			logger.info("Repository maintenance will scan repositories every {} minutes.", mins);
+			scheduledExecutor.scheduleAtFixedRate(new Runnable() {
+				@Override
+				public void run() {
+					gcExecutor.runMaintenance();
+				}
+			}, mins, mins, TimeUnit.MINUTES);
+		}
 	}
 
 	protected void configureMirrorExecutor() {
@@ -1988,6 +2140,63 @@ public class RepositoryManager implements IRepositoryManager {
 		loader.start();
 	}
 
+	protected void configureBlameCache() {
+		final long maxLines = settings.getLong(Keys.web.blameCacheLines, 500000);
+		final long maxDiskSize = settings.getFilesize(Keys.web.blameCacheDiskSize, 0L);
+		final int incrementalLines = settings.getInteger(Keys.web.blameIncrementalLines, 100);
+		File folder = runtimeManager.getFileOrFolder(Keys.web.blameCacheFolder, "${baseFolder}/blame");
+		BlameCache.instance().configure(folder, maxLines, maxDiskSize, incrementalLines);
+		if (maxDiskSize > 0) {
+			logger.info(MessageFormat.format("Blame cache: {0} lines in memory, {1} on disk in {2}",
+					maxLines, new ByteFormat().format(maxDiskSize), folder));
+		} else {
+			logger.info(MessageFormat.format("Blame cache: {0} lines in memory", maxLines));
+		}
+	}
+
+	protected void configureDiffCache() {
+		final long maxSize = settings.getFilesize(Keys.web.diffCacheSize, 20 * 1024 * 1024L);
+		DiffCache.instance().configure(maxSize);
+		if (maxSize > 0) {
+			logger.info(MessageFormat.format("Diff cache: {0}", new ByteFormat().format(maxSize)));
+		} else {
+			logger.info("Diff cache is disabled");
+		}
+	}
+
+	protected void configureHookEngine() {
+		final int threads = settings.getInteger(Keys.groovy.postReceiveThreads, 2);
+		final int queueSize = settings.getInteger(Keys.groovy.postReceiveQueueSize, 100);
+		final int timeout = settings.getInteger(Keys.groovy.postReceiveTimeout, 300);
+		final List<String> scripts = settings.getStrings(Keys.groovy.asyncPostReceiveScripts);
+		GroovyHookEngine.instance().configure(getHooksFolder(), getGrapesFolder(), threads, queueSize, timeout, scripts);
+		if (threads > 0 && !scripts.isEmpty()) {
+			logger.info(MessageFormat.format("Asynchronous post-receive hooks {0}: {1} threads, {2} queued pushes, {3} second timeout",
+					scripts, threads, queueSize, timeout));
+		} else {
+			logger.info("Post-receive hooks are executed synchronously");
+		}
+	}
+
+	protected void configureTraffic() {
+		final int days = settings.getInteger(Keys.git.trafficDays, 30);
+		File file = runtimeManager.getFileOrFolder(Keys.git.trafficFile, "${baseFolder}/traffic.json");
+		RepositoryTraffic.instance().configure(file, days);
+		if (days > 0) {
+			int mins = Math.max(1, settings.getInteger(Keys.git.trafficSaveInterval, 5));
+			scheduledExecutor.scheduleAtFixedRate(new Runnable() {
+				@Override
+				public void run() {
+					RepositoryTraffic.instance().save();
+				}
+			}, mins, mins, TimeUnit.MINUTES);
+			logger.info(MessageFormat.format("Repository traffic: {0} days, saved to {1} every {2} minutes",
+					days, file, mins));
+		} else {
+			logger.info("Repository traffic accounting is disabled");
+		}
+	}
+
 	protected void confirmWriteAccess() {
 		try {
 			if (!getRepositoriesFolder().exists()) {
@@ -29,6 +29,12 @@ import org.slf4j.LoggerFactory;
 import com.gitblit.Constants;
 import com.gitblit.IStoredSettings;
 import com.gitblit.Keys;
+import com.gitblit.git.GroovyHookEngine;
+import com.gitblit.git.PostReceiveQueue;
+import com.gitblit.fanout.RepositoryAnnouncer;
+import com.gitblit.git.UploadPackStatistics;
+import com.gitblit.metrics.Gauge;
+import com.gitblit.metrics.Metrics;
 import com.gitblit.models.ServerSettings;
 import com.gitblit.models.ServerStatus;
 import com.gitblit.models.SettingModel;
@@ -80,9 +86,107 @@ public class RuntimeManager implements IRuntimeManager {
 		logger.info("JVM locale  : " + Locale.getDefault());
 		logger.info("App locale  : " +  (getLocale() == null ? "<client>" : getLocale()));
 		ContainerDetector.report(logger, true);
+		registerMetrics();
 		return this;
 	}
 
+	/**
+	 * Exports the JVM and the server statistics which are summarized in the
+	 * server status.
+	 */
+	private void registerMetrics() {
+		Metrics metrics = Metrics.instance();
+		metrics.register(new Gauge("gitblit_jvm_heap_used_bytes", "Used heap memory") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+			}
+		});
+		metrics.register(new Gauge("gitblit_jvm_heap_max_bytes", "Maximum heap memory") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return Runtime.getRuntime().maxMemory();
+			}
+		});
+		metrics.register(new Gauge("gitblit_uptime_seconds", "Time since the server started") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return (System.currentTimeMillis() - serverStatus.bootDate.getTime()) / 1000d;
+			}
+		});
+		metrics.register(new Gauge("gitblit_post_receive_backlog", "Number of queued post-receive hook executions") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return PostReceiveQueue.instance().getBacklog();
+			}
+		});
+		metrics.register(new Gauge("gitblit_post_receive_lag_seconds", "Age of the oldest queued post-receive hook execution") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return PostReceiveQueue.instance().getLag() / 1000d;
+			}
+		});
+		metrics.register(new Gauge(true, "gitblit_upload_packs_total", "Number of served clones and fetches") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return UploadPackStatistics.instance().getUploads();
+			}
+		});
+		metrics.register(new Gauge(true, "gitblit_upload_pack_full_clones_total", "Number of served full clones", "cached", "false") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				UploadPackStatistics uploads = UploadPackStatistics.instance();
+				return uploads.getFullClones() - uploads.getCachedPackClones();
+			}
+		});
+		metrics.register(new Gauge(true, "gitblit_upload_pack_full_clones_total", "Number of served full clones", "cached", "true") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return UploadPackStatistics.instance().getCachedPackClones();
+			}
+		});
+		metrics.register(new Gauge(true, "gitblit_upload_pack_bytes_total", "Number of bytes served by clones and fetches") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return UploadPackStatistics.instance().getBytes();
+			}
+		});
+		metrics.register(new Gauge(true, "gitblit_fanout_repository_changes_total", "Number of repository changes recorded for announcement") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return RepositoryAnnouncer.instance().getChanges();
+			}
+		});
+		metrics.register(new Gauge(true, "gitblit_fanout_repository_announcements_total", "Number of announced repository changes") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return RepositoryAnnouncer.instance().getAnnouncements();
+			}
+		});
+	}
+
 	@Override
 	public RuntimeManager stop() {
 		return this;
@@ -233,6 +337,19 @@ public class RuntimeManager implements IRuntimeManager {
 		// update heap memory status
 		serverStatus.heapAllocated = Runtime.getRuntime().totalMemory();
 		serverStatus.heapFree = Runtime.getRuntime().freeMemory();
+		// update hook script statistics
+		serverStatus.hookScripts = GroovyHookEngine.instance().getStatistics();
+		// update post-receive queue status
+		serverStatus.postReceiveBacklog = PostReceiveQueue.instance().getBacklog();
+		serverStatus.postReceiveLag = PostReceiveQueue.instance().getLag();
+		// update upload pack statistics
+		UploadPackStatistics uploads = UploadPackStatistics.instance();
+		serverStatus.uploadPacks = uploads.getUploads();
+		serverStatus.fullClones = uploads.getFullClones();
+		serverStatus.cachedPackClones = uploads.getCachedPackClones();
+		serverStatus.uploadPackBytes = uploads.getBytes();
+		// update metrics summary
+		serverStatus.metrics = Metrics.instance().getSnapshot();
 		return serverStatus;
 	}
 
@@ -46,6 +46,9 @@ import com.gitblit.Keys;
 import com.gitblit.fanout.FanoutNioService;
 import com.gitblit.fanout.FanoutService;
 import com.gitblit.fanout.FanoutSocketService;
+import com.gitblit.fanout.RepositoryAnnouncer;
+import com.gitblit.metrics.Gauge;
+import com.gitblit.metrics.Metrics;
 import com.gitblit.models.FederationModel;
 import com.gitblit.models.RepositoryModel;
 import com.gitblit.models.RepositoryUrl;
@@ -114,6 +117,7 @@ public class ServicesManager implements IServicesManager {
 	public ServicesManager stop() {
 		scheduledExecutor.shutdownNow();
 		if (fanoutService != null) {
+			RepositoryAnnouncer.instance().stop();
 			fanoutService.stop();
 		}
 		if (gitDaemon != null) {
@@ -400,6 +404,7 @@ public class ServicesManager implements IServicesManager {
 			try {
 				gitDaemon = new GitDaemon(gitblit);
 				gitDaemon.start();
+				registerGitDaemonMetrics(gitDaemon);
 			} catch (IOException e) {
 				gitDaemon = null;
 				logger.error(MessageFormat.format("Failed to start Git Daemon on {0}:{1,number,0}", bindInterface, port), e);
@@ -409,6 +414,34 @@ public class ServicesManager implements IServicesManager {
 		}
 	}
 
+	private void registerGitDaemonMetrics(final GitDaemon daemon) {
+		Metrics metrics = Metrics.instance();
+		metrics.register(new Gauge("gitblit_git_daemon_active_clients", "Number of git daemon clients being served") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return daemon.getActiveClients();
+			}
+		});
+		metrics.register(new Gauge("gitblit_git_daemon_queued_clients", "Number of git daemon clients waiting for a free slot") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return daemon.getQueuedClients();
+			}
+		});
+		metrics.register(new Gauge(true, "gitblit_git_daemon_rejected_clients_total", "Number of git daemon clients refused") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return daemon.getRejectedClients();
+			}
+		});
+	}
+
 	protected void configureSshDaemon() {
 		int port = settings.getInteger(Keys.git.sshPort, 0);
 		String bindInterface = settings.getString(Keys.git.sshBindInterface, "localhost");
@@ -432,11 +465,14 @@ public class ServicesManager implements IServicesManager {
 			int limit = settings.getInteger(Keys.fanout.connectionLimit, 0);
 
 			if (useNio) {
+				FanoutNioService nioService;
 				if (StringUtils.isEmpty(bindInterface)) {
-					fanoutService = new FanoutNioService(port);
+					nioService = new FanoutNioService(port);
 				} else {
-					fanoutService = new FanoutNioService(bindInterface, port);
+					nioService = new FanoutNioService(bindInterface, port);
 				}
+				nioService.setMaxPendingMessages(settings.getInteger(Keys.fanout.maxPendingMessages, 1000));
+				fanoutService = nioService;
 			} else {
 				if (StringUtils.isEmpty(bindInterface)) {
 					fanoutService = new FanoutSocketService(port);
@@ -448,11 +484,53 @@ public class ServicesManager implements IServicesManager {
 			fanoutService.setConcurrentConnectionLimit(limit);
 			fanoutService.setAllowAllChannelAnnouncements(false);
 			fanoutService.start();
+			registerFanoutMetrics(fanoutService);
+
+			if (settings.getBoolean(Keys.fanout.announceRepositoryChanges, true)) {
+				RepositoryAnnouncer.instance().start(fanoutService,
+						settings.getInteger(Keys.fanout.coalesceMillis, 1000));
+			}
 		} else {
 			logger.info("Fanout PubSub service is disabled.");
 		}
 	}
 
+	private void registerFanoutMetrics(final FanoutService service) {
+		Metrics metrics = Metrics.instance();
+		metrics.register(new Gauge("gitblit_fanout_connections", "Number of open fanout connections") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return service.getStatistics().currentConnections;
+			}
+		});
+		metrics.register(new Gauge(true, "gitblit_fanout_messages_total", "Number of fanout messages received") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return service.getStatistics().totalMessages;
+			}
+		});
+		metrics.register(new Gauge(true, "gitblit_fanout_bytes_written_total", "Number of bytes written to fanout clients") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return service.getStatistics().totalBytesWritten;
+			}
+		});
+		metrics.register(new Gauge(true, "gitblit_fanout_write_stalls_total", "Number of fanout writes which had to wait for a writable channel") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return service.getStatistics().totalWriteStalls;
+			}
+		});
+	}
+
 	public String getGitDaemonUrl(HttpServletRequest request, UserModel user, RepositoryModel repository) {
 		if (gitDaemon != null) {
 			String bindInterface = settings.getString(Keys.git.daemonBindInterface, "localhost");
@@ -23,8 +23,10 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -62,6 +64,12 @@ public class UserManager implements IUserManager {
 
 	private IUserService userService;
 
+	private final Map<String, Long> starCounts = new HashMap<String, Long>();
+
+	private Map<String, Set<String>> starredRepositories;
+
+	private long starIndexReloads;
+
 	@Inject
 	public UserManager(IRuntimeManager runtimeManager, IPluginManager pluginManager) {
 		this.settings = runtimeManager.getSettings();
@@ -87,6 +95,7 @@ public class UserManager implements IUserManager {
 	public void setUserService(IUserService userService) {
 		this.userService = userService;
 		this.userService.setup(runtimeManager);
+		resetStarIndex();
 		logger.info(userService.toString());
 	}
 
@@ -241,6 +250,7 @@ public class UserManager implements IUserManager {
 	public boolean updateUserModel(UserModel model) {
 		final boolean isCreate = null == userService.getUserModel(model.username);
 		if (userService.updateUserModel(model)) {
+			updateStarIndex(model.username, model);
 			if (isCreate) {
 				callCreateUserListeners(model);
 			}
@@ -258,7 +268,13 @@ public class UserManager implements IUserManager {
 	 */
 	@Override
 	public boolean updateUserModels(Collection<UserModel> models) {
-		return userService.updateUserModels(models);
+		if (userService.updateUserModels(models)) {
+			for (UserModel model : models) {
+				updateStarIndex(model.username, model);
+			}
+			return true;
+		}
+		return false;
 	}
 
 	/**
@@ -275,6 +291,7 @@ public class UserManager implements IUserManager {
 	public boolean updateUserModel(String username, UserModel model) {
 		final boolean isCreate = null == userService.getUserModel(username);
 		if (userService.updateUserModel(username, model)) {
+			updateStarIndex(username, model);
 			if (isCreate) {
 				callCreateUserListeners(model);
 			}
@@ -292,6 +309,7 @@ public class UserManager implements IUserManager {
 	@Override
 	public boolean deleteUserModel(UserModel model) {
 		if (userService.deleteUserModel(model)) {
+			updateStarIndex(model.username, null);
 			callDeleteUserListeners(model);
 			return true;
 		}
@@ -312,6 +330,7 @@ public class UserManager implements IUserManager {
 		String usernameDecoded = StringUtils.decodeUsername(username);
 		UserModel user = getUserModel(usernameDecoded);
 		if (userService.deleteUser(usernameDecoded)) {
+			updateStarIndex(usernameDecoded, null);
 			callDeleteUserListeners(user);
 			return true;
 		}
@@ -517,6 +536,99 @@ public class UserManager implements IUserManager {
 		return userService.deleteRepositoryRole(role);
 	}
 
+	/**
+	 * Returns the number of users who have starred the repository.  The star
+	 * counts are indexed from all users on first use and are then maintained
+	 * as users are updated, renamed and deleted.  The index is rebuilt when
+	 * the user service reloads users which have been changed outside of
+	 * Gitblit.
+	 *
+	 * @param repository
+	 * @return the star count
+	 */
+	@Override
+	public long getStarCount(String repository) {
+		if (StringUtils.isEmpty(repository)) {
+			return 0;
+		}
+		synchronized (starCounts) {
+			if (userService instanceof ConfigUserService) {
+				long reloads = ((ConfigUserService) userService).getReloadCount();
+				if (reloads != starIndexReloads) {
+					resetStarIndex();
+					starIndexReloads = reloads;
+				}
+			}
+			if (starredRepositories == null) {
+				starredRepositories = new HashMap<String, Set<String>>();
+				for (UserModel user : userService.getAllUsers()) {
+					indexStars(user);
+				}
+			}
+			Long count = starCounts.get(repository.toLowerCase());
+			return count == null ? 0 : count;
+		}
+	}
+
+	/**
+	 * Discards the star index.  It is rebuilt from all users on next use.
+	 */
+	protected void resetStarIndex() {
+		synchronized (starCounts) {
+			starCounts.clear();
+			starredRepositories = null;
+		}
+	}
+
+	/**
+	 * Replaces the indexed stars of a user.
+	 *
+	 * @param username
+	 *            the previous username
+	 * @param user
+	 *            the updated user or null if the user was deleted
+	 */
+	protected void updateStarIndex(String username, UserModel user) {
+		synchronized (starCounts) {
+			if (starredRepositories == null) {
+				// not indexed yet
+				return;
+			}
+			Set<String> previous = starredRepositories.remove(username.toLowerCase());
+			if (previous != null) {
+				for (String repository : previous) {
+					long count = starCounts.get(repository) - 1;
+					if (count <= 0) {
+						starCounts.remove(repository);
+					} else {
+						starCounts.put(repository, count);
+					}
+				}
+			}
+			if (user != null) {
+				indexStars(user);
+			}
+		}
+	}
+
+	private void indexStars(UserModel user) {
+		if (user.getPreferences() == null) {
+			return;
+		}
+		Set<String> starred = new HashSet<String>();
+		for (String repository : user.getPreferences().getStarredRepositories()) {
+			starred.add(repository.toLowerCase());
+		}
+		if (starred.isEmpty()) {
+			return;
+		}
+		starredRepositories.put(user.username.toLowerCase(), starred);
+		for (String repository : starred) {
+			Long count = starCounts.get(repository);
+			starCounts.put(repository, count == null ? 1 : count + 1);
+		}
+	}
+
 	protected void callCreateUserListeners(UserModel user) {
 		if (pluginManager == null || user == null) {
 			return;
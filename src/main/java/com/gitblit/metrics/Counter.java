@@ -0,0 +1,63 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing count.  Increments do not contend with each
+ * other.
+ *
+ * @since 1.10.0
+ */
+public class Counter extends Metric {
+
+	private static final long serialVersionUID = 1L;
+
+	private final LongAdder count;
+
+	public Counter(String name, String help, String... labels) {
+		super(name, help, labels);
+		this.count = new LongAdder();
+	}
+
+	public void inc() {
+		count.increment();
+	}
+
+	public void add(long n) {
+		count.add(n);
+	}
+
+	public long get() {
+		return count.sum();
+	}
+
+	@Override
+	public String getType() {
+		return "counter";
+	}
+
+	@Override
+	void write(StringBuilder sb) {
+		sample(sb, "", null, get());
+	}
+
+	@Override
+	public String getDisplayValue() {
+		return Long.toString(get());
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.metrics;
+
+/**
+ * A value which is read when the metrics are exported, e.g. the size of a
+ * queue or a count which is maintained elsewhere.
+ *
+ * @since 1.10.0
+ */
+public abstract class Gauge extends Metric {
+
+	private static final long serialVersionUID = 1L;
+
+	private final boolean monotonic;
+
+	/**
+	 * Creates a gauge.
+	 */
+	public Gauge(String name, String help, String... labels) {
+		this(false, name, help, labels);
+	}
+
+	/**
+	 * Creates a gauge.
+	 *
+	 * @param monotonic
+	 *            true if the value only increases and is exported as a
+	 *            counter
+	 */
+	public Gauge(boolean monotonic, String name, String help, String... labels) {
+		super(name, help, labels);
+		this.monotonic = monotonic;
+	}
+
+	/**
+	 * Returns the current value.
+	 */
+	public abstract double get();
+
+	@Override
+	public String getType() {
+		return monotonic ? "counter" : "gauge";
+	}
+
+	@Override
+	void write(StringBuilder sb) {
+		sample(sb, "", null, get());
+	}
+
+	@Override
+	public String getDisplayValue() {
+		return formatValue(get());
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.metrics;
+
+import java.io.Serializable;
+
+/**
+ * A named metric with optional labels.
+ *
+ * @since 1.10.0
+ */
+public abstract class Metric implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String name;
+
+	private final String help;
+
+	private final String labels;
+
+	/**
+	 * @param name
+	 *            the metric name, e.g. gitblit_http_request_seconds
+	 * @param help
+	 *            a short description
+	 * @param labels
+	 *            label names and values, e.g. "endpoint", "rpc"
+	 */
+	protected Metric(String name, String help, String... labels) {
+		this.name = name;
+		this.help = help;
+		this.labels = formatLabels(labels);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getHelp() {
+		return help;
+	}
+
+	/**
+	 * Returns the formatted labels without braces, e.g. endpoint="rpc".
+	 */
+	public String getLabels() {
+		return labels;
+	}
+
+	/**
+	 * Returns the Prometheus metric type.
+	 */
+	public abstract String getType();
+
+	/**
+	 * Appends the samples of the metric in the Prometheus text format.
+	 */
+	abstract void write(StringBuilder sb);
+
+	/**
+	 * Returns a human-readable value for status displays.
+	 */
+	public abstract String getDisplayValue();
+
+	@Override
+	public String toString() {
+		return labels.isEmpty() ? name : name + "{" + labels + "}";
+	}
+
+	static String formatLabels(String... labels) {
+		if (labels.length % 2 != 0) {
+			throw new IllegalArgumentException("labels must be name and value pairs");
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < labels.length; i += 2) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(labels[i]).append("=\"");
+			String value = labels[i + 1] == null ? "" : labels[i + 1];
+			for (int j = 0; j < value.length(); j++) {
+				char c = value.charAt(j);
+				if (c == '\\' || c == '"') {
+					sb.append('\\').append(c);
+				} else if (c == '\n') {
+					sb.append("\\n");
+				} else {
+					sb.append(c);
+				}
+			}
+			sb.append('"');
+		}
+		return sb.toString();
+	}
+
+	static String formatValue(double value) {
+		if (Double.isNaN(value)) {
+			return "NaN";
+		} else if (Double.isInfinite(value)) {
+			return value > 0 ? "+Inf" : "-Inf";
+		} else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			return Long.toString((long) value);
+		}
+		return Double.toString(value);
+	}
+
+	void sample(StringBuilder sb, String suffix, String extraLabel, double value) {
+		sb.append(name).append(suffix);
+		if (!labels.isEmpty() || extraLabel != null) {
+			sb.append('{').append(labels);
+			if (extraLabel != null) {
+				if (!labels.isEmpty()) {
+					sb.append(',');
+				}
+				sb.append(extraLabel);
+			}
+			sb.append('}');
+		}
+		sb.append(' ').append(formatValue(value)).append('\n');
+	}
+}
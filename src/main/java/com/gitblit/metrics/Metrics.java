@@ -0,0 +1,201 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import com.gitblit.utils.DurationHistogram;
+import com.google.common.cache.Cache;
+
+/**
+ * The registry of the runtime metrics of Gitblit.
+ *
+ * Instrumented code looks up its metrics once and keeps a reference, or
+ * looks them up by name and labels for every observation when the labels
+ * are dynamic.  The metrics are exported in the Prometheus text format and
+ * summarized in the server status.
+ *
+ * @since 1.10.0
+ */
+public class Metrics {
+
+	private static final Metrics instance = new Metrics();
+
+	private final ConcurrentNavigableMap<String, Metric> metrics;
+
+	public static Metrics instance() {
+		return instance;
+	}
+
+	Metrics() {
+		this.metrics = new ConcurrentSkipListMap<String, Metric>();
+	}
+
+	/**
+	 * Returns the counter with the name and labels, creating it if needed.
+	 */
+	public Counter counter(String name, String help, String... labels) {
+		Metric metric = metrics.get(key(name, labels));
+		if (metric == null) {
+			metric = add(new Counter(name, help, labels));
+		}
+		return (Counter) metric;
+	}
+
+	/**
+	 * Returns the timer with the name and labels, creating it if needed.
+	 */
+	public Timer timer(String name, String help, String... labels) {
+		Metric metric = metrics.get(key(name, labels));
+		if (metric == null) {
+			metric = add(new Timer(name, help, labels));
+		}
+		return (Timer) metric;
+	}
+
+	/**
+	 * Registers a metric, replacing a metric with the same name and labels.
+	 *
+	 * @param metric
+	 * @return the metric
+	 */
+	public <M extends Metric> M register(M metric) {
+		metrics.put(key(metric), metric);
+		return metric;
+	}
+
+	/**
+	 * Exports a duration histogram.
+	 */
+	public void register(DurationHistogram histogram, String name, String help, String... labels) {
+		register(new Timer(histogram, name, help, labels));
+	}
+
+	/**
+	 * Exports the size, hits, misses and evictions of a cache.  The cache
+	 * must record statistics.
+	 *
+	 * @param name
+	 *            the cache name used as label
+	 * @param cache
+	 *            the cache, the supplier is read on every export so that a
+	 *            cache can be rebuilt
+	 */
+	public void registerCache(String name, final CacheSupplier cache) {
+		register(new Gauge("gitblit_cache_size", "Number of cached entries", "cache", name) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return cache.get().size();
+			}
+		});
+		register(new Gauge(true, "gitblit_cache_hits_total", "Number of cache hits", "cache", name) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return cache.get().stats().hitCount();
+			}
+		});
+		register(new Gauge(true, "gitblit_cache_misses_total", "Number of cache misses", "cache", name) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return cache.get().stats().missCount();
+			}
+		});
+		register(new Gauge(true, "gitblit_cache_evictions_total", "Number of cache evictions", "cache", name) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return cache.get().stats().evictionCount();
+			}
+		});
+	}
+
+	/**
+	 * Supplies the current instance of a cache.
+	 */
+	public interface CacheSupplier {
+		Cache<?, ?> get();
+	}
+
+	/**
+	 * Returns the metric with the name and labels or null.
+	 */
+	public Metric get(String name, String... labels) {
+		return metrics.get(key(name, labels));
+	}
+
+	/**
+	 * Removes all metrics with the name.
+	 */
+	public void remove(String name) {
+		metrics.subMap(name + " ", name + "!").clear();
+	}
+
+	/**
+	 * Writes all metrics in the Prometheus text exposition format 0.0.4.
+	 *
+	 * @return the text
+	 */
+	public String toPrometheus() {
+		StringBuilder sb = new StringBuilder();
+		String family = null;
+		for (Metric metric : metrics.values()) {
+			if (!metric.getName().equals(family)) {
+				family = metric.getName();
+				sb.append("# HELP ").append(family).append(' ').append(metric.getHelp().replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+				sb.append("# TYPE ").append(family).append(' ').append(metric.getType()).append('\n');
+			}
+			metric.write(sb);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a summary of all metrics for status displays.
+	 *
+	 * @return the display values keyed by name and labels
+	 */
+	public Map<String, String> getSnapshot() {
+		Map<String, String> snapshot = new LinkedHashMap<String, String>();
+		for (Metric metric : metrics.values()) {
+			snapshot.put(metric.toString(), metric.getDisplayValue());
+		}
+		return snapshot;
+	}
+
+	private Metric add(Metric metric) {
+		Metric existing = metrics.putIfAbsent(key(metric), metric);
+		return existing == null ? metric : existing;
+	}
+
+	private static String key(Metric metric) {
+		// the space sorts the samples of a family before any longer name
+		return metric.getName() + " " + metric.getLabels();
+	}
+
+	private static String key(String name, String... labels) {
+		return name + " " + Metric.formatLabels(labels);
+	}
+}
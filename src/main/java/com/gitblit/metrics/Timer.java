@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.metrics;
+
+import com.gitblit.utils.DurationHistogram;
+
+/**
+ * Exports a {@link DurationHistogram} as a Prometheus histogram in seconds.
+ * A new timer records durations from 1 millisecond to 5 minutes.
+ *
+ * <pre>
+ * long start = System.nanoTime();
+ * ...
+ * timer.since(start);
+ * </pre>
+ *
+ * @since 1.10.0
+ */
+public class Timer extends Metric {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final long [] BOUNDS = {
+		1, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000, 300000 };
+
+	private final DurationHistogram histogram;
+
+	public Timer(String name, String help, String... labels) {
+		this(new DurationHistogram(BOUNDS), name, help, labels);
+	}
+
+	public Timer(DurationHistogram histogram, String name, String help, String... labels) {
+		super(name, help, labels);
+		this.histogram = histogram;
+	}
+
+	public DurationHistogram getHistogram() {
+		return histogram;
+	}
+
+	/**
+	 * Records a duration.
+	 *
+	 * @param nanos
+	 */
+	public void record(long nanos) {
+		histogram.recordNanos(nanos);
+	}
+
+	/**
+	 * Records the duration since the start.
+	 *
+	 * @param startNanos
+	 *            the start as returned by {@link System#nanoTime()}
+	 */
+	public void since(long startNanos) {
+		histogram.since(startNanos);
+	}
+
+	public long getCount() {
+		return histogram.getCount();
+	}
+
+	/**
+	 * Returns the smallest bucket bound in seconds which includes the given
+	 * share of all observations.
+	 *
+	 * @param quantile
+	 *            between 0 and 1
+	 * @return the bound or +Inf
+	 */
+	public double getQuantileBound(double quantile) {
+		long millis = histogram.getQuantileBound(quantile);
+		return millis < 0 ? Double.POSITIVE_INFINITY : millis / 1000d;
+	}
+
+	@Override
+	public String getType() {
+		return "histogram";
+	}
+
+	@Override
+	void write(StringBuilder sb) {
+		long [] bounds = histogram.getBounds();
+		long [] buckets = histogram.getBuckets();
+		long cumulative = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			cumulative += buckets[i];
+			String le = i < bounds.length ? formatValue(bounds[i] / 1000d) : "+Inf";
+			sample(sb, "_bucket", "le=\"" + le + "\"", cumulative);
+		}
+		sample(sb, "_sum", null, histogram.getTotalNanos() / 1e9);
+		sample(sb, "_count", null, cumulative);
+	}
+
+	@Override
+	public String getDisplayValue() {
+		long p99 = histogram.getQuantileBound(0.99);
+		return String.format("count=%d avg=%dms p99<=%s", histogram.getCount(), histogram.getAverageMillis(),
+				p99 < 0 ? "+Inf" : p99 + "ms");
+	}
+}
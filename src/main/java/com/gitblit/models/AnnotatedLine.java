@@ -51,4 +51,12 @@ public class AnnotatedLine implements Serializable {
 		this.lineNumber = lineNumber;
 		this.data = data;
 	}
+
+	public AnnotatedLine(String commitId, String author, Date when, int lineNumber, String data) {
+		this.commitId = commitId;
+		this.author = author;
+		this.when = when;
+		this.lineNumber = lineNumber;
+		this.data = data;
+	}
 }
\ No newline at end of file
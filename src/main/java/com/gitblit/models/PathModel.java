@@ -148,6 +148,22 @@ public class PathModel implements Serializable, Comparable<PathModel> {
 			this.changeType = type;
 		}
 
+		/**
+		 * Returns a copy of this model which may be changed without
+		 * affecting this model.
+		 *
+		 * @return a copy of this model
+		 * @since 1.10.0
+		 */
+		public PathChangeModel copy() {
+			PathChangeModel copy = new PathChangeModel(name, path, ((PathModel) this).filestoreItem, size, mode,
+					objectId, commitId, changeType);
+			copy.isParentPath = isParentPath;
+			copy.insertions = insertions;
+			copy.deletions = deletions;
+			return copy;
+		}
+
 		public void update(char op) {
 			switch (op) {
 			case '+':
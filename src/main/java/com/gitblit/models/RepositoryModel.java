@@ -19,6 +19,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -210,6 +211,72 @@ public class RepositoryModel implements Serializable, Comparable<RepositoryModel
 		return !StringUtils.isEmpty(sparkleshareId);
 	}
 
+	/**
+	 * Returns a deep copy of this model.  This is much cheaper than a
+	 * serialization round-trip and must be updated when fields are added.
+	 * Transient fields are not copied.
+	 *
+	 * @return a copy of this model
+	 * @since 1.10.0
+	 */
+	public RepositoryModel copy() {
+		RepositoryModel copy = new RepositoryModel(name, description, null, copy(lastChange));
+		copy.owners = copy(owners);
+		copy.lastChangeAuthor = lastChangeAuthor;
+		copy.hasCommits = hasCommits;
+		copy.showRemoteBranches = showRemoteBranches;
+		copy.useIncrementalPushTags = useIncrementalPushTags;
+		copy.incrementalPushTagPrefix = incrementalPushTagPrefix;
+		copy.accessRestriction = accessRestriction;
+		copy.authorizationControl = authorizationControl;
+		copy.allowAuthenticated = allowAuthenticated;
+		copy.isFrozen = isFrozen;
+		copy.federationStrategy = federationStrategy;
+		copy.federationSets = copy(federationSets);
+		copy.isFederated = isFederated;
+		copy.skipSizeCalculation = skipSizeCalculation;
+		copy.skipSummaryMetrics = skipSummaryMetrics;
+		copy.frequency = frequency;
+		copy.isBare = isBare;
+		copy.isMirror = isMirror;
+		copy.origin = origin;
+		copy.HEAD = HEAD;
+		copy.availableRefs = copy(availableRefs);
+		copy.indexedBranches = copy(indexedBranches);
+		copy.size = size;
+		copy.preReceiveScripts = copy(preReceiveScripts);
+		copy.postReceiveScripts = copy(postReceiveScripts);
+		copy.mailingLists = copy(mailingLists);
+		copy.customFields = customFields == null ? null : new LinkedHashMap<String, String>(customFields);
+		copy.projectPath = projectPath;
+		copy.displayName = displayName;
+		copy.allowForks = allowForks;
+		copy.forks = forks == null ? null : new TreeSet<String>(forks);
+		copy.originRepository = originRepository;
+		copy.verifyCommitter = verifyCommitter;
+		copy.gcThreshold = gcThreshold;
+		copy.gcPeriod = gcPeriod;
+		copy.maxActivityCommits = maxActivityCommits;
+		copy.metricAuthorExclusions = copy(metricAuthorExclusions);
+		copy.commitMessageRenderer = commitMessageRenderer;
+		copy.acceptNewPatchsets = acceptNewPatchsets;
+		copy.acceptNewTickets = acceptNewTickets;
+		copy.requireApproval = requireApproval;
+		copy.mergeTo = mergeTo;
+		copy.mergeType = mergeType;
+		copy.lastGC = copy(lastGC);
+		copy.sparkleshareId = sparkleshareId;
+		return copy;
+	}
+
+	private static List<String> copy(List<String> list) {
+		return list == null ? null : new ArrayList<String>(list);
+	}
+
+	private static Date copy(Date date) {
+		return date == null ? null : new Date(date.getTime());
+	}
+
 	public RepositoryModel cloneAs(String cloneName) {
 		RepositoryModel clone = new RepositoryModel();
 		clone.originRepository = name;
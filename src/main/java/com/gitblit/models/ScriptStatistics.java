@@ -0,0 +1,61 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.models;
+
+import java.io.Serializable;
+import java.text.MessageFormat;
+import java.util.Date;
+
+/**
+ * ScriptStatistics is a snapshot of the execution statistics of a Groovy hook
+ * script.
+ *
+ * @since 1.10.0
+ */
+public class ScriptStatistics implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public final String script;
+
+	public long executions;
+
+	public long failures;
+
+	public long timeouts;
+
+	public long totalMillis;
+
+	public long maxMillis;
+
+	public long lastMillis;
+
+	public Date lastExecution;
+
+	public ScriptStatistics(String script) {
+		this.script = script;
+	}
+
+	public long getAverageMillis() {
+		return executions == 0 ? 0 : totalMillis / executions;
+	}
+
+	@Override
+	public String toString() {
+		return MessageFormat.format("{0} runs, avg {1} ms, max {2} ms, last {3} ms, {4} failures, {5} timeouts",
+				executions, getAverageMillis(), maxMillis, lastMillis, failures, timeouts);
+	}
+}
@@ -51,6 +51,22 @@ public class ServerStatus implements Serializable {
 
 	public String servletContainer;
 
+	public Map<String, ScriptStatistics> hookScripts;
+
+	public int postReceiveBacklog;
+
+	public long postReceiveLag;
+
+	public long uploadPacks;
+
+	public long fullClones;
+
+	public long cachedPackClones;
+
+	public long uploadPackBytes;
+
+	public Map<String, String> metrics;
+
 	public ServerStatus() {
 		this.bootDate = new Date();
 		this.version = Constants.getVersion();
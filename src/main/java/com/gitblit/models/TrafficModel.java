@@ -0,0 +1,82 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.models;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * TrafficModel is the git traffic of a repository within a period, usually
+ * a day.
+ *
+ * @since 1.10.0
+ */
+public class TrafficModel implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public Date date;
+
+	public long clones;
+
+	public long fetches;
+
+	public long bytesSent;
+
+	public long packMillis;
+
+	public long pushes;
+
+	public long bytesReceived;
+
+	public TrafficModel() {
+	}
+
+	public TrafficModel(Date date) {
+		this.date = date;
+	}
+
+	/**
+	 * Returns the number of clones and fetches.
+	 */
+	public long getUploads() {
+		return clones + fetches;
+	}
+
+	/**
+	 * Adds the traffic of another period.
+	 *
+	 * @param traffic
+	 */
+	public void add(TrafficModel traffic) {
+		clones += traffic.clones;
+		fetches += traffic.fetches;
+		bytesSent += traffic.bytesSent;
+		packMillis += traffic.packMillis;
+		pushes += traffic.pushes;
+		bytesReceived += traffic.bytesReceived;
+	}
+
+	public boolean isEmpty() {
+		return clones == 0 && fetches == 0 && pushes == 0;
+	}
+
+	@Override
+	public String toString() {
+		return date + ": " + clones + " clones, " + fetches + " fetches, " + bytesSent + " bytes sent, "
+				+ packMillis + " ms packing, " + pushes + " pushes, " + bytesReceived + " bytes received";
+	}
+}
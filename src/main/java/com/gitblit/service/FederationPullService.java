@@ -33,6 +33,7 @@ import com.gitblit.Constants.FederationStrategy;
 import com.gitblit.GitBlitException.ForbiddenException;
 import com.gitblit.IUserService;
 import com.gitblit.Keys;
+import com.gitblit.fanout.RepositoryAnnouncer;
 import com.gitblit.manager.IGitblit;
 import com.gitblit.models.FederationModel;
 import com.gitblit.models.RefModel;
@@ -220,6 +221,10 @@ public abstract class FederationPullService implements Runnable {
 				RevCommit commit = JGitUtils.getCommit(r, org.eclipse.jgit.lib.Constants.FETCH_HEAD);
 				String newFetchHead = commit.getName();
 				fetched = fetchHead == null || !fetchHead.equals(newFetchHead);
+				if (fetched) {
+					// announce the fetched commit to the fanout subscribers
+					RepositoryAnnouncer.instance().announce(rm, newFetchHead);
+				}
 
 				if (registration.mirror) {
 					// mirror
@@ -15,21 +15,35 @@
  */
 package com.gitblit.service;
 
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.jgit.api.GarbageCollectCommand;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.internal.storage.file.GC;
 import org.eclipse.jgit.lib.Repository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.gitblit.IStoredSettings;
 import com.gitblit.Keys;
+import com.gitblit.git.RepositoryTraffic;
+import com.gitblit.git.UploadPackStatistics;
 import com.gitblit.manager.IRepositoryManager;
 import com.gitblit.models.RepositoryModel;
 import com.gitblit.utils.FileUtils;
@@ -37,13 +51,22 @@ import com.gitblit.utils.FileUtils;
 /**
  * The Garbage Collector Service handles periodic garbage collection in repositories.
  *
+ * The service can also perform incremental maintenance of busy repositories:
+ * loose refs are packed, the objects are repacked with a fresh bitmap index and
+ * packed loose objects are removed.  Unlike garbage collection, maintenance
+ * does not block access to the repository and does not prune unreachable
+ * objects.  Repositories are selected by the number of loose objects, pack
+ * files and loose refs, or because a full clone could not be served from a
+ * bitmap-covered pack, and are maintained on a bounded pool in the order of
+ * their fetch counts.
+ *
  * @author James Moger
  *
  */
 public class GarbageCollectorService implements Runnable {
 
 	public static enum GCStatus {
-		READY, COLLECTING;
+		READY, MAINTAINING, COLLECTING;
 
 		public boolean exceeds(GCStatus s) {
 			return ordinal() > s.ordinal();
@@ -59,7 +82,11 @@ public class GarbageCollectorService implements Runnable {
 
 	private AtomicBoolean forceClose = new AtomicBoolean(false);
 
-	private final Map<String, GCStatus> gcCache = new ConcurrentHashMap<String, GCStatus>();
+	private AtomicBoolean maintaining = new AtomicBoolean(false);
+
+	private final ConcurrentMap<String, GCStatus> gcCache = new ConcurrentHashMap<String, GCStatus>();
+
+	private final ExecutorService maintenanceExecutor;
 
 	public GarbageCollectorService(
 			IStoredSettings settings,
@@ -67,6 +94,22 @@ public class GarbageCollectorService implements Runnable {
 
 		this.settings = settings;
 		this.repositoryManager = repositoryManager;
+		if (isMaintenanceEnabled()) {
+			int threads = Math.max(1, settings.getInteger(Keys.git.maintenanceThreads, 1));
+			this.maintenanceExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				private final AtomicInteger tid = new AtomicInteger(1);
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "GitblitMaintenance-" + tid.getAndIncrement());
+					t.setDaemon(true);
+					t.setPriority(Thread.MIN_PRIORITY);
+					return t;
+				}
+			});
+		} else {
+			this.maintenanceExecutor = null;
+		}
 	}
 
 	/**
@@ -78,30 +121,46 @@ public class GarbageCollectorService implements Runnable {
 		return settings.getBoolean(Keys.git.enableGarbageCollection, false);
 	}
 
+	/**
+	 * Indicates if incremental maintenance of repositories is enabled.
+	 *
+	 * @return true if incremental maintenance is enabled
+	 */
+	public boolean isMaintenanceEnabled() {
+		return settings.getBoolean(Keys.git.enableMaintenance, false);
+	}
+
 	public boolean isRunning() {
 		return running.get();
 	}
 
-	public boolean lock(String repositoryName) {
-		return setGCStatus(repositoryName, GCStatus.COLLECTING);
+	public boolean isMaintaining() {
+		return maintaining.get();
 	}
 
 	/**
-	 * Tries to set a GCStatus for the specified repository.
+	 * Tries to set a GCStatus for the specified repository.  The status can
+	 * not be set while the repository is being collected or maintained.
 	 *
 	 * @param repositoryName
+	 * @param status
 	 * @return true if the status has been set
 	 */
-	private boolean setGCStatus(String repositoryName, GCStatus status) {
+	public boolean setGCStatus(String repositoryName, GCStatus status) {
 		String key = repositoryName.toLowerCase();
-		if (gcCache.containsKey(key)) {
-			if (gcCache.get(key).exceeds(GCStatus.READY)) {
+		while (true) {
+			GCStatus current = gcCache.putIfAbsent(key, status);
+			if (current == null) {
+				return true;
+			}
+			if (current.exceeds(GCStatus.READY)) {
 				// already collecting or blocked
 				return false;
 			}
+			if (gcCache.replace(key, current, status)) {
+				return true;
+			}
 		}
-		gcCache.put(key, status);
-		return true;
 	}
 
 	/**
@@ -112,7 +171,7 @@ public class GarbageCollectorService implements Runnable {
 	 */
 	public boolean isCollectingGarbage(String repositoryName) {
 		String key = repositoryName.toLowerCase();
-		return gcCache.containsKey(key) && GCStatus.COLLECTING.equals(gcCache.get(key));
+		return GCStatus.COLLECTING.equals(gcCache.get(key));
 	}
 
 	/**
@@ -124,8 +183,21 @@ public class GarbageCollectorService implements Runnable {
 		gcCache.put(repositoryName.toLowerCase(), GCStatus.READY);
 	}
 
+	/**
+	 * Resets the GC status to ready if it is still the given status.
+	 *
+	 * @param repositoryName
+	 * @param status
+	 */
+	private void releaseLock(String repositoryName, GCStatus status) {
+		gcCache.replace(repositoryName.toLowerCase(), status, GCStatus.READY);
+	}
+
 	public void close() {
 		forceClose.set(true);
+		if (maintenanceExecutor != null) {
+			maintenanceExecutor.shutdownNow();
+		}
 	}
 
 	@Override
@@ -146,6 +218,7 @@ public class GarbageCollectorService implements Runnable {
 				continue;
 			}
 			boolean garbageCollected = false;
+			boolean locked = false;
 			RepositoryModel model = null;
 			Repository repository = null;
 			try {
@@ -168,6 +241,7 @@ public class GarbageCollectorService implements Runnable {
 					logger.warn("Can not acquire GC lock for {}, skipping", repositoryName);
 					continue;
 				}
+				locked = true;
 
 				logger.debug("GCExecutor locked idle repository {}", repositoryName);
 
@@ -217,11 +291,151 @@ public class GarbageCollectorService implements Runnable {
 				}
 
 				// reset the GC lock
-				releaseLock(repositoryName);
-				logger.debug("GCExecutor released GC lock for {}", repositoryName);
+				if (locked) {
+					releaseLock(repositoryName, GCStatus.COLLECTING);
+					logger.debug("GCExecutor released GC lock for {}", repositoryName);
+				}
 			}
 		}
 
 		running.set(false);
 	}
+
+	/**
+	 * Scans all repositories and queues incremental maintenance of the
+	 * repositories which exceed one of the maintenance thresholds.  The
+	 * maintenance runs on the maintenance threads, the next scan is skipped
+	 * until the last queued repository has been maintained.
+	 */
+	public void runMaintenance() {
+		if (!isMaintenanceEnabled() || !maintaining.compareAndSet(false, true)) {
+			// disabled or the previous maintenance is still running
+			return;
+		}
+
+		boolean queued = false;
+		try {
+			long looseObjects = settings.getInteger(Keys.git.maintenanceLooseObjects, 2000);
+			long packFiles = settings.getInteger(Keys.git.maintenancePackFiles, 20);
+			long looseRefs = settings.getInteger(Keys.git.maintenanceLooseRefs, 500);
+			List<String> uncached = UploadPackStatistics.instance().getRepositoriesWithoutCachedPack();
+
+			final Map<String, Long> fetches = new HashMap<String, Long>();
+			List<String> candidates = new ArrayList<String>();
+			for (String repositoryName : repositoryManager.getRepositoryList()) {
+				if (forceClose.get()) {
+					return;
+				}
+				GCStatus status = gcCache.get(repositoryName.toLowerCase());
+				if (status != null && status.exceeds(GCStatus.READY)) {
+					// already collecting or maintaining
+					continue;
+				}
+				Repository repository = repositoryManager.getRepository(repositoryName);
+				if (!(repository instanceof FileRepository)) {
+					continue;
+				}
+				try {
+					Properties stats = new Git(repository).gc().getStatistics();
+					boolean needsMaintenance = uncached.contains(repositoryName)
+							|| getStatistic(stats, "numberOfLooseObjects") >= looseObjects
+							|| getStatistic(stats, "numberOfPackFiles") >= packFiles
+							|| getStatistic(stats, "numberOfLooseRefs") >= looseRefs;
+					if (needsMaintenance) {
+						candidates.add(repositoryName);
+						fetches.put(repositoryName, RepositoryTraffic.instance().getTraffic(repositoryName).getUploads());
+					}
+				} catch (Exception e) {
+					logger.error("Error reading the statistics of {}", repositoryName, e);
+				} finally {
+					repository.close();
+				}
+			}
+
+			if (candidates.isEmpty()) {
+				return;
+			}
+
+			// maintain the most fetched repositories first
+			Collections.sort(candidates, new Comparator<String>() {
+				@Override
+				public int compare(String o1, String o2) {
+					return fetches.get(o2).compareTo(fetches.get(o1));
+				}
+			});
+			logger.info("Maintaining {} repositories", candidates.size());
+
+			final AtomicInteger pending = new AtomicInteger(candidates.size());
+			for (final String repositoryName : candidates) {
+				maintenanceExecutor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							maintain(repositoryName);
+						} finally {
+							if (pending.decrementAndGet() == 0) {
+								maintaining.set(false);
+							}
+						}
+					}
+				});
+			}
+			queued = true;
+		} catch (Exception e) {
+			logger.error("Repository maintenance failed", e);
+		} finally {
+			if (!queued) {
+				maintaining.set(false);
+			}
+		}
+	}
+
+	/**
+	 * Packs the loose refs, repacks the objects with a fresh bitmap index and
+	 * removes the loose objects which have been packed.  Access to the
+	 * repository is not blocked.
+	 *
+	 * @param repositoryName
+	 * @return true if the repository has been maintained
+	 */
+	public boolean maintain(String repositoryName) {
+		if (forceClose.get()) {
+			return false;
+		}
+		if (!setGCStatus(repositoryName, GCStatus.MAINTAINING)) {
+			logger.debug("Skipping maintenance of {}, garbage collection is running", repositoryName);
+			return false;
+		}
+		Repository repository = null;
+		try {
+			repository = repositoryManager.getRepository(repositoryName);
+			if (!(repository instanceof FileRepository)) {
+				return false;
+			}
+			long start = System.currentTimeMillis();
+			GC gc = new GC((FileRepository) repository);
+			gc.packRefs();
+			gc.repack();
+			gc.prunePacked();
+			UploadPackStatistics.instance().reset(repositoryName);
+			logger.info("Maintained {} in {} ms", repositoryName, System.currentTimeMillis() - start);
+			return true;
+		} catch (Exception e) {
+			logger.error("Error maintaining {}", repositoryName, e);
+			return false;
+		} finally {
+			if (repository != null) {
+				repository.close();
+			}
+			releaseLock(repositoryName, GCStatus.MAINTAINING);
+		}
+	}
+
+	private long getStatistic(Properties stats, String name) {
+		Object value = stats.get(name);
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+		return 0;
+	}
 }
@@ -87,6 +87,8 @@ import com.gitblit.Constants.SearchObjectType;
 import com.gitblit.IStoredSettings;
 import com.gitblit.Keys;
 import com.gitblit.manager.IRepositoryManager;
+import com.gitblit.metrics.Metrics;
+import com.gitblit.metrics.Timer;
 import com.gitblit.models.PathModel.PathChangeModel;
 import com.gitblit.models.RefModel;
 import com.gitblit.models.RepositoryModel;
@@ -122,6 +124,13 @@ public class LuceneService implements Runnable {
 
 	private final Logger logger = LoggerFactory.getLogger(LuceneService.class);
 
+	private final Timer reindexTimer = Metrics.instance().timer("gitblit_lucene_index_seconds",
+			"Duration of Lucene index updates", "mode", "full");
+	private final Timer updateIndexTimer = Metrics.instance().timer("gitblit_lucene_index_seconds",
+			"Duration of Lucene index updates", "mode", "incremental");
+	private final Timer searchTimer = Metrics.instance().timer("gitblit_lucene_search_seconds",
+			"Duration of Lucene searches");
+
 	private final IStoredSettings storedSettings;
 	private final IRepositoryManager repositoryManager;
 	private final File repositoriesFolder;
@@ -196,7 +205,9 @@ public class LuceneService implements Runnable {
 		try {
 			if (shouldReindex(repository)) {
 				// (re)build the entire index
+				long start = System.nanoTime();
 				IndexResult result = reindex(model, repository);
+				reindexTimer.since(start);
 
 				if (result.success) {
 					if (result.commitCount > 0) {
@@ -209,7 +220,9 @@ public class LuceneService implements Runnable {
 				}
 			} else {
 				// update the index with latest commits
+				long start = System.nanoTime();
 				IndexResult result = updateIndex(model, repository);
+				updateIndexTimer.since(start);
 				if (result.success) {
 					if (result.commitCount > 0) {
 						logger.info("Updated {} Lucene index with {} commits and {} files across {} branches in {} secs",
@@ -989,6 +1002,7 @@ public class LuceneService implements Runnable {
 		if (ArrayUtils.isEmpty(repositories)) {
 			return null;
 		}
+		long start = System.nanoTime();
 		Set<SearchResult> results = new LinkedHashSet<SearchResult>();
 		StandardAnalyzer analyzer = new StandardAnalyzer();
 		try {
@@ -1047,6 +1061,8 @@ public class LuceneService implements Runnable {
 			}
 		} catch (Exception e) {
 			logger.error("Exception while searching for {}", text, e);
+		} finally {
+			searchTimer.since(start);
 		}
 		return new ArrayList<SearchResult>(results);
 	}
@@ -24,6 +24,7 @@ import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.RefUpdate.Result;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.StoredConfig;
@@ -40,6 +41,7 @@ import org.slf4j.LoggerFactory;
 
 import com.gitblit.IStoredSettings;
 import com.gitblit.Keys;
+import com.gitblit.fanout.RepositoryAnnouncer;
 import com.gitblit.git.ReceiveCommandEvent;
 import com.gitblit.manager.IRepositoryManager;
 import com.gitblit.models.RepositoryModel;
@@ -175,6 +177,11 @@ public class MirrorService implements Runnable {
 						sb.append(ru.getNewObjectId() == null ? "" : ru.getNewObjectId().abbreviate(7).name());
 						logger.info(sb.toString());
 
+						if (ru.getNewObjectId() != null && !ObjectId.zeroId().equals(ru.getNewObjectId())) {
+							// announce the new tip to the fanout subscribers of the mirror
+							RepositoryAnnouncer.instance().announce(model, ru.getNewObjectId().name());
+						}
+
 						if (BranchTicketService.BRANCH.equals(ru.getLocalName())) {
 							ReceiveCommand.Type type = null;
 							switch (ru.getResult()) {
@@ -16,9 +16,13 @@
 package com.gitblit.servlet;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.lang.reflect.Type;
 import java.text.MessageFormat;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -31,6 +35,7 @@ import org.slf4j.LoggerFactory;
 import com.gitblit.Constants;
 import com.gitblit.utils.JsonUtils;
 import com.gitblit.utils.StringUtils;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * Servlet class for interpreting json requests.
@@ -120,12 +125,52 @@ public abstract class JsonServlet extends HttpServlet {
 	}
 
 	protected void serialize(HttpServletResponse response, Object o) throws IOException {
+		serialize(null, response, o);
+	}
+
+	/**
+	 * Streams the object as JSON to the response.  The response is gzipped
+	 * if the client accepts gzip encoding.
+	 *
+	 * @param request
+	 * @param response
+	 * @param o
+	 * @throws IOException
+	 */
+	protected void serialize(HttpServletRequest request, HttpServletResponse response, Object o) throws IOException {
 		if (o != null) {
 			// Send JSON response
-			String json = JsonUtils.toJsonString(o);
-			response.setCharacterEncoding(Constants.ENCODING);
-			response.setContentType("application/json");
-			response.getWriter().append(json);
+			JsonWriter writer = openJsonWriter(request, response);
+			try {
+				JsonUtils.gson().toJson(o, o.getClass(), writer);
+			} finally {
+				writer.close();
+			}
+		}
+	}
+
+	/**
+	 * Opens a JSON writer on the response for streaming large results.  The
+	 * response is gzipped if the client accepts gzip encoding.  The writer
+	 * must be closed by the caller.
+	 *
+	 * @param request
+	 * @param response
+	 * @return a JSON writer
+	 * @throws IOException
+	 */
+	protected JsonWriter openJsonWriter(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		response.setCharacterEncoding(Constants.ENCODING);
+		response.setContentType("application/json");
+		OutputStream os = response.getOutputStream();
+		if (request != null) {
+			response.addHeader("Vary", "Accept-Encoding");
+			String encoding = request.getHeader("Accept-Encoding");
+			if (encoding != null && encoding.toLowerCase().contains("gzip")) {
+				response.setHeader("Content-Encoding", "gzip");
+				os = new GZIPOutputStream(os);
+			}
 		}
+		return JsonUtils.gson().newJsonWriter(new BufferedWriter(new OutputStreamWriter(os, Constants.ENCODING)));
 	}
 }
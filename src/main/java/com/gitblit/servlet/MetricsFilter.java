@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.servlet;
+
+import java.io.IOException;
+
+import com.google.inject.Singleton;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.gitblit.Constants;
+import com.gitblit.metrics.Counter;
+import com.gitblit.metrics.Metrics;
+import com.gitblit.metrics.Timer;
+
+/**
+ * Records the latency and the response status of every http request by
+ * endpoint: git transfers by service, raw, rpc, zip, feed and the other
+ * servlets, static resources and Wicket pages.
+ *
+ * The metrics of the endpoints are created up front so that recording a
+ * request does not allocate.
+ *
+ * @since 1.10.0
+ */
+@Singleton
+public class MetricsFilter implements Filter {
+
+	private final Endpoint gitUploadPack = new Endpoint("git-upload-pack");
+	private final Endpoint gitReceivePack = new Endpoint("git-receive-pack");
+	private final Endpoint gitInfoRefs = new Endpoint("git-info-refs");
+	private final Endpoint git = new Endpoint("git");
+	private final Endpoint raw = new Endpoint("raw");
+	private final Endpoint rpc = new Endpoint("rpc");
+	private final Endpoint zip = new Endpoint("zip");
+	private final Endpoint feed = new Endpoint("feed");
+	private final Endpoint pages = new Endpoint("pages");
+	private final Endpoint federation = new Endpoint("federation");
+	private final Endpoint graph = new Endpoint("graph");
+	private final Endpoint metrics = new Endpoint("metrics");
+	private final Endpoint resource = new Endpoint("resource");
+	private final Endpoint page = new Endpoint("page");
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		long start = System.nanoTime();
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			HttpServletRequest httpRequest = (HttpServletRequest) request;
+			HttpServletResponse httpResponse = (HttpServletResponse) response;
+			getEndpoint(httpRequest).record(start, httpResponse.getStatus());
+		}
+	}
+
+	@Override
+	public void destroy() {
+	}
+
+	private Endpoint getEndpoint(HttpServletRequest request) {
+		String uri = request.getRequestURI();
+		int offset = request.getContextPath().length();
+		if (uri.startsWith(Constants.R_PATH, offset) || uri.startsWith(Constants.GIT_PATH, offset)) {
+			if (uri.endsWith("/git-upload-pack")) {
+				return gitUploadPack;
+			} else if (uri.endsWith("/git-receive-pack")) {
+				return gitReceivePack;
+			} else if (uri.endsWith("/info/refs")) {
+				return gitInfoRefs;
+			}
+			return git;
+		} else if (uri.startsWith(Constants.RAW_PATH, offset)) {
+			return raw;
+		} else if (uri.startsWith(Constants.RPC_PATH, offset)) {
+			return rpc;
+		} else if (uri.startsWith(Constants.ZIP_PATH, offset)) {
+			return zip;
+		} else if (uri.startsWith(Constants.SYNDICATION_PATH, offset)) {
+			return feed;
+		} else if (uri.startsWith(Constants.PAGES, offset)) {
+			return pages;
+		} else if (uri.startsWith(Constants.FEDERATION_PATH, offset)) {
+			return federation;
+		} else if (uri.startsWith(Constants.BRANCH_GRAPH_PATH, offset)) {
+			return graph;
+		} else if (uri.startsWith(Constants.PROMETHEUS_PATH, offset)) {
+			return metrics;
+		} else if (uri.startsWith("/resources/", offset) || uri.startsWith("/bootstrap/", offset)
+				|| uri.startsWith("/fontawesome/", offset) || uri.startsWith("/octicons/", offset)
+				|| uri.endsWith(".css") || uri.endsWith(".js") || uri.endsWith(".png")
+				|| uri.endsWith(".ico")) {
+			return resource;
+		}
+		return page;
+	}
+
+	private static class Endpoint {
+
+		final Timer latency;
+
+		final Counter [] responses;
+
+		Endpoint(String name) {
+			Metrics metrics = Metrics.instance();
+			this.latency = metrics.timer("gitblit_http_request_seconds",
+					"Latency of http requests", "endpoint", name);
+			this.responses = new Counter[5];
+			for (int i = 0; i < responses.length; i++) {
+				responses[i] = metrics.counter("gitblit_http_responses_total",
+						"Number of http responses by status class", "endpoint", name, "status", (i + 1) + "xx");
+			}
+		}
+
+		void record(long start, int status) {
+			latency.since(start);
+			int statusClass = status / 100 - 1;
+			if (statusClass >= 0 && statusClass < responses.length) {
+				responses[statusClass].inc();
+			}
+		}
+	}
+}
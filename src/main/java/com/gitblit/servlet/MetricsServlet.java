@@ -0,0 +1,80 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.servlet;
+
+import java.io.IOException;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.gitblit.Constants;
+import com.gitblit.IStoredSettings;
+import com.gitblit.Keys;
+import com.gitblit.manager.IAuthenticationManager;
+import com.gitblit.metrics.Metrics;
+import com.gitblit.models.UserModel;
+
+/**
+ * Exports the runtime metrics in the Prometheus text exposition format.
+ *
+ * @since 1.10.0
+ */
+@Singleton
+public class MetricsServlet extends HttpServlet {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private final IStoredSettings settings;
+
+	private final IAuthenticationManager authenticationManager;
+
+	@Inject
+	public MetricsServlet(IStoredSettings settings, IAuthenticationManager authenticationManager) {
+		this.settings = settings;
+		this.authenticationManager = authenticationManager;
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		if (!settings.getBoolean(Keys.web.enableMetricsServlet, true)) {
+			response.sendError(HttpServletResponse.SC_FORBIDDEN);
+			return;
+		}
+		if (settings.getBoolean(Keys.web.metricsRequireAdmin, true)) {
+			UserModel user = authenticationManager.authenticate(request);
+			if (user == null) {
+				response.setHeader("WWW-Authenticate", "Basic realm=\"" + Constants.NAME + "\"");
+				response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+				return;
+			} else if (!user.canAdmin()) {
+				response.sendError(HttpServletResponse.SC_FORBIDDEN);
+				return;
+			}
+		}
+		byte [] content = Metrics.instance().toPrometheus().getBytes("UTF-8");
+		response.setContentType(CONTENT_TYPE);
+		response.setHeader("Cache-Control", "no-cache");
+		response.setContentLength(content.length);
+		response.getOutputStream().write(content);
+	}
+}
@@ -18,6 +18,7 @@ package com.gitblit.servlet;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -37,17 +38,22 @@ import com.gitblit.GitBlitException;
 import com.gitblit.IStoredSettings;
 import com.gitblit.Keys;
 import com.gitblit.manager.IGitblit;
+import com.gitblit.metrics.Metrics;
 import com.gitblit.models.RefModel;
 import com.gitblit.models.RegistrantAccessPermission;
 import com.gitblit.models.RepositoryModel;
 import com.gitblit.models.ServerSettings;
 import com.gitblit.models.TeamModel;
+import com.gitblit.models.TrafficModel;
 import com.gitblit.models.UserModel;
 import com.gitblit.utils.DeepCopier;
 import com.gitblit.utils.HttpUtils;
 import com.gitblit.utils.JGitUtils;
+import com.gitblit.utils.JsonUtils;
 import com.gitblit.utils.RpcUtils;
 import com.gitblit.utils.StringUtils;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * Handles remote procedure calls.
@@ -59,7 +65,7 @@ public class RpcServlet extends JsonServlet {
 
 	private static final long serialVersionUID = 1L;
 
-	public static final int PROTOCOL_VERSION = 8;
+	public static final int PROTOCOL_VERSION = 11;
 
 	private IStoredSettings settings;
 
@@ -71,6 +77,19 @@ public class RpcServlet extends JsonServlet {
 		this.gitblit = gitblit;
 	}
 
+	@Override
+	protected void service(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+			IOException {
+		long start = System.nanoTime();
+		try {
+			super.service(request, response);
+		} finally {
+			RpcRequest reqType = RpcRequest.fromName(request.getParameter("req"));
+			Metrics.instance().timer("gitblit_rpc_request_seconds", "Latency of rpc requests",
+					"request", reqType == null ? "unknown" : reqType.name()).since(start);
+		}
+	}
+
 	/**
 	 * Processes an rpc request.
 	 *
@@ -110,50 +129,94 @@ public class RpcServlet extends JsonServlet {
 			sb.append("{0}");
 			String cloneUrl = sb.toString();
 
-			// list repositories
-			List<RepositoryModel> list = gitblit.getRepositoryModels(user);
-			Map<String, RepositoryModel> repositories = new HashMap<String, RepositoryModel>();
-			for (RepositoryModel model : list) {
-				String url = MessageFormat.format(cloneUrl, model.name);
-				repositories.put(url, model);
-			}
-			result = repositories;
+			// stream the repositories keyed by clone url
+			final Gson gson = JsonUtils.gson();
+			final JsonWriter writer = openJsonWriter(request, response);
+			try {
+				writer.beginObject();
+				forEachRepository(request, user, null, new RepositoryVisitor<RepositoryModel>() {
+					@Override
+					public RepositoryModel read(RepositoryModel model) {
+						return model;
+					}
+
+					@Override
+					public void write(RepositoryModel model, RepositoryModel value) throws IOException {
+						writer.name(MessageFormat.format(cloneUrl, model.name));
+						gson.toJson(model, RepositoryModel.class, writer);
+					}
+				});
+				writer.endObject();
+			} finally {
+				writer.close();
+			}
+			return;
 		} else if (RpcRequest.LIST_BRANCHES.equals(reqType)) {
-			// list all local branches in all repositories accessible to user
-			Map<String, List<String>> localBranches = new HashMap<String, List<String>>();
-			List<RepositoryModel> models = gitblit.getRepositoryModels(user);
-			for (RepositoryModel model : models) {
-				if (!model.hasCommits) {
-					// skip empty repository
-					continue;
-				}
-				if (model.isCollectingGarbage) {
-					// skip garbage collecting repository
-					logger.warn(MessageFormat.format("Temporarily excluding {0} from RPC, busy collecting garbage",
-							model.name));
-					continue;
-				}
-				if(!StringUtils.isEmpty(objectName) && !objectName.equals(model.name)) {
-					// skip repository if a name was submitted and it doesn't match
-					continue;
-				}
-				// get local branches
-				Repository repository = gitblit.getRepository(model.name);
-				List<RefModel> refs = JGitUtils.getLocalBranches(repository, false, -1);
-				if (model.showRemoteBranches) {
-					// add remote branches if repository displays them
-					refs.addAll(JGitUtils.getRemoteBranches(repository, false, -1));
-				}
-				if (refs.size() > 0) {
-					List<String> branches = new ArrayList<String>();
-					for (RefModel ref : refs) {
-						branches.add(ref.getName());
+			// stream the local branches of the repositories accessible to user
+			final JsonWriter writer = openJsonWriter(request, response);
+			try {
+				writer.beginObject();
+				forEachRepository(request, user, objectName, new RepositoryVisitor<List<RefModel>>() {
+					@Override
+					public List<RefModel> read(RepositoryModel model) {
+						if (!model.hasCommits) {
+							// skip empty repository
+							return null;
+						}
+						if (model.isCollectingGarbage) {
+							// skip garbage collecting repository
+							logger.warn(MessageFormat.format("Temporarily excluding {0} from RPC, busy collecting garbage",
+									model.name));
+							return null;
+						}
+						// get local branches
+						Repository repository = gitblit.getRepository(model.name);
+						if (repository == null) {
+							return null;
+						}
+						try {
+							List<RefModel> refs = JGitUtils.getLocalBranches(repository, false, -1);
+							if (model.showRemoteBranches) {
+								// add remote branches if repository displays them
+								refs.addAll(JGitUtils.getRemoteBranches(repository, false, -1));
+							}
+							return refs.isEmpty() ? null : refs;
+						} finally {
+							repository.close();
+						}
+					}
+
+					@Override
+					public void write(RepositoryModel model, List<RefModel> refs) throws IOException {
+						writer.name(model.name);
+						writer.beginArray();
+						for (RefModel ref : refs) {
+							writer.value(ref.getName());
+						}
+						writer.endArray();
 					}
-					localBranches.put(model.name, branches);
+				});
+				writer.endObject();
+			} finally {
+				writer.close();
+			}
+			return;
+		} else if (RpcRequest.LIST_STAR_COUNTS.equals(reqType)) {
+			// star counts of all repositories accessible to user
+			Map<String, Long> starCounts = new HashMap<String, Long>();
+			for (RepositoryModel model : gitblit.getRepositoryModels(user)) {
+				starCounts.put(model.name, gitblit.getStarCount(model));
+			}
+			result = starCounts;
+		} else if (RpcRequest.LIST_REPOSITORY_TRAFFIC.equals(reqType)) {
+			// daily traffic of the specified or all repositories accessible to user
+			Map<String, List<TrafficModel>> traffic = new HashMap<String, List<TrafficModel>>();
+			for (RepositoryModel model : gitblit.getRepositoryModels(user)) {
+				if (StringUtils.isEmpty(objectName) || model.name.equalsIgnoreCase(objectName)) {
+					traffic.put(model.name, gitblit.getTraffic(model));
 				}
-				repository.close();
 			}
-			result = localBranches;
+			result = traffic;
 		} else if (RpcRequest.GET_USER.equals(reqType)) {
 			if (StringUtils.isEmpty(objectName)) {
 				if (UserModel.ANONYMOUS.equals(user)) {
@@ -431,6 +494,89 @@ public class RpcServlet extends JsonServlet {
 		}
 
 		// send the result of the request
-		serialize(response, result);
+		serialize(request, response, result);
+	}
+
+	/**
+	 * Visits the repositories accessible to the user in name order.  The
+	 * optional "filter" request parameter restricts the repositories to those
+	 * whose name contains the filter, ignoring case.  The optional "offset"
+	 * and "limit" request parameters select a page of the matching
+	 * repositories.  Repositories which the visitor does not list do not
+	 * count towards the offset and the limit.
+	 *
+	 * @param request
+	 * @param user
+	 * @param name
+	 *            if not empty only this repository is visited
+	 * @param visitor
+	 * @throws IOException
+	 */
+	private <T> void forEachRepository(HttpServletRequest request, UserModel user, String name,
+			RepositoryVisitor<T> visitor) throws IOException {
+		String filter = request.getParameter("filter");
+		filter = StringUtils.isEmpty(filter) ? null : filter.toLowerCase();
+		int offset = Math.max(0, getIntParameter(request, "offset", 0));
+		int limit = getIntParameter(request, "limit", -1);
+
+		List<String> names;
+		if (StringUtils.isEmpty(name)) {
+			names = gitblit.getRepositoryList();
+		} else {
+			names = Arrays.asList(name);
+		}
+
+		int matches = 0;
+		int visited = 0;
+		for (String repository : names) {
+			if (limit >= 0 && visited >= limit) {
+				break;
+			}
+			if (filter != null && !repository.toLowerCase().contains(filter)) {
+				continue;
+			}
+			RepositoryModel model = gitblit.getRepositoryModel(user, repository);
+			if (model == null) {
+				continue;
+			}
+			if (!model.hasCommits) {
+				// only list empty repositories that user can push to
+				if (!UserModel.ANONYMOUS.canPush(model) && (user == null || !user.canPush(model))) {
+					continue;
+				}
+			}
+			T value = visitor.read(model);
+			if (value == null) {
+				continue;
+			}
+			if (matches++ < offset) {
+				continue;
+			}
+			visitor.write(model, value);
+			visited++;
+		}
+	}
+
+	private int getIntParameter(HttpServletRequest request, String name, int defaultValue) {
+		String value = request.getParameter(name);
+		if (StringUtils.isEmpty(value)) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	private interface RepositoryVisitor<T> {
+
+		/**
+		 * Returns the value to list for the repository or null if the
+		 * repository is not listed.
+		 */
+		T read(RepositoryModel model) throws IOException;
+
+		void write(RepositoryModel model, T value) throws IOException;
 	}
 }
@@ -15,16 +15,25 @@
  */
 package com.gitblit.servlet;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.slf4j.Logger;
@@ -46,6 +55,8 @@ import com.gitblit.utils.HttpUtils;
 import com.gitblit.utils.JGitUtils;
 import com.gitblit.utils.StringUtils;
 import com.gitblit.utils.SyndicationUtils;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
@@ -54,6 +65,10 @@ import com.google.inject.Singleton;
  *
  * Access to this servlet is protected by the SyndicationFilter.
  *
+ * Generated feeds are cached by their entity tag which is derived from the
+ * request parameters and the refs of the repositories.  Conditional requests
+ * for an unchanged feed are answered with 304 Not Modified.
+ *
  * @author James Moger
  *
  */
@@ -70,6 +85,8 @@ public class SyndicationServlet extends HttpServlet {
 
 	private IProjectManager projectManager;
 
+	private transient Cache<String, Feed> feedCache;
+
 	@Inject
 	public SyndicationServlet(
 			IStoredSettings settings,
@@ -79,6 +96,14 @@ public class SyndicationServlet extends HttpServlet {
 		this.settings = settings;
 		this.repositoryManager = repositoryManager;
 		this.projectManager = projectManager;
+
+		int cacheSize = settings.getInteger(Keys.web.syndicationCacheSize, 200);
+		if (cacheSize > 0) {
+			this.feedCache = CacheBuilder.newBuilder()
+					.maximumSize(cacheSize)
+					.expireAfterAccess(1, TimeUnit.HOURS)
+					.build();
+		}
 	}
 
 	/**
@@ -198,10 +223,14 @@ public class SyndicationServlet extends HttpServlet {
 
 		response.setContentType("application/rss+xml; charset=UTF-8");
 
-		boolean isProjectFeed = false;
-		String feedName = "Gitblit";
-		String feedTitle = null;
-		String feedDescription = null;
+		FeedRequest feed = new FeedRequest();
+		feed.objectId = objectId;
+		feed.objectType = objectType;
+		feed.searchString = searchString;
+		feed.searchType = searchType;
+		feed.length = length;
+		feed.offset = offset;
+		feed.feedName = "Gitblit";
 
 		List<String> repositories = null;
 		if (repositoryName.indexOf('/') == -1 && !repositoryName.toLowerCase().endsWith(".git")) {
@@ -212,13 +241,13 @@ public class SyndicationServlet extends HttpServlet {
 			}
 			ProjectModel project = projectManager.getProjectModel(repositoryName, user);
 			if (project != null) {
-				isProjectFeed = true;
+				feed.isProjectFeed = true;
 				repositories = new ArrayList<String>(project.repositories);
 
 				// project feed
-				feedName = project.name;
-				feedTitle = project.title;
-				feedDescription = project.description;
+				feed.feedName = project.name;
+				feed.feedTitle = project.title;
+				feed.feedDescription = project.description;
 			}
 		}
 
@@ -228,34 +257,150 @@ public class SyndicationServlet extends HttpServlet {
 		}
 
 
-		boolean mountParameters = settings.getBoolean(Keys.web.mountParameters, true);
+		feed.mountParameters = settings.getBoolean(Keys.web.mountParameters, true);
 
-		String gitblitUrl = settings.getString(Keys.web.canonicalUrl, null);
-		if (StringUtils.isEmpty(gitblitUrl)) {
-			gitblitUrl = HttpUtils.getGitblitURL(request);
+		feed.gitblitUrl = settings.getString(Keys.web.canonicalUrl, null);
+		if (StringUtils.isEmpty(feed.gitblitUrl)) {
+			feed.gitblitUrl = HttpUtils.getGitblitURL(request);
 		}
-		char fsc = settings.getChar(Keys.web.forwardSlashCharacter, '/');
+		feed.fsc = settings.getChar(Keys.web.forwardSlashCharacter, '/');
 
-		List<FeedEntryModel> entries = new ArrayList<FeedEntryModel>();
+		try {
+			for (String name : repositories) {
+				Repository repository = repositoryManager.getRepository(name);
+				RepositoryModel model = repositoryManager.getRepositoryModel(name);
 
-		for (String name : repositories) {
-			Repository repository = repositoryManager.getRepository(name);
-			RepositoryModel model = repositoryManager.getRepositoryModel(name);
+				if (repository == null) {
+					if (model != null && model.isCollectingGarbage) {
+						logger.warn(MessageFormat.format("Temporarily excluding {0} from feed, busy collecting garbage", name));
+					}
+					continue;
+				}
+				feed.repositories.add(repository);
+				feed.models.add(model);
+				if (!feed.isProjectFeed) {
+					// single-repository feed
+					feed.feedName = model.name;
+					feed.feedTitle = model.name;
+					feed.feedDescription = model.description;
+				}
+			}
 
-			if (repository == null) {
-				if (model != null && model.isCollectingGarbage) {
-					logger.warn(MessageFormat.format("Temporarily excluding {0} from feed, busy collecting garbage", name));
+			String etag = feed.getETag();
+			String ifNoneMatch = request.getHeader("If-None-Match");
+			if (ifNoneMatch != null && matches(ifNoneMatch, etag)) {
+				// the client has the current version, skip generation
+				response.setHeader("ETag", etag);
+				response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				return;
+			}
+
+			final FeedRequest generator = feed;
+			Feed content;
+			if (feedCache == null) {
+				content = new Feed(generateFeed(feed));
+			} else {
+				// concurrent requests for the same feed version wait for
+				// the first request to generate it
+				try {
+					content = feedCache.get(etag, new Callable<Feed>() {
+						@Override
+						public Feed call() throws Exception {
+							return new Feed(generateFeed(generator));
+						}
+					});
+				} catch (ExecutionException e) {
+					// a failed generation is not cached
+					logger.error("An error occurred during feed generation", e.getCause());
+					response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+					return;
 				}
-				continue;
 			}
-			if (!isProjectFeed) {
-				// single-repository feed
-				feedName = model.name;
-				feedTitle = model.name;
-				feedDescription = model.description;
+
+			// only a generated feed may be validated by the client
+			response.setHeader("ETag", etag);
+			response.setDateHeader("Last-Modified", content.lastModified);
+			if (ifNoneMatch == null && isNotModifiedSince(request, content.lastModified)) {
+				response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				return;
+			}
+			response.getOutputStream().write(content.bytes);
+		} catch (Exception e) {
+			logger.error("An error occurred during feed generation", e);
+			if (!response.isCommitted()) {
+				response.reset();
+				response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+			}
+		} finally {
+			for (Repository repository : feed.repositories) {
+				repository.close();
+			}
+		}
+	}
+
+	/**
+	 * Determines if an If-None-Match header matches the entity tag.
+	 *
+	 * @param ifNoneMatch
+	 * @param etag
+	 * @return true if the client has the current version of the feed
+	 */
+	private boolean matches(String ifNoneMatch, String etag) {
+		for (String tag : ifNoneMatch.split(",")) {
+			tag = tag.trim();
+			if (tag.startsWith("W/")) {
+				tag = tag.substring(2);
+			}
+			if (tag.equals(etag) || tag.equals("*")) {
+				return true;
 			}
+		}
+		return false;
+	}
 
-			if (objectType == Constants.FeedObjectType.TAG) {
+	/**
+	 * Determines if the feed has not been modified since the date of the
+	 * If-Modified-Since header.
+	 *
+	 * @param request
+	 * @param lastModified
+	 * @return true if the feed has not been modified
+	 */
+	private boolean isNotModifiedSince(HttpServletRequest request, long lastModified) {
+		long ifModifiedSince;
+		try {
+			ifModifiedSince = request.getDateHeader("If-Modified-Since");
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+		// http dates have a resolution of one second
+		return ifModifiedSince > -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+	}
+
+	/**
+	 * Generates the RSS document of a feed.
+	 *
+	 * @param feed
+	 * @return the RSS document
+	 * @throws Exception
+	 */
+	private byte [] generateFeed(FeedRequest feed) throws Exception {
+		String objectId = feed.objectId;
+		String searchString = feed.searchString;
+		Constants.SearchType searchType = feed.searchType;
+		int length = feed.length;
+		int offset = feed.offset;
+		boolean mountParameters = feed.mountParameters;
+		String gitblitUrl = feed.gitblitUrl;
+		char fsc = feed.fsc;
+
+		List<FeedEntryModel> entries = new ArrayList<FeedEntryModel>();
+
+		for (int i = 0; i < feed.repositories.size(); i++) {
+			Repository repository = feed.repositories.get(i);
+			RepositoryModel model = feed.models.get(i);
+
+			if (feed.objectType == Constants.FeedObjectType.TAG) {
 
 				String urlPattern;
 				if (mountParameters) {
@@ -352,7 +497,8 @@ public class SyndicationServlet extends HttpServlet {
 		}
 
 		String feedLink;
-		if (isProjectFeed) {
+		String feedName = feed.feedName;
+		if (feed.isProjectFeed) {
 			// project feed
 			if (mountParameters) {
 				// mounted url
@@ -376,12 +522,10 @@ public class SyndicationServlet extends HttpServlet {
 			}
 		}
 
-		try {
-			SyndicationUtils.toRSS(gitblitUrl, feedLink, getTitle(feedTitle, objectId),
-					feedDescription, entries, response.getOutputStream());
-		} catch (Exception e) {
-			logger.error("An error occurred during feed generation", e);
-		}
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		SyndicationUtils.toRSS(gitblitUrl, feedLink, getTitle(feed.feedTitle, objectId),
+				feed.feedDescription, entries, os);
+		return os.toByteArray();
 	}
 
 	@Override
@@ -397,4 +541,99 @@ public class SyndicationServlet extends HttpServlet {
 			java.io.IOException {
 		processRequest(request, response);
 	}
+
+	/**
+	 * The parameters and the opened repositories of a feed request.
+	 */
+	private static class FeedRequest {
+
+		final List<Repository> repositories = new ArrayList<Repository>();
+
+		final List<RepositoryModel> models = new ArrayList<RepositoryModel>();
+
+		boolean isProjectFeed;
+
+		String feedName;
+
+		String feedTitle;
+
+		String feedDescription;
+
+		Constants.FeedObjectType objectType;
+
+		String objectId;
+
+		String searchString;
+
+		Constants.SearchType searchType;
+
+		int length;
+
+		int offset;
+
+		boolean mountParameters;
+
+		String gitblitUrl;
+
+		char fsc;
+
+		String etag;
+
+		/**
+		 * Returns the entity tag of the feed.  The tag identifies the request
+		 * parameters and the current tips and metadata of the repositories so
+		 * that the tag changes whenever the feed content may change.
+		 */
+		String getETag() throws IOException {
+			if (etag == null) {
+				StringBuilder sb = new StringBuilder();
+				sb.append(isProjectFeed).append('\n');
+				sb.append(feedName).append('\n');
+				sb.append(feedTitle).append('\n');
+				sb.append(feedDescription).append('\n');
+				sb.append(objectType).append('\n');
+				sb.append(objectId).append('\n');
+				sb.append(searchString).append('\n');
+				sb.append(searchType).append('\n');
+				sb.append(length).append('\n');
+				sb.append(offset).append('\n');
+				sb.append(mountParameters).append('\n');
+				sb.append(gitblitUrl).append('\n');
+				sb.append(fsc).append('\n');
+				for (int i = 0; i < repositories.size(); i++) {
+					RepositoryModel model = models.get(i);
+					sb.append(model.name).append('\n');
+					sb.append(model.description).append('\n');
+					sb.append(model.showRemoteBranches).append('\n');
+					for (Ref ref : repositories.get(i).getRefDatabase().getRefs(RefDatabase.ALL).values()) {
+						sb.append(ref.getName());
+						if (ref.isSymbolic()) {
+							sb.append(" -> ").append(ref.getTarget().getName());
+						}
+						if (ref.getObjectId() != null) {
+							sb.append(' ').append(ref.getObjectId().getName());
+						}
+						sb.append('\n');
+					}
+				}
+				etag = "\"" + StringUtils.getSHA1(sb.toString()) + "\"";
+			}
+			return etag;
+		}
+	}
+
+	/**
+	 * A generated feed.
+	 */
+	private static class Feed {
+
+		final byte [] bytes;
+
+		final long lastModified;
+
+		Feed(byte [] bytes) {
+			this.bytes = bytes;
+			this.lastModified = System.currentTimeMillis();
+		}
+	}
 }
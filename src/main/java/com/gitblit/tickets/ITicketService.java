@@ -42,6 +42,8 @@ import com.gitblit.manager.IPluginManager;
 import com.gitblit.manager.IRepositoryManager;
 import com.gitblit.manager.IRuntimeManager;
 import com.gitblit.manager.IUserManager;
+import com.gitblit.metrics.Metrics;
+import com.gitblit.metrics.Timer;
 import com.gitblit.models.RepositoryModel;
 import com.gitblit.models.TicketModel;
 import com.gitblit.models.TicketModel.Attachment;
@@ -56,6 +58,7 @@ import com.gitblit.utils.DeepCopier;
 import com.gitblit.utils.DiffUtils;
 import com.gitblit.utils.JGitUtils;
 import com.gitblit.utils.DiffUtils.DiffStat;
+import com.gitblit.utils.MarkdownUtils;
 import com.gitblit.utils.StringUtils;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
@@ -83,6 +86,11 @@ public abstract class ITicketService implements IManager {
 
 	private static final String DUE_DATE_PATTERN = "yyyy-MM-dd";
 
+	/**
+	 * Pseudo change id used to cache the rendered ticket description.
+	 */
+	public static final String DESCRIPTION_ID = "description";
+
 	/**
 	 * Object filter interface to querying against all available ticket models.
 	 */
@@ -113,8 +121,16 @@ public abstract class ITicketService implements IManager {
 
 	private final Map<String, List<TicketMilestone>> milestonesCache;
 
+	private final Cache<RenderedKey, RenderedMarkdown> renderedCache;
+
 	private final boolean updateDiffstats;
 
+	private final Timer loadTimer;
+
+	private final Timer commitTimer;
+
+	private final Timer queryTimer;
+
 	private static class TicketKey {
 		final String repository;
 		final long ticketId;
@@ -143,6 +159,51 @@ public abstract class ITicketService implements IManager {
 		}
 	}
 
+	private static class RenderedKey {
+		final String repository;
+		final long ticketId;
+		final String changeId;
+
+		RenderedKey(String repository, long ticketId, String changeId) {
+			this.repository = repository;
+			this.ticketId = ticketId;
+			this.changeId = changeId;
+		}
+
+		@Override
+		public int hashCode() {
+			return (repository + ticketId + changeId).hashCode();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o instanceof RenderedKey) {
+				RenderedKey other = (RenderedKey) o;
+				return ticketId == other.ticketId
+						&& repository.equals(other.repository)
+						&& changeId.equals(other.changeId);
+			}
+			return false;
+		}
+
+		@Override
+		public String toString() {
+			return repository + ":" + ticketId + ":" + changeId;
+		}
+	}
+
+	private static class RenderedMarkdown {
+		final String settingsVersion;
+		final String markdown;
+		final String html;
+
+		RenderedMarkdown(String settingsVersion, String markdown, String html) {
+			this.settingsVersion = settingsVersion;
+			this.markdown = markdown;
+			this.html = html;
+		}
+	}
+
 
 	/**
 	 * Creates a ticket service.
@@ -168,12 +229,36 @@ public abstract class ITicketService implements IManager {
 		this.ticketsCache = cb
 				.maximumSize(1000)
 				.expireAfterAccess(30, TimeUnit.MINUTES)
+				.recordStats()
 				.build();
 
 		this.labelsCache = new ConcurrentHashMap<String, List<TicketLabel>>();
 		this.milestonesCache = new ConcurrentHashMap<String, List<TicketMilestone>>();
 
+		this.renderedCache = CacheBuilder.newBuilder()
+				.maximumSize(settings.getInteger(Keys.tickets.renderedCacheSize, 10000))
+				.expireAfterAccess(30, TimeUnit.MINUTES)
+				.recordStats()
+				.build();
+
 		this.updateDiffstats = settings.getBoolean(SETTING_UPDATE_DIFFSTATS, true);
+
+		Metrics metrics = Metrics.instance();
+		this.loadTimer = metrics.timer("gitblit_ticket_load_seconds", "Duration of loading uncached tickets");
+		this.commitTimer = metrics.timer("gitblit_ticket_commit_seconds", "Duration of committing ticket changes");
+		this.queryTimer = metrics.timer("gitblit_ticket_query_seconds", "Duration of ticket index queries");
+		metrics.registerCache("tickets", new Metrics.CacheSupplier() {
+			@Override
+			public Cache<?, ?> get() {
+				return ticketsCache;
+			}
+		});
+		metrics.registerCache("ticket-markdown", new Metrics.CacheSupplier() {
+			@Override
+			public Cache<?, ?> get() {
+				return renderedCache;
+			}
+		});
 	}
 
 	/**
@@ -208,6 +293,7 @@ public abstract class ITicketService implements IManager {
 	public final ITicketService stop() {
 		indexer.close();
 		ticketsCache.invalidateAll();
+		renderedCache.invalidateAll();
 		repositoryManager.closeAll();
 		close();
 		return this;
@@ -302,6 +388,7 @@ public abstract class ITicketService implements IManager {
 	 */
 	public final synchronized void resetCaches() {
 		ticketsCache.invalidateAll();
+		renderedCache.invalidateAll();
 		labelsCache.clear();
 		milestonesCache.clear();
 		resetCachesImpl();
@@ -325,6 +412,13 @@ public abstract class ITicketService implements IManager {
 			}
 		}
 		ticketsCache.invalidateAll(repoKeys);
+		List<RenderedKey> renderedKeys = new ArrayList<RenderedKey>();
+		for (RenderedKey key : renderedCache.asMap().keySet()) {
+			if (key.repository.equals(repository.name)) {
+				renderedKeys.add(key);
+			}
+		}
+		renderedCache.invalidateAll(renderedKeys);
 		labelsCache.remove(repository.name);
 		milestonesCache.remove(repository.name);
 		resetCachesImpl(repository);
@@ -864,6 +958,7 @@ public abstract class ITicketService implements IManager {
 		// if ticket not cached
 		if (ticket == null) {
 			//load ticket
+			long start = System.nanoTime();
 			ticket = getTicketImpl(repository, ticketId);
 			// if ticket exists
 			if (ticket != null) {
@@ -886,6 +981,7 @@ public abstract class ITicketService implements IManager {
 				//cache ticket
 				ticketsCache.put(key, ticket);
 			}
+			loadTimer.since(start);
 		}
 		return ticket;
 	}
@@ -927,6 +1023,57 @@ public abstract class ITicketService implements IManager {
 	 */
 	protected abstract List<Change> getJournalImpl(RepositoryModel repository, long ticketId);
 
+	/**
+	 * Renders the markdown of a ticket description or comment to html.
+	 * The rendered html is cached per ticket and change id and is reused
+	 * until that change is edited or the markdown settings change.
+	 *
+	 * @param ticket
+	 * @param changeId
+	 *            the comment id or {@link #DESCRIPTION_ID}, may be null
+	 * @param markdown
+	 * @return html
+	 * @since 1.10.0
+	 */
+	public String renderMarkdown(TicketModel ticket, String changeId, String markdown) {
+		String version = getMarkdownSettingsVersion();
+		if (StringUtils.isEmpty(changeId)) {
+			return MarkdownUtils.transformGFM(settings, markdown, ticket.repository);
+		}
+		RenderedKey key = new RenderedKey(ticket.repository, ticket.number, changeId);
+		RenderedMarkdown rendered = renderedCache.getIfPresent(key);
+		if (rendered == null
+				|| !rendered.settingsVersion.equals(version)
+				|| !rendered.markdown.equals(markdown)) {
+			String html = MarkdownUtils.transformGFM(settings, markdown, ticket.repository);
+			rendered = new RenderedMarkdown(version, markdown, html);
+			renderedCache.put(key, rendered);
+		}
+		return rendered.html;
+	}
+
+	/**
+	 * Returns a token identifying the settings which influence GFM rendering.
+	 * A change in any of these settings invalidates all rendered html.
+	 */
+	private String getMarkdownSettingsVersion() {
+		return settings.getString(Keys.web.canonicalUrl, "https://localhost:8443")
+				+ ":" + settings.getInteger(Keys.web.shortCommitIdLength, 6);
+	}
+
+	/**
+	 * Invalidates the rendered html of the change which is edited by the
+	 * specified change.
+	 */
+	private void invalidateRendered(String repository, long ticketId, Change change) {
+		if (change.hasComment() && !StringUtils.isEmpty(change.comment.id)) {
+			renderedCache.invalidate(new RenderedKey(repository, ticketId, change.comment.id));
+		}
+		if (change.hasField(Field.body)) {
+			renderedCache.invalidate(new RenderedKey(repository, ticketId, DESCRIPTION_ID));
+		}
+	}
+
 	/**
 	 * Get the ticket url
 	 *
@@ -1018,7 +1165,9 @@ public abstract class ITicketService implements IManager {
 
 		change.setField(Field.status, Status.New);
 
+		long start = System.nanoTime();
 		boolean success = commitChangeImpl(repository, ticketId, change);
+		commitTimer.since(start);
 		if (success) {
 			TicketModel ticket = getTicket(repository, ticketId);
 			indexer.index(ticket);
@@ -1062,8 +1211,11 @@ public abstract class ITicketService implements IManager {
 		if (ticketId > 0) {
 			TicketKey key = new TicketKey(repository, ticketId);
 			ticketsCache.invalidate(key);
+			invalidateRendered(repository.name, ticketId, change);
 	
+			long start = System.nanoTime();
 			success = commitChangeImpl(repository, ticketId, change);
+			commitTimer.since(start);
 			
 			if (success) {
 				ticket = getTicket(repository, ticketId);
@@ -1220,6 +1372,13 @@ public abstract class ITicketService implements IManager {
 		if (success) {
 			log.info("Deleted {} ticket #{}: {}", repository.name, ticketId, ticket.title);
 			ticketsCache.invalidate(new TicketKey(repository, ticketId));
+			List<RenderedKey> renderedKeys = new ArrayList<RenderedKey>();
+			for (RenderedKey key : renderedCache.asMap().keySet()) {
+				if (key.repository.equals(repository.name) && key.ticketId == ticketId) {
+					renderedKeys.add(key);
+				}
+			}
+			renderedCache.invalidateAll(renderedKeys);
 			indexer.delete(ticket);
 			return true;
 		}
@@ -1340,7 +1499,12 @@ public abstract class ITicketService implements IManager {
 	 * @since 1.4.0
 	 */
 	public List<QueryResult> searchFor(RepositoryModel repository, String text, int page, int pageSize) {
-		return indexer.searchFor(repository, text, page, pageSize);
+		long start = System.nanoTime();
+		try {
+			return indexer.searchFor(repository, text, page, pageSize);
+		} finally {
+			queryTimer.since(start);
+		}
 	}
 
 	/**
@@ -1355,7 +1519,12 @@ public abstract class ITicketService implements IManager {
 	 * @since 1.4.0
 	 */
 	public List<QueryResult> queryFor(String query, int page, int pageSize, String sortBy, boolean descending) {
-		return indexer.queryFor(query, page, pageSize, sortBy, descending);
+		long start = System.nanoTime();
+		try {
+			return indexer.queryFor(query, page, pageSize, sortBy, descending);
+		} finally {
+			queryTimer.since(start);
+		}
 	}
 
 
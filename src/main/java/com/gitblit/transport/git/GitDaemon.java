@@ -47,16 +47,27 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketAddress;
 import java.text.MessageFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jgit.errors.RepositoryNotFoundException;
 import org.eclipse.jgit.internal.JGitText;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.transport.PacketLineOut;
 import org.eclipse.jgit.transport.ReceivePack;
 import org.eclipse.jgit.transport.ServiceMayNotContinueException;
 import org.eclipse.jgit.transport.UploadPack;
@@ -89,8 +100,6 @@ public class GitDaemon {
 	/** 9418: IANA assigned port number for Git. */
 	public static final int DEFAULT_PORT = 9418;
 
-	private static final int BACKLOG = 5;
-
 	private InetSocketAddress myAddress;
 
 	private final GitDaemonService[] services;
@@ -111,6 +120,28 @@ public class GitDaemon {
 
 	private ReceivePackFactory<GitDaemonClient> receivePackFactory;
 
+	private final boolean virtualThreads;
+
+	private final int maxClients;
+
+	private final int maxQueuedClients;
+
+	private final int maxClientsPerAddress;
+
+	private final int backlog;
+
+	private final Map<InetAddress, AtomicInteger> addressClients;
+
+	private final AtomicInteger activeClients;
+
+	private final AtomicInteger queuedClients;
+
+	private final AtomicLong rejectedClients;
+
+	private ExecutorService executor;
+
+	private Semaphore slots;
+
 	public GitDaemon(IGitblit gitblit) {
 
 		IStoredSettings settings = gitblit.getSettings();
@@ -127,6 +158,16 @@ public class GitDaemon {
 		uploadPackFactory = new GitblitUploadPackFactory<GitDaemonClient>(gitblit);
 		receivePackFactory = new GitblitReceivePackFactory<GitDaemonClient>(gitblit);
 
+		virtualThreads = settings.getBoolean(Keys.git.daemonVirtualThreads, true);
+		maxClients = settings.getInteger(Keys.git.daemonMaxClients, 100);
+		maxQueuedClients = Math.max(0, settings.getInteger(Keys.git.daemonMaxQueuedClients, 100));
+		maxClientsPerAddress = settings.getInteger(Keys.git.daemonMaxClientsPerAddress, 10);
+		backlog = Math.max(1, settings.getInteger(Keys.git.daemonBacklog, 50));
+		addressClients = new ConcurrentHashMap<InetAddress, AtomicInteger>();
+		activeClients = new AtomicInteger();
+		queuedClients = new AtomicInteger();
+		rejectedClients = new AtomicLong();
+
 		run = new AtomicBoolean(false);
 		processors = new ThreadGroup("Git-Daemon");
 		services = new GitDaemonService[] { new GitDaemonService("upload-pack", "uploadpack") {
@@ -176,6 +217,26 @@ public class GitDaemon {
 		}
 	}
 
+	/** @return the number of clients being served. */
+	public int getActiveClients() {
+		return activeClients.get();
+	}
+
+	/** @return the number of accepted clients waiting for a free slot. */
+	public int getQueuedClients() {
+		return queuedClients.get();
+	}
+
+	/** @return the number of clients refused since the daemon was started. */
+	public long getRejectedClients() {
+		return rejectedClients.get();
+	}
+
+	/** @return the maximum number of concurrent clients, <= 0 if unlimited. */
+	public int getMaxClients() {
+		return maxClients;
+	}
+
 	/** @return timeout (in seconds) before aborting an IO operation. */
 	public int getTimeout() {
 		return timeout;
@@ -206,9 +267,28 @@ public class GitDaemon {
 			throw new IllegalStateException(JGitText.get().daemonAlreadyRunning);
 
 		final ServerSocket listenSock = new ServerSocket(myAddress != null ? myAddress.getPort()
-				: 0, BACKLOG, myAddress != null ? myAddress.getAddress() : null);
+				: 0, backlog, myAddress != null ? myAddress.getAddress() : null);
 		myAddress = (InetSocketAddress) listenSock.getLocalSocketAddress();
 
+		slots = maxClients > 0 ? new Semaphore(maxClients) : null;
+		if (virtualThreads) {
+			executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("Git-Daemon-Client-", 1).factory());
+		} else {
+			ThreadFactory factory = new ThreadFactory() {
+				private final AtomicInteger counter = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable r) {
+					return new Thread(processors, r, "Git-Daemon-Client-" + counter.incrementAndGet());
+				}
+			};
+			if (maxClients > 0) {
+				executor = Executors.newFixedThreadPool(maxClients, factory);
+			} else {
+				executor = Executors.newCachedThreadPool(factory);
+			}
+		}
+
 		run.set(true);
 		acceptSocket = listenSock;
 		acceptThread = new Thread(processors, "Git-Daemon-Accept") {
@@ -237,6 +317,8 @@ public class GitDaemon {
 		acceptThread.start();
 
 		logger.info(MessageFormat.format("Git Daemon is listening on {0}:{1,number,0}", myAddress.getAddress().getHostAddress(), myAddress.getPort()));
+		logger.info(MessageFormat.format("Git Daemon serves {0} clients on {1} threads",
+				maxClients > 0 ? String.valueOf(maxClients) : "unlimited", virtualThreads ? "virtual" : "platform"));
 	}
 
 	/** @return true if this daemon is receiving connections. */
@@ -264,6 +346,9 @@ public class GitDaemon {
 			} finally {
 				acceptThread = null;
 			}
+			// running clients are allowed to complete
+			executor.shutdown();
+			executor = null;
 		}
 	}
 
@@ -271,34 +356,137 @@ public class GitDaemon {
 		final GitDaemonClient dc = new GitDaemonClient(this);
 
 		final SocketAddress peer = s.getRemoteSocketAddress();
-		if (peer instanceof InetSocketAddress)
-			dc.setRemoteAddress(((InetSocketAddress) peer).getAddress());
+		final InetAddress address;
+		if (peer instanceof InetSocketAddress) {
+			address = ((InetSocketAddress) peer).getAddress();
+			dc.setRemoteAddress(address);
+		} else {
+			address = null;
+		}
 
-		new Thread(processors, "Git-Daemon-Client " + peer.toString()) {
-			@Override
-			public void run() {
-				try {
-					dc.execute(s);
-				} catch (ServiceNotEnabledException e) {
-					// Ignored. Client cannot use this repository.
-				} catch (ServiceNotAuthorizedException e) {
-					// Ignored. Client cannot use this repository.
-				} catch (IOException e) {
-					// Ignore unexpected IO exceptions from clients
-				} finally {
-					try {
-						s.getInputStream().close();
-					} catch (IOException e) {
-						// Ignore close exceptions
-					}
-					try {
-						s.getOutputStream().close();
-					} catch (IOException e) {
-						// Ignore close exceptions
-					}
+		if (slots != null && slots.availablePermits() == 0 && queuedClients.get() >= maxQueuedClients) {
+			reject(s, "too many clients, please try again later");
+			return;
+		}
+		if (!acquireAddress(address)) {
+			reject(s, "too many connections from " + address.getHostAddress());
+			return;
+		}
+
+		queuedClients.incrementAndGet();
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					serveClient(dc, s, address);
 				}
+			});
+		} catch (RejectedExecutionException e) {
+			// daemon is stopping
+			queuedClients.decrementAndGet();
+			releaseAddress(address);
+			close(s);
+		}
+	}
+
+	private void serveClient(GitDaemonClient dc, Socket s, InetAddress address) {
+		boolean queued = true;
+		boolean slot = false;
+		try {
+			if (slots != null) {
+				slots.acquire();
+				slot = true;
+			}
+			queued = false;
+			queuedClients.decrementAndGet();
+			activeClients.incrementAndGet();
+			try {
+				dc.execute(s);
+			} finally {
+				activeClients.decrementAndGet();
+			}
+		} catch (InterruptedException e) {
+			// Ignored. Daemon is stopping.
+		} catch (ServiceNotEnabledException e) {
+			// Ignored. Client cannot use this repository.
+		} catch (ServiceNotAuthorizedException e) {
+			// Ignored. Client cannot use this repository.
+		} catch (IOException e) {
+			// Ignore unexpected IO exceptions from clients
+		} finally {
+			if (queued) {
+				queuedClients.decrementAndGet();
+			}
+			if (slot) {
+				slots.release();
+			}
+			releaseAddress(address);
+			close(s);
+		}
+	}
+
+	private boolean acquireAddress(InetAddress address) {
+		if (maxClientsPerAddress <= 0 || address == null) {
+			return true;
+		}
+		AtomicInteger count = addressClients.get(address);
+		if (count == null) {
+			AtomicInteger newCount = new AtomicInteger();
+			count = addressClients.putIfAbsent(address, newCount);
+			if (count == null) {
+				count = newCount;
 			}
-		}.start();
+		}
+		if (count.incrementAndGet() > maxClientsPerAddress) {
+			count.decrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	private void releaseAddress(InetAddress address) {
+		if (maxClientsPerAddress <= 0 || address == null) {
+			return;
+		}
+		AtomicInteger count = addressClients.get(address);
+		if (count != null && count.decrementAndGet() <= 0) {
+			addressClients.remove(address, count);
+		}
+	}
+
+	/**
+	 * Refuses a client with an error which the git client displays.
+	 */
+	private void reject(Socket s, String message) {
+		rejectedClients.incrementAndGet();
+		logger.warn(MessageFormat.format("Git Daemon refused {0}: {1}", s.getRemoteSocketAddress(), message));
+		try {
+			PacketLineOut pckOut = new PacketLineOut(s.getOutputStream());
+			pckOut.writeString("ERR " + message + "\n");
+			pckOut.flush();
+		} catch (IOException e) {
+			// Ignore unexpected IO exceptions from clients
+		} finally {
+			close(s);
+		}
+	}
+
+	private void close(Socket s) {
+		try {
+			s.getInputStream().close();
+		} catch (IOException e) {
+			// Ignore close exceptions
+		}
+		try {
+			s.getOutputStream().close();
+		} catch (IOException e) {
+			// Ignore close exceptions
+		}
+		try {
+			s.close();
+		} catch (IOException e) {
+			// Ignore close exceptions
+		}
 	}
 
 	synchronized GitDaemonService matchService(final String cmd) {
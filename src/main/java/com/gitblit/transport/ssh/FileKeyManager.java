@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import com.gitblit.Constants.AccessPermission;
 import com.gitblit.Keys;
@@ -57,6 +58,7 @@ public class FileKeyManager extends IPublicKeyManager {
 
 	@Override
 	public FileKeyManager start() {
+		keyIndexTtl = TimeUnit.SECONDS.toMillis(runtimeManager.getSettings().getInteger(Keys.git.sshKeysCacheSeconds, 30));
 		log.info(toString());
 		return this;
 	}
@@ -181,7 +183,7 @@ public class FileKeyManager extends IPublicKeyManager {
 			Files.write(content, keystore, Charsets.ISO_8859_1);
 
 			lastModifieds.remove(keystore);
-			keyCache.invalidate(username);
+			invalidate(username);
 			return true;
 		} catch (IOException e) {
 			throw new RuntimeException("Cannot add ssh key", e);
@@ -225,7 +227,7 @@ public class FileKeyManager extends IPublicKeyManager {
 				}
 
 				lastModifieds.remove(keystore);
-				keyCache.invalidate(username);
+				invalidate(username);
 				return true;
 			}
 		} catch (IOException e) {
@@ -239,7 +241,7 @@ public class FileKeyManager extends IPublicKeyManager {
 		File keystore = getKeystore(username);
 		if (keystore.delete()) {
 			lastModifieds.remove(keystore);
-			keyCache.invalidate(username);
+			invalidate(username);
 			return true;
 		}
 		return false;
@@ -15,12 +15,17 @@
  */
 package com.gitblit.transport.ssh;
 
+import java.security.PublicKey;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.sshd.common.config.keys.KeyUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,6 +61,27 @@ public abstract class IPublicKeyManager implements IManager {
 				}
 			});
 
+	/**
+	 * Index of the parsed keys by fingerprint and username.  SSH
+	 * authentication resolves the supplied key through this index rather
+	 * than reloading and comparing all keys of a user.
+	 */
+	private final Map<String, Map<String, SshKey>> keyIndex = new ConcurrentHashMap<String, Map<String, SshKey>>();
+
+	/**
+	 * The fingerprints and index time of each indexed user.
+	 */
+	private final Map<String, IndexedUser> indexedUsers = new ConcurrentHashMap<String, IndexedUser>();
+
+	/**
+	 * How long indexed keys are trusted before the key store is consulted
+	 * again for external changes.  Changes made through this manager
+	 * invalidate the index immediately.
+	 */
+	protected volatile long keyIndexTtl = TimeUnit.SECONDS.toMillis(30);
+
+	private long invalidations;
+
 	@Override
 	public abstract IPublicKeyManager start();
 
@@ -80,6 +106,105 @@ public abstract class IPublicKeyManager implements IManager {
 		return null;
 	}
 
+	/**
+	 * Returns the key of the user which matches the supplied public key.
+	 *
+	 * @param username
+	 * @param publicKey
+	 * @return the registered key or null if the user has not registered the key
+	 */
+	public final SshKey getKey(String username, PublicKey publicKey) {
+		String fingerprint = KeyUtils.getFingerPrint(publicKey);
+		IndexedUser indexed = indexedUsers.get(username);
+		if (indexed == null || System.currentTimeMillis() - indexed.time > keyIndexTtl) {
+			long stamp;
+			synchronized (indexedUsers) {
+				stamp = invalidations;
+			}
+			List<SshKey> keys = getKeys(username);
+			indexKeys(username, keys, stamp);
+			if (keys == null) {
+				return null;
+			}
+			for (SshKey key : keys) {
+				if (key.getPublicKey().equals(publicKey)) {
+					return key;
+				}
+			}
+			return null;
+		}
+
+		Map<String, SshKey> owners = keyIndex.get(fingerprint);
+		SshKey key = owners == null ? null : owners.get(username);
+		if (key != null && key.getPublicKey().equals(publicKey)) {
+			return key;
+		}
+		return null;
+	}
+
+	/**
+	 * Replaces the indexed keys of the user, unless the user was invalidated
+	 * while the keys were loaded.
+	 */
+	private void indexKeys(String username, List<SshKey> keys, long stamp) {
+		synchronized (indexedUsers) {
+			if (stamp != invalidations) {
+				return;
+			}
+			unindex(username);
+			List<String> fingerprints = new ArrayList<String>();
+			if (keys != null) {
+				for (SshKey key : keys) {
+					String fingerprint;
+					try {
+						fingerprint = KeyUtils.getFingerPrint(key.getPublicKey());
+					} catch (RuntimeException e) {
+						log.warn(MessageFormat.format("failed to parse ssh key of {0}", username), e);
+						continue;
+					}
+					Map<String, SshKey> owners = keyIndex.get(fingerprint);
+					if (owners == null) {
+						owners = new ConcurrentHashMap<String, SshKey>();
+						keyIndex.put(fingerprint, owners);
+					}
+					owners.put(username, key);
+					fingerprints.add(fingerprint);
+				}
+			}
+			indexedUsers.put(username, new IndexedUser(fingerprints));
+		}
+	}
+
+	private void unindex(String username) {
+		IndexedUser indexed = indexedUsers.remove(username);
+		if (indexed == null) {
+			return;
+		}
+		for (String fingerprint : indexed.fingerprints) {
+			Map<String, SshKey> owners = keyIndex.get(fingerprint);
+			if (owners != null) {
+				owners.remove(username);
+				if (owners.isEmpty()) {
+					keyIndex.remove(fingerprint);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Discards the cached and indexed keys of the user.  Implementations
+	 * call this after changing the keys of a user.
+	 *
+	 * @param username
+	 */
+	protected void invalidate(String username) {
+		synchronized (indexedUsers) {
+			invalidations++;
+			keyCache.invalidate(username);
+			unindex(username);
+		}
+	}
+
 	public final void renameUser(String oldName, String newName) {
 		List<SshKey> keys = getKeys(oldName);
 		if (keys == null || keys.isEmpty()) {
@@ -112,4 +237,16 @@ public abstract class IPublicKeyManager implements IManager {
 	public boolean supportsPermissionChanges(UserModel user) {
 		return (user != null);
 	}
+
+	private static class IndexedUser {
+
+		final long time;
+
+		final List<String> fingerprints;
+
+		IndexedUser(List<String> fingerprints) {
+			this.time = System.currentTimeMillis();
+			this.fingerprints = fingerprints;
+		}
+	}
 }
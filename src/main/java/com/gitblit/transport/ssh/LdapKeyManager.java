@@ -23,6 +23,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -34,6 +35,7 @@ import com.gitblit.IStoredSettings;
 import com.gitblit.Keys;
 import com.gitblit.Constants.AccessPermission;
 import com.gitblit.ldap.LdapConnection;
+import com.gitblit.ldap.LdapConnectionPool;
 import com.gitblit.models.UserModel;
 import com.gitblit.utils.StringUtils;
 import com.google.common.base.Joiner;
@@ -114,6 +116,7 @@ public class LdapKeyManager extends IPublicKeyManager {
 
 	@Override
 	public LdapKeyManager start() {
+		keyIndexTtl = TimeUnit.SECONDS.toMillis(settings.getInteger(Keys.git.sshKeysCacheSeconds, 30));
 		log.info(toString());
 		return this;
 	}
@@ -136,7 +139,7 @@ public class LdapKeyManager extends IPublicKeyManager {
 
 	@Override
 	protected List<SshKey> getKeysImpl(String username) {
-		try (LdapConnection conn = new LdapConnection(settings)) {
+		try (LdapConnection conn = new LdapConnection(settings, LdapConnectionPool.get(settings))) {
 			if (conn.connect()) {
 				log.info("loading ssh key for {} from LDAP directory", username);
 
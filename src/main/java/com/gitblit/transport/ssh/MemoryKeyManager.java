@@ -80,7 +80,9 @@ public class MemoryKeyManager extends IPublicKeyManager {
 			keys.put(id, new ArrayList<SshKey>());
 		}
 		log.info("added {} key {}", username, key.getFingerprint());
-		return keys.get(id).add(key);
+		boolean success = keys.get(id).add(key);
+		invalidate(id);
+		return success;
 	}
 
 	@Override
@@ -100,6 +102,7 @@ public class MemoryKeyManager extends IPublicKeyManager {
 			keys.remove(id);
 			log.info("no {} keys left, removed {}", username, username);
 		}
+		invalidate(id);
 		return success;
 	}
 
@@ -107,6 +110,7 @@ public class MemoryKeyManager extends IPublicKeyManager {
 	public boolean removeAllKeys(String username) {
 		String id = username.toLowerCase();
 		keys.remove(id.toLowerCase());
+		invalidate(id);
 		log.info("removed all keys for {}", username);
 		return true;
 	}
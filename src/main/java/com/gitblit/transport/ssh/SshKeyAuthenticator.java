@@ -16,7 +16,6 @@
 package com.gitblit.transport.ssh;
 
 import java.security.PublicKey;
-import java.util.List;
 import java.util.Locale;
 
 import org.apache.sshd.server.auth.pubkey.PublickeyAuthenticator;
@@ -50,24 +49,14 @@ public class SshKeyAuthenticator implements PublickeyAuthenticator {
 		SshDaemonClient client = session.getAttribute(SshDaemonClient.KEY);
 		Preconditions.checkState(client.getUser() == null);
 		username = username.toLowerCase(Locale.US);
-		List<SshKey> keys = keyManager.getKeys(username);
-		if (keys.isEmpty()) {
-			log.info("{} has not added any public keys for ssh authentication", username);
-			return false;
-		}
-
-		SshKey pk = new SshKey(suppliedKey);
-		log.debug("auth supplied {}", pk.getFingerprint());
-
-		for (SshKey key : keys) {
-			log.debug("auth compare to {}", key.getFingerprint());
-			if (key.getPublicKey().equals(suppliedKey)) {
-				UserModel user = authManager.authenticate(username, key);
-				if (user != null) {
-					client.setUser(user);
-					client.setKey(key);
-					return true;
-				}
+		SshKey key = keyManager.getKey(username, suppliedKey);
+		if (key != null) {
+			log.debug("auth matched {}", key.getFingerprint());
+			UserModel user = authManager.authenticate(username, key);
+			if (user != null) {
+				client.setUser(user);
+				client.setKey(key);
+				return true;
 			}
 		}
 
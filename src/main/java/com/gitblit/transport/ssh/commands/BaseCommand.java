@@ -40,6 +40,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.gitblit.Keys;
+import com.gitblit.transport.ssh.commands.SshCommandScheduler.Pool;
 import com.gitblit.utils.StringUtils;
 import com.gitblit.utils.WorkQueue;
 import com.gitblit.utils.WorkQueue.CancelableRunnable;
@@ -83,6 +84,8 @@ public abstract class BaseCommand implements Command, SessionAware {
 
 	private WorkQueue workQueue;
 
+	private SshCommandScheduler scheduler;
+
 	public BaseCommand() {
 		task = Atomics.newReference();
 	}
@@ -113,6 +116,7 @@ public abstract class BaseCommand implements Command, SessionAware {
 	protected void provideStateTo(final BaseCommand cmd) {
 		cmd.setContext(ctx);
 		cmd.setWorkQueue(workQueue);
+		cmd.setScheduler(scheduler);
 		cmd.setInputStream(in);
 		cmd.setOutputStream(out);
 		cmd.setErrorStream(err);
@@ -127,6 +131,14 @@ public abstract class BaseCommand implements Command, SessionAware {
 		this.workQueue = workQueue;
 	}
 
+	public SshCommandScheduler getScheduler() {
+		return scheduler;
+	}
+
+	public void setScheduler(SshCommandScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
 	public void setContext(SshCommandContext ctx) {
 		this.ctx = ctx;
 	}
@@ -478,7 +490,13 @@ public abstract class BaseCommand implements Command, SessionAware {
 	 */
 	protected void startThread(final CommandRunnable thunk) {
 		final TaskThunk tt = new TaskThunk(thunk);
-		task.set(workQueue.getDefaultQueue().submit(tt));
+		if (scheduler == null) {
+			task.set(workQueue.getDefaultQueue().submit(tt));
+		} else {
+			// git transfers are scheduled apart from interactive commands
+			Pool pool = thunk instanceof RepositoryCommandRunnable ? Pool.GIT : Pool.INTERACTIVE;
+			task.set(scheduler.submit(ctx.getClient().getUsername(), pool, tt));
+		}
 	}
 
 	/** Thrown from {@link CommandRunnable#run()} with client message and code. */
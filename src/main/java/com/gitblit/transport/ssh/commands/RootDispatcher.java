@@ -38,12 +38,15 @@ class RootDispatcher extends DispatchCommand {
 
 	private Logger log = LoggerFactory.getLogger(getClass());
 
-	public RootDispatcher(IGitblit gitblit, SshDaemonClient client, String cmdLine, WorkQueue workQueue) {
+	public RootDispatcher(IGitblit gitblit, SshDaemonClient client, String cmdLine, WorkQueue workQueue,
+			SshCommandScheduler scheduler) {
 		super();
 		setContext(new SshCommandContext(gitblit, client, cmdLine));
 		setWorkQueue(workQueue);
+		setScheduler(scheduler);
 
 		register(VersionCommand.class);
+		register(ShowQueueCommand.class);
 		register(GitDispatcher.class);
 		register(KeysDispatcher.class);
 		register(PluginDispatcher.class);
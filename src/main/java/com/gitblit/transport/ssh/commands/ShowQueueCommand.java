@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.transport.ssh.commands;
+
+import java.util.List;
+
+import com.gitblit.transport.ssh.commands.SshCommandScheduler.Pool;
+import com.gitblit.transport.ssh.commands.SshCommandScheduler.TaskInfo;
+import com.gitblit.utils.DurationHistogram;
+import com.gitblit.utils.FlipTable;
+import com.gitblit.utils.FlipTable.Borders;
+
+/**
+ * Displays the running and waiting SSH commands and the wait and run time
+ * histograms of the command pools.
+ *
+ * @since 1.10.0
+ */
+@CommandMetaData(name = "show-queue", aliases = { "ps" }, description = "Display the SSH command queue", admin = true)
+public class ShowQueueCommand extends ListCommand<TaskInfo> {
+
+	@Override
+	protected List<TaskInfo> getItems() throws UnloggedFailure {
+		SshCommandScheduler scheduler = getScheduler();
+		if (scheduler == null) {
+			throw new UnloggedFailure(1, "The SSH command scheduler is not available");
+		}
+		return scheduler.getTasks();
+	}
+
+	@Override
+	protected void asTable(List<TaskInfo> list) {
+		String [] headers = { "Pool", "State", "User", "Waited", "Running", "Command" };
+		Object[][] data = new Object[list.size()][];
+		for (int i = 0; i < list.size(); i++) {
+			TaskInfo t = list.get(i);
+			data[i] = new Object[] { t.pool, t.state, t.username, formatMillis(t.waitMillis),
+					formatMillis(t.runMillis), t.command };
+		}
+		stdout.println(FlipTable.of(headers, data, Borders.BODY_HCOLS));
+
+		if (verbose) {
+			String [] labels = getScheduler().getRunTimes(Pool.GIT).getLabels();
+			String [] h = new String[labels.length + 4];
+			h[0] = "Pool";
+			h[1] = "Histogram";
+			h[2] = "Count";
+			h[3] = "Avg";
+			System.arraycopy(labels, 0, h, 4, labels.length);
+			Pool [] pools = Pool.values();
+			Object[][] histograms = new Object[pools.length * 2][];
+			for (int i = 0; i < pools.length; i++) {
+				histograms[i * 2] = histogramRow(pools[i], "wait", getScheduler().getWaitTimes(pools[i]));
+				histograms[i * 2 + 1] = histogramRow(pools[i], "run", getScheduler().getRunTimes(pools[i]));
+			}
+			stdout.println(FlipTable.of(h, histograms, Borders.BODY_HCOLS));
+		}
+	}
+
+	@Override
+	protected void asTabbed(List<TaskInfo> list) {
+		for (TaskInfo t : list) {
+			outTabbed(t.pool, t.state, t.username, t.waitMillis, t.runMillis, t.command);
+		}
+	}
+
+	private Object [] histogramRow(Pool pool, String name, DurationHistogram histogram) {
+		long [] buckets = histogram.getBuckets();
+		Object [] row = new Object[buckets.length + 4];
+		row[0] = pool;
+		row[1] = name;
+		row[2] = histogram.getCount();
+		row[3] = formatMillis(histogram.getAverageMillis());
+		for (int i = 0; i < buckets.length; i++) {
+			row[i + 4] = buckets[i];
+		}
+		return row;
+	}
+
+	private String formatMillis(long millis) {
+		if (millis < 1000) {
+			return millis + "ms";
+		} else if (millis < 60000) {
+			return String.format("%.1fs", millis / 1000d);
+		}
+		return String.format("%dm%02ds", millis / 60000, (millis / 1000) % 60);
+	}
+}
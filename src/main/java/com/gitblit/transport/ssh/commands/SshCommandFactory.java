@@ -48,6 +48,7 @@ public class SshCommandFactory implements CommandFactory {
 	private static final Logger logger = LoggerFactory.getLogger(SshCommandFactory.class);
 
 	private final WorkQueue workQueue;
+	private final SshCommandScheduler scheduler;
 	private final IGitblit gitblit;
 	private final ScheduledExecutorService startExecutor;
 	private final ExecutorService destroyExecutor;
@@ -58,6 +59,7 @@ public class SshCommandFactory implements CommandFactory {
 
 		int threads = gitblit.getSettings().getInteger(Keys.git.sshCommandStartThreads, 2);
 		startExecutor = workQueue.createQueue(threads, "SshCommandStart");
+		scheduler = new SshCommandScheduler(gitblit.getSettings());
 		destroyExecutor = Executors.newSingleThreadExecutor(
 				new ThreadFactoryBuilder()
 					.setNameFormat("SshCommandDestroy-%s")
@@ -67,10 +69,11 @@ public class SshCommandFactory implements CommandFactory {
 
 	public void stop() {
 		destroyExecutor.shutdownNow();
+		scheduler.stop();
 	}
 
 	public RootDispatcher createRootDispatcher(SshDaemonClient client, String commandLine) {
-		return new RootDispatcher(gitblit, client, commandLine, workQueue);
+		return new RootDispatcher(gitblit, client, commandLine, workQueue, scheduler);
 	}
 
 	@Override
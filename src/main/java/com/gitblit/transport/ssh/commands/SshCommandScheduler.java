@@ -0,0 +1,391 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.transport.ssh.commands;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gitblit.IStoredSettings;
+import com.gitblit.Keys;
+import com.gitblit.metrics.Metrics;
+import com.gitblit.utils.DurationHistogram;
+import com.gitblit.utils.WorkQueue.CancelableRunnable;
+
+/**
+ * Schedules SSH commands on two pools: one for interactive commands and one
+ * for git transfers, so that long-running clones and pushes can not starve
+ * short administrative commands.
+ *
+ * Each pool limits the number of commands a user may run concurrently.  The
+ * waiting commands of all users are started round-robin so that one user
+ * can not monopolize a pool.
+ *
+ * @since 1.10.0
+ */
+public class SshCommandScheduler {
+
+	/**
+	 * The pools of the scheduler.
+	 */
+	public static enum Pool {
+		INTERACTIVE, GIT
+	}
+
+	/**
+	 * The state of a command.
+	 */
+	public static enum State {
+		RUNNING, WAITING
+	}
+
+	private static final Logger log = LoggerFactory.getLogger(SshCommandScheduler.class);
+
+	private final Lanes interactive;
+
+	private final Lanes git;
+
+	public SshCommandScheduler(IStoredSettings settings) {
+		boolean virtualThreads = settings.getBoolean(Keys.git.sshVirtualThreads, false);
+		int perUser = settings.getInteger(Keys.git.sshCommandsPerUser, 2);
+		this.interactive = new Lanes(Pool.INTERACTIVE, "SshCommand",
+				Math.max(1, settings.getInteger(Keys.git.sshInteractiveThreads, 2)), perUser, virtualThreads);
+		this.git = new Lanes(Pool.GIT, "SshGitCommand",
+				Math.max(1, settings.getInteger(Keys.git.sshGitThreads, 4)), perUser, virtualThreads);
+		log.info("SSH command scheduler: {} interactive and {} git threads, {} commands per user{}",
+				interactive.threads, git.threads, perUser > 0 ? perUser : "unlimited",
+				virtualThreads ? ", virtual threads" : "");
+
+		Metrics metrics = Metrics.instance();
+		for (Lanes lanes : new Lanes [] { interactive, git }) {
+			String pool = lanes.pool.name().toLowerCase();
+			metrics.register(lanes.waitTimes, "gitblit_ssh_command_wait_seconds",
+					"Time SSH commands waited for a thread", "pool", pool);
+			metrics.register(lanes.runTimes, "gitblit_ssh_command_run_seconds",
+					"Execution time of SSH commands", "pool", pool);
+		}
+	}
+
+	/**
+	 * Submits a command for execution.
+	 *
+	 * @param username
+	 *            the user executing the command
+	 * @param pool
+	 *            the pool to execute the command on
+	 * @param command
+	 *            the command, notified if it is cancelled before it runs
+	 * @return the future of the command
+	 */
+	public Future<?> submit(String username, Pool pool, CancelableRunnable command) {
+		Lanes lanes = Pool.GIT == pool ? git : interactive;
+		Job job = new Job(lanes, username == null ? "" : username, command);
+		lanes.enqueue(job);
+		return job;
+	}
+
+	/**
+	 * Returns the running and waiting commands of all pools.
+	 *
+	 * @return the commands
+	 */
+	public List<TaskInfo> getTasks() {
+		List<TaskInfo> list = new ArrayList<TaskInfo>();
+		interactive.addTasks(list);
+		git.addTasks(list);
+		return list;
+	}
+
+	/**
+	 * Returns the histogram of the time commands waited for a thread.
+	 *
+	 * @param pool
+	 * @return the wait time histogram
+	 */
+	public DurationHistogram getWaitTimes(Pool pool) {
+		return Pool.GIT == pool ? git.waitTimes : interactive.waitTimes;
+	}
+
+	/**
+	 * Returns the histogram of the execution time of commands.
+	 *
+	 * @param pool
+	 * @return the run time histogram
+	 */
+	public DurationHistogram getRunTimes(Pool pool) {
+		return Pool.GIT == pool ? git.runTimes : interactive.runTimes;
+	}
+
+	public void stop() {
+		interactive.stop();
+		git.stop();
+	}
+
+	/**
+	 * A snapshot of a scheduled command.
+	 */
+	public static class TaskInfo {
+
+		public Pool pool;
+
+		public State state;
+
+		public String username;
+
+		public String command;
+
+		public long waitMillis;
+
+		public long runMillis;
+	}
+
+	/**
+	 * The per-user lanes of one pool.
+	 */
+	private static class Lanes {
+
+		final Pool pool;
+
+		final int threads;
+
+		final int perUser;
+
+		final ExecutorService executor;
+
+		final DurationHistogram waitTimes = new DurationHistogram();
+
+		final DurationHistogram runTimes = new DurationHistogram();
+
+		// waiting jobs by user, users are served round-robin
+		final Map<String, ArrayDeque<Job>> waiting = new HashMap<String, ArrayDeque<Job>>();
+
+		final ArrayDeque<String> ring = new ArrayDeque<String>();
+
+		final Map<String, Integer> runningByUser = new HashMap<String, Integer>();
+
+		final Set<Job> running = new LinkedHashSet<Job>();
+
+		Lanes(Pool pool, final String prefix, int threads, int perUser, boolean virtualThreads) {
+			this.pool = pool;
+			this.threads = threads;
+			this.perUser = perUser;
+			if (virtualThreads) {
+				this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix + "-", 1).factory());
+			} else {
+				this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+					private final AtomicInteger tid = new AtomicInteger(1);
+
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, prefix + "-" + tid.getAndIncrement());
+						t.setDaemon(true);
+						return t;
+					}
+				});
+			}
+		}
+
+		synchronized void enqueue(Job job) {
+			ArrayDeque<Job> lane = waiting.get(job.username);
+			if (lane == null) {
+				lane = new ArrayDeque<Job>();
+				waiting.put(job.username, lane);
+				ring.add(job.username);
+			}
+			lane.add(job);
+			dispatch();
+		}
+
+		synchronized boolean dequeue(Job job) {
+			ArrayDeque<Job> lane = waiting.get(job.username);
+			if (lane == null || !lane.remove(job)) {
+				return false;
+			}
+			if (lane.isEmpty()) {
+				waiting.remove(job.username);
+				ring.remove(job.username);
+			}
+			return true;
+		}
+
+		synchronized void finished(Job job) {
+			release(job);
+			dispatch();
+		}
+
+		private void release(Job job) {
+			if (running.remove(job)) {
+				int count = runningByUser.get(job.username) - 1;
+				if (count == 0) {
+					runningByUser.remove(job.username);
+				} else {
+					runningByUser.put(job.username, count);
+				}
+			}
+		}
+
+		/**
+		 * Starts waiting jobs while threads are available, taking one job of
+		 * each user in turn and skipping users at their concurrency limit.
+		 */
+		private void dispatch() {
+			int skipped = 0;
+			while (running.size() < threads && !ring.isEmpty() && skipped < ring.size()) {
+				String username = ring.poll();
+				Integer count = runningByUser.get(username);
+				if (perUser > 0 && count != null && count >= perUser) {
+					ring.add(username);
+					skipped++;
+					continue;
+				}
+				skipped = 0;
+				ArrayDeque<Job> lane = waiting.get(username);
+				Job job = lane.poll();
+				if (lane.isEmpty()) {
+					waiting.remove(username);
+				} else {
+					ring.add(username);
+				}
+				running.add(job);
+				runningByUser.put(username, count == null ? 1 : count + 1);
+				try {
+					executor.execute(job);
+				} catch (RejectedExecutionException e) {
+					// scheduler is stopping
+					release(job);
+					job.cancel(false);
+				}
+			}
+		}
+
+		synchronized void addTasks(List<TaskInfo> list) {
+			long now = System.currentTimeMillis();
+			for (Job job : running) {
+				list.add(job.getInfo(State.RUNNING, now));
+			}
+			for (String username : ring) {
+				for (Job job : waiting.get(username)) {
+					list.add(job.getInfo(State.WAITING, now));
+				}
+			}
+		}
+
+		void stop() {
+			List<Job> jobs = new ArrayList<Job>();
+			synchronized (this) {
+				for (ArrayDeque<Job> lane : waiting.values()) {
+					jobs.addAll(lane);
+				}
+			}
+			for (Job job : jobs) {
+				job.cancel(false);
+			}
+			executor.shutdown();
+			try {
+				executor.awaitTermination(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * A command scheduled on a pool.
+	 */
+	private static class Job extends FutureTask<Void> {
+
+		final Lanes lanes;
+
+		final String username;
+
+		final CancelableRunnable command;
+
+		final long queued;
+
+		final AtomicBoolean started;
+
+		volatile long startTime;
+
+		Job(Lanes lanes, String username, CancelableRunnable command) {
+			super(command, null);
+			this.lanes = lanes;
+			this.username = username;
+			this.command = command;
+			this.queued = System.currentTimeMillis();
+			this.started = new AtomicBoolean();
+		}
+
+		@Override
+		public void run() {
+			try {
+				if (!started.compareAndSet(false, true)) {
+					// cancelled before it was started
+					return;
+				}
+				startTime = System.currentTimeMillis();
+				lanes.waitTimes.record(startTime - queued);
+				super.run();
+				lanes.runTimes.record(System.currentTimeMillis() - startTime);
+			} finally {
+				lanes.finished(this);
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			lanes.dequeue(this);
+			if (!super.cancel(mayInterruptIfRunning)) {
+				return false;
+			}
+			if (started.compareAndSet(false, true)) {
+				// let the command clean up, it will never run
+				command.cancel();
+			}
+			return true;
+		}
+
+		TaskInfo getInfo(State state, long now) {
+			TaskInfo info = new TaskInfo();
+			info.pool = lanes.pool;
+			info.state = state;
+			info.username = username;
+			info.command = command.toString();
+			if (State.RUNNING == state && startTime > 0) {
+				info.waitMillis = startTime - queued;
+				info.runMillis = now - startTime;
+			} else {
+				info.waitMillis = now - queued;
+			}
+			return info;
+		}
+	}
+}
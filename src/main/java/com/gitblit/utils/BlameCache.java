@@ -0,0 +1,540 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffAlgorithm.SupportedAlgorithm;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gitblit.metrics.Metrics;
+import com.gitblit.models.AnnotatedLine;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+/**
+ * Caches blame results for re-use by the blame page.
+ *
+ * Blame results are keyed by (repository, blob path, commit id) and are held
+ * in a memory tier bounded by the total number of annotated lines and in an
+ * optional disk tier bounded by size.  If the blame of the first parent is
+ * cached and the commit only changed a few lines of the file, the blame is
+ * derived from the parent's blame instead of walking the history again.
+ * Concurrent requests for the same blame share one computation.
+ *
+ * @since 1.10.0
+ */
+public class BlameCache {
+
+	private static final BlameCache instance;
+
+	private static final int DISK_FORMAT = 1;
+
+	protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final ConcurrentMap<BlameKey, FutureTask<List<AnnotatedLine>>> pending;
+
+	private final AtomicLong diskUsage;
+
+	private volatile Cache<BlameKey, List<AnnotatedLine>> memory;
+
+	private volatile File folder;
+
+	private volatile long maxDiskSize;
+
+	private volatile int incrementalLines;
+
+	public static BlameCache instance() {
+		return instance;
+	}
+
+	static {
+		instance = new BlameCache();
+		Metrics.instance().registerCache("blame", new Metrics.CacheSupplier() {
+			@Override
+			public Cache<?, ?> get() {
+				return instance.memory;
+			}
+		});
+	}
+
+	protected BlameCache() {
+		pending = new ConcurrentHashMap<>();
+		diskUsage = new AtomicLong();
+		configure(null, 0, 0, 0);
+	}
+
+	/**
+	 * Configures the cache tiers.  Any cached results held in memory are
+	 * discarded.
+	 *
+	 * @param folder
+	 *            the folder of the disk tier, may be null
+	 * @param maxLines
+	 *            the maximum number of annotated lines held in memory
+	 * @param maxDiskSize
+	 *            the maximum size of the disk tier in bytes, 0 disables it
+	 * @param incrementalLines
+	 *            the maximum number of changed lines for which a blame is
+	 *            derived from the parent's blame, 0 disables it
+	 */
+	public synchronized void configure(File folder, long maxLines, long maxDiskSize, int incrementalLines) {
+		this.memory = CacheBuilder.newBuilder()
+				.maximumWeight(Math.max(0, maxLines))
+				.weigher(new Weigher<BlameKey, List<AnnotatedLine>>() {
+					@Override
+					public int weigh(BlameKey key, List<AnnotatedLine> lines) {
+						return Math.max(1, lines.size());
+					}
+				})
+				.recordStats()
+				.build();
+		this.folder = maxDiskSize > 0 ? folder : null;
+		this.maxDiskSize = maxDiskSize;
+		this.incrementalLines = incrementalLines;
+		diskUsage.set(this.folder == null ? 0 : sizeOf(this.folder));
+	}
+
+	/**
+	 * Clears the entire blame cache.
+	 */
+	public void clear() {
+		memory.invalidateAll();
+		File dir = folder;
+		if (dir != null && dir.exists()) {
+			deleteFolder(dir);
+			diskUsage.set(0);
+		}
+	}
+
+	/**
+	 * Clears the blame cache for a specific repository.
+	 *
+	 * @param repositoryName
+	 */
+	public void clear(String repositoryName) {
+		String repoKey = repositoryName.toLowerCase();
+		List<BlameKey> keys = new ArrayList<BlameKey>();
+		for (BlameKey key : memory.asMap().keySet()) {
+			if (key.repository.equals(repoKey)) {
+				keys.add(key);
+			}
+		}
+		memory.invalidateAll(keys);
+		File dir = folder;
+		if (dir != null) {
+			File repoFolder = new File(dir, StringUtils.getSHA1(repoKey));
+			if (repoFolder.exists()) {
+				diskUsage.addAndGet(-sizeOf(repoFolder));
+				deleteFolder(repoFolder);
+			}
+		}
+	}
+
+	/**
+	 * Returns the blame of the blob at the specified commit, retrieving it
+	 * from the cache if possible.
+	 *
+	 * @param repositoryName
+	 * @param repository
+	 * @param blobPath
+	 * @param objectId
+	 *            if null or empty, the default branch is blamed
+	 * @return list of annotated lines
+	 */
+	public List<AnnotatedLine> blame(String repositoryName, Repository repository, String blobPath, String objectId) {
+		ObjectId commitId;
+		try {
+			if (StringUtils.isEmpty(objectId)) {
+				commitId = JGitUtils.getDefaultBranch(repository);
+			} else {
+				commitId = repository.resolve(objectId);
+			}
+		} catch (Exception e) {
+			logger.error(MessageFormat.format("failed to resolve {0} in {1}", objectId, repositoryName), e);
+			return new ArrayList<AnnotatedLine>();
+		}
+		if (commitId == null) {
+			return DiffUtils.blame(repository, blobPath, objectId);
+		}
+
+		final BlameKey key = new BlameKey(repositoryName.toLowerCase(), blobPath, commitId.getName());
+		List<AnnotatedLine> lines = memory.getIfPresent(key);
+		if (lines != null) {
+			return lines;
+		}
+
+		final Repository r = repository;
+		final ObjectId id = commitId.copy();
+		FutureTask<List<AnnotatedLine>> task = new FutureTask<List<AnnotatedLine>>(() -> load(key, r, id));
+		FutureTask<List<AnnotatedLine>> running = pending.putIfAbsent(key, task);
+		if (running == null) {
+			running = task;
+			try {
+				task.run();
+			} finally {
+				pending.remove(key, task);
+			}
+		}
+		try {
+			return running.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			logger.error(MessageFormat.format("failed to generate blame for {0} {1}!", blobPath, objectId), e.getCause());
+		}
+		return new ArrayList<AnnotatedLine>();
+	}
+
+	/**
+	 * Loads the blame from the disk tier, derives it from the parent's blame,
+	 * or generates it with a full blame.
+	 */
+	private List<AnnotatedLine> load(BlameKey key, Repository repository, ObjectId commitId) {
+		long start = System.nanoTime();
+		List<AnnotatedLine> lines = read(key);
+		if (lines != null) {
+			memory.put(key, lines);
+			logger.debug(MessageFormat.format("read blame of {0} from disk in {1} msecs",
+					key, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+			return lines;
+		}
+
+		lines = deriveFromParent(key, repository, commitId);
+		if (lines != null) {
+			logger.debug(MessageFormat.format("derived blame of {0} from parent in {1} msecs",
+					key, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+		} else {
+			lines = DiffUtils.blame(repository, key.path, commitId.getName());
+			logger.debug(MessageFormat.format("generated blame of {0} in {1} msecs",
+					key, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+		}
+		if (lines.isEmpty()) {
+			// do not cache failures
+			return lines;
+		}
+		lines = Collections.unmodifiableList(lines);
+		memory.put(key, lines);
+		write(key, lines);
+		return lines;
+	}
+
+	/**
+	 * Derives the blame of a non-merge commit from the cached blame of its
+	 * parent.  Unchanged lines keep their parent annotation, changed lines
+	 * are attributed to the commit.
+	 *
+	 * @return the blame or null if it can not be derived
+	 */
+	private List<AnnotatedLine> deriveFromParent(BlameKey key, Repository repository, ObjectId commitId) {
+		if (incrementalLines <= 0) {
+			return null;
+		}
+		try (RevWalk rw = new RevWalk(repository)) {
+			RevCommit commit = rw.parseCommit(commitId);
+			if (commit.getParentCount() != 1) {
+				return null;
+			}
+			RevCommit parent = rw.parseCommit(commit.getParent(0));
+			BlameKey parentKey = new BlameKey(key.repository, key.path, parent.getName());
+			List<AnnotatedLine> parentLines = memory.getIfPresent(parentKey);
+			if (parentLines == null) {
+				parentLines = read(parentKey);
+			}
+			if (parentLines == null) {
+				return null;
+			}
+
+			ObjectId blobId = getBlobId(repository, commit, key.path);
+			ObjectId parentBlobId = getBlobId(repository, parent, key.path);
+			if (blobId == null || parentBlobId == null) {
+				return null;
+			}
+			if (blobId.equals(parentBlobId)) {
+				// file is untouched by this commit
+				return parentLines;
+			}
+
+			RawText text = new RawText(repository.open(blobId).getCachedBytes());
+			RawText parentText = new RawText(repository.open(parentBlobId).getCachedBytes());
+			if (parentText.size() != parentLines.size()) {
+				return null;
+			}
+			EditList edits = DiffAlgorithm.getAlgorithm(SupportedAlgorithm.HISTOGRAM)
+					.diff(RawTextComparator.DEFAULT, parentText, text);
+			int changed = 0;
+			for (Edit edit : edits) {
+				changed += edit.getLengthB();
+			}
+			if (changed > incrementalLines) {
+				return null;
+			}
+
+			List<AnnotatedLine> lines = new ArrayList<AnnotatedLine>(text.size());
+			int a = 0;
+			int b = 0;
+			for (Edit edit : edits) {
+				for (; b < edit.getBeginB(); a++, b++) {
+					AnnotatedLine line = parentLines.get(a);
+					lines.add(new AnnotatedLine(line.commitId, line.author, line.when, b + 1, text.getString(b)));
+				}
+				for (; b < edit.getEndB(); b++) {
+					lines.add(new AnnotatedLine(commit, b + 1, text.getString(b)));
+				}
+				a = edit.getEndA();
+			}
+			for (; b < text.size(); a++, b++) {
+				AnnotatedLine line = parentLines.get(a);
+				lines.add(new AnnotatedLine(line.commitId, line.author, line.when, b + 1, text.getString(b)));
+			}
+			return lines;
+		} catch (Exception e) {
+			logger.debug(MessageFormat.format("failed to derive blame of {0} from parent", key), e);
+			return null;
+		}
+	}
+
+	private ObjectId getBlobId(Repository repository, RevCommit commit, String path) throws IOException {
+		try (TreeWalk tw = TreeWalk.forPath(repository, path, commit.getTree())) {
+			return tw == null ? null : tw.getObjectId(0);
+		}
+	}
+
+	private File getFile(BlameKey key) {
+		File dir = folder;
+		if (dir == null) {
+			return null;
+		}
+		String name = StringUtils.getSHA1(key.path + "@" + key.commitId);
+		return new File(dir, StringUtils.getSHA1(key.repository) + "/" + name.substring(0, 2) + "/" + name);
+	}
+
+	/**
+	 * Reads a blame from the disk tier.
+	 *
+	 * @return the blame or null if it is not cached
+	 */
+	private List<AnnotatedLine> read(BlameKey key) {
+		File file = getFile(key);
+		if (file == null || !file.exists()) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new GZIPInputStream(new FileInputStream(file))))) {
+			if (in.readInt() != DISK_FORMAT || !key.toString().equals(in.readUTF())) {
+				return null;
+			}
+			int count = in.readInt();
+			List<AnnotatedLine> lines = new ArrayList<AnnotatedLine>(count);
+			for (int i = 0; i < count; i++) {
+				String commitId = in.readUTF();
+				String author = in.readUTF();
+				Date when = new Date(in.readLong());
+				byte [] data = new byte[in.readInt()];
+				in.readFully(data);
+				lines.add(new AnnotatedLine(commitId, author, when, i + 1, new String(data, StandardCharsets.UTF_8)));
+			}
+			file.setLastModified(System.currentTimeMillis());
+			return Collections.unmodifiableList(lines);
+		} catch (IOException e) {
+			logger.warn(MessageFormat.format("failed to read cached blame {0}", file), e);
+			file.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * Writes a blame to the disk tier and trims the tier to its maximum size.
+	 */
+	private void write(BlameKey key, List<AnnotatedLine> lines) {
+		File file = getFile(key);
+		if (file == null) {
+			return;
+		}
+		file.getParentFile().mkdirs();
+		File temp = new File(file.getPath() + ".tmp" + Thread.currentThread().getId());
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new GZIPOutputStream(new FileOutputStream(temp))))) {
+			out.writeInt(DISK_FORMAT);
+			out.writeUTF(key.toString());
+			out.writeInt(lines.size());
+			for (AnnotatedLine line : lines) {
+				out.writeUTF(line.commitId);
+				out.writeUTF(line.author);
+				out.writeLong(line.when.getTime());
+				byte [] data = line.data.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(data.length);
+				out.write(data);
+			}
+		} catch (IOException e) {
+			logger.warn(MessageFormat.format("failed to write cached blame {0}", file), e);
+			temp.delete();
+			return;
+		}
+		long length = temp.length();
+		if (file.exists()) {
+			length -= file.length();
+			file.delete();
+		}
+		if (!temp.renameTo(file)) {
+			temp.delete();
+			return;
+		}
+		if (diskUsage.addAndGet(length) > maxDiskSize) {
+			trim();
+		}
+	}
+
+	/**
+	 * Deletes the least recently used blames until the disk tier is at 90%
+	 * of its maximum size.
+	 */
+	private synchronized void trim() {
+		File dir = folder;
+		if (dir == null || diskUsage.get() <= maxDiskSize) {
+			return;
+		}
+		List<File> files = new ArrayList<File>();
+		collect(dir, files);
+		File [] sorted = files.toArray(new File[files.size()]);
+		long [] modified = new long[sorted.length];
+		for (int i = 0; i < sorted.length; i++) {
+			modified[i] = sorted[i].lastModified();
+		}
+		Integer [] order = new Integer[sorted.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (x, y) -> Long.compare(modified[x], modified[y]));
+
+		long usage = 0;
+		for (File file : sorted) {
+			usage += file.length();
+		}
+		long target = maxDiskSize * 9 / 10;
+		int deleted = 0;
+		for (int i = 0; i < order.length && usage > target; i++) {
+			File file = sorted[order[i]];
+			long length = file.length();
+			if (file.delete()) {
+				usage -= length;
+				deleted++;
+			}
+		}
+		diskUsage.set(usage);
+		logger.debug(MessageFormat.format("trimmed {0} cached blames from {1}", deleted, dir));
+	}
+
+	private static void collect(File dir, List<File> files) {
+		File [] list = dir.listFiles();
+		if (list == null) {
+			return;
+		}
+		for (File file : list) {
+			if (file.isDirectory()) {
+				collect(file, files);
+			} else {
+				files.add(file);
+			}
+		}
+	}
+
+	private static long sizeOf(File dir) {
+		List<File> files = new ArrayList<File>();
+		collect(dir, files);
+		long size = 0;
+		for (File file : files) {
+			size += file.length();
+		}
+		return size;
+	}
+
+	private static void deleteFolder(File dir) {
+		try {
+			org.eclipse.jgit.util.FileUtils.delete(dir,
+					org.eclipse.jgit.util.FileUtils.RECURSIVE | org.eclipse.jgit.util.FileUtils.RETRY);
+		} catch (IOException e) {
+			LoggerFactory.getLogger(BlameCache.class).warn("failed to delete " + dir, e);
+		}
+	}
+
+	private static class BlameKey {
+		final String repository;
+		final String path;
+		final String commitId;
+
+		BlameKey(String repository, String path, String commitId) {
+			this.repository = repository;
+			this.path = path;
+			this.commitId = commitId;
+		}
+
+		@Override
+		public int hashCode() {
+			return (repository + path + commitId).hashCode();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o instanceof BlameKey) {
+				BlameKey other = (BlameKey) o;
+				return commitId.equals(other.commitId)
+						&& path.equals(other.path)
+						&& repository.equals(other.repository);
+			}
+			return false;
+		}
+
+		@Override
+		public String toString() {
+			return repository + ":" + path + "@" + commitId;
+		}
+	}
+}
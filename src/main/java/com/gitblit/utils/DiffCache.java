@@ -0,0 +1,219 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+import com.gitblit.metrics.Metrics;
+import com.gitblit.utils.DiffUtils.DiffComparator;
+import com.gitblit.utils.DiffUtils.DiffOutput;
+import com.gitblit.utils.DiffUtils.DiffOutputType;
+import com.gitblit.utils.DiffUtils.DiffStat;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+/**
+ * Caches diff outputs and diffstats for re-use by the commit, commitdiff,
+ * compare and ticket pages.
+ *
+ * Results are keyed by the old and new tree ids and the diff options, so the
+ * same diff requested from different pages is only computed once.  The cache
+ * is bounded by the approximate memory footprint of the cached results.
+ *
+ * Cached results are shared and must not be modified by callers.
+ *
+ * @since 1.10.0
+ */
+public class DiffCache {
+
+	private static final DiffCache instance;
+
+	/**
+	 * Approximate memory footprint of a cached path change model.
+	 */
+	private static final int PATH_WEIGHT = 256;
+
+	private volatile Cache<DiffKey, Object> cache;
+
+	public static DiffCache instance() {
+		return instance;
+	}
+
+	static {
+		instance = new DiffCache();
+		Metrics.instance().registerCache("diff", new Metrics.CacheSupplier() {
+			@Override
+			public Cache<?, ?> get() {
+				return instance.cache;
+			}
+		});
+	}
+
+	protected DiffCache() {
+		configure(20 * 1024 * 1024);
+	}
+
+	/**
+	 * Configures the memory budget of the cache.  Any cached results are
+	 * discarded.
+	 *
+	 * @param maxBytes
+	 *            the approximate maximum memory footprint, 0 disables caching
+	 */
+	public synchronized void configure(long maxBytes) {
+		this.cache = CacheBuilder.newBuilder()
+				.maximumWeight(Math.max(0, maxBytes))
+				.weigher(new Weigher<DiffKey, Object>() {
+					@Override
+					public int weigh(DiffKey key, Object value) {
+						return weightOf(value);
+					}
+				})
+				.expireAfterAccess(1, TimeUnit.HOURS)
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * Clears the entire diff cache.
+	 */
+	public void clear() {
+		cache.invalidateAll();
+	}
+
+	/**
+	 * Returns the cached diff output or null.
+	 *
+	 * @param key
+	 * @return the diff output or null
+	 */
+	public DiffOutput getDiff(DiffKey key) {
+		return (DiffOutput) cache.getIfPresent(key);
+	}
+
+	/**
+	 * Caches the diff output.
+	 *
+	 * @param key
+	 * @param output
+	 */
+	public void putDiff(DiffKey key, DiffOutput output) {
+		if (output != null && output.content != null) {
+			cache.put(key, output);
+		}
+	}
+
+	/**
+	 * Returns the cached diffstat or null.
+	 *
+	 * @param key
+	 * @return the diffstat or null
+	 */
+	public DiffStat getDiffStat(DiffKey key) {
+		return (DiffStat) cache.getIfPresent(key);
+	}
+
+	/**
+	 * Caches the diffstat.
+	 *
+	 * @param key
+	 * @param stat
+	 */
+	public void putDiffStat(DiffKey key, DiffStat stat) {
+		if (stat != null) {
+			cache.put(key, stat);
+		}
+	}
+
+	private static int weightOf(Object value) {
+		long weight = 64;
+		if (value instanceof DiffOutput) {
+			DiffOutput output = (DiffOutput) value;
+			if (output.content != null) {
+				weight += 2L * output.content.length();
+			}
+			if (output.stat != null) {
+				weight += (long) PATH_WEIGHT * output.stat.paths.size();
+			}
+		} else if (value instanceof DiffStat) {
+			weight += (long) PATH_WEIGHT * ((DiffStat) value).paths.size();
+		}
+		return (int) Math.min(Integer.MAX_VALUE, weight);
+	}
+
+	/**
+	 * Creates the key of a diff or diffstat.
+	 *
+	 * @param repository
+	 * @param baseTree
+	 * @param tree
+	 * @param commitId
+	 *            the commit id recorded in the path change models
+	 * @param path
+	 *            the optional path restriction
+	 * @param comparator
+	 * @param outputType
+	 *            the diff output type or null for a diffstat
+	 * @param tabLength
+	 * @param variant
+	 *            identifies any other state which influences the output
+	 * @return a key
+	 */
+	public static DiffKey key(Repository repository, AnyObjectId baseTree, AnyObjectId tree, String commitId,
+			String path, DiffComparator comparator, DiffOutputType outputType, int tabLength, String variant) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(repository.getDirectory() == null ? "" : repository.getDirectory().getAbsolutePath());
+		sb.append(':').append(baseTree.getName());
+		sb.append("..").append(tree.getName());
+		sb.append(':').append(commitId);
+		sb.append(':').append(path == null ? "" : path);
+		sb.append(':').append(comparator == null ? DiffComparator.SHOW_WHITESPACE : comparator);
+		sb.append(':').append(outputType == null ? "STAT" : outputType.name());
+		sb.append(':').append(tabLength);
+		sb.append(':').append(variant == null ? "" : variant);
+		return new DiffKey(sb.toString());
+	}
+
+	public static class DiffKey {
+		private final String key;
+
+		DiffKey(String key) {
+			this.key = key;
+		}
+
+		@Override
+		public int hashCode() {
+			return key.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o instanceof DiffKey) {
+				return key.equals(((DiffKey) o).key);
+			}
+			return false;
+		}
+
+		@Override
+		public String toString() {
+			return key;
+		}
+	}
+}
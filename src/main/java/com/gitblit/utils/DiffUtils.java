@@ -37,6 +37,7 @@ import org.slf4j.LoggerFactory;
 
 import com.gitblit.models.AnnotatedLine;
 import com.gitblit.models.PathModel.PathChangeModel;
+import com.gitblit.utils.DiffCache.DiffKey;
 
 /**
  * DiffUtils is a class of utility methods related to diff, patch, and blame.
@@ -377,23 +378,6 @@ public class DiffUtils {
 		DiffStat stat = null;
 		String diff = null;
 		try {
-			ByteArrayOutputStream os = null;
-
-			DiffFormatter df;
-			switch (outputType) {
-			case HTML:
-				df = new GitBlitDiffFormatter(commit.getName(), repository, path, handler, tabLength);
-				break;
-			case PLAIN:
-			default:
-				os = new ByteArrayOutputStream();
-				df = new DiffFormatter(os);
-				break;
-			}
-			df.setRepository(repository);
-			df.setDiffComparator((comparator == null ? DiffComparator.SHOW_WHITESPACE : comparator).textComparator);
-			df.setDetectRenames(true);
-
 			RevTree commitTree = commit.getTree();
 			RevTree baseTree;
 			if (baseCommit == null) {
@@ -410,6 +394,45 @@ public class DiffUtils {
 				baseTree = baseCommit.getTree();
 			}
 
+			String variant = outputType == DiffOutputType.HTML ? GitBlitDiffFormatter.getOutputVariant(path) : null;
+			DiffKey key = DiffCache.key(repository, baseTree, commitTree, commit.getName(), path,
+					comparator, outputType, tabLength, variant);
+			DiffOutput cached = DiffCache.instance().getDiff(key);
+			if (cached != null) {
+				return cached;
+			}
+
+			// rendered binary diffs are specific to the requesting page
+			final boolean [] renderedBinary = new boolean[1];
+			BinaryDiffHandler tracker = null;
+			if (handler != null) {
+				tracker = new BinaryDiffHandler() {
+					@Override
+					public String renderBinaryDiff(DiffEntry diffEntry) {
+						String html = handler.renderBinaryDiff(diffEntry);
+						renderedBinary[0] |= html != null;
+						return html;
+					}
+				};
+			}
+
+			ByteArrayOutputStream os = null;
+
+			DiffFormatter df;
+			switch (outputType) {
+			case HTML:
+				df = new GitBlitDiffFormatter(commit.getName(), repository, path, tracker, tabLength);
+				break;
+			case PLAIN:
+			default:
+				os = new ByteArrayOutputStream();
+				df = new DiffFormatter(os);
+				break;
+			}
+			df.setRepository(repository);
+			df.setDiffComparator((comparator == null ? DiffComparator.SHOW_WHITESPACE : comparator).textComparator);
+			df.setDetectRenames(true);
+
 			List<DiffEntry> diffEntries = df.scan(baseTree, commitTree);
 			if (path != null && path.length() > 0) {
 				for (DiffEntry diffEntry : diffEntries) {
@@ -429,6 +452,11 @@ public class DiffUtils {
 			} else {
 				diff = os.toString();
 			}
+			DiffOutput output = new DiffOutput(outputType, diff, stat);
+			if (!renderedBinary[0]) {
+				DiffCache.instance().putDiff(key, output);
+			}
+			return output;
 		} catch (Throwable t) {
 			LOGGER.error("failed to generate commit diff!", t);
 		}
@@ -550,18 +578,13 @@ public class DiffUtils {
 			RevCommit commit, String path) {
 		DiffStat stat = null;
 		try {
-			RawTextComparator cmp = RawTextComparator.DEFAULT;
-			DiffStatFormatter df = new DiffStatFormatter(commit.getName(), repository);
-			df.setRepository(repository);
-			df.setDiffComparator(cmp);
-			df.setDetectRenames(true);
-
 			RevTree commitTree = commit.getTree();
 			RevTree baseTree;
 			if (baseCommit == null) {
 				if (commit.getParentCount() > 0) {
 					final RevWalk rw = new RevWalk(repository);
 					RevCommit parent = rw.parseCommit(commit.getParent(0).getId());
+					rw.dispose();
 					baseTree = parent.getTree();
 				} else {
 					// FIXME initial commit. no parent?!
@@ -571,6 +594,19 @@ public class DiffUtils {
 				baseTree = baseCommit.getTree();
 			}
 
+			DiffKey key = DiffCache.key(repository, baseTree, commitTree, commit.getName(), path,
+					DiffComparator.SHOW_WHITESPACE, null, 0, null);
+			stat = DiffCache.instance().getDiffStat(key);
+			if (stat != null) {
+				return stat;
+			}
+
+			RawTextComparator cmp = RawTextComparator.DEFAULT;
+			DiffStatFormatter df = new DiffStatFormatter(commit.getName(), repository);
+			df.setRepository(repository);
+			df.setDiffComparator(cmp);
+			df.setDetectRenames(true);
+
 			List<DiffEntry> diffEntries = df.scan(baseTree, commitTree);
 			if (path != null && path.length() > 0) {
 				for (DiffEntry diffEntry : diffEntries) {
@@ -584,6 +620,7 @@ public class DiffUtils {
 			}
 			stat = df.getDiffStat();
 			df.flush();
+			DiffCache.instance().putDiffStat(key, stat);
 		} catch (Throwable t) {
 			LOGGER.error("failed to generate commit diff!", t);
 		}
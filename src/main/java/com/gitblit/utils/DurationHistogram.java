@@ -0,0 +1,229 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.utils;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe histogram of durations with fixed buckets.  A duration is
+ * counted in the first bucket whose upper bound it does not exceed, the last
+ * bucket is unbounded.  Recording a duration does not allocate and does not
+ * contend with other threads.
+ *
+ * @since 1.10.0
+ */
+public class DurationHistogram implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final long [] DEFAULT_BOUNDS = { 10L, 100L, 1000L, 10000L, 60000L, 600000L };
+
+	private final long [] bounds;
+
+	private final long [] boundNanos;
+
+	private final LongAdder [] buckets;
+
+	private final LongAdder totalNanos;
+
+	private final AtomicLong maxNanos;
+
+	/**
+	 * Creates a histogram with buckets from 10 milliseconds to 10 minutes.
+	 */
+	public DurationHistogram() {
+		this(DEFAULT_BOUNDS);
+	}
+
+	/**
+	 * Creates a histogram with the given bucket bounds.
+	 *
+	 * @param bounds
+	 *            the ascending upper bounds of the buckets in milliseconds
+	 */
+	public DurationHistogram(long... bounds) {
+		this.bounds = bounds.clone();
+		this.boundNanos = new long[bounds.length];
+		for (int i = 0; i < bounds.length; i++) {
+			if (i > 0 && bounds[i] <= bounds[i - 1]) {
+				throw new IllegalArgumentException("bounds must be ascending");
+			}
+			boundNanos[i] = TimeUnit.MILLISECONDS.toNanos(bounds[i]);
+		}
+		this.buckets = new LongAdder[bounds.length + 1];
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+		this.totalNanos = new LongAdder();
+		this.maxNanos = new AtomicLong();
+	}
+
+	/**
+	 * Records a duration.
+	 *
+	 * @param millis
+	 */
+	public void record(long millis) {
+		recordNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+	}
+
+	/**
+	 * Records a duration.
+	 *
+	 * @param nanos
+	 */
+	public void recordNanos(long nanos) {
+		nanos = Math.max(0, nanos);
+		int bucket = 0;
+		while (bucket < boundNanos.length && nanos > boundNanos[bucket]) {
+			bucket++;
+		}
+		buckets[bucket].increment();
+		totalNanos.add(nanos);
+		long max;
+		while (nanos > (max = maxNanos.get())) {
+			if (maxNanos.compareAndSet(max, nanos)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Records the duration since the start.
+	 *
+	 * @param startNanos
+	 *            the start as returned by {@link System#nanoTime()}
+	 */
+	public void since(long startNanos) {
+		recordNanos(System.nanoTime() - startNanos);
+	}
+
+	public long getCount() {
+		long count = 0;
+		for (LongAdder bucket : buckets) {
+			count += bucket.sum();
+		}
+		return count;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	public long getTotalMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(totalNanos.sum());
+	}
+
+	public long getMaxMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+	}
+
+	public long getAverageMillis() {
+		long n = getCount();
+		return n == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.sum() / n);
+	}
+
+	/**
+	 * Returns the bucket labels, e.g. "&lt;=100ms".
+	 *
+	 * @return the labels
+	 */
+	public String [] getLabels() {
+		String [] labels = new String[buckets.length];
+		for (int i = 0; i < bounds.length; i++) {
+			labels[i] = "<=" + formatMillis(bounds[i]);
+		}
+		labels[bounds.length] = bounds.length == 0 ? "all" : ">" + formatMillis(bounds[bounds.length - 1]);
+		return labels;
+	}
+
+	/**
+	 * Returns the upper bounds of the buckets in milliseconds.  The last
+	 * bucket is unbounded.
+	 *
+	 * @return the bounds
+	 */
+	public long [] getBounds() {
+		return bounds.clone();
+	}
+
+	/**
+	 * Returns the number of recorded durations of each bucket, one more than
+	 * bounds.
+	 *
+	 * @return the bucket counts
+	 */
+	public long [] getBuckets() {
+		long [] values = new long[buckets.length];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = buckets[i].sum();
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the smallest bucket bound which includes the given share of
+	 * all recorded durations.
+	 *
+	 * @param quantile
+	 *            between 0 and 1
+	 * @return the bound in milliseconds or -1 if it is the unbounded bucket
+	 */
+	public long getQuantileBound(double quantile) {
+		long [] values = getBuckets();
+		long total = 0;
+		for (long n : values) {
+			total += n;
+		}
+		long rank = (long) Math.ceil(quantile * total);
+		long cumulative = 0;
+		for (int i = 0; i < bounds.length; i++) {
+			cumulative += values[i];
+			if (cumulative >= rank) {
+				return bounds[i];
+			}
+		}
+		return -1;
+	}
+
+	private static String formatMillis(long millis) {
+		if (millis >= 60000 && millis % 60000 == 0) {
+			return (millis / 60000) + "m";
+		} else if (millis >= 1000 && millis % 1000 == 0) {
+			return (millis / 1000) + "s";
+		} else if (millis >= 1000) {
+			return (millis / 1000d) + "s";
+		}
+		return millis + "ms";
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("count=").append(getCount());
+		sb.append(" avg=").append(getAverageMillis()).append("ms");
+		sb.append(" max=").append(getMaxMillis()).append("ms");
+		String [] labels = getLabels();
+		long [] values = getBuckets();
+		for (int i = 0; i < values.length; i++) {
+			sb.append(' ').append(labels[i]).append('=').append(values[i]);
+		}
+		return sb.toString();
+	}
+}
@@ -29,6 +29,7 @@ import java.util.regex.Pattern;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.Localizer;
+import org.apache.wicket.Session;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffEntry.ChangeType;
 import org.eclipse.jgit.diff.DiffFormatter;
@@ -188,7 +189,7 @@ public class GitBlitDiffFormatter extends DiffFormatter {
 	 *            maximum (and default) value to enforce
 	 * @return the limit
 	 */
-	private int getLimit(String key, int minimum, int maximum) {
+	private static int getLimit(String key, int minimum, int maximum) {
 		if (Application.exists()) {
 			Application application = Application.get();
 			if (application instanceof GitBlitWebApp) {
@@ -204,6 +205,24 @@ public class GitBlitDiffFormatter extends DiffFormatter {
 		return maximum;
 	}
 
+	/**
+	 * Returns a token identifying the state which influences the html generated
+	 * by a formatter for the specified path: the diff limits and the locale of
+	 * the localized messages.
+	 *
+	 * @param path
+	 *            the path the diff is restricted to, may be null
+	 * @return the output variant
+	 */
+	public static String getOutputVariant(String path) {
+		String locale = Session.exists() ? String.valueOf(Session.get().getLocale()) : "";
+		if (path != null) {
+			return locale;
+		}
+		return locale + ":" + getLimit(DIFF_LIMIT_PER_FILE_KEY, 500, DIFF_LIMIT_PER_FILE)
+				+ ":" + getLimit(GLOBAL_DIFF_LIMIT_KEY, 1000, GLOBAL_DIFF_LIMIT);
+	}
+
 	/**
 	 * Returns a localized message string, if there is a localization; otherwise the given default value.
 	 *
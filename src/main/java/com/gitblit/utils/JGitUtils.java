@@ -112,6 +112,7 @@ import com.gitblit.models.TicketModel.TicketAction;
 import com.gitblit.models.TicketModel.TicketLink;
 import com.gitblit.models.RefModel;
 import com.gitblit.models.SubmoduleModel;
+import com.gitblit.utils.DiffUtils.DiffStat;
 import com.google.common.base.Strings;
 
 /**
@@ -1037,6 +1038,15 @@ public class JGitUtils {
 							ChangeType.ADD));
 				}
 				tw.close();
+			} else if (calculateDiffStat) {
+				// share the cached diffstat of the commit and commitdiff pages,
+				// the cached paths must not be changed by the caller
+				DiffStat stat = DiffUtils.getDiffStat(repository, null, commit, null);
+				if (stat != null) {
+					for (PathChangeModel path : stat.paths) {
+						list.add(path.copy());
+					}
+				}
 			} else {
 				RevCommit parent = rw.parseCommit(commit.getParent(0).getId());
 				DiffStatFormatter df = new DiffStatFormatter(commit.getName(), repository);
@@ -1047,16 +1057,6 @@ public class JGitUtils {
 				for (DiffEntry diff : diffs) {
 					// create the path change model
 					PathChangeModel pcm = PathChangeModel.from(diff, commit.getName(), repository);
-						
-						if (calculateDiffStat) {
-						// update file diffstats
-						df.format(diff);
-						PathChangeModel pathStat = df.getDiffStat().getPath(pcm.path);
-						if (pathStat != null) {
-							pcm.insertions = pathStat.insertions;
-							pcm.deletions = pathStat.deletions;
-						}
-					}
 					list.add(pcm);
 				}
 			}
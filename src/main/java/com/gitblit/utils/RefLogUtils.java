@@ -215,6 +215,22 @@ public class RefLogUtils {
 	 */
 	public static boolean updateRefLog(UserModel user, Repository repository,
 			Collection<ReceiveCommand> commands) {
+		return updateRefLog(user, repository, commands, new Date());
+	}
+
+	/**
+	 * Updates the reflog with the received commands.
+	 *
+	 * @param user
+	 * @param repository
+	 * @param commands
+	 * @param date
+	 *            the date of the push
+	 * @return true, if the update was successful
+	 * @since 1.10.0
+	 */
+	public static boolean updateRefLog(UserModel user, Repository repository,
+			Collection<ReceiveCommand> commands, Date date) {
 
 		// only track branches and tags
 		List<ReceiveCommand> filteredCommands = new ArrayList<ReceiveCommand>();
@@ -244,17 +260,17 @@ public class RefLogUtils {
 			ObjectInserter odi = repository.newObjectInserter();
 			try {
 				// Create the in-memory index of the reflog log entry
-				DirCache index = createIndex(repository, headId, commands);
+				DirCache index = createIndex(repository, headId, commands, date.getTime());
 				ObjectId indexTreeId = index.writeTree(odi);
 
 				PersonIdent ident;
 				if (UserModel.ANONYMOUS.equals(user)) {
 					// anonymous push
-					ident = new PersonIdent(user.username + "/" + user.username, user.username);
+					ident = new PersonIdent(user.username + "/" + user.username, user.username, date, TimeZone.getDefault());
 				} else {
 					// construct real pushing account
 					ident =	new PersonIdent(MessageFormat.format("{0}/{1}", user.getDisplayName(), user.username),
-						user.emailAddress == null ? user.username : user.emailAddress);
+						user.emailAddress == null ? user.username : user.emailAddress, date, TimeZone.getDefault());
 				}
 
 				// Create a commit object
@@ -311,17 +327,17 @@ public class RefLogUtils {
 	 * @param repo
 	 * @param headId
 	 * @param commands
+	 * @param now
 	 * @return an in-memory index
 	 * @throws IOException
 	 */
 	private static DirCache createIndex(Repository repo, ObjectId headId,
-			Collection<ReceiveCommand> commands) throws IOException {
+			Collection<ReceiveCommand> commands, long now) throws IOException {
 
 		DirCache inCoreIndex = DirCache.newInCore();
 		DirCacheBuilder dcBuilder = inCoreIndex.builder();
 		ObjectInserter inserter = repo.newObjectInserter();
 
-		long now = System.currentTimeMillis();
 		Set<String> ignorePaths = new TreeSet<String>();
 		try {
 			// add receive commands to the temporary index
@@ -34,6 +34,7 @@ import com.gitblit.models.RepositoryModel;
 import com.gitblit.models.ServerSettings;
 import com.gitblit.models.ServerStatus;
 import com.gitblit.models.TeamModel;
+import com.gitblit.models.TrafficModel;
 import com.gitblit.models.UserModel;
 import com.google.gson.reflect.TypeToken;
 
@@ -72,6 +73,12 @@ public class RpcUtils {
 	private static final Type BRANCHES_TYPE = new TypeToken<Map<String, Collection<String>>>() {
 	}.getType();
 
+	private static final Type STAR_COUNTS_TYPE = new TypeToken<Map<String, Long>>() {
+	}.getType();
+
+	private static final Type TRAFFIC_TYPE = new TypeToken<Map<String, List<TrafficModel>>>() {
+	}.getType();
+
 	public static final Type REGISTRANT_PERMISSIONS_TYPE = new TypeToken<Collection<RegistrantAccessPermission>>() {
 	}.getType();
 
@@ -108,6 +115,16 @@ public class RpcUtils {
 				+ (name == null ? "" : ("&name=" + StringUtils.encodeURL(name)));
 	}
 
+	private static String asPageLink(String remoteURL, RpcRequest req, String filter, int offset, int limit) {
+		StringBuilder sb = new StringBuilder(asLink(remoteURL, req));
+		if (!StringUtils.isEmpty(filter)) {
+			sb.append("&filter=").append(StringUtils.encodeURL(filter));
+		}
+		sb.append("&offset=").append(offset);
+		sb.append("&limit=").append(limit);
+		return sb.toString();
+	}
+
 	/**
 	 * Returns the version of the RPC protocol on the server.
 	 *
@@ -147,6 +164,30 @@ public class RpcUtils {
 		return models;
 	}
 
+	/**
+	 * Retrieves a page of the repositories at the remote gitblit instance
+	 * keyed by the repository clone url.
+	 *
+	 * @param serverUrl
+	 * @param account
+	 * @param password
+	 * @param filter
+	 *            only repositories whose name contains the filter, may be null
+	 * @param offset
+	 *            the number of matching repositories to skip
+	 * @param limit
+	 *            the maximum number of repositories to retrieve
+	 * @return a map of cloneable repositories
+	 * @throws IOException
+	 */
+	public static Map<String, RepositoryModel> getRepositories(String serverUrl, String account,
+			char[] password, String filter, int offset, int limit) throws IOException {
+		String url = asPageLink(serverUrl, RpcRequest.LIST_REPOSITORIES, filter, offset, limit);
+		Map<String, RepositoryModel> models = JsonUtils.retrieveJson(url, REPOSITORIES_TYPE,
+				account, password);
+		return models;
+	}
+
 	/**
 	 * Tries to pull the gitblit user accounts from the remote gitblit instance.
 	 *
@@ -635,6 +676,46 @@ public class RpcUtils {
 		return status;
 	}
 
+	/**
+	 * Retrieves the star counts of the repositories accessible to the account
+	 * keyed by repository.
+	 *
+	 * @param serverUrl
+	 * @param account
+	 * @param password
+	 * @return a map of star counts
+	 * @throws IOException
+	 * @since 1.10.0
+	 */
+	public static Map<String, Long> getStarCounts(String serverUrl, String account,
+			char[] password) throws IOException {
+		String url = asLink(serverUrl, RpcRequest.LIST_STAR_COUNTS);
+		Map<String, Long> starCounts = JsonUtils.retrieveJson(url, STAR_COUNTS_TYPE,
+				account, password);
+		return starCounts;
+	}
+
+	/**
+	 * Retrieves the daily clone, fetch and push traffic of the repositories
+	 * accessible to the account keyed by repository.
+	 *
+	 * @param serverUrl
+	 * @param account
+	 * @param password
+	 * @param repository
+	 *            the repository or null for all accessible repositories
+	 * @return a map of daily traffic, oldest first
+	 * @throws IOException
+	 * @since 1.10.0
+	 */
+	public static Map<String, List<TrafficModel>> getRepositoryTraffic(String serverUrl, String account,
+			char[] password, String repository) throws IOException {
+		String url = asLink(serverUrl, RpcRequest.LIST_REPOSITORY_TRAFFIC, repository);
+		Map<String, List<TrafficModel>> traffic = JsonUtils.retrieveJson(url, TRAFFIC_TYPE,
+				account, password);
+		return traffic;
+	}
+
 	/**
 	 * Retrieves a map of local branches in the Gitblit server keyed by
 	 * repository.
@@ -653,6 +734,30 @@ public class RpcUtils {
 		return branches;
 	}
 
+	/**
+	 * Retrieves a page of the local branches in the Gitblit server keyed by
+	 * repository.
+	 *
+	 * @param serverUrl
+	 * @param account
+	 * @param password
+	 * @param filter
+	 *            only repositories whose name contains the filter, may be null
+	 * @param offset
+	 *            the number of matching repositories to skip
+	 * @param limit
+	 *            the maximum number of repositories to retrieve
+	 * @return
+	 * @throws IOException
+	 */
+	public static Map<String, Collection<String>> getBranches(String serverUrl, String account,
+			char[] password, String filter, int offset, int limit) throws IOException {
+		String url = asPageLink(serverUrl, RpcRequest.LIST_BRANCHES, filter, offset, limit);
+		Map<String, Collection<String>> branches = JsonUtils.retrieveJson(url, BRANCHES_TYPE,
+				account, password);
+		return branches;
+	}
+
 	/**
 	 * Retrieves a list of available branch feeds in the Gitblit server.
 	 *
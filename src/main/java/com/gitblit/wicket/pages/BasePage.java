@@ -59,6 +59,7 @@ import com.gitblit.Constants.AccessRestrictionType;
 import com.gitblit.Constants.AuthorizationControl;
 import com.gitblit.Constants.FederationStrategy;
 import com.gitblit.Keys;
+import com.gitblit.metrics.Metrics;
 import com.gitblit.models.ProjectModel;
 import com.gitblit.models.TeamModel;
 import com.gitblit.models.UserModel;
@@ -75,6 +76,9 @@ public abstract class BasePage extends SessionPage {
 
 	private transient TimeUtils timeUtils;
 
+	// start of constructing or rendering the page, 0 when rendered
+	private transient long renderStart = System.nanoTime();
+
 	public BasePage() {
 		super();
 		customizeHeader();
@@ -151,6 +155,9 @@ public abstract class BasePage extends SessionPage {
 			// strip Wicket tags in debug mode for jQuery DOM traversal
 			Application.get().getMarkupSettings().setStripWicketTags(true);
 		}
+		if (renderStart == 0) {
+			renderStart = System.nanoTime();
+		}
 		super.onBeforeRender();
 	}
 
@@ -161,6 +168,11 @@ public abstract class BasePage extends SessionPage {
 			Application.get().getMarkupSettings().setStripWicketTags(false);
 		}
 		super.onAfterRender();
+		if (renderStart != 0) {
+			Metrics.instance().timer("gitblit_page_render_seconds", "Latency of constructing and rendering pages",
+					"page", getClass().getSimpleName()).since(renderStart);
+			renderStart = 0;
+		}
 	}
 
 	@Override
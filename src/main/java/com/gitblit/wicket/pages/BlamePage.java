@@ -42,8 +42,8 @@ import org.eclipse.jgit.revwalk.RevCommit;
 import com.gitblit.Keys;
 import com.gitblit.models.AnnotatedLine;
 import com.gitblit.models.PathModel;
+import com.gitblit.utils.BlameCache;
 import com.gitblit.utils.ColorFactory;
-import com.gitblit.utils.DiffUtils;
 import com.gitblit.utils.JGitUtils;
 import com.gitblit.utils.StringUtils;
 import com.gitblit.wicket.CacheControl;
@@ -167,7 +167,7 @@ public class BlamePage extends RepositoryPage {
 		add(new Label("missingBlob").setVisible(false));
 
 		final int tabLength = app().settings().getInteger(Keys.web.tabLength, 4);
-		List<AnnotatedLine> lines = DiffUtils.blame(getRepository(), blobPath, objectId);
+		List<AnnotatedLine> lines = BlameCache.instance().blame(repositoryName, getRepository(), blobPath, objectId);
 		final Map<?, String> colorMap = initializeColors(activeBlameType, lines);
 		ListDataProvider<AnnotatedLine> blameDp = new ListDataProvider<AnnotatedLine>(lines);
 		DataView<AnnotatedLine> blameView = new DataView<AnnotatedLine>("annotation", blameDp) {
@@ -37,7 +37,9 @@ import org.eclipse.jgit.revwalk.RevCommit;
 import com.gitblit.Keys;
 import com.gitblit.models.Metric;
 import com.gitblit.models.RepositoryModel;
+import com.gitblit.models.TrafficModel;
 import com.gitblit.models.UserModel;
+import com.gitblit.utils.ByteFormat;
 import com.gitblit.utils.JGitUtils;
 import com.gitblit.utils.StringUtils;
 import com.gitblit.wicket.CacheControl;
@@ -127,6 +129,21 @@ public class SummaryPage extends RepositoryPage {
 		add(new BookmarkablePageLink<Void>("metrics", MetricsPage.class,
 				WicketUtils.newRepositoryParameter(repositoryName)));
 
+		int trafficDays = app().settings().getInteger(Keys.git.trafficDays, 30);
+		if (trafficDays > 0) {
+			TrafficModel traffic = new TrafficModel();
+			for (TrafficModel day : app().repositories().getTraffic(getRepositoryModel())) {
+				traffic.add(day);
+			}
+			ByteFormat byteFormat = new ByteFormat();
+			add(new Label("repositoryTraffic",
+					MessageFormat.format(getString("gb.trafficStats"), traffic.clones, traffic.fetches,
+							byteFormat.format(traffic.bytesSent), traffic.packMillis / 1000,
+							traffic.pushes, byteFormat.format(traffic.bytesReceived), trafficDays)));
+		} else {
+			add(new Label("repositoryTraffic", ""));
+		}
+
 		add(new RepositoryUrlPanel("repositoryUrlPanel", false, user, model));
 
 		add(new LogPanel("commitsPanel", repositoryName, getRepositoryModel().HEAD, r, numberCommits, 0, getRepositoryModel().showRemoteBranches));
@@ -80,6 +80,7 @@ import com.gitblit.models.TicketModel.Review;
 import com.gitblit.models.TicketModel.Score;
 import com.gitblit.models.TicketModel.Status;
 import com.gitblit.models.UserModel;
+import com.gitblit.tickets.ITicketService;
 import com.gitblit.tickets.TicketIndexer.Lucene;
 import com.gitblit.tickets.TicketLabel;
 import com.gitblit.tickets.TicketMilestone;
@@ -293,7 +294,7 @@ public class TicketPage extends RepositoryPage {
 			desc = getString("gb.noDescriptionGiven");
 		} else {
 			String bugtraq = bugtraqProcessor().processText(getRepository(), repositoryName, ticket.body);
-			String html = MarkdownUtils.transformGFM(app().settings(), bugtraq, ticket.repository);
+			String html = app().tickets().renderMarkdown(ticket, ITicketService.DESCRIPTION_ID, bugtraq);
 			String safeHtml = app().xssFilter().relaxed(html);
 			desc = safeHtml;
 		}
@@ -708,7 +709,7 @@ public class TicketPage extends RepositoryPage {
 						 * COMMENT
 						 */
 						String bugtraq = bugtraqProcessor().processText(getRepository(), repositoryName, entry.comment.text);
-						String comment = MarkdownUtils.transformGFM(app().settings(), bugtraq, repositoryName);
+						String comment = app().tickets().renderMarkdown(ticket, entry.comment.id, bugtraq);
 						String safeComment = app().xssFilter().relaxed(comment);
 						Fragment frag = new Fragment("entry", "commentFragment", this);
 						Label commentIcon = new Label("commentIcon");
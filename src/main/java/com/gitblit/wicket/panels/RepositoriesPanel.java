@@ -280,6 +280,10 @@ public class RepositoriesPanel extends BasePanel {
 							.setEscapeModelStrings(false));
 				}
 
+				long stars = app().repositories().getStarCount(entry);
+				row.add(new Label("repositoryStars", stars + " <i style=\"vertical-align:baseline;\" class=\"iconic-star\"></i>")
+						.setEscapeModelStrings(false).setVisible(stars > 0));
+
 				if (entry.isSparkleshared()) {
 					row.add(WicketUtils.newImage("sparkleshareIcon", "star_16x16.png",
 							getString("gb.isSparkleshared")));
@@ -22,9 +22,12 @@ import org.eclipse.jgit.revwalk.RevCommit;
 import org.junit.Test;
 
 import com.gitblit.models.AnnotatedLine;
+import com.gitblit.utils.BlameCache;
 import com.gitblit.utils.DiffUtils;
 import com.gitblit.utils.DiffUtils.DiffComparator;
+import com.gitblit.utils.DiffUtils.DiffOutput;
 import com.gitblit.utils.DiffUtils.DiffOutputType;
+import com.gitblit.utils.DiffUtils.DiffStat;
 import com.gitblit.utils.JGitUtils;
 
 public class DiffUtilsTest extends GitblitUnitTest {
@@ -114,6 +117,24 @@ public class DiffUtilsTest extends GitblitUnitTest {
 		assertTrue(patch.indexOf(expected) > -1);
 	}
 
+	@Test
+	public void testCachedDiff() throws Exception {
+		Repository repository = GitBlitSuite.getHelloworldRepository();
+		RevCommit commit = JGitUtils.getCommit(repository,
+				GitBlitSuite.helloworldSettings.getRequiredString(HelloworldKeys.commit.second));
+		DiffOutput first = DiffUtils.getCommitDiff(repository, commit, DiffComparator.SHOW_WHITESPACE, DiffOutputType.PLAIN, 3);
+		DiffOutput second = DiffUtils.getCommitDiff(repository, commit, DiffComparator.SHOW_WHITESPACE, DiffOutputType.PLAIN, 3);
+		assertSame(first, second);
+
+		DiffOutput ignoreWhitespace = DiffUtils.getCommitDiff(repository, commit, DiffComparator.IGNORE_WHITESPACE, DiffOutputType.PLAIN, 3);
+		assertNotSame(first, ignoreWhitespace);
+
+		DiffStat stat = DiffUtils.getDiffStat(repository, commit);
+		assertSame(stat, DiffUtils.getDiffStat(repository, commit));
+		assertEquals(stat.paths.size(), JGitUtils.getFilesInCommit(repository, commit).size());
+		repository.close();
+	}
+
 	@Test
 	public void testBlame() throws Exception {
 		Repository repository = GitBlitSuite.getHelloworldRepository();
@@ -123,4 +144,30 @@ public class DiffUtilsTest extends GitblitUnitTest {
 		assertTrue(lines.size() > 0);
 		assertEquals(GitBlitSuite.helloworldSettings.getRequiredString(HelloworldKeys.commit.first), lines.get(0).commitId);
 	}
+
+	@Test
+	public void testBlameCache() throws Exception {
+		Repository repository = GitBlitSuite.getHelloworldRepository();
+		String first = GitBlitSuite.helloworldSettings.getRequiredString(HelloworldKeys.commit.first);
+		String second = GitBlitSuite.helloworldSettings.getRequiredString(HelloworldKeys.commit.second);
+		BlameCache cache = BlameCache.instance();
+		cache.configure(null, 10000, 0, 100);
+		try {
+			List<AnnotatedLine> firstLines = cache.blame("helloworld.git", repository, "java.java", first);
+			assertSame(firstLines, cache.blame("helloworld.git", repository, "java.java", first));
+
+			// derived from the cached blame of the first commit
+			List<AnnotatedLine> cached = cache.blame("helloworld.git", repository, "java.java", second);
+			List<AnnotatedLine> expected = DiffUtils.blame(repository, "java.java", second);
+			assertEquals(expected.size(), cached.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).commitId, cached.get(i).commitId);
+				assertEquals(expected.get(i).lineNumber, cached.get(i).lineNumber);
+				assertEquals(expected.get(i).data, cached.get(i).data);
+			}
+		} finally {
+			cache.clear();
+			repository.close();
+		}
+	}
 }
@@ -15,7 +15,12 @@
  */
 package com.gitblit.tests;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
 import java.text.MessageFormat;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -25,9 +30,11 @@ import org.junit.Test;
 
 import com.gitblit.fanout.FanoutClient;
 import com.gitblit.fanout.FanoutClient.FanoutAdapter;
+import com.gitblit.fanout.FanoutConstants;
 import com.gitblit.fanout.FanoutNioService;
 import com.gitblit.fanout.FanoutService;
 import com.gitblit.fanout.FanoutSocketService;
+import com.gitblit.fanout.FanoutStats;
 
 public class FanoutServiceTest extends GitblitUnitTest {
 
@@ -53,6 +60,91 @@ public class FanoutServiceTest extends GitblitUnitTest {
 		testDisruption(new FanoutSocketService(fanoutPort));
 	}
 
+	@Test
+	public void testNioServiceBroadcast() throws Exception {
+		FanoutNioService service = new FanoutNioService(fanoutPort);
+		service.startSynchronously();
+
+		final Map<String, String> announcementsA = new ConcurrentHashMap<String, String>();
+		FanoutClient clientA = new FanoutClient("localhost", fanoutPort);
+		clientA.addListener(new FanoutAdapter() {
+			@Override
+			public void announcement(String channel, String message) {
+				announcementsA.put(channel, message);
+			}
+		});
+		clientA.startSynchronously();
+
+		final Map<String, String> announcementsB = new ConcurrentHashMap<String, String>();
+		FanoutClient clientB = new FanoutClient("localhost", fanoutPort);
+		clientB.addListener(new FanoutAdapter() {
+			@Override
+			public void announcement(String channel, String message) {
+				announcementsB.put(channel, message);
+			}
+		});
+		clientB.startSynchronously();
+
+		clientA.subscribe("r");
+		clientB.subscribe("r");
+
+		// give async messages a chance to be delivered
+		Thread.sleep(1000);
+
+		// broadcast from a thread other than the selector thread
+		service.broadcast("r", "refs/heads/master");
+
+		// give async messages a chance to be delivered
+		Thread.sleep(1000);
+
+		assertEquals("refs/heads/master", announcementsA.get("r"));
+		assertEquals("refs/heads/master", announcementsB.get("r"));
+
+		FanoutStats stats = service.getStatistics();
+		assertTrue(stats.totalMessages >= 2);
+		assertTrue(stats.totalBytesRead > 0);
+		assertTrue(stats.totalBytesWritten > 0);
+		assertTrue(stats.totalWrites > 0);
+
+		clientA.stop();
+		clientB.stop();
+		service.stop();
+	}
+
+	@Test
+	public void testNioOversizedRequest() throws Exception {
+		FanoutNioService service = new FanoutNioService(fanoutPort);
+		service.startSynchronously();
+
+		Socket socket = new Socket("localhost", fanoutPort);
+		try {
+			socket.setSoTimeout(5000);
+			// a request without terminator is not buffered without bounds
+			byte [] request = new byte[FanoutConstants.BUFFER_LENGTH * 4];
+			Arrays.fill(request, (byte) 'a');
+			OutputStream os = socket.getOutputStream();
+			os.write(request);
+			os.flush();
+
+			InputStream is = socket.getInputStream();
+			byte [] buffer = new byte[FanoutConstants.BUFFER_LENGTH];
+			try {
+				while (is.read(buffer) != -1) {
+					// skip the connected message
+				}
+			} catch (SocketException e) {
+				// the unread request bytes reset the connection
+			}
+
+			// give the service a chance to update its statistics
+			Thread.sleep(500);
+			assertEquals(0, service.getStatistics().currentConnections);
+		} finally {
+			socket.close();
+			service.stop();
+		}
+	}
+
 	protected void testPubSub(FanoutService service) throws Exception {
 		System.out.println(MessageFormat.format("\n\n========================================\nPUBSUB TEST {0}\n========================================\n\n", service.toString()));
 		service.startSynchronously();
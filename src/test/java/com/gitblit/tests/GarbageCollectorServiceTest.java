@@ -0,0 +1,157 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.tests;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Properties;
+import java.util.TimeZone;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.junit.Test;
+
+import com.gitblit.Keys;
+import com.gitblit.manager.IRepositoryManager;
+import com.gitblit.service.GarbageCollectorService;
+import com.gitblit.service.GarbageCollectorService.GCStatus;
+import com.gitblit.tests.mock.MemorySettings;
+import com.gitblit.utils.JGitUtils;
+
+public class GarbageCollectorServiceTest extends GitblitUnitTest {
+
+	@Test
+	public void testMaintain() throws Exception {
+		String name = "maintenance/test.git";
+		Repository db = JGitUtils.createRepository(repositories().getRepositoriesFolder(), name);
+		try {
+			ObjectId parent = null;
+			for (int i = 0; i < 10; i++) {
+				parent = commit(db, parent, "commit " + i);
+				RefUpdate ru = db.updateRef("refs/heads/branch" + i);
+				ru.setNewObjectId(parent);
+				ru.forceUpdate();
+			}
+			Properties before = new Git(db).gc().getStatistics();
+			assertTrue(((Number) before.get("numberOfLooseObjects")).longValue() > 0);
+
+			GarbageCollectorService service = new GarbageCollectorService(settings(), repositories());
+			assertTrue(service.maintain(name));
+			assertFalse(service.isCollectingGarbage(name));
+
+			Properties after = new Git(db).gc().getStatistics();
+			assertEquals(0L, ((Number) after.get("numberOfLooseObjects")).longValue());
+			assertTrue(((Number) after.get("numberOfPackedRefs")).longValue() >= 10);
+			assertEquals(1L, ((Number) after.get("numberOfPackFiles")).longValue());
+			assertNotNull(db.resolve("refs/heads/branch9"));
+		} finally {
+			db.close();
+			repositories().deleteRepository(name);
+		}
+	}
+
+	@Test
+	public void testMaintainSkipsCollectingRepository() throws Exception {
+		String name = "maintenance/locked.git";
+		Repository db = JGitUtils.createRepository(repositories().getRepositoriesFolder(), name);
+		try {
+			GarbageCollectorService service = new GarbageCollectorService(settings(), repositories());
+			assertTrue(service.setGCStatus(name, GCStatus.COLLECTING));
+			assertFalse(service.maintain(name));
+			assertTrue(service.isCollectingGarbage(name));
+			service.releaseLock(name);
+		} finally {
+			db.close();
+			repositories().deleteRepository(name);
+		}
+	}
+
+	@Test
+	public void testCollectSkipsMaintainedRepository() throws Exception {
+		String name = "maintenance/maintained.git";
+		Repository db = JGitUtils.createRepository(repositories().getRepositoriesFolder(), name);
+		try {
+			MemorySettings settings = new MemorySettings();
+			settings.put(Keys.git.enableGarbageCollection, "true");
+			GarbageCollectorService service = new GarbageCollectorService(settings, repositories(name));
+			assertTrue(service.setGCStatus(name, GCStatus.MAINTAINING));
+			service.run();
+
+			// the collector must not release the lock of the maintenance
+			assertFalse(service.setGCStatus(name, GCStatus.COLLECTING));
+			assertFalse(service.isCollectingGarbage(name));
+		} finally {
+			db.close();
+			repositories().deleteRepository(name);
+		}
+	}
+
+	/**
+	 * Returns a repository manager which only lists the given repository.
+	 */
+	private IRepositoryManager repositories(final String name) {
+		final IRepositoryManager repositories = repositories();
+		return (IRepositoryManager) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?> [] { IRepositoryManager.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if ("getRepositoryList".equals(method.getName())) {
+					return Arrays.asList(name);
+				}
+				try {
+					return method.invoke(repositories, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		});
+	}
+
+	private ObjectId commit(Repository db, ObjectId parent, String message) throws Exception {
+		ObjectInserter inserter = db.newObjectInserter();
+		try {
+			PersonIdent ident = new PersonIdent("maintenance", "maintenance@gitblit.com", new Date(), TimeZone.getDefault());
+			TreeFormatter tree = new TreeFormatter();
+			tree.append("file.txt", FileMode.REGULAR_FILE,
+					inserter.insert(Constants.OBJ_BLOB, Constants.encode(message)));
+			CommitBuilder commit = new CommitBuilder();
+			commit.setTreeId(inserter.insert(tree));
+			if (parent != null) {
+				commit.setParentId(parent);
+			}
+			commit.setAuthor(ident);
+			commit.setCommitter(ident);
+			commit.setMessage(message);
+			ObjectId id = inserter.insert(commit);
+			inserter.flush();
+			return id;
+		} finally {
+			inserter.close();
+		}
+	}
+}
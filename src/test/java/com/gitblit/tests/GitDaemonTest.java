@@ -15,10 +15,13 @@
  */
 package com.gitblit.tests;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.net.Socket;
 import java.text.MessageFormat;
 import java.util.Date;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -36,7 +39,10 @@ import org.junit.Test;
 
 import com.gitblit.Constants.AccessRestrictionType;
 import com.gitblit.Constants.AuthorizationControl;
+import com.gitblit.IStoredSettings;
+import com.gitblit.Keys;
 import com.gitblit.models.RepositoryModel;
+import com.gitblit.transport.git.GitDaemon;
 
 public class GitDaemonTest extends GitblitUnitTest {
 
@@ -84,6 +90,35 @@ public class GitDaemonTest extends GitblitUnitTest {
 		}
 	}
 
+	@Test
+	public void testClientsPerAddressLimit() throws Exception {
+		IStoredSettings settings = settings();
+		int port = settings.getInteger(Keys.git.daemonPort, 0);
+		int perAddress = settings.getInteger(Keys.git.daemonMaxClientsPerAddress, 10);
+		settings.overrideSetting(Keys.git.daemonPort, 0);
+		settings.overrideSetting(Keys.git.daemonMaxClientsPerAddress, 1);
+		GitDaemon daemon = new GitDaemon(gitblit());
+		settings.overrideSetting(Keys.git.daemonPort, port);
+		settings.overrideSetting(Keys.git.daemonMaxClientsPerAddress, perAddress);
+
+		daemon.start();
+		Socket first = new Socket("localhost", daemon.getPort());
+		Socket second = new Socket("localhost", daemon.getPort());
+		try {
+			// the idle first connection occupies the only slot of this address
+			second.setSoTimeout(10000);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(second.getInputStream(), "UTF-8"));
+			String line = reader.readLine();
+			assertNotNull(line);
+			assertTrue(line, line.contains("ERR too many connections"));
+			assertEquals(1, daemon.getRejectedClients());
+		} finally {
+			first.close();
+			second.close();
+			daemon.stop();
+		}
+	}
+
 	@Test
 	public void testAnonymousClone() throws Exception {
 		GitBlitSuite.close(ticgitFolder);
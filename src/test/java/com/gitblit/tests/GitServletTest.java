@@ -21,6 +21,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.text.MessageFormat;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -37,11 +38,13 @@ import org.eclipse.jgit.api.MergeResult;
 import org.eclipse.jgit.api.ResetCommand.ResetType;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.ReceiveCommand;
 import org.eclipse.jgit.transport.RefSpec;
 import org.eclipse.jgit.transport.RemoteRefUpdate;
 import org.eclipse.jgit.transport.RemoteRefUpdate.Status;
@@ -49,17 +52,23 @@ import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 import org.eclipse.jgit.util.FileUtils;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.gitblit.Constants.AccessPermission;
 import com.gitblit.Constants.AccessRestrictionType;
 import com.gitblit.Constants.AuthorizationControl;
 import com.gitblit.Keys;
+import com.gitblit.git.PostReceiveJob;
+import com.gitblit.git.PostReceiveQueue;
+import com.gitblit.git.UploadPackStatistics;
 import com.gitblit.models.RefLogEntry;
 import com.gitblit.models.RepositoryModel;
 import com.gitblit.models.UserModel;
 import com.gitblit.utils.ArrayUtils;
 import com.gitblit.utils.JGitUtils;
+import com.gitblit.utils.JsonUtils;
 import com.gitblit.utils.RefLogUtils;
 
 public class GitServletTest extends GitblitUnitTest {
@@ -76,6 +85,9 @@ public class GitServletTest extends GitblitUnitTest {
 	String account = GitBlitSuite.account;
 	String password = GitBlitSuite.password;
 
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
 	private static final AtomicBoolean started = new AtomicBoolean(false);
 
 	private static UserModel getUser() {
@@ -138,6 +150,9 @@ public class GitServletTest extends GitblitUnitTest {
 			FileUtils.delete(ticgitFolder, FileUtils.RECURSIVE | FileUtils.RETRY);
 		}
 
+		long fullClones = UploadPackStatistics.instance().getFullClones();
+		long bytes = UploadPackStatistics.instance().getBytes();
+
 		CloneCommand clone = Git.cloneRepository();
 		clone.setURI(MessageFormat.format("{0}/ticgit.git", url));
 		clone.setDirectory(ticgitFolder);
@@ -145,7 +160,9 @@ public class GitServletTest extends GitblitUnitTest {
 		clone.setCloneAllBranches(true);
 		clone.setCredentialsProvider(new UsernamePasswordCredentialsProvider(account, password));
 		GitBlitSuite.close(clone.call());
-		assertTrue(true);
+
+		assertEquals(fullClones + 1, UploadPackStatistics.instance().getFullClones());
+		assertTrue(UploadPackStatistics.instance().getBytes() > bytes);
 	}
 
 	@Test
@@ -925,8 +942,10 @@ public class GitServletTest extends GitblitUnitTest {
 	}
 
 	@Test
-	public void testPushLog() throws IOException {
+	public void testPushLog() throws Exception {
 		String name = "refchecks/ticgit.git";
+		// the reflog is updated after the push completes
+		assertTrue(PostReceiveQueue.instance().await(name, 30000));
 		File refChecks = new File(GitBlitSuite.REPOSITORIES, name);
 		Repository repository = new FileRepositoryBuilder().setGitDir(refChecks).build();
 		List<RefLogEntry> pushes = RefLogUtils.getRefLog(name, repository);
@@ -934,6 +953,38 @@ public class GitServletTest extends GitblitUnitTest {
 		assertTrue("Repository has an empty push log!", pushes.size() > 0);
 	}
 
+	@Test
+	public void testResumePostReceiveJobs() throws Exception {
+		String name = "helloworld.git";
+		Repository repository = GitBlitSuite.getHelloworldRepository();
+		List<RefLogEntry> before = RefLogUtils.getRefLog(name, repository);
+		ObjectId master = repository.resolve(Constants.R_HEADS + "master");
+
+		// a job which was pending when Gitblit was stopped
+		UserModel user = new UserModel("resume");
+		PostReceiveJob job = new PostReceiveJob(name, user,
+				Arrays.asList(new ReceiveCommand(master, master, Constants.R_HEADS + "master")));
+		job.id = 1;
+		job.updateRefLog = true;
+		File folder = temporaryFolder.newFolder();
+		File file = new File(folder, "00000000000000000001.json");
+		com.gitblit.utils.FileUtils.writeContent(file, JsonUtils.toJsonString(job));
+
+		PostReceiveQueue queue = new PostReceiveQueue() {};
+		queue.configure(gitblit(), folder, 1);
+		try {
+			assertTrue(queue.await(name, 30000));
+		} finally {
+			queue.stop();
+		}
+		assertFalse("Job was not removed from the queue", file.exists());
+		assertEquals(1, queue.getProcessed());
+
+		List<RefLogEntry> after = RefLogUtils.getRefLog(name, repository);
+		GitBlitSuite.close(repository);
+		assertEquals(before.size() + 1, after.size());
+	}
+
 
 
 	@Test
@@ -40,7 +40,9 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.gitblit.GitBlitException;
+import com.gitblit.git.GroovyHookEngine;
 import com.gitblit.models.RepositoryModel;
+import com.gitblit.models.ScriptStatistics;
 import com.gitblit.models.TeamModel;
 import com.gitblit.models.UserModel;
 import com.gitblit.utils.StringUtils;
@@ -281,6 +283,42 @@ public class GroovyScriptTest extends GitblitUnitTest {
 		assertTrue("Message Missing", clientLogger.messages.contains("this is a test message"));
 	}
 
+	@Test
+	public void testHookEngine() throws Exception {
+		File groovyDir = repositories().getHooksFolder();
+		File tempScript = File.createTempFile("testHookEngine", ".groovy", groovyDir);
+		tempScript.deleteOnExit();
+
+		BufferedWriter writer = new BufferedWriter(new FileWriter(tempScript));
+		writer.write("return true\n");
+		writer.close();
+
+		GroovyHookEngine engine = GroovyHookEngine.instance();
+		String name = tempScript.getName();
+		String script = name.substring(0, name.length() - ".groovy".length());
+		assertTrue(engine.run(groovyDir, Arrays.asList(script), new Binding()));
+		assertTrue(engine.run(groovyDir, Arrays.asList(script), new Binding()));
+		assertSame(engine.getEngine(groovyDir), engine.getEngine(groovyDir));
+
+		// post-receive scripts are executed synchronously unless listed in
+		// groovy.asyncPostReceiveScripts
+		assertFalse(engine.isAsynchronous(name));
+		assertFalse(engine.submit(groovyDir, Arrays.asList(script), new Binding(), null));
+
+		// changed scripts are recompiled
+		Thread.sleep(1000);
+		writer = new BufferedWriter(new FileWriter(tempScript));
+		writer.write("return false\n");
+		writer.close();
+		tempScript.setLastModified(System.currentTimeMillis());
+		assertFalse(engine.run(groovyDir, Arrays.asList(script), new Binding()));
+
+		ScriptStatistics stats = engine.getStatistics().get(name);
+		assertNotNull(stats);
+		assertEquals(4, stats.executions);
+		assertEquals(0, stats.failures);
+	}
+
 	private void test(String script, MockGitblit gitblit, MockLogger logger, MockClientLogger clientLogger,
 			List<ReceiveCommand> commands, RepositoryModel repository) throws Exception {
 
@@ -18,6 +18,8 @@ package com.gitblit.tests;
 
 import static org.junit.Assume.*;
 
+import org.apache.commons.io.FileUtils;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -35,6 +37,8 @@ import com.gitblit.models.UserModel;
 import com.gitblit.tests.mock.MemorySettings;
 import com.gitblit.utils.XssFilter;
 import com.gitblit.utils.XssFilter.AllowXssFilter;
+import com.unboundid.ldap.sdk.Modification;
+import com.unboundid.ldap.sdk.ModificationType;
 import com.unboundid.ldap.sdk.SearchResult;
 import com.unboundid.ldap.sdk.SearchScope;
 import com.unboundid.ldif.LDIFReader;
@@ -238,6 +242,91 @@ public class LdapAuthenticationTest extends LdapBasedUnitTest {
 		assertEquals("Number of ldap users in gitblit user model", searchResult.getEntryCount(), countLdapUsersInUserManager());
 	}
 
+	@Test
+	public void testGroupMembershipCache() throws Exception {
+		// This test only makes sense if the authentication mode allows for synchronization.
+		assumeTrue(authMode == AuthMode.ANONYMOUS || authMode == AuthMode.DS_MANAGER);
+
+		UserModel userOneModel = ldap.authenticate("UserOne", "userOnePassword".toCharArray());
+		assertNotNull(userOneModel.getTeam("git_admins"));
+
+		getDS().modify("CN=Git_Admins,OU=Groups,OU=UserControl,OU=MyOrganization,DC=MyDomain",
+				new Modification(ModificationType.DELETE, "member", DN_USER_ONE));
+
+		// memberships are cached for logins
+		userOneModel = ldap.authenticate("UserOne", "userOnePassword".toCharArray());
+		assertNotNull(userOneModel);
+		assertNotNull(userOneModel.getTeam("git_admins"));
+
+		// authentication is not cached
+		assertNull(ldap.authenticate("UserOne", "userTwoPassword".toCharArray()));
+
+		// synchronization refreshes the cached memberships
+		settings.put(Keys.realm.ldap.synchronize, "true");
+		ldap.sync();
+		userOneModel = ldap.authenticate("UserOne", "userOnePassword".toCharArray());
+		assertNotNull(userOneModel);
+		assertNull(userOneModel.getTeam("git_admins"));
+		assertNotNull(userOneModel.getTeam("git_users"));
+	}
+
+	@Test
+	public void testIncrementalSync() throws Exception {
+		// This test only makes sense if the authentication mode allows for synchronization.
+		assumeTrue(authMode == AuthMode.ANONYMOUS || authMode == AuthMode.DS_MANAGER);
+
+		settings.put(Keys.realm.ldap.synchronize, "true");
+		settings.put(Keys.realm.ldap.syncChangeAttribute, "modifyTimestamp");
+		settings.put(Keys.realm.ldap.syncPageSize, "2");
+		ldap.sync();
+		assertEquals("Number of ldap users in gitblit user model", 5, countLdapUsersInUserManager());
+
+		// an unchanged directory does not rewrite the user service
+		String content = FileUtils.readFileToString(usersConf, "UTF-8");
+		long lastModified = usersConf.lastModified();
+		ldap.sync();
+		assertEquals(content, FileUtils.readFileToString(usersConf, "UTF-8"));
+		assertEquals(lastModified, usersConf.lastModified());
+
+		getDS().modify(DN_USER_TWO, new Modification(ModificationType.REPLACE, "displayName", "User 2"));
+		ldap.sync();
+		assertEquals("User 2", userManager.getUserModel("UserTwo").displayName);
+		assertEquals("User One", userManager.getUserModel("UserOne").displayName);
+
+		getDS().addEntries(LDIFReader.readEntries(RESOURCE_DIR + "adduser.ldif"));
+		ldap.sync();
+		assertEquals("Number of ldap users in gitblit user model", 6, countLdapUsersInUserManager());
+	}
+
+	@Test
+	public void testIncrementalSyncAfterGroupChange() throws Exception {
+		// This test only makes sense if the authentication mode allows for synchronization.
+		assumeTrue(authMode == AuthMode.ANONYMOUS || authMode == AuthMode.DS_MANAGER);
+
+		settings.put(Keys.realm.ldap.synchronize, "true");
+		settings.put(Keys.realm.ldap.syncChangeAttribute, "modifyTimestamp");
+		ldap.sync();
+		assertNotNull(userManager.getUserModel("UserOne").getTeam("git_admins"));
+
+		// a changed group causes a complete cycle
+		getDS().modify("CN=Git_Admins,OU=Groups,OU=UserControl,OU=MyOrganization,DC=MyDomain",
+				new Modification(ModificationType.DELETE, "member", DN_USER_ONE));
+		ldap.sync();
+		assertNull(userManager.getUserModel("UserOne").getTeam("git_admins"));
+		assertNotNull(userManager.getUserModel("UserOne").getTeam("git_users"));
+
+		// a group changed within the second of the group watermark is
+		// detected as well
+		getDS().modify("CN=Git_Admins,OU=Groups,OU=UserControl,OU=MyOrganization,DC=MyDomain",
+				new Modification(ModificationType.ADD, "member", DN_USER_ONE));
+		ldap.sync();
+		assertNotNull(userManager.getUserModel("UserOne").getTeam("git_admins"));
+		getDS().modify("CN=Git_Admins,OU=Groups,OU=UserControl,OU=MyOrganization,DC=MyDomain",
+				new Modification(ModificationType.DELETE, "member", DN_USER_ONE));
+		ldap.sync();
+		assertNull(userManager.getUserModel("UserOne").getTeam("git_admins"));
+	}
+
 	@Test
 	public void addingUserInLdapShouldNotUpdateGitBlitUsersAndGroups() throws Exception {
 		getDS().addEntries(LDIFReader.readEntries(RESOURCE_DIR + "adduser.ldif"));
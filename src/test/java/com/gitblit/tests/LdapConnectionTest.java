@@ -11,6 +11,7 @@ import org.junit.runners.Parameterized;
 
 import com.gitblit.Keys;
 import com.gitblit.ldap.LdapConnection;
+import com.gitblit.ldap.LdapConnectionPool;
 import com.unboundid.ldap.sdk.BindResult;
 import com.unboundid.ldap.sdk.LDAPException;
 import com.unboundid.ldap.sdk.ResultCode;
@@ -151,6 +152,70 @@ public class LdapConnectionTest extends LdapBasedUnitTest {
 
 
 
+	@Test
+	public void testPooledConnection() {
+		LdapConnectionPool pool = LdapConnectionPool.get(settings);
+		assertNotNull(pool);
+		assertSame(pool, LdapConnectionPool.get(settings));
+
+		LdapConnection conn = new LdapConnection(settings, pool);
+		try {
+			assertTrue(conn.connect());
+			assertNotNull(conn.bind());
+			SearchResult result = conn.searchUser("UserOne");
+			assertNotNull(result);
+			assertEquals(1, result.getEntryCount());
+			assertTrue(conn.isAuthenticated(DN_USER_ONE, "userOnePassword"));
+		} finally {
+			conn.close();
+		}
+		assertTrue(pool.getAvailableConnections() > 0);
+		long connects = pool.getStatistics().getNumSuccessfulConnectionAttempts();
+
+		// the released connection is reused and bound as the manager again
+		conn = new LdapConnection(settings, pool);
+		try {
+			assertTrue(conn.connect());
+			assertNotNull(conn.bind());
+			SearchResult result = conn.searchUser("UserTwo");
+			assertNotNull(result);
+			assertEquals(1, result.getEntryCount());
+			assertEquals(DN_USER_TWO, result.getSearchEntries().get(0).getDN());
+		} finally {
+			conn.close();
+		}
+		assertEquals(connects, pool.getStatistics().getNumSuccessfulConnectionAttempts());
+	}
+
+	@Test
+	public void testPooledConnectionSettingsChange() {
+		LdapConnectionPool pool = LdapConnectionPool.get(settings);
+		assertNotNull(pool);
+
+		String server = settings.getString(Keys.realm.ldap.server, "");
+		settings.put(Keys.realm.ldap.server, "ldap://localhost:1");
+		try {
+			assertNull(LdapConnectionPool.get(settings));
+
+			// the pool of the previous settings has been closed
+			LdapConnection conn = new LdapConnection(settings, pool);
+			try {
+				assertFalse(conn.connect());
+			} finally {
+				conn.close();
+			}
+
+			// the next attempt is delayed
+			assertNull(LdapConnectionPool.get(settings));
+		} finally {
+			settings.put(Keys.realm.ldap.server, server);
+			LdapConnectionPool.closeAll();
+		}
+		assertNotNull(LdapConnectionPool.get(settings));
+	}
+
+
+
 	@Test
 	public void testSearchRequest() throws LDAPException {
 		LdapConnection conn = new LdapConnection(settings);
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.tests;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.gitblit.metrics.Counter;
+import com.gitblit.metrics.Gauge;
+import com.gitblit.metrics.Metrics;
+import com.gitblit.metrics.Timer;
+import com.gitblit.utils.DurationHistogram;
+
+public class PrometheusMetricsTest extends GitblitUnitTest {
+
+	@After
+	public void cleanup() {
+		Metrics.instance().remove("test_requests_total");
+		Metrics.instance().remove("test_request_seconds");
+		Metrics.instance().remove("test_queue");
+		Metrics.instance().remove("test_wait_seconds");
+	}
+
+	@Test
+	public void testCounter() {
+		Counter counter = Metrics.instance().counter("test_requests_total", "Requests", "endpoint", "rpc");
+		counter.inc();
+		counter.add(2);
+		assertSame(counter, Metrics.instance().counter("test_requests_total", "Requests", "endpoint", "rpc"));
+
+		String text = Metrics.instance().toPrometheus();
+		assertTrue(text.contains("# HELP test_requests_total Requests\n"));
+		assertTrue(text.contains("# TYPE test_requests_total counter\n"));
+		assertTrue(text.contains("test_requests_total{endpoint=\"rpc\"} 3\n"));
+	}
+
+	@Test
+	public void testTimer() {
+		Timer timer = Metrics.instance().timer("test_request_seconds", "Request duration");
+		timer.record(TimeUnit.MILLISECONDS.toNanos(3));
+		timer.record(TimeUnit.MILLISECONDS.toNanos(40));
+		timer.record(TimeUnit.MINUTES.toNanos(10));
+		assertEquals(3, timer.getCount());
+		assertEquals(0.05, timer.getQuantileBound(0.5), 0);
+		assertTrue(Double.isInfinite(timer.getQuantileBound(1)));
+
+		String text = Metrics.instance().toPrometheus();
+		assertTrue(text.contains("# TYPE test_request_seconds histogram\n"));
+		assertTrue(text.contains("test_request_seconds_bucket{le=\"0.001\"} 0\n"));
+		assertTrue(text.contains("test_request_seconds_bucket{le=\"0.005\"} 1\n"));
+		assertTrue(text.contains("test_request_seconds_bucket{le=\"0.05\"} 2\n"));
+		assertTrue(text.contains("test_request_seconds_bucket{le=\"300\"} 2\n"));
+		assertTrue(text.contains("test_request_seconds_bucket{le=\"+Inf\"} 3\n"));
+		assertTrue(text.contains("test_request_seconds_count 3\n"));
+	}
+
+	@Test
+	public void testDurationHistogram() {
+		DurationHistogram histogram = new DurationHistogram();
+		histogram.record(5);
+		histogram.record(20000);
+		histogram.record(700000);
+		Metrics.instance().register(histogram, "test_wait_seconds", "Wait time", "pool", "git");
+		assertEquals(60, histogram.getQuantileBound(0.5) / 1000);
+		assertEquals(-1, histogram.getQuantileBound(1));
+
+		String text = Metrics.instance().toPrometheus();
+		assertTrue(text.contains("# TYPE test_wait_seconds histogram\n"));
+		assertTrue(text.contains("test_wait_seconds_bucket{pool=\"git\",le=\"0.01\"} 1\n"));
+		assertTrue(text.contains("test_wait_seconds_bucket{pool=\"git\",le=\"60\"} 2\n"));
+		assertTrue(text.contains("test_wait_seconds_bucket{pool=\"git\",le=\"+Inf\"} 3\n"));
+		assertTrue(text.contains("test_wait_seconds_sum{pool=\"git\"} 720.005\n"));
+	}
+
+	@Test
+	public void testGaugeLabels() {
+		Metrics.instance().register(new Gauge("test_queue", "Queue", "name", "a \"quoted\"\\name") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public double get() {
+				return 1.5;
+			}
+		});
+		String text = Metrics.instance().toPrometheus();
+		assertTrue(text.contains("# TYPE test_queue gauge\n"));
+		assertTrue(text.contains("test_queue{name=\"a \\\"quoted\\\"\\\\name\"} 1.5\n"));
+		assertEquals("1.5", Metrics.instance().getSnapshot().get("test_queue{name=\"a \\\"quoted\\\"\\\\name\"}"));
+	}
+}
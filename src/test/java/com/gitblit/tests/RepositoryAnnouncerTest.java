@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.tests;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.gitblit.Constants.AccessRestrictionType;
+import com.gitblit.fanout.FanoutService;
+import com.gitblit.fanout.RepositoryAnnouncer;
+import com.gitblit.models.RepositoryModel;
+
+public class RepositoryAnnouncerTest extends GitblitUnitTest {
+
+	private final RepositoryAnnouncer announcer = RepositoryAnnouncer.instance();
+
+	@After
+	public void teardown() {
+		announcer.stop();
+	}
+
+	@Test
+	public void testCoalescedAnnouncements() throws Exception {
+		RecordingService service = new RecordingService();
+		announcer.start(service, 500);
+		long announcements = announcer.getAnnouncements();
+
+		RepositoryModel a = repository("a.git");
+		RepositoryModel b = repository("b.git");
+		announcer.announce(a, "1");
+		announcer.announce(a, "2");
+		announcer.announce(b, "3");
+		announcer.announce(a, "4");
+		assertTrue(service.messages.isEmpty());
+
+		for (int i = 0; i < 100 && service.messages.size() < 2; i++) {
+			Thread.sleep(50);
+		}
+		Thread.sleep(100);
+		assertEquals(2, service.messages.size());
+		assertTrue(service.messages.containsAll(Arrays.asList("a.git!4", "b.git!3")));
+		assertEquals(announcements + 2, announcer.getAnnouncements());
+
+		// the next change opens a new window
+		announcer.announce(a, "5");
+		for (int i = 0; i < 100 && service.messages.size() < 3; i++) {
+			Thread.sleep(50);
+		}
+		assertEquals("a.git!5", service.messages.get(2));
+	}
+
+	@Test
+	public void testImmediateAnnouncements() throws Exception {
+		RecordingService service = new RecordingService();
+		announcer.start(service, 0);
+		RepositoryModel model = repository("my repo.git");
+		announcer.announce(model, "1");
+		announcer.announce(model, "2");
+		assertEquals(Arrays.asList("my_repo.git!1", "my_repo.git!2"), service.messages);
+
+		// nothing is announced once stopped
+		announcer.stop();
+		announcer.announce(model, "3");
+		assertEquals(2, service.messages.size());
+	}
+
+	@Test
+	public void testRestrictedRepositoriesAreNotAnnounced() throws Exception {
+		RecordingService service = new RecordingService();
+		announcer.start(service, 0);
+		RepositoryModel restricted = repository("private.git");
+		restricted.accessRestriction = AccessRestrictionType.VIEW;
+		announcer.announce(restricted, "1");
+
+		// anonymous users may view, but not clone
+		RepositoryModel cloneRestricted = repository("clone.git");
+		cloneRestricted.accessRestriction = AccessRestrictionType.CLONE;
+		announcer.announce(cloneRestricted, "2");
+		assertEquals(Arrays.asList("clone.git!2"), service.messages);
+	}
+
+	@Test
+	public void testSparkleshareIdentifier() throws Exception {
+		RecordingService service = new RecordingService();
+		announcer.start(service, 0);
+		RepositoryModel model = repository("sparkleshare.git");
+		// the identifier is read from the .sparkleshare file
+		model.sparkleshareId = "1e9f7e4f2a\n";
+		announcer.announce(model, "1");
+		assertEquals(Arrays.asList("1e9f7e4f2a!1"), service.messages);
+	}
+
+	private static RepositoryModel repository(String name) {
+		return new RepositoryModel(name, "", "admin", new Date());
+	}
+
+	private static class RecordingService extends FanoutService {
+
+		final List<String> messages = new CopyOnWriteArrayList<String>();
+
+		RecordingService() {
+			super(null, 0, "recording service");
+		}
+
+		@Override
+		public void broadcast(String channel, String message) {
+			messages.add(channel + "!" + message);
+		}
+
+		@Override
+		protected boolean isConnected() {
+			return true;
+		}
+
+		@Override
+		protected boolean connect() {
+			return true;
+		}
+
+		@Override
+		protected void listen() {
+		}
+
+		@Override
+		protected void disconnect() {
+		}
+	}
+}
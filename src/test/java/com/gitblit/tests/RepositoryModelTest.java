@@ -16,8 +16,28 @@
  */
 package com.gitblit.tests;
 
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeSet;
+
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.lib.TreeFormatter;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -26,6 +46,9 @@ import org.junit.Test;
 
 import com.gitblit.Constants;
 import com.gitblit.models.RepositoryModel;
+import com.gitblit.utils.DeepCopier;
+import com.gitblit.utils.FileUtils;
+import com.gitblit.utils.JGitUtils;
 
 public class RepositoryModelTest extends GitblitUnitTest {
 
@@ -90,4 +113,104 @@ public class RepositoryModelTest extends GitblitUnitTest {
 		assertEquals("GoodBye", model.customFields.get("anotherProperty"));
 	}
 
+	@Test
+	public void testCopy() throws Exception {
+		RepositoryModel model = new RepositoryModel("copy/test.git", "description", "admin", new Date());
+		List<Field> fields = new ArrayList<Field>();
+		for (Field field : RepositoryModel.class.getDeclaredFields()) {
+			int mod = field.getModifiers();
+			if (Modifier.isStatic(mod) || Modifier.isTransient(mod)) {
+				continue;
+			}
+			field.setAccessible(true);
+			fields.add(field);
+			field.set(model, sample(field));
+		}
+
+		// the hand-written copy must match a serialization round-trip
+		RepositoryModel expected = DeepCopier.copy(model);
+		RepositoryModel copy = model.copy();
+		for (Field field : fields) {
+			Object value = field.get(copy);
+			assertEquals(field.getName(), field.get(expected), value);
+			if (value instanceof Collection || value instanceof Map || value instanceof Date) {
+				assertNotSame(field.getName(), field.get(model), value);
+			}
+		}
+	}
+
+	@Test
+	public void testLastChange() throws Exception {
+		String name = "lastchange/test.git";
+		Repository db = JGitUtils.createRepository(repositories().getRepositoriesFolder(), name);
+		try {
+			repositories().getRepositoryModel(name);
+
+			// ref update through JGit
+			ObjectId first = commit(db, "first", 1400000000000L);
+			RefUpdate ru = db.updateRef("refs/heads/master");
+			ru.setNewObjectId(first);
+			ru.forceUpdate();
+
+			RepositoryModel model = repositories().getRepositoryModel(name);
+			assertEquals(1400000000000L, model.lastChange.getTime());
+			assertEquals("first", model.lastChangeAuthor);
+
+			// ref update by another process
+			ObjectId second = commit(db, "second", 1500000000000L);
+			File ref = new File(db.getDirectory(), "refs/heads/other");
+			FileUtils.writeContent(ref, second.name());
+
+			model = repositories().getRepositoryModel(name);
+			assertEquals(1500000000000L, model.lastChange.getTime());
+			assertEquals("second", model.lastChangeAuthor);
+		} finally {
+			db.close();
+			repositories().deleteRepository(name);
+		}
+	}
+
+	private ObjectId commit(Repository db, String author, long when) throws Exception {
+		ObjectInserter inserter = db.newObjectInserter();
+		try {
+			PersonIdent ident = new PersonIdent(author, author + "@gitblit.com", new Date(when), TimeZone.getDefault());
+			CommitBuilder commit = new CommitBuilder();
+			commit.setTreeId(inserter.insert(new TreeFormatter()));
+			commit.setAuthor(ident);
+			commit.setCommitter(ident);
+			commit.setMessage(author);
+			ObjectId id = inserter.insert(commit);
+			inserter.flush();
+			return id;
+		} finally {
+			inserter.close();
+		}
+	}
+
+	private Object sample(Field field) {
+		Class<?> type = field.getType();
+		if (type == String.class) {
+			return field.getName() + "-value";
+		} else if (type == boolean.class) {
+			return true;
+		} else if (type == int.class) {
+			return 7;
+		} else if (type == Date.class) {
+			return new Date(1234567890L);
+		} else if (type == List.class) {
+			return new ArrayList<String>(Arrays.asList("a", "b"));
+		} else if (type == Set.class) {
+			return new TreeSet<String>(Arrays.asList("a", "b"));
+		} else if (type == Map.class) {
+			Map<String, String> map = new LinkedHashMap<String, String>();
+			map.put("key", "value");
+			return map;
+		} else if (type.isEnum()) {
+			Object [] values = type.getEnumConstants();
+			return values[values.length - 1];
+		}
+		fail("Unhandled field type " + type.getName() + " for " + field.getName());
+		return null;
+	}
+
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.tests;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.gitblit.git.RepositoryTraffic;
+import com.gitblit.models.TrafficModel;
+
+public class RepositoryTrafficTest extends GitblitUnitTest {
+
+	@After
+	public void cleanup() {
+		RepositoryTraffic.instance().configure(null, 30);
+	}
+
+	@Test
+	public void testAccounting() throws Exception {
+		RepositoryTraffic traffic = RepositoryTraffic.instance();
+		traffic.configure(null, 30);
+		traffic.recordPush("Traffic/Test.git", 100);
+		traffic.recordPush("traffic/test", 50);
+
+		TrafficModel total = traffic.getTraffic("traffic/test.git");
+		assertEquals(2, total.pushes);
+		assertEquals(150, total.bytesReceived);
+		assertEquals(0, total.getUploads());
+		assertEquals(1, traffic.getDailyTraffic("traffic/test.git").size());
+
+		traffic.rename("traffic/test.git", "traffic/renamed.git");
+		assertTrue(traffic.getDailyTraffic("traffic/test.git").isEmpty());
+		assertEquals(2, traffic.getTraffic("traffic/renamed.git").pushes);
+
+		traffic.remove("traffic/renamed.git");
+		assertTrue(traffic.getDailyTraffic("traffic/renamed.git").isEmpty());
+	}
+
+	@Test
+	public void testPersistence() throws Exception {
+		File file = File.createTempFile("traffic-", ".json");
+		file.delete();
+		try {
+			RepositoryTraffic traffic = RepositoryTraffic.instance();
+			traffic.configure(file, 30);
+			traffic.recordPush("traffic/test.git", 100);
+			traffic.save();
+			assertTrue(file.exists());
+
+			traffic.configure(file, 30);
+			List<TrafficModel> days = traffic.getDailyTraffic("traffic/test.git");
+			assertEquals(1, days.size());
+			assertEquals(1, days.get(0).pushes);
+			assertEquals(100, days.get(0).bytesReceived);
+
+			traffic.configure(file, 0);
+			assertFalse(traffic.isEnabled());
+			traffic.recordPush("traffic/test.git", 100);
+			assertTrue(traffic.getDailyTraffic("traffic/test.git").isEmpty());
+		} finally {
+			file.delete();
+		}
+	}
+}
@@ -35,6 +35,7 @@ import com.gitblit.Constants.RegistrantType;
 import com.gitblit.GitBlitException.ForbiddenException;
 import com.gitblit.GitBlitException.UnauthorizedException;
 import com.gitblit.Keys;
+import com.gitblit.git.RepositoryTraffic;
 import com.gitblit.models.FederationModel;
 import com.gitblit.models.FederationProposal;
 import com.gitblit.models.FederationSet;
@@ -43,6 +44,7 @@ import com.gitblit.models.RepositoryModel;
 import com.gitblit.models.ServerSettings;
 import com.gitblit.models.ServerStatus;
 import com.gitblit.models.TeamModel;
+import com.gitblit.models.TrafficModel;
 import com.gitblit.models.UserModel;
 import com.gitblit.servlet.RpcServlet;
 import com.gitblit.utils.RpcUtils;
@@ -91,6 +93,94 @@ public class RpcTests extends GitblitUnitTest {
 		assertTrue("Repository list is empty!", map.size() > 0);
 	}
 
+	@Test
+	public void testListRepositoriesPage() throws IOException {
+		char [] pw = password.toCharArray();
+		Map<String, RepositoryModel> all = RpcUtils.getRepositories(url, account, pw);
+		assertTrue("Not enough repositories to page!", all.size() > 2);
+
+		List<String> page = new ArrayList<String>(RpcUtils.getRepositories(url, account, pw, null, 0, 2).keySet());
+		assertEquals(2, page.size());
+		List<String> next = new ArrayList<String>(RpcUtils.getRepositories(url, account, pw, null, 1, 2).keySet());
+		assertEquals(2, next.size());
+		assertEquals(page.get(1), next.get(0));
+
+		Map<String, RepositoryModel> filtered = RpcUtils.getRepositories(url, account, pw, "HELLOWORLD", 0, 100);
+		assertTrue(filtered.size() > 0);
+		for (RepositoryModel model : filtered.values()) {
+			assertTrue(model.name, model.name.contains("helloworld"));
+		}
+
+		Map<String, Collection<String>> branches = RpcUtils.getBranches(url, account, pw, "helloworld", 0, 1);
+		assertEquals(1, branches.size());
+		assertTrue(branches.keySet().iterator().next().contains("helloworld"));
+	}
+
+	@Test
+	public void testListBranchesPage() throws IOException {
+		char [] pw = password.toCharArray();
+		Map<String, Collection<String>> all = RpcUtils.getBranches(url, account, pw);
+		assertTrue("Not enough repositories to page!", all.size() > 2);
+
+		// repositories without branches do not count towards the pages
+		List<String> paged = new ArrayList<String>();
+		for (int offset = 0; offset < all.size(); offset += 2) {
+			Map<String, Collection<String>> page = RpcUtils.getBranches(url, account, pw, null, offset, 2);
+			assertEquals(Math.min(2, all.size() - offset), page.size());
+			paged.addAll(page.keySet());
+		}
+		assertEquals(all.size(), paged.size());
+		assertTrue(paged.containsAll(all.keySet()));
+	}
+
+	@Test
+	public void testListStarCounts() throws IOException {
+		String repository = "helloworld.git";
+		Map<String, Long> counts = RpcUtils.getStarCounts(url, account, password.toCharArray());
+		assertTrue("Star counts are missing " + repository, counts.containsKey(repository));
+		long stars = counts.get(repository);
+
+		UserModel user = new UserModel("stargazer");
+		user.password = "stargazer";
+		user.getPreferences().getRepositoryPreferences(repository).starred = true;
+		assertTrue(users().updateUserModel(user));
+		try {
+			counts = RpcUtils.getStarCounts(url, account, password.toCharArray());
+			assertEquals(stars + 1, counts.get(repository).longValue());
+		} finally {
+			users().deleteUser(user.username);
+		}
+
+		counts = RpcUtils.getStarCounts(url, account, password.toCharArray());
+		assertEquals(stars, counts.get(repository).longValue());
+	}
+
+	@Test
+	public void testListRepositoryTraffic() throws IOException {
+		String repository = "helloworld.git";
+		long pushes = getTotal(RpcUtils.getRepositoryTraffic(url, account, password.toCharArray(), repository)
+				.get(repository)).pushes;
+
+		RepositoryTraffic.instance().recordPush(repository, 1024);
+		Map<String, List<TrafficModel>> traffic = RpcUtils.getRepositoryTraffic(url, account,
+				password.toCharArray(), repository);
+		assertEquals(1, traffic.size());
+		TrafficModel total = getTotal(traffic.get(repository));
+		assertEquals(pushes + 1, total.pushes);
+		assertTrue(total.bytesReceived >= 1024);
+
+		traffic = RpcUtils.getRepositoryTraffic(url, account, password.toCharArray(), null);
+		assertTrue("Traffic is missing " + repository, traffic.containsKey(repository));
+	}
+
+	private TrafficModel getTotal(List<TrafficModel> days) {
+		TrafficModel total = new TrafficModel();
+		for (TrafficModel day : days) {
+			total.add(day);
+		}
+		return total;
+	}
+
 	@Test
 	public void testListUsers() throws IOException {
 		List<UserModel> list = null;
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.tests;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gitblit.Keys;
+import com.gitblit.tests.mock.MemorySettings;
+import com.gitblit.transport.ssh.commands.SshCommandScheduler;
+import com.gitblit.transport.ssh.commands.SshCommandScheduler.Pool;
+import com.gitblit.utils.WorkQueue.CancelableRunnable;
+
+public class SshCommandSchedulerTest extends GitblitUnitTest {
+
+	private SshCommandScheduler scheduler;
+
+	private List<String> executed;
+
+	private List<String> cancelled;
+
+	@Before
+	public void setup() {
+		MemorySettings settings = new MemorySettings();
+		settings.put(Keys.git.sshInteractiveThreads, "1");
+		settings.put(Keys.git.sshGitThreads, "1");
+		settings.put(Keys.git.sshCommandsPerUser, "1");
+		scheduler = new SshCommandScheduler(settings);
+		executed = new CopyOnWriteArrayList<String>();
+		cancelled = new CopyOnWriteArrayList<String>();
+	}
+
+	@After
+	public void teardown() {
+		scheduler.stop();
+	}
+
+	@Test
+	public void testRoundRobin() throws Exception {
+		CountDownLatch block = new CountDownLatch(1);
+		Future<?> first = scheduler.submit("alice", Pool.INTERACTIVE, new Command("a0", block));
+		scheduler.submit("alice", Pool.INTERACTIVE, new Command("a1", null));
+		scheduler.submit("alice", Pool.INTERACTIVE, new Command("a2", null));
+		Future<?> last = scheduler.submit("bob", Pool.INTERACTIVE, new Command("b1", null));
+		assertEquals(4, scheduler.getTasks().size());
+
+		block.countDown();
+		first.get(10, TimeUnit.SECONDS);
+		last.get(10, TimeUnit.SECONDS);
+		for (int i = 0; i < 1000 && scheduler.getRunTimes(Pool.INTERACTIVE).getCount() < 4; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(Arrays.asList("a0", "a1", "b1", "a2"), executed);
+		assertEquals(4, scheduler.getRunTimes(Pool.INTERACTIVE).getCount());
+		assertEquals(0, scheduler.getRunTimes(Pool.GIT).getCount());
+	}
+
+	@Test
+	public void testSeparatePools() throws Exception {
+		CountDownLatch block = new CountDownLatch(1);
+		scheduler.submit("alice", Pool.GIT, new Command("clone", block));
+		Future<?> interactive = scheduler.submit("alice", Pool.INTERACTIVE, new Command("keys", null));
+
+		// a blocked transfer does not delay interactive commands
+		interactive.get(10, TimeUnit.SECONDS);
+		assertEquals(Arrays.asList("keys"), executed);
+		block.countDown();
+	}
+
+	@Test
+	public void testCancelWaiting() throws Exception {
+		CountDownLatch block = new CountDownLatch(1);
+		scheduler.submit("alice", Pool.GIT, new Command("clone", block));
+		Future<?> waiting = scheduler.submit("alice", Pool.GIT, new Command("push", null));
+
+		assertTrue(waiting.cancel(true));
+		assertEquals(Arrays.asList("push"), cancelled);
+		assertEquals(1, scheduler.getTasks().size());
+		block.countDown();
+	}
+
+	private class Command implements CancelableRunnable {
+
+		final String name;
+
+		final CountDownLatch latch;
+
+		Command(String name, CountDownLatch latch) {
+			this.name = name;
+			this.latch = latch;
+		}
+
+		@Override
+		public void run() {
+			executed.add(name);
+			if (latch != null) {
+				try {
+					latch.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+				}
+			}
+		}
+
+		@Override
+		public void cancel() {
+			cancelled.add(name);
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+}
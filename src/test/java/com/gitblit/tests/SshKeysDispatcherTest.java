@@ -22,6 +22,7 @@ import org.junit.Test;
 import org.parboiled.common.StringUtils;
 
 import com.gitblit.Constants.AccessPermission;
+import com.gitblit.transport.ssh.MemoryKeyManager;
 import com.gitblit.transport.ssh.SshKey;
 
 /**
@@ -40,6 +41,24 @@ public class SshKeysDispatcherTest extends SshUnitTest {
 		assertEquals(String.format("%s%n%s", keys.get(0).getRawData(), keys.get(1).getRawData()), result);
 	}
 
+	@Test
+	public void testKeyIndex() throws Exception {
+		MemoryKeyManager keyManager = getKeyManager();
+		SshKey key = keyManager.getKey(username, rwKeyPair.getPublic());
+		assertNotNull(key);
+		assertEquals(AccessPermission.PUSH, key.getPermission());
+		assertEquals(AccessPermission.CLONE, keyManager.getKey(username, roKeyPair.getPublic()).getPermission());
+		assertNull(keyManager.getKey("nobody", rwKeyPair.getPublic()));
+
+		// changes through the key manager are visible immediately
+		KeyPair pair = generator.generateKeyPair();
+		assertNull(keyManager.getKey(username, pair.getPublic()));
+		keyManager.addKey(username, new SshKey(pair.getPublic()));
+		assertNotNull(keyManager.getKey(username, pair.getPublic()));
+		keyManager.removeKey(username, new SshKey(pair.getPublic()));
+		assertNull(keyManager.getKey(username, pair.getPublic()));
+	}
+
 	@Test
 	public void testKeysWhichCommand() throws Exception {
 		String result = testSshCommand("keys which -L");
@@ -16,6 +16,8 @@
 package com.gitblit.tests;
 
 import java.io.ByteArrayOutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
@@ -29,6 +31,8 @@ import org.junit.Test;
 
 import com.gitblit.Constants.SearchType;
 import com.gitblit.models.FeedEntryModel;
+import com.gitblit.servlet.SyndicationServlet;
+import com.gitblit.utils.Base64;
 import com.gitblit.utils.SyndicationUtils;
 
 public class SyndicationUtilsTest extends GitblitUnitTest {
@@ -124,4 +128,38 @@ public class SyndicationUtilsTest extends GitblitUnitTest {
 		assertTrue(feed.size() > 0);
 		assertEquals(5, feed.size());
 	}
+
+	@Test
+	public void testConditionalFeedRequest() throws Exception {
+		String url = SyndicationServlet.asLink(GitBlitSuite.url, "ticgit.git", "master", 5);
+		HttpURLConnection conn = openFeed(url);
+		assertEquals(HttpURLConnection.HTTP_OK, conn.getResponseCode());
+		String etag = conn.getHeaderField("ETag");
+		long lastModified = conn.getLastModified();
+		assertNotNull(etag);
+		assertTrue(lastModified > 0);
+		conn.getInputStream().close();
+
+		conn = openFeed(url);
+		conn.setRequestProperty("If-None-Match", etag);
+		assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, conn.getResponseCode());
+		assertEquals(etag, conn.getHeaderField("ETag"));
+
+		conn = openFeed(url);
+		conn.setIfModifiedSince(lastModified);
+		assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, conn.getResponseCode());
+
+		// a different page is a different feed
+		conn = openFeed(url + "&pg=1");
+		assertEquals(HttpURLConnection.HTTP_OK, conn.getResponseCode());
+		assertFalse(etag.equals(conn.getHeaderField("ETag")));
+		conn.getInputStream().close();
+	}
+
+	private HttpURLConnection openFeed(String url) throws Exception {
+		HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+		String credentials = GitBlitSuite.account + ":" + GitBlitSuite.password;
+		conn.setRequestProperty("Authorization", "Basic " + Base64.encodeBytes(credentials.getBytes()));
+		return conn;
+	}
 }
\ No newline at end of file
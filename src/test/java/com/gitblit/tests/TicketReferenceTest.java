@@ -44,6 +44,7 @@ import com.gitblit.Constants.AccessPermission;
 import com.gitblit.Constants.AccessRestrictionType;
 import com.gitblit.Constants.AuthorizationControl;
 import com.gitblit.GitBlitException;
+import com.gitblit.git.PostReceiveQueue;
 import com.gitblit.models.RepositoryModel;
 import com.gitblit.models.TicketModel;
 import com.gitblit.models.UserModel;
@@ -960,6 +961,7 @@ public class TicketReferenceTest extends GitblitUnitTest {
 			assertEquals(Status.OK, ref.getStatus());
 			assertEquals(commitSha, ref.getNewObjectId().name());
 		}
+		awaitPostReceive();
 	}
 	
 	private void assertForcePushSuccess(String commitSha, String branchName) throws Exception {
@@ -970,6 +972,7 @@ public class TicketReferenceTest extends GitblitUnitTest {
 			assertEquals(Status.OK, ref.getStatus());
 			assertEquals(commitSha, ref.getNewObjectId().name());
 		}
+		awaitPostReceive();
 	}
 	
 	private void assertDeleteBranch(String branchName) throws Exception {
@@ -984,5 +987,11 @@ public class TicketReferenceTest extends GitblitUnitTest {
 			RemoteRefUpdate ref = result.getRemoteUpdate("refs/heads/" + branchName);
 			assertEquals(Status.OK, ref.getStatus());
 		}
+		awaitPostReceive();
+	}
+
+	private void awaitPostReceive() throws Exception {
+		// referenced tickets are processed after the push completes
+		assertTrue(PostReceiveQueue.instance().await(repoName, 30000));
 	}
 }
\ No newline at end of file
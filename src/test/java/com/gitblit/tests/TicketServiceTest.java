@@ -248,6 +248,24 @@ public abstract class TicketServiceTest extends GitblitUnitTest {
 		assertTrue(service.deleteTicket(getRepository(), ticket.number, "D"));
 	}
 
+	@Test
+	public void testRenderedComment() throws Exception {
+		// C1: create the ticket
+		Change c1 = newChange("testRenderedComment() " + Long.toHexString(System.currentTimeMillis()));
+		TicketModel ticket = service.createTicket(getRepository(), c1);
+		assertTrue(ticket.number > 0);
+
+		String html = service.renderMarkdown(ticket, c1.comment.id, "this **is** a comment");
+		assertTrue(html.contains("<strong>is</strong>"));
+		assertSame(html, service.renderMarkdown(ticket, c1.comment.id, "this **is** a comment"));
+
+		ticket = service.updateComment(ticket, c1.comment.id, "E1", "this *was* a comment");
+		String revised = service.renderMarkdown(ticket, c1.comment.id, "this *was* a comment");
+		assertTrue(revised.contains("<em>was</em>"));
+
+		assertTrue(service.deleteTicket(getRepository(), ticket.number, "D"));
+	}
+
 	@Test
 	public void testMilestones() throws Exception {
 		service.createMilestone(getRepository(), "M1", "james");
@@ -16,19 +16,63 @@
 package com.gitblit.tests;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
 
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 
 import com.gitblit.ConfigUserService;
+import com.gitblit.Constants.AccessPermission;
 import com.gitblit.Constants.AccessRestrictionType;
 import com.gitblit.IUserService;
+import com.gitblit.Keys;
+import com.gitblit.manager.UserManager;
 import com.gitblit.models.RepositoryModel;
 import com.gitblit.models.TeamModel;
 import com.gitblit.models.UserModel;
+import com.gitblit.tests.mock.MemorySettings;
+import com.gitblit.tests.mock.MockRuntimeManager;
 
 public class UserServiceTest extends GitblitUnitTest {
 
+	private File realmFile;
+
+	private File journal;
+
+	private MemorySettings settings;
+
+	@Before
+	public void createRealm() {
+		realmFile = new File("us-realm-test.conf");
+		journal = new File(realmFile.getAbsolutePath() + ".journal");
+		realmFile.delete();
+		journal.delete();
+		settings = new MemorySettings();
+		settings.put(Keys.realm.journalSize, "100");
+		// see the changes of other instances immediately
+		settings.put(Keys.realm.reloadCheckMillis, "0");
+	}
+
+	@After
+	public void deleteRealm() {
+		realmFile.delete();
+		journal.delete();
+	}
+
+	/**
+	 * Returns a journaling user service of the realm file.
+	 */
+	private ConfigUserService newConfigUserService() {
+		ConfigUserService service = new ConfigUserService(realmFile);
+		service.setup(new MockRuntimeManager(settings));
+		return service;
+	}
+
 	@Test
 	public void testConfigUserService() throws IOException {
 		File file = new File("us-test.conf");
@@ -39,6 +83,185 @@ public class UserServiceTest extends GitblitUnitTest {
 		file.delete();
 	}
 
+	@Test
+	public void testConfigUserServiceJournal() throws IOException {
+		settings.put(Keys.realm.journalSize, "3");
+		ConfigUserService service = newConfigUserService();
+
+		// the first change creates the realm file
+		UserModel admin = new UserModel("admin");
+		admin.password = "password";
+		admin.canAdmin = true;
+		service.updateUserModel(admin);
+		assertTrue(realmFile.exists());
+		assertFalse(journal.exists());
+		long length = realmFile.length();
+
+		// further changes are journaled
+		TeamModel team = new TeamModel("team");
+		UserModel user = new UserModel("user");
+		user.password = "password";
+		user.displayName = "User\n#@ commit";
+		user.teams.add(team);
+		service.updateUserModel(user);
+		service.deleteUser("admin");
+		assertTrue(journal.exists());
+		assertEquals(length, realmFile.length());
+
+		// the journal is replayed
+		ConfigUserService reloaded = new ConfigUserService(realmFile);
+		assertNull(reloaded.getUserModel("admin"));
+		user = reloaded.getUserModel("user");
+		assertEquals("User\n#@ commit", user.displayName);
+		assertTrue(user.isTeamMember("team"));
+		assertTrue(reloaded.getTeamModel("team").hasUser("user"));
+
+		// the journal is compacted into the realm file when it is full
+		service.deleteTeam("team");
+		service.updateUserModel(new UserModel("other"));
+		assertFalse(journal.exists());
+		reloaded = new ConfigUserService(realmFile);
+		assertEquals(2, reloaded.getAllUsernames().size());
+		assertNull(reloaded.getTeamModel("team"));
+	}
+
+	@Test
+	public void testConfigUserServiceJournalTornTail() throws IOException {
+		ConfigUserService service = newConfigUserService();
+		service.updateUserModel(new UserModel("admin"));
+		service.updateUserModel(new UserModel("user"));
+		assertTrue(journal.exists());
+
+		// a change interrupted while it was appended
+		try (FileOutputStream os = new FileOutputStream(journal, true)) {
+			os.write("#@ begin\n#@ user torn\n[user \"torn\"]\n\tpassword = torn".getBytes(StandardCharsets.UTF_8));
+		}
+
+		// the incomplete change is truncated before the next change
+		ConfigUserService reloaded = newConfigUserService();
+		assertNull(reloaded.getUserModel("torn"));
+		reloaded.updateUserModel(new UserModel("other"));
+		assertFalse(new String(Files.readAllBytes(journal.toPath()), StandardCharsets.UTF_8).contains("torn"));
+
+		reloaded = new ConfigUserService(realmFile);
+		assertNull(reloaded.getUserModel("torn"));
+		assertNotNull(reloaded.getUserModel("user"));
+		assertNotNull(reloaded.getUserModel("other"));
+	}
+
+	@Test
+	public void testConfigUserServiceJournalExternalChanges() throws IOException {
+		ConfigUserService service = newConfigUserService();
+		service.updateUserModel(new UserModel("admin"));
+		ConfigUserService other = newConfigUserService();
+		assertNotNull(other.getUserModel("admin"));
+
+		// other instances see journaled changes
+		UserModel user = new UserModel("user");
+		user.displayName = "Journaled";
+		service.updateUserModel(user);
+		assertTrue(journal.exists());
+		assertEquals("Journaled", other.getUserModel("user").displayName);
+
+		// a hand edit of the realm file wins over the journal
+		long lastModified = realmFile.lastModified();
+		try (FileOutputStream os = new FileOutputStream(realmFile)) {
+			os.write("[user \"admin\"]\n\tdisplayName = Edited\n".getBytes(StandardCharsets.UTF_8));
+		}
+		realmFile.setLastModified(lastModified + 2000);
+		assertEquals("Edited", other.getUserModel("admin").displayName);
+		assertNull(other.getUserModel("user"));
+		assertFalse(journal.exists());
+		assertNull(service.getUserModel("user"));
+	}
+
+	@Test
+	public void testConfigUserServiceReloadCheck() throws IOException {
+		settings.put(Keys.realm.reloadCheckMillis, "60000");
+		ConfigUserService service = newConfigUserService();
+		service.updateUserModel(new UserModel("admin"));
+		assertNotNull(service.getUserModel("admin"));
+
+		// the change of another instance is not seen before the next check
+		ConfigUserService other = newConfigUserService();
+		other.updateUserModel(new UserModel("user"));
+		assertNotNull(other.getUserModel("user"));
+		assertNull(service.getUserModel("user"));
+
+		// a change of the service itself reads the files
+		service.updateUserModel(new UserModel("third"));
+		assertNotNull(service.getUserModel("user"));
+	}
+
+	@Test
+	public void testStarIndexReload() throws IOException {
+		UserManager users = new UserManager(new MockRuntimeManager(settings), null);
+		users.setUserService(new ConfigUserService(realmFile));
+
+		UserModel user = new UserModel("stargazer");
+		user.getPreferences().getRepositoryPreferences("repo.git").starred = true;
+		users.updateUserModel(user);
+		assertEquals(1, users.getStarCount("repo.git"));
+
+		// a change by another user service instance is picked up
+		ConfigUserService other = newConfigUserService();
+		user = other.getUserModel("stargazer");
+		user.getPreferences().getRepositoryPreferences("repo.git").starred = false;
+		other.updateUserModel(user);
+		assertEquals(0, users.getStarCount("repo.git"));
+	}
+
+	@Test
+	public void testConfigUserServiceSnapshots() throws IOException {
+		ConfigUserService service = newConfigUserService();
+
+		TeamModel team = new TeamModel("devs");
+		team.setRepositoryPermission("repo2.git", AccessPermission.PUSH);
+		UserModel alice = new UserModel("alice");
+		alice.password = "password";
+		alice.setRepositoryPermission("repo1.git", AccessPermission.PUSH);
+		alice.teams.add(team);
+		UserModel bob = new UserModel("bob");
+		bob.password = "password";
+		bob.setRepositoryPermission("repos/.*", AccessPermission.CLONE);
+		service.updateUserModels(Arrays.asList(alice, bob));
+
+		// role indexes with exact and regular expression permissions
+		assertEquals(Arrays.asList("alice"), service.getUsernamesForRepositoryRole("repo1.git"));
+		assertEquals(Arrays.asList("bob"), service.getUsernamesForRepositoryRole("repos/a.git"));
+		assertEquals(Arrays.asList("devs"), service.getTeamNamesForRepositoryRole("repo2.git"));
+		assertTrue(service.getUsernamesForRepositoryRole("repo2.git").isEmpty());
+
+		// lookups return copies
+		alice = service.getUserModel("alice");
+		alice.setRepositoryPermission("repo3.git", AccessPermission.PUSH);
+		assertTrue(service.getUsernamesForRepositoryRole("repo3.git").isEmpty());
+
+		// users see the current team definition
+		team = service.getTeamModel("devs");
+		team.setRepositoryPermission("repo3.git", AccessPermission.PUSH);
+		service.updateTeamModel(team);
+		assertTrue(journal.exists());
+		alice = service.getUserModel("alice");
+		assertTrue(alice.isTeamMember("devs"));
+		assertTrue(alice.teams.iterator().next().hasRepositoryPermission("repo3.git"));
+
+		// role changes
+		service.renameRepositoryRole("repo1.git", "renamed.git");
+		assertTrue(service.getUsernamesForRepositoryRole("repo1.git").isEmpty());
+		assertEquals(Arrays.asList("alice"), service.getUsernamesForRepositoryRole("renamed.git"));
+		service.deleteRepositoryRole("repo3.git");
+		assertTrue(service.getTeamNamesForRepositoryRole("repo3.git").isEmpty());
+		assertEquals(Arrays.asList("devs"), service.getTeamNamesForRepositoryRole("repo2.git"));
+
+		// deleted users can not be found by their cookie
+		String cookie = service.getCookie(service.getUserModel("bob"));
+		assertNotNull(service.getUserModel(cookie.toCharArray()));
+		service.deleteUser("bob");
+		assertNull(service.getUserModel(cookie.toCharArray()));
+		assertEquals(Arrays.asList("alice"), service.getAllUsernames());
+	}
+
 	protected void testUsers(IUserService service) {
 
 		UserModel admin = service.getUserModel("admin");